@@ -0,0 +1,143 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.PoliticaSincronizacion;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guardado y carga completos del catálogo con {@link OperacionArchivo}, en
+ * cada formato.
+ *
+ * <p>Además de las operaciones por segundo, el contador {@code bytes} informa
+ * los bytes escritos o leídos por segundo. El archivo queda en el directorio
+ * temporal, normalmente en la caché de páginas del sistema, y se guarda con
+ * {@link PoliticaSincronizacion#SISTEMA}, así que se mide sobre todo la
+ * codificación y no el disco (ver {@link BitacoraBenchmark}).</p>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ArchivoBenchmark {
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"10000", "100000", "1000000"})
+    public int tamano;
+
+    /** Porcentaje de películas; el resto son series. */
+    @Param({"100", "50", "0"})
+    public int porcentajePeliculas;
+
+    /** Formato de archivo. */
+    @Param({"BINARIO", "SERIALIZACION_JAVA"})
+    public OperacionArchivo.Formato formato;
+
+    private List<ProduccionAudiovisual> lista;
+    private Path directorio;
+    private OperacionArchivo archivoGuardar;
+    private OperacionArchivo archivoCargar;
+    private long bytesArchivo;
+    private PrintStream salida;
+
+    /**
+     * Bytes procesados por el hilo, que JMH informa como tasa por segundo.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        /** Bytes escritos o leídos. */
+        public long bytes;
+
+        /** Reinicia el contador en cada iteración. */
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Genera el catálogo y el archivo que se usa para medir la carga.
+     *
+     * @throws IOException si no se puede crear el directorio temporal
+     */
+    @Setup
+    public void preparar() throws IOException {
+        // OperacionArchivo informa cada guardado y carga por consola
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        lista = Catalogos.generar(tamano, porcentajePeliculas, Catalogos.SEMILLA);
+        directorio = Files.createTempDirectory("parcial-bench");
+        archivoGuardar = new OperacionArchivo(directorio.resolve("guardar.dat").toString());
+        archivoGuardar.setFormato(formato);
+        archivoGuardar.setPoliticaSincronizacion(PoliticaSincronizacion.SISTEMA);
+        archivoCargar = new OperacionArchivo(directorio.resolve("cargar.dat").toString());
+        archivoCargar.setFormato(formato);
+        archivoCargar.guardarArchivo(lista);
+        bytesArchivo = Files.size(directorio.resolve("cargar.dat"));
+        salida.println("Tamaño del archivo: " + bytesArchivo + " bytes");
+    }
+
+    /**
+     * Borra los archivos temporales.
+     *
+     * @throws IOException si no se pueden borrar
+     */
+    @TearDown
+    public void limpiar() throws IOException {
+        System.setOut(salida);
+        Files.deleteIfExists(directorio.resolve("guardar.dat"));
+        Files.deleteIfExists(directorio.resolve("cargar.dat"));
+        Files.deleteIfExists(directorio);
+    }
+
+    /**
+     * @param bytes contador de bytes escritos
+     */
+    @Benchmark
+    public void guardarArchivo(Bytes bytes) {
+        archivoGuardar.guardarArchivo(lista);
+        bytes.bytes += bytesArchivo;
+    }
+
+    /**
+     * @param bytes contador de bytes leídos
+     * @return producciones cargadas
+     */
+    @Benchmark
+    public List<ProduccionAudiovisual> cargarArchivo(Bytes bytes) {
+        List<ProduccionAudiovisual> cargadas = archivoCargar.cargarArchivo();
+        if (cargadas.size() != tamano) {
+            throw new IllegalStateException("Se cargaron " + cargadas.size() + " de " + tamano);
+        }
+        bytes.bytes += bytesArchivo;
+        return cargadas;
+    }
+}
@@ -0,0 +1,120 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.PoliticaSincronizacion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modificaciones en {@link ImplOperacionCrud} en modo bitácora, según la
+ * {@link PoliticaSincronizacion}.
+ *
+ * <p>A diferencia de {@link ArchivoBenchmark}, aquí sí se mide el disco: con
+ * {@link PoliticaSincronizacion#SIEMPRE} cada modificación espera a que su
+ * registro llegue al disco, por lo que el resultado depende sobre todo del
+ * dispositivo donde está el directorio temporal.</p>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BitacoraBenchmark {
+
+    /** Cantidad de códigos de la secuencia; potencia de dos para recorrerla con una máscara. */
+    private static final int SECUENCIA = 1 << 12;
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"10000"})
+    public int tamano;
+
+    /** Cuándo se fuerza la escritura de la bitácora en el disco. */
+    @Param({"SIEMPRE", "POR_LOTES", "SISTEMA"})
+    public PoliticaSincronizacion politica;
+
+    private Path directorio;
+    private ImplOperacionCrud servicio;
+    private String[] codigos;
+    private ProduccionAudiovisual[] reemplazos;
+    private int siguiente;
+    private PrintStream salida;
+
+    /**
+     * Guarda el catálogo inicial y abre el servicio en modo bitácora.
+     *
+     * @throws IOException si no se puede crear el directorio temporal
+     */
+    @Setup
+    public void preparar() throws IOException {
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        List<ProduccionAudiovisual> lista = Catalogos.generar(tamano, 50, Catalogos.SEMILLA);
+        directorio = Files.createTempDirectory("parcial-bench");
+        OperacionArchivo archivo = new OperacionArchivo(directorio.resolve("data.dat").toString());
+        archivo.setPoliticaSincronizacion(politica);
+        archivo.guardarArchivo(lista);
+        servicio = new ImplOperacionCrud(archivo, true);
+
+        SplittableRandom azar = new SplittableRandom(Catalogos.SEMILLA + 1);
+        Director[] directores = Catalogos.directores(lista);
+        codigos = new String[SECUENCIA];
+        reemplazos = new ProduccionAudiovisual[SECUENCIA];
+        for (int i = 0; i < SECUENCIA; i++) {
+            codigos[i] = Catalogos.codigo(azar.nextInt(tamano));
+            reemplazos[i] = Catalogos.produccion(codigos[i], azar, directores, 50);
+        }
+    }
+
+    /**
+     * Cierra la bitácora y borra los archivos temporales.
+     *
+     * @throws IOException si no se pueden borrar
+     */
+    @TearDown
+    public void limpiar() throws IOException {
+        servicio.cerrar();
+        System.setOut(salida);
+        try (var archivos = Files.list(directorio)) {
+            for (Path p : archivos.toList()) Files.delete(p);
+        }
+        Files.delete(directorio);
+    }
+
+    /**
+     * Modifica una producción, lo que anexa un registro a la bitácora.
+     *
+     * @return resultado de la modificación
+     */
+    @Benchmark
+    public boolean modificar() {
+        int i = siguiente++ & (SECUENCIA - 1);
+        return servicio.modificar(codigos[i], reemplazos[i]);
+    }
+}
@@ -0,0 +1,167 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.CacheOperacionCrud;
+import co.edu.poli.parcial.servicios.ImplOperacionCrudMapeado;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda y modificación en {@link ImplOperacionCrudMapeado} con y sin una
+ * {@link CacheOperacionCrud} delante.
+ *
+ * <p>Los códigos siguen una distribución de Zipf con exponente 0,9: pocas
+ * producciones concentran la mayoría de las consultas, como en un catálogo
+ * real. La caché guarda el {@code porcentajeCache} % del catálogo; con
+ * {@code expulsion=ninguna} se mide el almacén mapeado solo. La tasa de
+ * aciertos de cada combinación se imprime al terminar.</p>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CacheBenchmark {
+
+    /** Cantidad de códigos de la secuencia; potencia de dos para recorrerla con una máscara. */
+    private static final int SECUENCIA = 1 << 20;
+
+    /** Exponente de la distribución de Zipf. */
+    private static final double EXPONENTE = 0.9;
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"200000"})
+    public int tamano;
+
+    /** Porcentaje del catálogo que cabe en la caché. */
+    @Param({"1", "10"})
+    public int porcentajeCache;
+
+    /** Expulsión de la caché, o {@code ninguna} para no usar caché. */
+    @Param({"ninguna", "LRU", "TINY_LFU"})
+    public String expulsion;
+
+    /** Momento en que los cambios llegan al almacén. */
+    @Param({"DIRECTA", "DIFERIDA"})
+    public String escritura;
+
+    private Path directorio;
+    private ImplOperacionCrudMapeado almacen;
+    private OperacionCrud servicio;
+
+    /** Códigos a consultar, con distribución de Zipf. */
+    private String[] codigos;
+
+    /** Por cada código de la secuencia, una producción nueva con ese código para modificar. */
+    private ProduccionAudiovisual[] reemplazos;
+
+    private int siguiente;
+
+    /**
+     * Crea el almacén mapeado y prepara la secuencia de códigos.
+     *
+     * @throws IOException si no se puede crear el directorio temporal
+     */
+    @Setup
+    public void preparar() throws IOException {
+        List<ProduccionAudiovisual> lista = Catalogos.generar(tamano, 50, Catalogos.SEMILLA);
+        directorio = Files.createTempDirectory("parcial-bench");
+        almacen = new ImplOperacionCrudMapeado(directorio.resolve("cache").toString());
+        for (ProduccionAudiovisual p : lista) almacen.crear(p);
+
+        if (expulsion.equals("ninguna")) {
+            servicio = almacen;
+        } else {
+            servicio = new CacheOperacionCrud(almacen, Math.max(1, (long) tamano * porcentajeCache / 100),
+                    CacheOperacionCrud.PESO_UNITARIO, CacheOperacionCrud.Escritura.valueOf(escritura),
+                    CacheOperacionCrud.Expulsion.valueOf(expulsion));
+        }
+
+        double[] acumulada = new double[tamano];
+        double suma = 0;
+        for (int i = 0; i < tamano; i++) {
+            suma += 1 / Math.pow(i + 1, EXPONENTE);
+            acumulada[i] = suma;
+        }
+        // el rango en la distribución no coincide con el orden de los códigos
+        int[] permutacion = new int[tamano];
+        SplittableRandom azar = new SplittableRandom(Catalogos.SEMILLA + 1);
+        for (int i = 0; i < tamano; i++) {
+            int j = azar.nextInt(i + 1);
+            permutacion[i] = permutacion[j];
+            permutacion[j] = i;
+        }
+        Director[] directores = Catalogos.directores(lista);
+        codigos = new String[SECUENCIA];
+        reemplazos = new ProduccionAudiovisual[SECUENCIA];
+        for (int i = 0; i < SECUENCIA; i++) {
+            int rango = Arrays.binarySearch(acumulada, azar.nextDouble() * suma);
+            if (rango < 0) rango = Math.min(-rango - 1, tamano - 1);
+            codigos[i] = Catalogos.codigo(permutacion[rango]);
+            reemplazos[i] = Catalogos.produccion(codigos[i], azar, directores, 50);
+        }
+    }
+
+    /**
+     * Imprime la tasa de aciertos y borra el almacén.
+     *
+     * @throws IOException si no se pueden borrar los archivos
+     */
+    @TearDown
+    public void limpiar() throws IOException {
+        if (servicio instanceof CacheOperacionCrud cache) {
+            System.out.println(expulsion + "/" + escritura + ": " + cache.getEstadisticas());
+            cache.close();
+        }
+        almacen.close();
+        try (var archivos = Files.list(directorio)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(directorio);
+    }
+
+    private int siguiente() {
+        return siguiente++ & (SECUENCIA - 1);
+    }
+
+    /** @return producción encontrada */
+    @Benchmark
+    public ProduccionAudiovisual buscarPorCodigo() {
+        return servicio.buscarPorCodigo(codigos[siguiente()]);
+    }
+
+    /**
+     * Reemplaza una producción por otra con el mismo código.
+     *
+     * @return resultado de la modificación
+     */
+    @Benchmark
+    public boolean modificar() {
+        int i = siguiente();
+        return servicio.modificar(codigos[i], reemplazos[i]);
+    }
+}
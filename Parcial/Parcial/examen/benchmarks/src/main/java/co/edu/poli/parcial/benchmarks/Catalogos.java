@@ -0,0 +1,100 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera catálogos sintéticos y reproducibles para los benchmarks.
+ *
+ * <p>Con la misma semilla, el mismo tamaño y la misma proporción de películas
+ * se obtiene siempre el mismo catálogo, para que las mediciones de distintas
+ * ejecuciones sean comparables.</p>
+ *
+ * @author Felipe Parra
+ */
+final class Catalogos {
+
+    /** Semilla usada por todos los benchmarks. */
+    static final long SEMILLA = 20_240_501L;
+
+    /** Cantidad de directores distintos; se comparten entre producciones como en un catálogo real. */
+    private static final int DIRECTORES = 2_000;
+
+    private static final String[] GENEROS = {
+            "Acción", "Comedia", "Drama", "Terror", "Ciencia ficción",
+            "Animación", "Documental", "Suspenso", "Romance", "Aventura"
+    };
+
+    private static final String[] PALABRAS = {
+            "noche", "ciudad", "sombra", "camino", "río", "última", "guerra", "silencio",
+            "viaje", "fuego", "memoria", "mar", "tierra", "secreto", "lluvia", "sol"
+    };
+
+    private Catalogos() {}
+
+    /**
+     * @param i posición de la producción en el catálogo
+     * @return código de la producción
+     */
+    static String codigo(int i) {
+        return "P" + i;
+    }
+
+    /**
+     * Genera un catálogo con los códigos {@code P0} a {@code P(n-1)}.
+     *
+     * @param n                   cantidad de producciones
+     * @param porcentajePeliculas porcentaje de películas, entre 0 y 100; el resto son series
+     * @param semilla             semilla del generador
+     * @return catálogo generado
+     */
+    static List<ProduccionAudiovisual> generar(int n, int porcentajePeliculas, long semilla) {
+        SplittableRandom azar = new SplittableRandom(semilla);
+        Director[] directores = new Director[DIRECTORES];
+        for (int i = 0; i < directores.length; i++) {
+            directores[i] = new Director("DIR-" + i, "Director " + i, "Colombiana");
+        }
+
+        List<ProduccionAudiovisual> lista = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lista.add(produccion(codigo(i), azar, directores, porcentajePeliculas));
+        }
+        return lista;
+    }
+
+    /**
+     * Genera una producción con datos al azar.
+     *
+     * @param codigo              código de la producción
+     * @param azar                generador a utilizar
+     * @param directores          directores entre los que se elige
+     * @param porcentajePeliculas probabilidad, en porcentaje, de que sea una película
+     * @return producción generada
+     */
+    static ProduccionAudiovisual produccion(String codigo, SplittableRandom azar, Director[] directores,
+                                            int porcentajePeliculas) {
+        String titulo = PALABRAS[azar.nextInt(PALABRAS.length)] + " "
+                + PALABRAS[azar.nextInt(PALABRAS.length)] + " " + azar.nextInt(1000);
+        int anio = 1950 + azar.nextInt(75);
+        Director director = directores[azar.nextInt(directores.length)];
+        if (azar.nextInt(100) < porcentajePeliculas) {
+            return new Pelicula(codigo, titulo, anio, 80 + azar.nextInt(100), director,
+                    GENEROS[azar.nextInt(GENEROS.length)]);
+        }
+        return new Serie(codigo, titulo, anio, 20 + azar.nextInt(40), director, 1 + azar.nextInt(12));
+    }
+
+    /**
+     * @param lista catálogo generado por {@link #generar}
+     * @return directores que usa el catálogo, en el orden en que aparecen por primera vez
+     */
+    static Director[] directores(List<ProduccionAudiovisual> lista) {
+        return lista.stream().map(ProduccionAudiovisual::getDirector).distinct().toArray(Director[]::new);
+    }
+}
@@ -0,0 +1,146 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.CodecCompresion;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.PoliticaSincronizacion;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guardado y carga en formato binario con cada {@link CodecCompresion}, para
+ * comparar velocidad y tamaño.
+ *
+ * <p>El contador {@code producciones} informa las producciones guardadas o
+ * cargadas por segundo, que es comparable entre codecs; el tamaño del archivo
+ * de cada codec se imprime al preparar el estado. Igual que en
+ * {@link ArchivoBenchmark}, el archivo suele quedar en la caché de páginas,
+ * así que se mide el costo de procesador de comprimir y no el ahorro de
+ * escritura en el disco. Un codec propio se compara registrándolo y pasando
+ * su nombre con {@code -p compresion=nombre}.</p>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CompresionBenchmark {
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"100000", "1000000"})
+    public int tamano;
+
+    /** Nombre del codec de compresión. */
+    @Param({"ninguno", "deflate-rapido", "deflate"})
+    public String compresion;
+
+    private List<ProduccionAudiovisual> lista;
+    private Path directorio;
+    private OperacionArchivo archivoGuardar;
+    private OperacionArchivo archivoCargar;
+    private PrintStream salida;
+
+    /**
+     * Producciones procesadas por el hilo, que JMH informa como tasa por segundo.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Producciones {
+        /** Producciones guardadas o cargadas. */
+        public long producciones;
+
+        /** Reinicia el contador en cada iteración. */
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            producciones = 0;
+        }
+    }
+
+    /**
+     * Genera el catálogo y el archivo que se usa para medir la carga.
+     *
+     * @throws IOException si no se puede crear el directorio temporal
+     */
+    @Setup
+    public void preparar() throws IOException {
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        CodecCompresion codec = CodecCompresion.buscar(compresion);
+        lista = Catalogos.generar(tamano, 50, Catalogos.SEMILLA);
+        directorio = Files.createTempDirectory("parcial-bench");
+        archivoGuardar = crearArchivo(directorio.resolve("guardar.dat"), codec);
+        archivoCargar = crearArchivo(directorio.resolve("cargar.dat"), codec);
+        archivoCargar.guardarArchivo(lista);
+        long bytes = Files.size(directorio.resolve("cargar.dat"));
+        salida.printf("Tamaño del archivo con %s: %d bytes (%.1f por producción)%n",
+                compresion, bytes, (double) bytes / tamano);
+    }
+
+    private static OperacionArchivo crearArchivo(Path ruta, CodecCompresion codec) {
+        OperacionArchivo archivo = new OperacionArchivo(ruta.toString());
+        archivo.setCompresion(codec);
+        archivo.setPoliticaSincronizacion(PoliticaSincronizacion.SISTEMA);
+        return archivo;
+    }
+
+    /**
+     * Borra los archivos temporales.
+     *
+     * @throws IOException si no se pueden borrar
+     */
+    @TearDown
+    public void limpiar() throws IOException {
+        System.setOut(salida);
+        Files.deleteIfExists(directorio.resolve("guardar.dat"));
+        Files.deleteIfExists(directorio.resolve("cargar.dat"));
+        Files.deleteIfExists(directorio);
+    }
+
+    /**
+     * @param contador contador de producciones guardadas
+     */
+    @Benchmark
+    public void guardarArchivo(Producciones contador) {
+        archivoGuardar.guardarArchivo(lista);
+        contador.producciones += tamano;
+    }
+
+    /**
+     * @param contador contador de producciones cargadas
+     * @return producciones cargadas
+     */
+    @Benchmark
+    public List<ProduccionAudiovisual> cargarArchivo(Producciones contador) {
+        List<ProduccionAudiovisual> cargadas = archivoCargar.cargarArchivo();
+        if (cargadas.size() != tamano) {
+            throw new IllegalStateException("Se cargaron " + cargadas.size() + " de " + tamano);
+        }
+        contador.producciones += tamano;
+        return cargadas;
+    }
+}
@@ -0,0 +1,140 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda, modificación y eliminación en {@link ImplOperacionCrud} según el
+ * tamaño del catálogo.
+ *
+ * <p>Cada invocación toma el siguiente código de una secuencia al azar
+ * precalculada, para que el costo de elegirlo no entre en la medición y los
+ * accesos no favorezcan la caché. Para medir con 10 millones de producciones:</p>
+ * <pre>
+ *   java -jar target/benchmarks.jar CrudBenchmark -p tamano=10000000 -jvmArgs -Xmx8g
+ * </pre>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CrudBenchmark {
+
+    /** Cantidad de códigos de la secuencia; potencia de dos para recorrerla con una máscara. */
+    private static final int SECUENCIA = 1 << 16;
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"10000", "100000", "1000000"})
+    public int tamano;
+
+    /** Porcentaje de películas; el resto son series. */
+    @Param({"100", "50", "0"})
+    public int porcentajePeliculas;
+
+    private ImplOperacionCrud servicio;
+
+    /** Códigos existentes, en orden aleatorio. */
+    private String[] codigos;
+
+    /** Códigos que no existen en el catálogo. */
+    private String[] ausentes;
+
+    /** Por cada código de la secuencia, una producción nueva con ese código para modificar. */
+    private ProduccionAudiovisual[] reemplazos;
+
+    private int siguiente;
+
+    /**
+     * Carga el catálogo y prepara las secuencias de códigos.
+     */
+    @Setup
+    public void preparar() {
+        List<ProduccionAudiovisual> lista = Catalogos.generar(tamano, porcentajePeliculas, Catalogos.SEMILLA);
+        servicio = new ImplOperacionCrud();
+        for (ProduccionAudiovisual p : lista) servicio.crear(p);
+
+        SplittableRandom azar = new SplittableRandom(Catalogos.SEMILLA + 1);
+        Director[] directores = Catalogos.directores(lista);
+        codigos = new String[SECUENCIA];
+        ausentes = new String[SECUENCIA];
+        reemplazos = new ProduccionAudiovisual[SECUENCIA];
+        for (int i = 0; i < SECUENCIA; i++) {
+            int j = azar.nextInt(tamano);
+            codigos[i] = Catalogos.codigo(j);
+            ausentes[i] = "X" + j;
+            reemplazos[i] = Catalogos.produccion(codigos[i], azar, directores, porcentajePeliculas);
+        }
+    }
+
+    private int siguiente() {
+        return siguiente++ & (SECUENCIA - 1);
+    }
+
+    // -----------------------------------------------------------
+    // BÚSQUEDA
+    // -----------------------------------------------------------
+
+    /** @return producción encontrada */
+    @Benchmark
+    public ProduccionAudiovisual buscarPorCodigo() {
+        return servicio.buscarPorCodigo(codigos[siguiente()]);
+    }
+
+    /** @return {@code null}, el código no existe */
+    @Benchmark
+    public ProduccionAudiovisual buscarPorCodigoAusente() {
+        return servicio.buscarPorCodigo(ausentes[siguiente()]);
+    }
+
+    // -----------------------------------------------------------
+    // MODIFICACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Reemplaza una producción por otra con el mismo código.
+     *
+     * @return resultado de la modificación
+     */
+    @Benchmark
+    public boolean modificar() {
+        int i = siguiente();
+        return servicio.modificar(codigos[i], reemplazos[i]);
+    }
+
+    /**
+     * Elimina una producción y la vuelve a crear, para que el catálogo
+     * conserve su tamaño durante toda la medición. Incluye la búsqueda de la
+     * producción a recrear.
+     *
+     * @return resultado de la eliminación
+     */
+    @Benchmark
+    public boolean eliminarYCrear() {
+        int i = siguiente();
+        ProduccionAudiovisual p = servicio.buscarPorCodigo(codigos[i]);
+        boolean eliminada = servicio.eliminar(codigos[i]);
+        servicio.crear(p);
+        return eliminada;
+    }
+}
@@ -0,0 +1,41 @@
+package co.edu.poli.parcial.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de benchmarks.
+ *
+ * <p>Acepta las mismas opciones que JMH (por ejemplo, un patrón con los
+ * benchmarks a ejecutar o {@code -p tamano=10000}) y agrega siempre el
+ * perfilador de recolección de basura, que informa los bytes asignados por
+ * operación ({@code gc.alloc.rate.norm}) y la cantidad de recolecciones.</p>
+ *
+ * @author Felipe Parra
+ */
+public class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {}
+
+    /**
+     * @param args opciones de línea de comandos de JMH
+     * @throws Exception si las opciones no son válidas o falla la ejecución
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        if (linea.shouldHelp() || linea.shouldList() || linea.shouldListWithParams()
+                || linea.shouldListProfilers() || linea.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        Options opciones = new OptionsBuilder()
+                .parent(linea)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
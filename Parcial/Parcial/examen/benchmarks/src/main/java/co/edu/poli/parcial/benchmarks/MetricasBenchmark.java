@@ -0,0 +1,97 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.MedicionOperacionCrud;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de medir las operaciones con {@link MedicionOperacionCrud}: la misma
+ * búsqueda y modificación sobre {@link ImplOperacionCrud} con y sin el
+ * envoltorio.
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MetricasBenchmark {
+
+    /** Cantidad de códigos de la secuencia; potencia de dos para recorrerla con una máscara. */
+    private static final int SECUENCIA = 1 << 16;
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"100000"})
+    public int tamano;
+
+    /** {@code true} para envolver el servicio con {@link MedicionOperacionCrud}. */
+    @Param({"false", "true"})
+    public boolean medido;
+
+    private OperacionCrud servicio;
+
+    /** Códigos existentes, en orden aleatorio. */
+    private String[] codigos;
+
+    /** Por cada código de la secuencia, una producción nueva con ese código para modificar. */
+    private ProduccionAudiovisual[] reemplazos;
+
+    private int siguiente;
+
+    /**
+     * Carga el catálogo y prepara la secuencia de códigos.
+     */
+    @Setup
+    public void preparar() {
+        List<ProduccionAudiovisual> lista = Catalogos.generar(tamano, 50, Catalogos.SEMILLA);
+        ImplOperacionCrud impl = new ImplOperacionCrud();
+        for (ProduccionAudiovisual p : lista) impl.crear(p);
+        servicio = medido ? new MedicionOperacionCrud(impl, "benchmark") : impl;
+
+        SplittableRandom azar = new SplittableRandom(Catalogos.SEMILLA + 1);
+        Director[] directores = Catalogos.directores(lista);
+        codigos = new String[SECUENCIA];
+        reemplazos = new ProduccionAudiovisual[SECUENCIA];
+        for (int i = 0; i < SECUENCIA; i++) {
+            codigos[i] = Catalogos.codigo(azar.nextInt(tamano));
+            reemplazos[i] = Catalogos.produccion(codigos[i], azar, directores, 50);
+        }
+    }
+
+    private int siguiente() {
+        return siguiente++ & (SECUENCIA - 1);
+    }
+
+    /** @return producción encontrada */
+    @Benchmark
+    public ProduccionAudiovisual buscarPorCodigo() {
+        return servicio.buscarPorCodigo(codigos[siguiente()]);
+    }
+
+    /** @return resultado de la modificación */
+    @Benchmark
+    public boolean modificar() {
+        int i = siguiente();
+        return servicio.modificar(codigos[i], reemplazos[i]);
+    }
+}
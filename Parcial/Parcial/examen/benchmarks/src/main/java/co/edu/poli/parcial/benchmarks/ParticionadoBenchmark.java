@@ -0,0 +1,132 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.Agregacion;
+import co.edu.poli.parcial.servicios.Consulta;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.ImplOperacionCrudParticionado;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import co.edu.poli.parcial.servicios.PoliticaSincronizacion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorridos, consultas y guardado del catálogo completo con
+ * {@link ImplOperacionCrud} (cero particiones) y con
+ * {@link ImplOperacionCrudParticionado}.
+ *
+ * <p>La ganancia depende de los núcleos disponibles: con uno solo, las
+ * particiones solo agregan el costo de unir los resultados. El guardado usa
+ * {@link PoliticaSincronizacion#SISTEMA}, así que mide sobre todo la
+ * codificación (ver {@link ArchivoBenchmark}).</p>
+ *
+ * @author Felipe Parra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParticionadoBenchmark {
+
+    /** Cantidad de producciones del catálogo. */
+    @Param({"1000000"})
+    public int tamano;
+
+    /** Cantidad de particiones; cero para un solo {@link ImplOperacionCrud}. */
+    @Param({"0", "4", "8"})
+    public int particiones;
+
+    private OperacionCrud servicio;
+    private Runnable guardar;
+    private Path directorio;
+    private PrintStream salida;
+
+    /**
+     * Carga el catálogo en el servicio.
+     *
+     * @throws IOException si no se puede crear el directorio temporal
+     */
+    @Setup
+    public void preparar() throws IOException {
+        // los servicios informan cada guardado por consola
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        directorio = Files.createTempDirectory("parcial-bench");
+        OperacionArchivo archivo = new OperacionArchivo(directorio.resolve("data.dat").toString());
+        archivo.setPoliticaSincronizacion(PoliticaSincronizacion.SISTEMA);
+        if (particiones == 0) {
+            ImplOperacionCrud impl = new ImplOperacionCrud(archivo, false);
+            servicio = impl;
+            guardar = impl::guardarArchivo;
+        } else {
+            ImplOperacionCrudParticionado impl = new ImplOperacionCrudParticionado(archivo, particiones, false);
+            servicio = impl;
+            guardar = impl::guardarArchivo;
+        }
+        for (ProduccionAudiovisual p : Catalogos.generar(tamano, 50, Catalogos.SEMILLA)) servicio.crear(p);
+    }
+
+    /**
+     * Borra los archivos temporales.
+     *
+     * @throws IOException si no se pueden borrar
+     */
+    @TearDown
+    public void limpiar() throws IOException {
+        System.setOut(salida);
+        File[] archivos = directorio.toFile().listFiles();
+        if (archivos != null) {
+            for (File f : archivos) Files.deleteIfExists(f.toPath());
+        }
+        Files.deleteIfExists(directorio);
+    }
+
+    /** @return copia del catálogo */
+    @Benchmark
+    public List<ProduccionAudiovisual> listarTodos() {
+        return servicio.listarTodos();
+    }
+
+    /** @return producciones de un rango de años que no usa índices secundarios */
+    @Benchmark
+    public List<ProduccionAudiovisual> consultar() {
+        return servicio.consultar(new Consulta().anioEntre(1950, 2030));
+    }
+
+    /** @return cantidad de producciones por década */
+    @Benchmark
+    public Map<Integer, Long> agregar() {
+        return Agregacion.por(Agregacion.DECADA).contar(servicio);
+    }
+
+    /** Guarda el catálogo completo. */
+    @Benchmark
+    public void guardarArchivo() {
+        guardar.run();
+    }
+}
@@ -0,0 +1,347 @@
+package co.edu.poli.parcial.benchmarks;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.ImplOperacionCrudConcurrente;
+import co.edu.poli.parcial.servicios.JsonProduccion;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import co.edu.poli.parcial.servidor.ServidorCatalogo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Prueba de carga de {@link ServidorCatalogo}: varios clientes hacen
+ * solicitudes sin pausa durante un tiempo fijo y al final se informan el
+ * rendimiento y los percentiles de latencia.
+ *
+ * <pre>
+ *   PruebaCarga [--url http://localhost:8080] [--generar 100000] [--backend simple|concurrente]
+ *               [--clientes 16] [--calentamiento 5] [--duracion 20]
+ *               [--mezcla obtener:70,pagina:10,consulta:10,modificar:10]
+ *               [--objetivo-rps N] [--objetivo-p99-ms N]
+ * </pre>
+ *
+ * <p>Sin {@code --url} se inicia un servidor en este mismo proceso sobre un
+ * catálogo generado con {@link Catalogos}. Como en un catálogo real, la
+ * mayoría de las solicitudes van a unas pocas producciones. La mitad de las lecturas de una
+ * producción envían {@code If-None-Match} con la etiqueta recibida antes, para
+ * medir también las respuestas 304. Si se indica algún objetivo y no se
+ * cumple, el proceso termina con código 1, de modo que sirve en un script de
+ * integración continua.</p>
+ *
+ * @author Felipe Parra
+ */
+public class PruebaCarga {
+
+    private static final int OBTENER = 0;
+    private static final int PAGINA = 1;
+    private static final int CONSULTA = 2;
+    private static final int MODIFICAR = 3;
+    private static final String[] NOMBRES = {"obtener", "pagina", "consulta", "modificar"};
+
+    /** Producciones más consultadas y porcentaje de solicitudes que van a ellas. */
+    private static final int CALIENTES = 500;
+    private static final int CALIENTES_PORCENTAJE = 80;
+
+    private static final String[] GENEROS = {"Acción", "Comedia", "Drama", "Terror", "Romance"};
+
+    private PruebaCarga() {}
+
+    /**
+     * Histograma de latencias en microsegundos con cubetas log-lineales: 16
+     * cubetas por cada potencia de dos, lo que da un error relativo menor al
+     * 7 % sin guardar cada muestra. Es seguro para uso concurrente.
+     */
+    static final class Histograma {
+        private static final int SUBCUBETAS = 16;
+        private final AtomicLongArray cubetas = new AtomicLongArray(64 * SUBCUBETAS);
+        private final AtomicLong maximo = new AtomicLong();
+        private final AtomicLong cantidad = new AtomicLong();
+
+        void registrar(long micros) {
+            cubetas.incrementAndGet(cubeta(Math.max(0, micros)));
+            cantidad.incrementAndGet();
+            maximo.accumulateAndGet(micros, Math::max);
+        }
+
+        private static int cubeta(long v) {
+            if (v < SUBCUBETAS) return (int) v;
+            int exponente = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exponente - 4)) & (SUBCUBETAS - 1);
+            return (exponente - 3) * SUBCUBETAS + sub;
+        }
+
+        private static long limiteSuperior(int cubeta) {
+            if (cubeta < SUBCUBETAS) return cubeta;
+            int exponente = cubeta / SUBCUBETAS + 3;
+            int sub = cubeta % SUBCUBETAS;
+            return ((long) (SUBCUBETAS + sub + 1) << (exponente - 4)) - 1;
+        }
+
+        long cantidad() {
+            return cantidad.get();
+        }
+
+        long maximo() {
+            return maximo.get();
+        }
+
+        /**
+         * @param p percentil entre 0 y 1
+         * @return latencia en microsegundos por debajo de la cual queda ese percentil
+         */
+        long percentil(double p) {
+            long total = cantidad.get();
+            if (total == 0) return 0;
+            long buscado = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int i = 0; i < cubetas.length(); i++) {
+                acumulado += cubetas.get(i);
+                if (acumulado >= buscado) return Math.min(limiteSuperior(i), maximo.get());
+            }
+            return maximo.get();
+        }
+    }
+
+    /** Resultados compartidos por los clientes. */
+    private static final class Resultados {
+        final Histograma total = new Histograma();
+        final Histograma[] porTipo = {new Histograma(), new Histograma(), new Histograma(), new Histograma()};
+        final AtomicLong noModificadas = new AtomicLong();
+        final AtomicLong errores = new AtomicLong();
+        volatile boolean midiendo;
+    }
+
+    /**
+     * @param args argumentos de la línea de comandos
+     * @throws Exception si falla la preparación
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length % 2 != 0) {
+            uso();
+            return;
+        }
+        String url = null;
+        int generar = 100_000;
+        String backend = "simple";
+        int clientes = 16;
+        int calentamiento = 5;
+        int duracion = 20;
+        int[] mezcla = {70, 10, 10, 10};
+        double objetivoRps = 0;
+        double objetivoP99 = 0;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String valor = args[i + 1];
+                switch (args[i]) {
+                    case "--url" -> url = valor.endsWith("/") ? valor.substring(0, valor.length() - 1) : valor;
+                    case "--generar" -> generar = Integer.parseInt(valor);
+                    case "--backend" -> backend = valor.toLowerCase(Locale.ROOT);
+                    case "--clientes" -> clientes = Integer.parseInt(valor);
+                    case "--calentamiento" -> calentamiento = Integer.parseInt(valor);
+                    case "--duracion" -> duracion = Integer.parseInt(valor);
+                    case "--mezcla" -> mezcla = mezcla(valor);
+                    case "--objetivo-rps" -> objetivoRps = Double.parseDouble(valor);
+                    case "--objetivo-p99-ms" -> objetivoP99 = Double.parseDouble(valor);
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            uso();
+            return;
+        }
+
+        ServidorCatalogo local = null;
+        if (url == null) {
+            OperacionCrud catalogo = switch (backend) {
+                case "simple" -> new ImplOperacionCrud();
+                case "concurrente" -> new ImplOperacionCrudConcurrente();
+                default -> throw new IllegalArgumentException("Backend desconocido: " + backend);
+            };
+            catalogo.crearTodos(Catalogos.generar(generar, 50, Catalogos.SEMILLA));
+            local = new ServidorCatalogo(catalogo);
+            int puerto = local.iniciar(0);
+            url = "http://localhost:" + puerto;
+            System.out.printf("Servidor local con %,d producciones (%s, %s)%n", generar, backend,
+                    local.isHilosVirtuales() ? "hilos virtuales" : "grupo fijo de hilos");
+        }
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String[] codigos = codigos(cliente, url);
+        if (codigos.length == 0) {
+            System.out.println("El catálogo está vacío");
+            if (local != null) local.detener(0);
+            return;
+        }
+
+        Resultados resultados = new Resultados();
+        int[] acumulada = new int[mezcla.length];
+        for (int i = 0, suma = 0; i < mezcla.length; i++) acumulada[i] = suma += mezcla[i];
+        List<Thread> hilos = new ArrayList<>();
+        long fin = System.nanoTime() + (calentamiento + duracion) * 1_000_000_000L;
+        for (int c = 0; c < clientes; c++) {
+            final String base = url;
+            final long semilla = Catalogos.SEMILLA + c;
+            Thread t = new Thread(() -> trabajar(cliente, base, codigos, acumulada, semilla, fin, resultados),
+                    "cliente-" + c);
+            t.setDaemon(true);
+            hilos.add(t);
+            t.start();
+        }
+        Thread.sleep(calentamiento * 1000L);
+        resultados.midiendo = true;
+        long inicio = System.nanoTime();
+        for (Thread t : hilos) t.join();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        if (local != null) local.detener(1);
+
+        double rps = resultados.total.cantidad() / segundos;
+        System.out.printf("%nClientes: %d, duración: %.1f s, solicitudes: %,d, errores: %,d, 304: %,d%n",
+                clientes, segundos, resultados.total.cantidad(), resultados.errores.get(),
+                resultados.noModificadas.get());
+        System.out.printf("%-10s %10s %9s %9s %9s %9s %9s%n", "tipo", "rps", "p50 ms", "p90 ms", "p99 ms",
+                "p999 ms", "max ms");
+        for (int i = 0; i < NOMBRES.length; i++) {
+            imprimir(NOMBRES[i], resultados.porTipo[i], segundos);
+        }
+        imprimir("total", resultados.total, segundos);
+
+        double p99 = resultados.total.percentil(0.99) / 1000.0;
+        boolean cumple = resultados.errores.get() == 0;
+        if (objetivoRps > 0 && rps < objetivoRps) {
+            System.out.printf("No se cumple el objetivo de rendimiento: %.0f < %.0f rps%n", rps, objetivoRps);
+            cumple = false;
+        }
+        if (objetivoP99 > 0 && p99 > objetivoP99) {
+            System.out.printf("No se cumple el objetivo de latencia: p99 %.2f > %.2f ms%n", p99, objetivoP99);
+            cumple = false;
+        }
+        if (!cumple) System.exit(1);
+        if (objetivoRps > 0 || objetivoP99 > 0) System.out.println("Objetivos cumplidos");
+    }
+
+    private static void trabajar(HttpClient cliente, String url, String[] codigos, int[] acumulada,
+                                 long semilla, long fin, Resultados resultados) {
+        SplittableRandom azar = new SplittableRandom(semilla);
+        String[] etiquetas = new String[codigos.length];
+        Director director = new Director("DIR-CARGA", "Director de carga", "Colombiana");
+        while (System.nanoTime() < fin) {
+            int r = azar.nextInt(acumulada[acumulada.length - 1]);
+            int tipo = 0;
+            while (r >= acumulada[tipo]) tipo++;
+            int i = azar.nextInt(100) < CALIENTES_PORCENTAJE
+                    ? azar.nextInt(Math.min(codigos.length, CALIENTES))
+                    : azar.nextInt(codigos.length);
+            HttpRequest.Builder solicitud;
+            switch (tipo) {
+                case OBTENER -> {
+                    solicitud = HttpRequest.newBuilder(URI.create(url + "/producciones/" + codigos[i]));
+                    if (etiquetas[i] != null && azar.nextBoolean()) solicitud.header("If-None-Match", etiquetas[i]);
+                }
+                case PAGINA -> solicitud = HttpRequest.newBuilder(URI.create(url + "/producciones?desde="
+                        + azar.nextInt(codigos.length) + "&cantidad=50"));
+                case CONSULTA -> solicitud = HttpRequest.newBuilder(URI.create(url + "/producciones?genero="
+                        + URLEncoder.encode(GENEROS[azar.nextInt(GENEROS.length)], StandardCharsets.UTF_8)
+                        + "&anioDesde=" + (1950 + azar.nextInt(70)) + "&cantidad=20"));
+                default -> {
+                    ProduccionAudiovisual p = Catalogos.produccion(codigos[i], azar, new Director[]{director}, 50);
+                    StringBuilder sb = new StringBuilder(256);
+                    JsonProduccion.escribir(sb, p);
+                    solicitud = HttpRequest.newBuilder(URI.create(url + "/producciones/" + codigos[i]))
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(sb.toString()));
+                }
+            }
+            long inicio = System.nanoTime();
+            try {
+                HttpResponse<byte[]> respuesta = cliente.send(solicitud.timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                long micros = (System.nanoTime() - inicio) / 1000;
+                int estado = respuesta.statusCode();
+                if (tipo == OBTENER && estado == 200) {
+                    etiquetas[i] = respuesta.headers().firstValue("ETag").orElse(null);
+                } else if (tipo == MODIFICAR) {
+                    etiquetas[i] = null;
+                }
+                if (!resultados.midiendo) continue;
+                if (estado == 304) resultados.noModificadas.incrementAndGet();
+                else if (estado >= 400) resultados.errores.incrementAndGet();
+                resultados.total.registrar(micros);
+                resultados.porTipo[tipo].registrar(micros);
+            } catch (IOException e) {
+                if (resultados.midiendo) resultados.errores.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los códigos del catálogo con una página en formato de un objeto
+     * por línea.
+     */
+    private static String[] codigos(HttpClient cliente, String url) throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> respuesta = cliente.send(
+                HttpRequest.newBuilder(URI.create(url + "/producciones?cantidad=10000"))
+                        .header("Accept", "application/x-ndjson").build(),
+                HttpResponse.BodyHandlers.ofLines());
+        if (respuesta.statusCode() != 200) {
+            throw new IOException("No se pudo leer el catálogo: estado " + respuesta.statusCode());
+        }
+        return respuesta.body()
+                .filter(linea -> !linea.isBlank())
+                .map(linea -> JsonProduccion.leer(linea).getCodigo())
+                .toArray(String[]::new);
+    }
+
+    private static int[] mezcla(String valor) {
+        int[] mezcla = new int[NOMBRES.length];
+        for (String parte : valor.split(",")) {
+            String[] par = parte.split(":");
+            int tipo = List.of(NOMBRES).indexOf(par[0].trim().toLowerCase(Locale.ROOT));
+            if (par.length != 2 || tipo < 0) throw new IllegalArgumentException("Mezcla inválida: " + parte);
+            mezcla[tipo] = Integer.parseInt(par[1].trim());
+        }
+        int suma = 0;
+        for (int m : mezcla) {
+            if (m < 0) throw new IllegalArgumentException("Mezcla inválida: " + valor);
+            suma += m;
+        }
+        if (suma == 0) throw new IllegalArgumentException("Mezcla vacía: " + valor);
+        return mezcla;
+    }
+
+    private static void imprimir(String nombre, Histograma h, double segundos) {
+        if (h.cantidad() == 0) return;
+        System.out.printf("%-10s %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f%n", nombre, h.cantidad() / segundos,
+                h.percentil(0.50) / 1000.0, h.percentil(0.90) / 1000.0, h.percentil(0.99) / 1000.0,
+                h.percentil(0.999) / 1000.0, h.maximo() / 1000.0);
+    }
+
+    private static void uso() {
+        System.out.println("Uso: PruebaCarga [--url http://localhost:8080] [--generar 100000]"
+                + " [--backend simple|concurrente] [--clientes 16] [--calentamiento 5] [--duracion 20]"
+                + " [--mezcla obtener:70,pagina:10,consulta:10,modificar:10]"
+                + " [--objetivo-rps N] [--objetivo-p99-ms N]");
+    }
+}
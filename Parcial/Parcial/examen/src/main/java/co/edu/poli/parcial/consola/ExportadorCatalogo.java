@@ -0,0 +1,552 @@
+package co.edu.poli.parcial.consola;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+import co.edu.poli.parcial.servicios.Consulta;
+import co.edu.poli.parcial.servicios.CsvProduccion;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.JsonProduccion;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import co.edu.poli.parcial.servicios.ProgresoOperacion;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación del catálogo a CSV, JSON Lines o un formato columnar, sin
+ * interfaz gráfica.
+ *
+ * <p>Recorre el catálogo con {@link OperacionCrud#recorrerTodos(Consumer)},
+ * así que no copia {@link OperacionCrud#listarTodos()} en memoria: cada
+ * producción se codifica en un búfer de bytes que se vuelca al canal del
+ * archivo al llenarse. Con compresión gzip (por defecto si el nombre termina
+ * en {@code .gz}) el canal pasa por un {@link GZIPOutputStream}. Se escribe
+ * sobre un archivo temporal que se renombra al terminar, por lo que un error
+ * no deja un archivo a medias.</p>
+ *
+ * <p>El formato columnar agrupa las producciones en grupos de hasta
+ * {@value #TAM_GRUPO} filas y, dentro de cada grupo, escribe cada columna
+ * seguida, lo que además comprime mejor con gzip:</p>
+ * <pre>
+ *   "PCOL", versión (1 byte)
+ *   por grupo: cantidad n (int), tipo[n] (byte: 0 película, 1 serie),
+ *              anio[n], duracion[n], temporadas[n] (int),
+ *              y n textos por cada columna codigo, titulo, genero,
+ *              director_id, director, nacionalidad
+ *              (largo + 1 en varint, 0 si es nulo, y los bytes UTF-8)
+ *   fin: cantidad 0
+ * </pre>
+ * <p>{@link #leerColumnar(Path, Consumer)} lee ese formato.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ExportadorCatalogo {
+
+    /**
+     * Formatos de salida soportados.
+     */
+    public enum Formato {
+        /** CSV con cabecera, ver {@link CsvProduccion}. */
+        CSV,
+        /** Un objeto JSON por línea, ver {@link JsonProduccion}. */
+        JSON_LINES,
+        /** Formato binario por columnas, descrito en {@link ExportadorCatalogo}. */
+        COLUMNAR;
+
+        /**
+         * Deduce el formato por la extensión del archivo, ignorando
+         * {@code .gz}: {@code .csv}, {@code .jsonl} o {@code .pcol}.
+         *
+         * @param archivo archivo de salida
+         * @return formato del archivo
+         * @throws IllegalArgumentException si la extensión no es reconocida
+         */
+        public static Formato detectar(Path archivo) {
+            String nombre = sinGz(archivo);
+            if (nombre.endsWith(".csv")) return CSV;
+            if (nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson") || nombre.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            if (nombre.endsWith(".pcol")) return COLUMNAR;
+            throw new IllegalArgumentException("No se reconoce el formato de " + archivo.getFileName());
+        }
+    }
+
+    /** Filas por grupo del formato columnar. */
+    static final int TAM_GRUPO = 1 << 16;
+
+    private static final byte[] MAGIA_COLUMNAR = {'P', 'C', 'O', 'L'};
+    private static final byte VERSION_COLUMNAR = 1;
+
+    /** Tamaño del búfer que se vuelca al canal. */
+    private static final int TAM_BUFER = 1 << 18;
+
+    /** Cada cuántas producciones se informa el avance. */
+    private static final int PASO_PROGRESO = 1 << 16;
+
+    private final OperacionCrud origen;
+    private Formato formato;
+    private Boolean comprimir;
+    private Consulta filtro;
+    private ProgresoOperacion progreso = ProgresoOperacion.NINGUNO;
+
+    /**
+     * @param origen catálogo a exportar
+     */
+    public ExportadorCatalogo(OperacionCrud origen) {
+        this.origen = origen;
+    }
+
+    /** @param formato formato de salida, o {@code null} para deducirlo del nombre del archivo */
+    public void setFormato(Formato formato) {
+        this.formato = formato;
+    }
+
+    /** @param comprimir si se comprime con gzip, o {@code null} para deducirlo del nombre del archivo */
+    public void setComprimir(Boolean comprimir) {
+        this.comprimir = comprimir;
+    }
+
+    /** @param filtro criterios que deben cumplir las producciones exportadas, o {@code null} para todas */
+    public void setFiltro(Consulta filtro) {
+        this.filtro = filtro;
+    }
+
+    /** @param progreso receptor de la cantidad de producciones recorridas sobre el total del catálogo */
+    public void setProgreso(ProgresoOperacion progreso) {
+        this.progreso = progreso;
+    }
+
+    // -----------------------------------------------------------
+    // EXPORTACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Exporta el catálogo al archivo indicado, reemplazándolo si existe.
+     *
+     * @param destino archivo de salida
+     * @return cantidad de producciones exportadas
+     * @throws IOException              si falla la escritura o el renombrado
+     * @throws IllegalArgumentException si el formato no se reconoce
+     */
+    public long exportar(Path destino) throws IOException {
+        Formato f = formato != null ? formato : Formato.detectar(destino);
+        boolean gzip = comprimir != null ? comprimir : destino.getFileName().toString()
+                .toLowerCase(Locale.ROOT).endsWith(".gz");
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        long total = origen.contar();
+        long[] recorridas = {0};
+        long exportadas;
+        try {
+            try (Salida salida = new Salida(abrir(temporal, gzip))) {
+                Escritor escritor = switch (f) {
+                    case CSV -> new EscritorTexto(salida, CsvProduccion::escribir, CsvProduccion.CABECERA);
+                    case JSON_LINES -> new EscritorTexto(salida, JsonProduccion::escribir, null);
+                    case COLUMNAR -> new EscritorColumnar(salida);
+                };
+                origen.recorrerTodos(p -> {
+                    if (filtro == null || filtro.coincide(p)) {
+                        try {
+                            escritor.escribir(p);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    if (++recorridas[0] % PASO_PROGRESO == 0) progreso.actualizar(recorridas[0], total);
+                });
+                escritor.terminar();
+                exportadas = escritor.cantidad;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        progreso.actualizar(recorridas[0], total);
+        return exportadas;
+    }
+
+    private static WritableByteChannel abrir(Path archivo, boolean gzip) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!gzip) return canal;
+        return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(canal), 1 << 16));
+    }
+
+    private static String sinGz(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        return nombre.endsWith(".gz") ? nombre.substring(0, nombre.length() - 3) : nombre;
+    }
+
+    /**
+     * Búfer de bytes que se vuelca a un canal al llenarse.
+     */
+    private static final class Salida implements AutoCloseable {
+        private final WritableByteChannel canal;
+        private final ByteBuffer buf = ByteBuffer.allocate(TAM_BUFER);
+        private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        Salida(WritableByteChannel canal) {
+            this.canal = canal;
+        }
+
+        void asegurar(int bytes) throws IOException {
+            if (buf.remaining() < bytes) volcar();
+        }
+
+        void escribirByte(int b) throws IOException {
+            asegurar(1);
+            buf.put((byte) b);
+        }
+
+        void escribirInt(int v) throws IOException {
+            asegurar(4);
+            buf.putInt(v);
+        }
+
+        void escribirVarint(int v) throws IOException {
+            asegurar(5);
+            while ((v & ~0x7F) != 0) {
+                buf.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        void escribirBytes(byte[] b) throws IOException {
+            int desde = 0;
+            while (desde < b.length) {
+                if (!buf.hasRemaining()) volcar();
+                int n = Math.min(buf.remaining(), b.length - desde);
+                buf.put(b, desde, n);
+                desde += n;
+            }
+        }
+
+        /** Codifica en UTF-8 texto formado por líneas completas. */
+        void escribirTexto(CharSequence texto) throws IOException {
+            CharBuffer cb = CharBuffer.wrap(texto);
+            while (true) {
+                CoderResult r = utf8.encode(cb, buf, false);
+                if (!r.isOverflow()) break;
+                volcar();
+            }
+        }
+
+        private void volcar() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) canal.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                volcar();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    /**
+     * Codificador de producciones de un formato.
+     */
+    private abstract static class Escritor {
+        final Salida salida;
+        long cantidad;
+
+        Escritor(Salida salida) {
+            this.salida = salida;
+        }
+
+        abstract void escribir(ProduccionAudiovisual p) throws IOException;
+
+        abstract void terminar() throws IOException;
+    }
+
+    /** Codificación de una producción como una línea, sin el salto de línea. */
+    @FunctionalInterface
+    private interface Linea {
+        void escribir(StringBuilder sb, ProduccionAudiovisual p);
+    }
+
+    /**
+     * Formatos de una línea por producción: acumula líneas en texto y las
+     * codifica en bloque.
+     */
+    private static final class EscritorTexto extends Escritor {
+        private final Linea linea;
+        private final StringBuilder sb = new StringBuilder(1 << 16);
+
+        EscritorTexto(Salida salida, Linea linea, String cabecera) {
+            super(salida);
+            this.linea = linea;
+            if (cabecera != null) sb.append(cabecera).append('\n');
+        }
+
+        @Override
+        void escribir(ProduccionAudiovisual p) throws IOException {
+            linea.escribir(sb, p);
+            sb.append('\n');
+            cantidad++;
+            if (sb.length() >= 1 << 15) vaciar();
+        }
+
+        private void vaciar() throws IOException {
+            salida.escribirTexto(sb);
+            sb.setLength(0);
+        }
+
+        @Override
+        void terminar() throws IOException {
+            vaciar();
+        }
+    }
+
+    /**
+     * Formato columnar: retiene las producciones de un grupo y lo escribe
+     * columna por columna al completarlo.
+     */
+    private static final class EscritorColumnar extends Escritor {
+        private final ProduccionAudiovisual[] grupo = new ProduccionAudiovisual[TAM_GRUPO];
+        private int n;
+
+        EscritorColumnar(Salida salida) throws IOException {
+            super(salida);
+            salida.escribirBytes(MAGIA_COLUMNAR);
+            salida.escribirByte(VERSION_COLUMNAR);
+        }
+
+        @Override
+        void escribir(ProduccionAudiovisual p) throws IOException {
+            grupo[n++] = p;
+            cantidad++;
+            if (n == grupo.length) vaciar();
+        }
+
+        private void vaciar() throws IOException {
+            if (n == 0) return;
+            salida.escribirInt(n);
+            for (int i = 0; i < n; i++) salida.escribirByte(grupo[i] instanceof Pelicula ? 0 : 1);
+            for (int i = 0; i < n; i++) salida.escribirInt(grupo[i].getFechaEstreno());
+            for (int i = 0; i < n; i++) salida.escribirInt(grupo[i].getDuracionMin());
+            for (int i = 0; i < n; i++) {
+                salida.escribirInt(grupo[i] instanceof Serie s ? s.getNumeroTemporadas() : 0);
+            }
+            for (int i = 0; i < n; i++) texto(grupo[i].getCodigo());
+            for (int i = 0; i < n; i++) texto(grupo[i].getTitulo());
+            for (int i = 0; i < n; i++) texto(grupo[i] instanceof Pelicula pel ? pel.getGenero() : null);
+            for (int i = 0; i < n; i++) {
+                Director d = grupo[i].getDirector();
+                texto(d == null ? null : d.getId());
+            }
+            for (int i = 0; i < n; i++) {
+                Director d = grupo[i].getDirector();
+                texto(d == null ? null : d.getNombre());
+            }
+            for (int i = 0; i < n; i++) {
+                Director d = grupo[i].getDirector();
+                texto(d == null ? null : d.getNacionalidad());
+            }
+            Arrays.fill(grupo, 0, n, null);
+            n = 0;
+        }
+
+        private void texto(String s) throws IOException {
+            if (s == null) {
+                salida.escribirVarint(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            salida.escribirVarint(b.length + 1);
+            salida.escribirBytes(b);
+        }
+
+        @Override
+        void terminar() throws IOException {
+            vaciar();
+            salida.escribirInt(0);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // LECTURA DEL FORMATO COLUMNAR
+    // -----------------------------------------------------------
+
+    /**
+     * Lee un archivo exportado en formato columnar, grupo por grupo.
+     *
+     * @param archivo archivo columnar, comprimido con gzip si termina en {@code .gz}
+     * @param accion  acción a aplicar a cada producción, en el orden del archivo
+     * @return cantidad de producciones leídas
+     * @throws IOException si falla la lectura o el archivo no es columnar
+     */
+    public static long leerColumnar(Path archivo, Consumer<? super ProduccionAudiovisual> accion) throws IOException {
+        InputStream base = Files.newInputStream(archivo);
+        InputStream in = archivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")
+                ? new GZIPInputStream(base, 1 << 16) : new BufferedInputStream(base, 1 << 16);
+        try (DataInputStream din = new DataInputStream(in)) {
+            byte[] magia = new byte[MAGIA_COLUMNAR.length];
+            din.readFully(magia);
+            if (!Arrays.equals(magia, MAGIA_COLUMNAR)) throw new IOException("No es un archivo columnar");
+            int version = din.readUnsignedByte();
+            if (version != VERSION_COLUMNAR) throw new IOException("Versión columnar no soportada: " + version);
+
+            long total = 0;
+            while (true) {
+                int n = din.readInt();
+                if (n == 0) return total;
+                if (n < 0 || n > TAM_GRUPO) throw new IOException("Grupo inválido: " + n);
+                byte[] tipo = new byte[n];
+                din.readFully(tipo);
+                int[] anio = enteros(din, n);
+                int[] duracion = enteros(din, n);
+                int[] temporadas = enteros(din, n);
+                String[] codigo = textos(din, n);
+                String[] titulo = textos(din, n);
+                String[] genero = textos(din, n);
+                String[] directorId = textos(din, n);
+                String[] director = textos(din, n);
+                String[] nacionalidad = textos(din, n);
+                for (int i = 0; i < n; i++) {
+                    Director d = director[i] == null && directorId[i] == null ? null
+                            : new Director(directorId[i], director[i], nacionalidad[i]);
+                    accion.accept(tipo[i] == 0
+                            ? new Pelicula(codigo[i], titulo[i], anio[i], duracion[i], d, genero[i])
+                            : new Serie(codigo[i], titulo[i], anio[i], duracion[i], d, temporadas[i]));
+                }
+                total += n;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Archivo columnar truncado", e);
+        }
+    }
+
+    private static int[] enteros(DataInputStream in, int n) throws IOException {
+        int[] r = new int[n];
+        for (int i = 0; i < n; i++) r[i] = in.readInt();
+        return r;
+    }
+
+    private static String[] textos(DataInputStream in, int n) throws IOException {
+        String[] r = new String[n];
+        byte[] b = new byte[64];
+        for (int i = 0; i < n; i++) {
+            int largo = leerVarint(in);
+            if (largo == 0) continue;
+            largo--;
+            if (b.length < largo) b = new byte[Math.max(largo, b.length * 2)];
+            in.readFully(b, 0, largo);
+            r[i] = new String(b, 0, largo, StandardCharsets.UTF_8);
+        }
+        return r;
+    }
+
+    private static int leerVarint(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Varint inválido");
+    }
+
+    // -----------------------------------------------------------
+    // LÍNEA DE COMANDOS
+    // -----------------------------------------------------------
+
+    /**
+     * Exporta el catálogo guardado en disco.
+     *
+     * <pre>
+     *   ExportadorCatalogo salida.csv|.jsonl|.pcol[.gz] [--datos data.dat]
+     *                      [--tipo pelicula|serie] [--desde AÑO] [--hasta AÑO]
+     * </pre>
+     *
+     * @param args argumentos de la línea de comandos
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || args.length % 2 == 0) {
+            uso();
+            return;
+        }
+        Path salida = Path.of(args[0]);
+        String datos = "data.dat";
+        Consulta filtro = new Consulta();
+        Integer desde = null;
+        Integer hasta = null;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                String valor = args[i + 1];
+                switch (args[i]) {
+                    case "--datos" -> datos = valor;
+                    case "--desde" -> desde = Integer.parseInt(valor);
+                    case "--hasta" -> hasta = Integer.parseInt(valor);
+                    case "--tipo" -> filtro.tipo(switch (valor.toLowerCase(Locale.ROOT)) {
+                        case "pelicula", "película" -> Pelicula.class;
+                        case "serie" -> Serie.class;
+                        default -> throw new IllegalArgumentException("Tipo desconocido: " + valor);
+                    });
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            if (desde != null || hasta != null) {
+                filtro.anioEntre(desde != null ? desde : Integer.MIN_VALUE, hasta != null ? hasta : Integer.MAX_VALUE);
+            }
+            Formato.detectar(salida);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            uso();
+            return;
+        }
+
+        ImplOperacionCrud servicio = new ImplOperacionCrud(new OperacionArchivo(datos), false);
+        servicio.cargarDesdeArchivo();
+        ExportadorCatalogo exportador = new ExportadorCatalogo(servicio);
+        exportador.setFiltro(filtro);
+        long inicio = System.nanoTime();
+        try {
+            long n = exportador.exportar(salida);
+            System.out.printf("%,d producciones exportadas en %.1f s%n", n, (System.nanoTime() - inicio) / 1e9);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error al exportar: " + e.getMessage());
+        }
+    }
+
+    private static void uso() {
+        System.out.println("Uso: ExportadorCatalogo salida.csv|.jsonl|.pcol[.gz] [--datos data.dat]"
+                + " [--tipo pelicula|serie] [--desde AÑO] [--hasta AÑO]");
+    }
+}
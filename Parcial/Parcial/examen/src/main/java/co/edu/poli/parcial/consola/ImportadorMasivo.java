@@ -0,0 +1,558 @@
+package co.edu.poli.parcial.consola;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.CsvProduccion;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.JsonProduccion;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import co.edu.poli.parcial.servicios.ProgresoOperacion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Importación masiva de producciones desde archivos CSV o JSON Lines, sin
+ * interfaz gráfica.
+ *
+ * <p>La importación es un flujo de tres etapas:</p>
+ * <ol>
+ *   <li>Un hilo lector lee el archivo en bloques de bytes de
+ *       {@value #TAM_BLOQUE} bytes, cortados en el último salto de línea.</li>
+ *   <li>Varios hilos de análisis decodifican cada bloque, convierten sus
+ *       líneas en producciones y las validan con {@link CsvProduccion} o
+ *       {@link JsonProduccion}.</li>
+ *   <li>El hilo que llama a {@link #importar(Path)} agrega las producciones
+ *       válidas al catálogo con {@link OperacionCrud#crearTodos}, bloque por
+ *       bloque y en el orden del archivo, ya que {@link OperacionCrud} no es
+ *       segura para uso concurrente.</li>
+ * </ol>
+ *
+ * <p>Entre el lector y el agregado hay una cola acotada de bloques en curso:
+ * si el catálogo no alcanza a agregar, el lector espera. Así la memoria usada
+ * no depende del tamaño del archivo, sino de la cantidad de hilos y de la
+ * capacidad de la cola.</p>
+ *
+ * <p>Las líneas inválidas, y las de códigos que ya existen en el catálogo, se
+ * rechazan sin detener la importación. Si se indica un archivo de rechazos,
+ * cada una se escribe allí con su número de línea y el motivo, separados por
+ * tabuladores. Los archivos terminados en {@code .gz} se descomprimen al
+ * leerlos.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ImportadorMasivo {
+
+    /**
+     * Formatos de entrada soportados.
+     */
+    public enum Formato {
+        /** CSV con cabecera, ver {@link CsvProduccion}. */
+        CSV,
+        /** Un objeto JSON por línea, ver {@link JsonProduccion}. */
+        JSON_LINES;
+
+        /**
+         * Deduce el formato por la extensión del archivo, ignorando
+         * {@code .gz}: {@code .csv}, o {@code .jsonl}, {@code .ndjson} y {@code .json}.
+         *
+         * @param archivo archivo de entrada
+         * @return formato del archivo
+         * @throws IllegalArgumentException si la extensión no es reconocida
+         */
+        public static Formato detectar(Path archivo) {
+            String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (nombre.endsWith(".gz")) nombre = nombre.substring(0, nombre.length() - 3);
+            if (nombre.endsWith(".csv")) return CSV;
+            if (nombre.endsWith(".jsonl") || nombre.endsWith(".ndjson") || nombre.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            throw new IllegalArgumentException("No se reconoce el formato de " + archivo.getFileName());
+        }
+    }
+
+    /** Tamaño de los bloques que lee el hilo lector. */
+    static final int TAM_BLOQUE = 1 << 20;
+
+    private static final AtomicInteger HILOS_CREADOS = new AtomicInteger();
+
+    private final OperacionCrud destino;
+    private Formato formato;
+    private int hilos = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int capacidad;
+    private Path rechazos;
+    private ProgresoOperacion progreso = ProgresoOperacion.NINGUNO;
+
+    /**
+     * @param destino catálogo donde se agregan las producciones
+     */
+    public ImportadorMasivo(OperacionCrud destino) {
+        this.destino = destino;
+    }
+
+    /** @param formato formato de entrada, o {@code null} para deducirlo del nombre del archivo */
+    public void setFormato(Formato formato) {
+        this.formato = formato;
+    }
+
+    /** @param hilos cantidad de hilos de análisis; por defecto, uno menos que los procesadores */
+    public void setHilos(int hilos) {
+        if (hilos < 1) throw new IllegalArgumentException("Hilos inválidos: " + hilos);
+        this.hilos = hilos;
+    }
+
+    /** @param capacidad bloques en curso como máximo; por defecto, dos por hilo de análisis más dos */
+    public void setCapacidad(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("Capacidad inválida: " + capacidad);
+        this.capacidad = capacidad;
+    }
+
+    /** @param rechazos archivo donde se escriben las líneas rechazadas, o {@code null} para no escribirlas */
+    public void setRechazos(Path rechazos) {
+        this.rechazos = rechazos;
+    }
+
+    /** @param progreso receptor de la cantidad de registros procesados; el total es {@code -1} */
+    public void setProgreso(ProgresoOperacion progreso) {
+        this.progreso = progreso;
+    }
+
+    // -----------------------------------------------------------
+    // IMPORTACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Importa el archivo al catálogo de destino.
+     *
+     * @param entrada archivo CSV o JSON Lines, opcionalmente comprimido con gzip
+     * @return resumen de la importación
+     * @throws IOException              si falla la lectura del archivo o la escritura de los rechazos
+     * @throws IllegalArgumentException si el formato no se reconoce o la cabecera CSV no es válida
+     */
+    public ResultadoImportacion importar(Path entrada) throws IOException {
+        long inicio = System.nanoTime();
+        Formato f = formato != null ? formato : Formato.detectar(entrada);
+        int enCurso = capacidad > 0 ? capacidad : 2 * hilos + 2;
+
+        ExecutorService analisis = Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "importador-analisis-" + HILOS_CREADOS.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Lector lector = new Lector(entrada, f, analisis, new ArrayBlockingQueue<>(enCurso));
+        Thread hiloLector = new Thread(lector, "importador-lector");
+        hiloLector.setDaemon(true);
+
+        long leidas = 0;
+        long importadas = 0;
+        long rechazadas = 0;
+        try (Writer salidaRechazos = rechazos == null ? Writer.nullWriter()
+                : Files.newBufferedWriter(rechazos, StandardCharsets.UTF_8)) {
+            if (rechazos != null) salidaRechazos.write("linea\tmotivo\tregistro\n");
+            hiloLector.start();
+            while (true) {
+                Analizado analizado = siguiente(lector.cola);
+                if (analizado == null) break;
+                boolean enBloque = crearEnBloque(analizado);
+                for (int i = 0; i < analizado.n; i++) {
+                    String motivo = analizado.motivos[i];
+                    if (motivo == null) {
+                        if (enBloque) {
+                            importadas++;
+                            continue;
+                        }
+                        try {
+                            destino.crear(analizado.producciones[i]);
+                            importadas++;
+                            continue;
+                        } catch (IllegalArgumentException e) {
+                            motivo = e.getMessage();
+                        }
+                    }
+                    rechazadas++;
+                    if (rechazos != null) escribirRechazo(salidaRechazos, analizado, i, motivo);
+                }
+                leidas += analizado.n;
+                progreso.actualizar(leidas, -1);
+            }
+        } finally {
+            lector.detenido = true;
+            analisis.shutdownNow();
+            try {
+                hiloLector.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new ResultadoImportacion(leidas, importadas, rechazadas, lector.bytes, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Espera el siguiente bloque analizado, en el orden del archivo.
+     *
+     * @return analizado del bloque, o {@code null} al terminar el archivo
+     */
+    private static Analizado siguiente(BlockingQueue<CompletableFuture<Analizado>> cola) throws IOException {
+        try {
+            return cola.take().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importación interrumpida", e);
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException io) throw io;
+            if (causa instanceof UncheckedIOException io) throw io.getCause();
+            if (causa instanceof RuntimeException re) throw re;
+            throw new IOException(causa);
+        }
+    }
+
+    /**
+     * Crea de una vez las producciones válidas del bloque con
+     * {@link OperacionCrud#crearTodos}.
+     *
+     * @return {@code false} si algún código ya existía; en ese caso no se creó
+     *         ninguna y el bloque se agrega de a una producción para saber cuáles rechazar
+     */
+    private boolean crearEnBloque(Analizado analizado) {
+        List<ProduccionAudiovisual> validas = new ArrayList<>(analizado.n);
+        for (int i = 0; i < analizado.n; i++) {
+            if (analizado.motivos[i] == null) validas.add(analizado.producciones[i]);
+        }
+        try {
+            destino.crearTodos(validas);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void escribirRechazo(Writer out, Analizado analizado, int i, String motivo) throws IOException {
+        out.write(Long.toString(analizado.lineas[i]));
+        out.write('\t');
+        out.write(motivo == null ? "" : motivo.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+        out.write('\t');
+        out.write(analizado.texto, analizado.inicios[i], analizado.fines[i] - analizado.inicios[i]);
+        out.write('\n');
+    }
+
+    // -----------------------------------------------------------
+    // ETAPAS
+    // -----------------------------------------------------------
+
+    /**
+     * Líneas de un bloque ya analizadas: por cada línea no vacía, la
+     * producción válida o el motivo del rechazo.
+     */
+    private static final class Analizado {
+        final String texto;
+        int n;
+        long[] lineas = new long[1024];
+        int[] inicios = new int[1024];
+        int[] fines = new int[1024];
+        ProduccionAudiovisual[] producciones = new ProduccionAudiovisual[1024];
+        String[] motivos = new String[1024];
+
+        Analizado(String texto) {
+            this.texto = texto;
+        }
+
+        void agregar(long linea, int inicio, int fin, ProduccionAudiovisual p, String motivo) {
+            if (n == lineas.length) {
+                lineas = Arrays.copyOf(lineas, n * 2);
+                inicios = Arrays.copyOf(inicios, n * 2);
+                fines = Arrays.copyOf(fines, n * 2);
+                producciones = Arrays.copyOf(producciones, n * 2);
+                motivos = Arrays.copyOf(motivos, n * 2);
+            }
+            lineas[n] = linea;
+            inicios[n] = inicio;
+            fines[n] = fin;
+            producciones[n] = p;
+            motivos[n] = motivo;
+            n++;
+        }
+    }
+
+    /**
+     * Hilo lector: corta el archivo en bloques de líneas completas y los
+     * entrega a los hilos de análisis.
+     *
+     * <p>Por cada bloque encola, en orden, la tarea que lo analiza; la cola
+     * acotada es la que frena la lectura cuando el catálogo va más lento.
+     * Al final encola un analizado {@code null}, o la tarea fallida si hubo un
+     * error de lectura.</p>
+     */
+    private static final class Lector implements Runnable {
+        private final Path entrada;
+        private final Formato formato;
+        private final ExecutorService analisis;
+        final BlockingQueue<CompletableFuture<Analizado>> cola;
+        private Function<String, ProduccionAudiovisual> decodificador;
+
+        /** Lo activa el hilo de agregado al terminar o fallar, para que el lector no quede esperando. */
+        volatile boolean detenido;
+
+        /** Bytes leídos; se lee al terminar, después de {@code join}. */
+        long bytes;
+
+        Lector(Path entrada, Formato formato, ExecutorService analisis,
+               BlockingQueue<CompletableFuture<Analizado>> cola) {
+            this.entrada = entrada;
+            this.formato = formato;
+            this.analisis = analisis;
+            this.cola = cola;
+            if (formato == Formato.JSON_LINES) decodificador = JsonProduccion::leer;
+        }
+
+        @Override
+        public void run() {
+            CompletableFuture<Analizado> fin = CompletableFuture.completedFuture(null);
+            try (InputStream in = abrir()) {
+                leer(in);
+            } catch (IOException | RuntimeException e) {
+                fin = CompletableFuture.failedFuture(e);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                poner(fin);
+            } catch (InterruptedException ignored) {
+                // el hilo de agregado ya terminó
+            }
+        }
+
+        private InputStream abrir() throws IOException {
+            InputStream in = Files.newInputStream(entrada);
+            if (entrada.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                return new GZIPInputStream(in, 1 << 16);
+            }
+            return new BufferedInputStream(in, 1 << 16);
+        }
+
+        private void leer(InputStream in) throws IOException, InterruptedException {
+            byte[] buf = new byte[TAM_BLOQUE];
+            int lleno = 0;
+            long linea = 1;
+            boolean primero = true;
+            while (!detenido) {
+                int leidos = in.readNBytes(buf, lleno, buf.length - lleno);
+                bytes += leidos;
+                lleno += leidos;
+                boolean finArchivo = lleno < buf.length;
+                if (lleno == 0) return;
+
+                int corte = finArchivo ? lleno : ultimoSalto(buf, lleno) + 1;
+                if (corte == 0) {
+                    // una línea más larga que el bloque
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+
+                int desde = 0;
+                if (primero) {
+                    primero = false;
+                    if (corte >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+                        desde = 3;
+                    }
+                    if (formato == Formato.CSV) {
+                        int salto = indiceSalto(buf, desde, corte);
+                        int finCabecera = salto < 0 ? corte : salto;
+                        String cabecera = new String(buf, desde, finCabecera - desde, StandardCharsets.UTF_8);
+                        CsvProduccion csv = new CsvProduccion(cabecera.strip());
+                        decodificador = csv::leer;
+                        desde = salto < 0 ? corte : salto + 1;
+                        linea = 2;
+                    }
+                }
+
+                if (desde < corte) {
+                    Bloque b = new Bloque(buf, desde, corte, linea);
+                    Function<String, ProduccionAudiovisual> d = decodificador;
+                    poner(CompletableFuture.supplyAsync(() -> analizar(b, d), analisis));
+                    linea += contarSaltos(buf, desde, corte);
+                }
+
+                byte[] siguiente = new byte[Math.max(TAM_BLOQUE, lleno - corte)];
+                System.arraycopy(buf, corte, siguiente, 0, lleno - corte);
+                lleno -= corte;
+                buf = siguiente;
+                if (finArchivo && lleno == 0) return;
+            }
+        }
+
+        /** Encola sin quedar bloqueado si el hilo de agregado ya se detuvo. */
+        private void poner(CompletableFuture<Analizado> f) throws InterruptedException {
+            while (!detenido) {
+                if (cola.offer(f, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        }
+    }
+
+    /** Líneas completas de un bloque leído, con el número de la primera. */
+    private static final class Bloque {
+        final byte[] datos;
+        final int desde;
+        final int hasta;
+        final long primeraLinea;
+
+        Bloque(byte[] datos, int desde, int hasta, long primeraLinea) {
+            this.datos = datos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.primeraLinea = primeraLinea;
+        }
+    }
+
+    /**
+     * Etapa de análisis: decodifica el bloque y convierte cada línea no vacía.
+     */
+    private static Analizado analizar(Bloque b, Function<String, ProduccionAudiovisual> decodificador) {
+        String texto = new String(b.datos, b.desde, b.hasta - b.desde, StandardCharsets.UTF_8);
+        Analizado analizado = new Analizado(texto);
+        long linea = b.primeraLinea;
+        int inicio = 0;
+        int largo = texto.length();
+        while (inicio < largo) {
+            int salto = texto.indexOf('\n', inicio);
+            if (salto < 0) salto = largo;
+            int fin = salto > inicio && texto.charAt(salto - 1) == '\r' ? salto - 1 : salto;
+            if (!enBlanco(texto, inicio, fin)) {
+                try {
+                    analizado.agregar(linea, inicio, fin, decodificador.apply(texto.substring(inicio, fin)), null);
+                } catch (RuntimeException e) {
+                    analizado.agregar(linea, inicio, fin, null, e.getMessage());
+                }
+            }
+            inicio = salto + 1;
+            linea++;
+        }
+        return analizado;
+    }
+
+    private static boolean enBlanco(String s, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (!Character.isWhitespace(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static int ultimoSalto(byte[] buf, int hasta) {
+        for (int i = hasta - 1; i >= 0; i--) {
+            if (buf[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indiceSalto(byte[] buf, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (buf[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int contarSaltos(byte[] buf, int desde, int hasta) {
+        int n = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (buf[i] == '\n') n++;
+        }
+        return n;
+    }
+
+    // -----------------------------------------------------------
+    // LÍNEA DE COMANDOS
+    // -----------------------------------------------------------
+
+    /**
+     * Importa un archivo al catálogo guardado en disco y guarda el resultado.
+     *
+     * <pre>
+     *   ImportadorMasivo entrada.csv[.gz] [--datos data.dat] [--hilos N]
+     *                    [--rechazos rechazos.tsv] [--formato csv|jsonl]
+     * </pre>
+     *
+     * @param args argumentos de la línea de comandos
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || args.length % 2 == 0) {
+            uso();
+            return;
+        }
+        Path entrada = Path.of(args[0]);
+        String datos = "data.dat";
+        ImportadorMasivo importador = null;
+        ImplOperacionCrud servicio;
+        try {
+            String hilos = null;
+            String rechazos = null;
+            String formato = null;
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--datos" -> datos = args[i + 1];
+                    case "--hilos" -> hilos = args[i + 1];
+                    case "--rechazos" -> rechazos = args[i + 1];
+                    case "--formato" -> formato = args[i + 1];
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            servicio = new ImplOperacionCrud(new OperacionArchivo(datos), false);
+            importador = new ImportadorMasivo(servicio);
+            if (hilos != null) importador.setHilos(Integer.parseInt(hilos));
+            if (rechazos != null) importador.setRechazos(Path.of(rechazos));
+            if (formato != null) {
+                importador.setFormato(switch (formato.toLowerCase(Locale.ROOT)) {
+                    case "csv" -> Formato.CSV;
+                    case "jsonl", "json" -> Formato.JSON_LINES;
+                    default -> throw new IllegalArgumentException("Formato desconocido: " + formato);
+                });
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            uso();
+            return;
+        }
+
+        servicio.cargarDesdeArchivo();
+        long[] siguienteAviso = {1_000_000};
+        importador.setProgreso((procesados, total) -> {
+            if (procesados >= siguienteAviso[0]) {
+                System.out.printf("%,d registros procesados%n", procesados);
+                siguienteAviso[0] += 1_000_000;
+            }
+        });
+        try {
+            ResultadoImportacion r = importador.importar(entrada);
+            System.out.println(r);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error al importar: " + e.getMessage());
+            return;
+        }
+        servicio.guardarArchivo();
+    }
+
+    private static void uso() {
+        System.out.println("Uso: ImportadorMasivo entrada.csv[.gz] [--datos data.dat] [--hilos N]"
+                + " [--rechazos rechazos.tsv] [--formato csv|jsonl]");
+    }
+}
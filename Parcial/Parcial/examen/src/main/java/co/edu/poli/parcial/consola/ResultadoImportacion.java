@@ -0,0 +1,64 @@
+package co.edu.poli.parcial.consola;
+
+/**
+ * Resumen de una importación masiva.
+ *
+ * @author Felipe Parra
+ */
+public class ResultadoImportacion {
+
+    private final long leidas;
+    private final long importadas;
+    private final long rechazadas;
+    private final long bytes;
+    private final long nanos;
+
+    /**
+     * @param leidas     registros leídos, sin contar la cabecera ni las líneas en blanco
+     * @param importadas registros agregados al catálogo
+     * @param rechazadas registros rechazados
+     * @param bytes      bytes leídos del archivo, sin comprimir
+     * @param nanos      duración de la importación
+     */
+    ResultadoImportacion(long leidas, long importadas, long rechazadas, long bytes, long nanos) {
+        this.leidas = leidas;
+        this.importadas = importadas;
+        this.rechazadas = rechazadas;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    /** @return registros leídos, sin contar la cabecera ni las líneas en blanco */
+    public long getLeidas() {
+        return leidas;
+    }
+
+    /** @return registros agregados al catálogo */
+    public long getImportadas() {
+        return importadas;
+    }
+
+    /** @return registros rechazados */
+    public long getRechazadas() {
+        return rechazadas;
+    }
+
+    /** @return bytes leídos del archivo, sin comprimir */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /** @return duración de la importación en nanosegundos */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        double segundos = nanos / 1e9;
+        return String.format("%,d leídas, %,d importadas, %,d rechazadas en %.1f s (%,.0f registros/s, %.1f MB/s)",
+                leidas, importadas, rechazadas, segundos,
+                segundos > 0 ? leidas / segundos : 0.0,
+                segundos > 0 ? bytes / segundos / 1e6 : 0.0);
+    }
+}
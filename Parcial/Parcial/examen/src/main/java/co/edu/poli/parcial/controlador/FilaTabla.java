@@ -0,0 +1,88 @@
+package co.edu.poli.parcial.controlador;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * Modelo de vista de una fila de la tabla de producciones.
+ *
+ * <p>Calcula una sola vez los textos de las seis columnas y los expone como
+ * propiedades observables. Las fábricas de valores de celda devuelven estas
+ * mismas propiedades en cada pasada de diseño y en cada desplazamiento, en
+ * lugar de crear una {@code SimpleStringProperty} y concatenar textos cada vez.</p>
+ *
+ * @author Felipe Parra
+ */
+class FilaTabla {
+
+    /** Fila sin producción, con todos los textos vacíos. */
+    static final FilaTabla VACIA = new FilaTabla(null);
+
+    private final ProduccionAudiovisual produccion;
+
+    private final ReadOnlyStringWrapper codigo = new ReadOnlyStringWrapper();
+    private final ReadOnlyStringWrapper titulo = new ReadOnlyStringWrapper();
+    private final ReadOnlyStringWrapper anio = new ReadOnlyStringWrapper();
+    private final ReadOnlyStringWrapper director = new ReadOnlyStringWrapper();
+    private final ReadOnlyStringWrapper tipo = new ReadOnlyStringWrapper();
+    private final ReadOnlyStringWrapper extra = new ReadOnlyStringWrapper();
+
+    /**
+     * @param produccion producción que representa la fila, o {@code null} para una fila vacía
+     */
+    FilaTabla(ProduccionAudiovisual produccion) {
+        this.produccion = produccion;
+        actualizar();
+    }
+
+    /**
+     * Calcula los textos de todas las columnas a partir de la producción.
+     */
+    private void actualizar() {
+        ProduccionAudiovisual p = produccion;
+        if (p == null) {
+            for (ReadOnlyStringWrapper w : new ReadOnlyStringWrapper[] {codigo, titulo, anio, director, tipo, extra}) {
+                w.set("");
+            }
+            return;
+        }
+        codigo.set(p.getCodigo());
+        titulo.set(p.getTitulo());
+        anio.set(String.valueOf(p.getFechaEstreno()));
+
+        Director d = p.getDirector();
+        director.set(d != null ? d.getNombre() : "");
+
+        tipo.set(p instanceof Pelicula ? "Película" : "Serie");
+
+        if (p instanceof Pelicula pel) {
+            extra.set("Género: " + pel.getGenero() + " / " + pel.getDuracionMin() + "m");
+        } else if (p instanceof Serie s) {
+            extra.set("Temp: " + s.getNumeroTemporadas() + " / Dur: " + s.getDuracionMin() + "m");
+        } else {
+            extra.set("");
+        }
+    }
+
+    /** @return texto de la columna Código */
+    ReadOnlyStringProperty codigoProperty() { return codigo.getReadOnlyProperty(); }
+
+    /** @return texto de la columna Título */
+    ReadOnlyStringProperty tituloProperty() { return titulo.getReadOnlyProperty(); }
+
+    /** @return texto de la columna Año */
+    ReadOnlyStringProperty anioProperty() { return anio.getReadOnlyProperty(); }
+
+    /** @return texto de la columna Director */
+    ReadOnlyStringProperty directorProperty() { return director.getReadOnlyProperty(); }
+
+    /** @return texto de la columna Tipo */
+    ReadOnlyStringProperty tipoProperty() { return tipo.getReadOnlyProperty(); }
+
+    /** @return texto de la columna Info extra */
+    ReadOnlyStringProperty extraProperty() { return extra.getReadOnlyProperty(); }
+}
@@ -10,14 +10,18 @@ package co.edu.poli.parcial.controlador;
 
 import co.edu.poli.parcial.model.*;
 import co.edu.poli.parcial.servicios.*;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FormularioControlador {
 
@@ -38,9 +42,31 @@ public class FormularioControlador {
     @FXML private TableColumn<ProduccionAudiovisual, String> colTipo;
     @FXML private TableColumn<ProduccionAudiovisual, String> colExtra;
 
-    private ObservableList<ProduccionAudiovisual> datos;
+    @FXML private ProgressBar barraProgreso;
+    @FXML private Button btnCancelar;
+
+    /** Filas de la tabla, obtenidas del servicio por páginas. */
+    private ListaPaginada datos;
     private ImplOperacionCrud servicio;
 
+    /** {@link #servicio} con sus operaciones medidas en las métricas globales. */
+    private OperacionCrud crud;
+
+    /** Cantidad de producciones por lote al cargar el archivo en la tabla. */
+    private static final int TAM_LOTE_CARGA = 500;
+
+    /** Cantidad máxima de coincidencias listadas al buscar por título. */
+    private static final int MAX_RESULTADOS_BUSQUEDA = 20;
+
+    /** Guardado o carga en segundo plano en curso, o {@code null} si no hay ninguno. */
+    private CompletableFuture<?> operacionEnCurso;
+
+    /** Último avance informado por la operación en curso. */
+    private volatile double ultimoProgreso;
+
+    /** Indica si ya hay una actualización de la barra de progreso pendiente en el hilo de JavaFX. */
+    private final AtomicBoolean progresoPendiente = new AtomicBoolean();
+
     // -------------------------------------------------------------------------
     //  INITIALIZE
     // -------------------------------------------------------------------------
@@ -48,37 +74,42 @@ public class FormularioControlador {
     /**
      * Inicializa el controlador, configurando la tabla, los combos,
      * las columnas y el servicio CRUD interno.
+     *
+     * <p>La tabla se alimenta de una {@link ListaPaginada}, que solo pide al
+     * servicio las páginas visibles y se suscribe a sus cambios, que recibe
+     * agrupados en el hilo de JavaFX; así las acciones solo modifican el
+     * servicio y la tabla se actualiza sola. Las columnas no se pueden ordenar porque
+     * ordenar obligaría a materializar todas las filas. Los valores de las
+     * celdas salen de un {@link FilaTabla} en caché por fila, así que
+     * desplazarse por la tabla no crea propiedades ni textos nuevos.</p>
+     *
+     * <p>Las operaciones del formulario y de la tabla pasan por un
+     * {@link MedicionOperacionCrud}, así que su duración se puede consultar
+     * por JMX con el nombre {@code formulario}.</p>
+     *
+     * <p>Si una carga recupera solo una parte del archivo, se avisa con una
+     * alerta en lugar de mostrar el catálogo parcial como si estuviera completo.</p>
      */
     @FXML
     public void initialize() {
-        servicio = new ImplOperacionCrud();
-        datos = FXCollections.observableArrayList();
+        OperacionArchivo archivo = new OperacionArchivo();
+        archivo.setAvisoLecturaIncompleta(l -> Platform.runLater(() -> alerta(l.toString())));
+        servicio = new ImplOperacionCrud(archivo, false);
+        crud = new MedicionOperacionCrud(servicio, "formulario");
+        datos = new ListaPaginada(crud);
+        crud.suscribir(datos, Platform::runLater);
         tabla.setItems(datos);
+        tabla.getColumns().forEach(c -> c.setSortable(false));
 
         cmbTipo.setItems(FXCollections.observableArrayList("Película", "Serie"));
         cmbTipo.getSelectionModel().selectFirst();
 
-        colCodigo.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getCodigo()));
-        colTitulo.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getTitulo()));
-        colAnio.setCellValueFactory(c -> new SimpleStringProperty(String.valueOf(c.getValue().getFechaEstreno())));
-
-        colDirector.setCellValueFactory(c -> {
-            Director d = c.getValue().getDirector();
-            return new SimpleStringProperty(d != null ? d.getNombre() : "");
-        });
-
-        colTipo.setCellValueFactory(c ->
-                new SimpleStringProperty(c.getValue() instanceof Pelicula ? "Película" : "Serie"));
-
-        colExtra.setCellValueFactory(c -> {
-            ProduccionAudiovisual obj = c.getValue();
-            if (obj instanceof Pelicula p) {
-                return new SimpleStringProperty("Género: " + p.getGenero() + " / " + p.getDuracionMin() + "m");
-            } else if (obj instanceof Serie s) {
-                return new SimpleStringProperty("Temp: " + s.getNumeroTemporadas() + " / Dur: " + s.getDuracionMin() + "m");
-            }
-            return new SimpleStringProperty("");
-        });
+        colCodigo.setCellValueFactory(c -> datos.fila(c.getValue()).codigoProperty());
+        colTitulo.setCellValueFactory(c -> datos.fila(c.getValue()).tituloProperty());
+        colAnio.setCellValueFactory(c -> datos.fila(c.getValue()).anioProperty());
+        colDirector.setCellValueFactory(c -> datos.fila(c.getValue()).directorProperty());
+        colTipo.setCellValueFactory(c -> datos.fila(c.getValue()).tipoProperty());
+        colExtra.setCellValueFactory(c -> datos.fila(c.getValue()).extraProperty());
 
         tabla.setOnMouseClicked(this::displaySelected);
     }
@@ -89,22 +120,22 @@ public class FormularioControlador {
 
     /**
      * Crea una nueva producción audiovisual a partir de los datos del formulario.
-     * Valida que el código no exista previamente y agrega el objeto tanto a la tabla
-     * como al servicio interno.
+     * Valida que el código no exista previamente y agrega el objeto al servicio
+     * interno; la tabla se entera por el evento de creación.
      */
     @FXML
     void accionCrear() {
         try {
             String codigo = txtCodigo.getText().trim();
             if (codigo.isEmpty()) { alerta("Código requerido"); return; }
-            if (servicio.buscarPorCodigo(codigo) != null) { alerta("Código ya existe"); return; }
+            if (crud.buscarPorCodigo(codigo) != null) { alerta("Código ya existe"); return; }
 
             String titulo = txtTitulo.getText().trim();
             int anio = Integer.parseInt(txtAnio.getText().trim());
             String tipo = cmbTipo.getValue();
             String directorNombre = txtDirector.getText().trim();
 
-            Director director = new Director("DIR-" + codigo, directorNombre, "Desconocida");
+            Director director = servicio.getDirectores().obtener("DIR-" + codigo, directorNombre, "Desconocida");
 
             ProduccionAudiovisual pa;
             if ("Película".equals(tipo)) {
@@ -118,8 +149,7 @@ public class FormularioControlador {
                 pa = new Serie(codigo, titulo, anio, dur, director, temp);
             }
 
-            datos.add(pa);
-            servicio.crear(pa);
+            crud.crear(pa);
             clear();
             info("Creado correctamente");
 
@@ -135,16 +165,36 @@ public class FormularioControlador {
     /**
      * Busca una producción audiovisual según el código ingresado.
      * Si la encuentra, rellena los campos del formulario.
+     *
+     * <p>Si no hay una producción con ese código, o el código está vacío, busca
+     * por palabras del título (o del código escrito, si el título está vacío)
+     * en títulos y directores. Rellena el formulario con la primera coincidencia
+     * y, si hay varias, las lista.</p>
      */
     @FXML
     void accionBuscar() {
         String codigo = txtCodigo.getText().trim();
-        if (codigo.isEmpty()) { alerta("Ingrese un código para buscar"); return; }
+        String titulo = txtTitulo.getText().trim();
+        if (codigo.isEmpty() && titulo.isEmpty()) { alerta("Ingrese un código o un título para buscar"); return; }
+
+        ProduccionAudiovisual p = codigo.isEmpty() ? null : crud.buscarPorCodigo(codigo);
+        if (p != null) {
+            fillFields(p);
+            return;
+        }
 
-        ProduccionAudiovisual p = servicio.buscarPorCodigo(codigo);
-        if (p == null) { alerta("No encontrado"); return; }
+        List<ProduccionAudiovisual> encontradas =
+                crud.buscarTexto(titulo.isEmpty() ? codigo : titulo, MAX_RESULTADOS_BUSQUEDA);
+        if (encontradas.isEmpty()) { alerta("No encontrado"); return; }
 
-        fillFields(p);
+        fillFields(encontradas.get(0));
+        if (encontradas.size() > 1) {
+            StringBuilder sb = new StringBuilder("Coincidencias:\n");
+            for (ProduccionAudiovisual e : encontradas) {
+                sb.append(e.getCodigo()).append(" - ").append(e.getTitulo()).append('\n');
+            }
+            info(sb.toString());
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -152,8 +202,8 @@ public class FormularioControlador {
     // -------------------------------------------------------------------------
 
     /**
-     * Modifica el registro seleccionado en la tabla con los nuevos valores del formulario.
-     * También actualiza el servicio interno.
+     * Modifica en el servicio interno el registro seleccionado en la tabla con
+     * los nuevos valores del formulario.
      */
     @FXML
     void accionModificar() {
@@ -164,8 +214,8 @@ public class FormularioControlador {
             String codigoNuevo = txtCodigo.getText().trim();
             if (codigoNuevo.isEmpty()) { alerta("El código no puede estar vacío"); return; }
 
-            if (!codigoNuevo.equals(seleccionado.getCodigo()) &&
-                    servicio.buscarPorCodigo(codigoNuevo) != null) {
+            ProduccionAudiovisual existente = crud.buscarPorCodigo(codigoNuevo);
+            if (existente != null && existente != seleccionado) {
                 alerta("El nuevo código ya existe");
                 return;
             }
@@ -173,7 +223,7 @@ public class FormularioControlador {
             String titulo = txtTitulo.getText().trim();
             int anio = Integer.parseInt(txtAnio.getText().trim());
             String directorNombre = txtDirector.getText().trim();
-            Director director = new Director("DIR-" + codigoNuevo, directorNombre, "Desconocida");
+            Director director = servicio.getDirectores().obtener("DIR-" + codigoNuevo, directorNombre, "Desconocida");
 
             ProduccionAudiovisual pa;
             if (cmbTipo.getValue().equals("Película")) {
@@ -187,10 +237,7 @@ public class FormularioControlador {
                 pa = new Serie(codigoNuevo, titulo, anio, dur, director, temp);
             }
 
-            int index = datos.indexOf(seleccionado);
-            datos.set(index, pa);
-
-            servicio.modificar(seleccionado.getCodigo(), pa);
+            crud.modificar(seleccionado.getCodigo(), pa);
 
             clear();
             info("Modificado correctamente");
@@ -205,7 +252,7 @@ public class FormularioControlador {
     // -------------------------------------------------------------------------
 
     /**
-     * Elimina el registro seleccionado de la tabla y del servicio interno.
+     * Elimina del servicio interno el registro seleccionado en la tabla.
      * Solicita confirmación al usuario antes de eliminar.
      */
     @FXML
@@ -222,8 +269,7 @@ public class FormularioControlador {
             Optional<ButtonType> r = a.showAndWait();
             if (r.isPresent() && r.get() == ButtonType.OK) {
 
-                servicio.eliminar(seleccionado.getCodigo());
-                datos.remove(seleccionado);
+                crud.eliminar(seleccionado.getCodigo());
                 clear();
 
                 info("Eliminado correctamente");
@@ -239,13 +285,26 @@ public class FormularioControlador {
     // -------------------------------------------------------------------------
 
     /**
-     * Carga en memoria los datos almacenados previamente en archivo.
-     * No actualiza directamente la tabla; se debe presionar “Listar todo”.
+     * Carga en segundo plano los datos almacenados previamente en archivo.
+     * El servicio publica la recarga y las producciones leídas por lotes, de
+     * modo que las primeras filas aparecen de inmediato y la interfaz sigue
+     * respondiendo; en modo bitácora, la tabla se recarga al reproducirla.
      */
     @FXML
     void accionDeserializar() {
-        servicio.cargarDesdeArchivo();
-        info("Datos cargados en memoria. Ahora presione 'Listar todo' para mostrarlos.");
+        if (operacionEnCurso != null) { alerta("Ya hay una operación en curso"); return; }
+
+        CompletableFuture<List<ProduccionAudiovisual>> carga = servicio.cargarDesdeArchivoPorLotes(
+                TAM_LOTE_CARGA, this::mostrarProgreso, Platform::runLater, lote -> { });
+        iniciarOperacion(carga);
+        carga.whenCompleteAsync((lista, error) -> {
+            terminarOperacion();
+            if (error == null) {
+                info("Datos cargados: " + lista.size() + " registros.");
+            } else {
+                informarError("cargar", error);
+            }
+        }, Platform::runLater);
     }
 
     // -------------------------------------------------------------------------
@@ -253,12 +312,92 @@ public class FormularioControlador {
     // -------------------------------------------------------------------------
 
     /**
-     * Guarda los datos existentes en la lista interna dentro de un archivo externo.
+     * Guarda en segundo plano los datos existentes en la lista interna dentro de un archivo externo.
      */
     @FXML
     void accionSerializar() {
-        servicio.guardarArchivo();
-        info("Datos guardados en archivo.");
+        if (operacionEnCurso != null) { alerta("Ya hay una operación en curso"); return; }
+
+        CompletableFuture<Void> guardado = servicio.guardarArchivoAsync(this::mostrarProgreso);
+        iniciarOperacion(guardado);
+        guardado.whenCompleteAsync((r, error) -> {
+            terminarOperacion();
+            if (error == null) {
+                info("Datos guardados en archivo.");
+            } else {
+                informarError("guardar", error);
+            }
+        }, Platform::runLater);
+    }
+
+    // -------------------------------------------------------------------------
+    //  CANCELAR
+    // -------------------------------------------------------------------------
+
+    /**
+     * Cancela el guardado o la carga en curso, si existe.
+     */
+    @FXML
+    void accionCancelar() {
+        if (operacionEnCurso != null) operacionEnCurso.cancel(true);
+    }
+
+    // -------------------------------------------------------------------------
+    //  PROGRESO
+    // -------------------------------------------------------------------------
+
+    /**
+     * Registra el avance de la operación en curso. Se invoca desde el hilo de
+     * entrada y salida; las actualizaciones se agrupan para no saturar el hilo
+     * de JavaFX con una tarea por cada aviso.
+     *
+     * @param procesados producciones procesadas
+     * @param total      total de producciones, o {@code -1} si no se conoce
+     */
+    private void mostrarProgreso(long procesados, long total) {
+        ultimoProgreso = total <= 0 ? ProgressBar.INDETERMINATE_PROGRESS : (double) procesados / total;
+        if (progresoPendiente.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                progresoPendiente.set(false);
+                barraProgreso.setProgress(ultimoProgreso);
+            });
+        }
+    }
+
+    /**
+     * Marca el inicio de una operación en segundo plano y habilita su cancelación.
+     *
+     * @param operacion tarea en curso
+     */
+    private void iniciarOperacion(CompletableFuture<?> operacion) {
+        operacionEnCurso = operacion;
+        barraProgreso.setProgress(0);
+        btnCancelar.setDisable(false);
+    }
+
+    /**
+     * Restablece la barra de progreso y el botón de cancelar al terminar una operación.
+     */
+    private void terminarOperacion() {
+        operacionEnCurso = null;
+        barraProgreso.setProgress(0);
+        btnCancelar.setDisable(true);
+    }
+
+    /**
+     * Informa al usuario el resultado de una operación que no terminó normalmente.
+     *
+     * @param accion nombre de la acción ("guardar" o "cargar")
+     * @param error  excepción con la que terminó la operación
+     */
+    private void informarError(String accion, Throwable error) {
+        Throwable causa = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (causa instanceof CancellationException) {
+            info("Operación cancelada: no se pudo " + accion + " el archivo.");
+        } else {
+            alerta("Error al " + accion + ": " + causa.getMessage());
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -267,11 +406,11 @@ public class FormularioControlador {
 
     /**
      * Refresca la tabla con todos los elementos almacenados en el servicio.
+     * Solo se vuelven a pedir las páginas visibles.
      */
     @FXML
     void accionListar() {
-        datos.setAll(servicio.listarTodos());
-        tabla.refresh();
+        datos.recargar();
     }
 
     // -------------------------------------------------------------------------
@@ -0,0 +1,305 @@
+package co.edu.poli.parcial.controlador;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.servicios.EventoCambio;
+import co.edu.poli.parcial.servicios.ObservadorCambios;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lista observable de solo lectura que obtiene las producciones del servicio
+ * por páginas, a medida que la tabla las pide.
+ *
+ * <p>El {@code TableView} solo consulta las filas visibles, por lo que esta
+ * lista mantiene en memoria un número acotado de páginas (las más recientes,
+ * más la siguiente a la que se está leyendo como precarga) en lugar de todas
+ * las producciones del catálogo.</p>
+ *
+ * <p>También guarda, con el mismo límite, el {@link FilaTabla} de cada
+ * producción mostrada, para que las celdas reutilicen sus propiedades en
+ * lugar de crear otras en cada desplazamiento.</p>
+ *
+ * <p>La lista no se modifica directamente: se suscribe como
+ * {@link ObservadorCambios} del servicio y traduce cada evento a un cambio
+ * de la tabla sobre las filas afectadas, sin releer todo el contenido.</p>
+ *
+ * @author Felipe Parra
+ */
+class ListaPaginada extends ObservableListBase<ProduccionAudiovisual> implements ObservadorCambios {
+
+    /** Cantidad de filas por página. */
+    static final int TAM_PAGINA = 256;
+
+    /** Máximo de páginas retenidas en memoria. */
+    private static final int MAX_PAGINAS = 16;
+
+    /** Servicio del que se obtienen las páginas. */
+    private final OperacionCrud fuente;
+
+    /** Páginas cargadas, en orden de uso reciente. */
+    private final Map<Integer, List<ProduccionAudiovisual>> paginas =
+            new LinkedHashMap<>(MAX_PAGINAS * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<ProduccionAudiovisual>> e) {
+                    return size() > MAX_PAGINAS;
+                }
+            };
+
+    /**
+     * Modelos de vista de las filas mostradas recientemente. Las producciones no
+     * redefinen {@code equals}, así que la clave es la propia instancia.
+     */
+    private final Map<ProduccionAudiovisual, FilaTabla> filas =
+            new LinkedHashMap<>(MAX_PAGINAS * TAM_PAGINA * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProduccionAudiovisual, FilaTabla> e) {
+                    return size() > MAX_PAGINAS * TAM_PAGINA;
+                }
+            };
+
+    /** Cantidad de filas que la tabla conoce actualmente. */
+    private int tamano;
+
+    /** Si ya se pidió una recarga porque el servicio tiene menos filas que {@code tamano}. */
+    private boolean recargaPendiente;
+
+    /**
+     * @param fuente servicio del que se obtienen las producciones
+     */
+    ListaPaginada(OperacionCrud fuente) {
+        this.fuente = fuente;
+        this.tamano = fuente.contar();
+    }
+
+    /**
+     * Retorna la producción de una fila, leyendo su página si no está cargada.
+     *
+     * <p>El servicio puede tener ya menos filas de las que conoce la tabla, si
+     * hubo eliminaciones cuyos eventos aún no llegan. En ese caso la página
+     * viene incompleta, las filas que faltan se muestran vacías y se pide una
+     * recarga.</p>
+     *
+     * @param indice fila pedida
+     * @return producción de la fila, o {@code null} si el servicio ya no la tiene
+     */
+    @Override
+    public ProduccionAudiovisual get(int indice) {
+        if (indice < 0 || indice >= tamano) throw new IndexOutOfBoundsException(indice);
+        int n = indice / TAM_PAGINA;
+        List<ProduccionAudiovisual> pagina = pagina(n);
+
+        // Precarga la página siguiente al acercarse al final de la actual.
+        if (indice % TAM_PAGINA >= TAM_PAGINA * 3 / 4 && (n + 1) * TAM_PAGINA < tamano) {
+            pagina(n + 1);
+        }
+        int i = indice % TAM_PAGINA;
+        return i < pagina.size() ? pagina.get(i) : null;
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Retorna el modelo de vista de una producción, creándolo la primera vez.
+     *
+     * @param p producción de la fila, o {@code null} para una fila vacía
+     * @return modelo de vista con los textos de las columnas
+     */
+    FilaTabla fila(ProduccionAudiovisual p) {
+        if (p == null) return FilaTabla.VACIA;
+        FilaTabla f = filas.get(p);
+        if (f == null) {
+            f = new FilaTabla(p);
+            filas.put(p, f);
+        }
+        return f;
+    }
+
+    private List<ProduccionAudiovisual> pagina(int n) {
+        List<ProduccionAudiovisual> pagina = paginas.get(n);
+        if (pagina == null) {
+            pagina = fuente.listarRango(n * TAM_PAGINA, TAM_PAGINA);
+            paginas.put(n, pagina);
+            if (pagina.size() < Math.min(TAM_PAGINA, tamano - n * TAM_PAGINA)) pedirRecarga();
+        }
+        return pagina;
+    }
+
+    /**
+     * Programa una sola recarga en el hilo de JavaFX. No se recarga de
+     * inmediato porque la tabla está leyendo filas en medio de su diseño.
+     */
+    private void pedirRecarga() {
+        if (recargaPendiente) return;
+        recargaPendiente = true;
+        Platform.runLater(() -> {
+            recargaPendiente = false;
+            recargar();
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    //  AVISOS DE CAMBIO
+    // -------------------------------------------------------------------------
+
+    /**
+     * Aplica una ráfaga de cambios del servicio, en el hilo de JavaFX.
+     *
+     * <p>Las creaciones seguidas se notifican como un solo agregado al final.
+     * Las modificaciones y eliminaciones ubican la fila por la producción
+     * anterior en las páginas cargadas; una modificación de una fila no
+     * cargada no se ve en la tabla, así que solo se olvida su modelo de
+     * vista. Si la ráfaga trae una recarga, una eliminación de una fila no
+     * cargada (no se sabe qué filas se desplazan) o demasiados cambios, se
+     * recarga todo.</p>
+     *
+     * @param eventos cambios recibidos del servicio
+     */
+    @Override
+    public void cambios(List<EventoCambio> eventos) {
+        if (eventos.size() > TAM_PAGINA * MAX_PAGINAS) {
+            recargar();
+            return;
+        }
+        for (EventoCambio e : eventos) {
+            if (e.getTipo() == EventoCambio.Tipo.RECARGADA) {
+                recargar();
+                return;
+            }
+        }
+
+        int creadas = 0;
+        for (EventoCambio e : eventos) {
+            if (e.getTipo() == EventoCambio.Tipo.CREADA) {
+                creadas++;
+                continue;
+            }
+            agregadas(creadas);
+            creadas = 0;
+            int indice = indiceCargado(e.getAnterior());
+            if (e.getTipo() == EventoCambio.Tipo.MODIFICADA) {
+                if (indice >= 0) {
+                    reemplazada(indice, e.getAnterior());
+                } else {
+                    filas.remove(e.getAnterior());
+                }
+            } else if (indice >= 0) {
+                eliminada(indice, e.getAnterior());
+            } else {
+                recargar();
+                return;
+            }
+        }
+        agregadas(creadas);
+    }
+
+    /**
+     * Busca una producción, por identidad, en las páginas cargadas.
+     *
+     * @param p producción buscada
+     * @return fila de la producción, o {@code -1} si no está en memoria
+     */
+    private int indiceCargado(ProduccionAudiovisual p) {
+        for (Map.Entry<Integer, List<ProduccionAudiovisual>> e : paginas.entrySet()) {
+            List<ProduccionAudiovisual> pagina = e.getValue();
+            for (int i = 0; i < pagina.size(); i++) {
+                if (pagina.get(i) == p) return e.getKey() * TAM_PAGINA + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Avisa que el servicio agregó producciones al final.
+     *
+     * @param cantidad cantidad de producciones agregadas
+     */
+    private void agregadas(int cantidad) {
+        if (cantidad <= 0) return;
+        int desde = tamano;
+        tamano += cantidad;
+        paginas.remove(desde / TAM_PAGINA);
+        beginChange();
+        nextAdd(desde, tamano);
+        endChange();
+    }
+
+    /**
+     * Avisa que el servicio reemplazó la producción de una fila.
+     *
+     * @param indice   fila reemplazada
+     * @param anterior producción que ocupaba la fila
+     */
+    private void reemplazada(int indice, ProduccionAudiovisual anterior) {
+        paginas.remove(indice / TAM_PAGINA);
+        filas.remove(anterior);
+        beginChange();
+        nextSet(indice, anterior);
+        endChange();
+    }
+
+    /**
+     * Avisa que el servicio eliminó la producción de una fila. Las páginas
+     * desde esa fila en adelante se descartan, porque sus filas se desplazan.
+     *
+     * @param indice   fila eliminada
+     * @param anterior producción eliminada
+     */
+    private void eliminada(int indice, ProduccionAudiovisual anterior) {
+        tamano--;
+        paginas.keySet().removeIf(n -> n >= indice / TAM_PAGINA);
+        filas.remove(anterior);
+        beginChange();
+        nextRemove(indice, anterior);
+        endChange();
+    }
+
+    /**
+     * Descarta todas las páginas y vuelve a leer el tamaño del servicio,
+     * notificando a la tabla que todo el contenido cambió.
+     */
+    void recargar() {
+        reemplazarTodo(fuente.contar());
+    }
+
+    /**
+     * Descarta todas las páginas y notifica que todo el contenido cambió.
+     * Las filas eliminadas se informan sin materializarlas: la lista de
+     * eliminados solo devuelve las que aún estaban en memoria.
+     */
+    private void reemplazarTodo(int nuevoTamano) {
+        int anterior = tamano;
+        Map<Integer, List<ProduccionAudiovisual>> viejas = new LinkedHashMap<>(paginas);
+        paginas.clear();
+        filas.clear();
+        tamano = nuevoTamano;
+        if (anterior == 0 && tamano == 0) return;
+
+        beginChange();
+        if (anterior > 0) {
+            nextReplace(0, tamano, new AbstractList<>() {
+                @Override
+                public ProduccionAudiovisual get(int i) {
+                    List<ProduccionAudiovisual> p = viejas.get(i / TAM_PAGINA);
+                    return p != null && i % TAM_PAGINA < p.size() ? p.get(i % TAM_PAGINA) : null;
+                }
+
+                @Override
+                public int size() {
+                    return anterior;
+                }
+            });
+        } else {
+            nextAdd(0, tamano);
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,39 @@
+package co.edu.poli.parcial.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de Java Flight Recorder para un guardado o una carga completos del
+ * archivo de datos. Su duración es la de la operación.
+ *
+ * @author Felipe Parra
+ * @see MedicionArchivo
+ */
+@Name("co.edu.poli.parcial.Archivo")
+@Label("Archivo de datos")
+@Category({"Parcial", "Persistencia"})
+@Description("Guardado o carga del archivo de datos")
+@StackTrace(false)
+final class EventoArchivo extends jdk.jfr.Event {
+
+    @Label("Operación")
+    String operacion;
+
+    @Label("Archivo")
+    String ruta;
+
+    @Label("Producciones")
+    int producciones;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Exitosa")
+    boolean exitosa;
+}
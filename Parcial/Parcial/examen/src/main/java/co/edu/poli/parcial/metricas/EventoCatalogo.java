@@ -0,0 +1,39 @@
+package co.edu.poli.parcial.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento periódico de Java Flight Recorder con el tamaño de cada catálogo
+ * medido y los bytes leídos y escritos hasta el momento.
+ *
+ * @author Felipe Parra
+ * @see Metricas#medirCatalogo
+ */
+@Name("co.edu.poli.parcial.Catalogo")
+@Label("Catálogo")
+@Category({"Parcial", "Catálogo"})
+@Description("Tamaño del catálogo y bytes transferidos al disco")
+@Period("10 s")
+@StackTrace(false)
+class EventoCatalogo extends jdk.jfr.Event {
+
+    @Label("Catálogo")
+    String catalogo;
+
+    @Label("Producciones")
+    int producciones;
+
+    @Label("Bytes leídos")
+    @DataAmount
+    long bytesLeidos;
+
+    @Label("Bytes escritos")
+    @DataAmount
+    long bytesEscritos;
+}
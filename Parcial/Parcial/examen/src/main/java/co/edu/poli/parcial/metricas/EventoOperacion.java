@@ -0,0 +1,38 @@
+package co.edu.poli.parcial.metricas;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de Java Flight Recorder para una operación más lenta que el
+ * {@linkplain Metricas#setUmbralEventos umbral de eventos}.
+ *
+ * <p>La duración se mide fuera del evento, así que va en su propio campo y
+ * no en la duración del evento, que es cero.</p>
+ *
+ * @author Felipe Parra
+ */
+@Name("co.edu.poli.parcial.Operacion")
+@Label("Operación lenta")
+@Category({"Parcial", "Catálogo"})
+@Description("Operación del catálogo que superó el umbral de eventos")
+@StackTrace(false)
+class EventoOperacion extends jdk.jfr.Event {
+
+    @Label("Operación")
+    String operacion;
+
+    @Label("Detalle")
+    String detalle;
+
+    @Label("Duración")
+    @Timespan(Timespan.NANOSECONDS)
+    long duracionOperacion;
+
+    @Label("Exitosa")
+    boolean exitosa;
+}
@@ -0,0 +1,153 @@
+package co.edu.poli.parcial.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores no negativos (normalmente duraciones en
+ * nanosegundos) con error relativo acotado, al estilo de HdrHistogram.
+ *
+ * <p>Los valores menores que 16 tienen un casillero cada uno; desde ahí, cada
+ * potencia de dos se divide en 16 casilleros iguales, así que un percentil se
+ * informa con un error menor al 6,25 % en cualquier escala, desde
+ * nanosegundos hasta horas, con 960 contadores fijos. Registrar un valor es
+ * un incremento atómico sin candados ni reservas de memoria, por lo que puede
+ * hacerse en cada llamada de un camino caliente y desde varios hilos.</p>
+ *
+ * <p>Las lecturas trabajan sobre una {@link Instantanea}; como se copia
+ * mientras otros hilos registran, puede no incluir los valores de ese mismo
+ * instante.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class Histograma {
+
+    /** Bits de subdivisión de cada potencia de dos. */
+    private static final int BITS = 4;
+
+    /** Casilleros por potencia de dos. */
+    private static final int SUBDIVISIONES = 1 << BITS;
+
+    /** Cantidad total de casilleros: hasta {@code 2^63 - 1}. */
+    private static final int CASILLEROS = (64 - BITS) * SUBDIVISIONES;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CASILLEROS);
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructor de un histograma vacío.
+     */
+    public Histograma() {
+    }
+
+    /**
+     * Registra un valor; los negativos se registran como cero.
+     *
+     * @param valor valor a registrar
+     */
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        cuentas.getAndIncrement(casillero(valor));
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Descarta todos los valores registrados. Los que se registren mientras
+     * tanto pueden conservarse o no.
+     */
+    public void reiniciar() {
+        for (int i = 0; i < CASILLEROS; i++) cuentas.set(i, 0);
+        suma.reset();
+        maximo.reset();
+    }
+
+    /**
+     * @return copia de los contadores para calcular estadísticas
+     */
+    public Instantanea instantanea() {
+        long[] copia = new long[CASILLEROS];
+        long total = 0;
+        for (int i = 0; i < CASILLEROS; i++) {
+            copia[i] = cuentas.get(i);
+            total += copia[i];
+        }
+        return new Instantanea(copia, total, suma.sum(), maximo.get());
+    }
+
+    static int casillero(long valor) {
+        if (valor < SUBDIVISIONES) return (int) valor;
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        return ((exponente - BITS + 1) << BITS) | (int) ((valor >>> (exponente - BITS)) & (SUBDIVISIONES - 1));
+    }
+
+    /** @return menor valor que cae en el casillero */
+    static long limiteInferior(int casillero) {
+        if (casillero < SUBDIVISIONES) return casillero;
+        int exponente = (casillero >>> BITS) + BITS - 1;
+        return (long) (SUBDIVISIONES | (casillero & (SUBDIVISIONES - 1))) << (exponente - BITS);
+    }
+
+    /** @return mayor valor que cae en el casillero */
+    static long limiteSuperior(int casillero) {
+        return casillero == CASILLEROS - 1 ? Long.MAX_VALUE : limiteInferior(casillero + 1) - 1;
+    }
+
+    // -----------------------------------------------------------
+    // INSTANTÁNEA
+    // -----------------------------------------------------------
+
+    /**
+     * Copia inmutable de un {@link Histograma}.
+     */
+    public static final class Instantanea {
+
+        private final long[] cuentas;
+        private final long total;
+        private final long suma;
+        private final long maximo;
+
+        private Instantanea(long[] cuentas, long total, long suma, long maximo) {
+            this.cuentas = cuentas;
+            this.total = total;
+            this.suma = suma;
+            this.maximo = maximo;
+        }
+
+        /** @return cantidad de valores registrados */
+        public long getCantidad() {
+            return total;
+        }
+
+        /** @return promedio de los valores, o {@code 0} si no hay ninguno */
+        public double getMedia() {
+            return total == 0 ? 0 : (double) suma / total;
+        }
+
+        /** @return mayor valor registrado, exacto */
+        public long getMaximo() {
+            return maximo;
+        }
+
+        /**
+         * Retorna el valor bajo el cual queda el porcentaje pedido de los
+         * registros, redondeado hacia arriba al límite de su casillero (nunca
+         * mayor que el máximo registrado).
+         *
+         * @param porcentaje porcentaje entre 0 y 100, por ejemplo {@code 99.9}
+         * @return percentil, o {@code 0} si no hay valores
+         */
+        public long percentil(double porcentaje) {
+            if (total == 0) return 0;
+            long objetivo = Math.max(1, (long) Math.ceil(total * Math.min(100, porcentaje) / 100));
+            long acumulado = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                acumulado += cuentas[i];
+                if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo);
+            }
+            return maximo;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package co.edu.poli.parcial.metricas;
+
+/**
+ * Medición de un guardado o una carga completos de un archivo de datos.
+ *
+ * <p>Registra la duración en la métrica {@code guardarArchivo} o
+ * {@code cargarArchivo}, suma los bytes transferidos y emite un
+ * {@link EventoArchivo} de Java Flight Recorder con la duración real de la
+ * operación, sin umbral: los guardados son pocos y cada uno interesa.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class MedicionArchivo {
+
+    private final MetricaOperacion metrica;
+    private final boolean escritura;
+    private final String ruta;
+    private final long inicio;
+    private final EventoArchivo evento = new EventoArchivo();
+
+    private MedicionArchivo(String operacion, boolean escritura, String ruta) {
+        this.metrica = Metricas.global().operacion(operacion);
+        this.escritura = escritura;
+        this.ruta = ruta;
+        evento.begin();
+        this.inicio = System.nanoTime();
+    }
+
+    /**
+     * @param ruta archivo que se va a escribir
+     * @return medición en curso
+     */
+    public static MedicionArchivo guardado(String ruta) {
+        return new MedicionArchivo("guardarArchivo", true, ruta);
+    }
+
+    /**
+     * @param ruta archivo que se va a leer
+     * @return medición en curso
+     */
+    public static MedicionArchivo carga(String ruta) {
+        return new MedicionArchivo("cargarArchivo", false, ruta);
+    }
+
+    /**
+     * Termina la medición.
+     *
+     * @param producciones producciones escritas o leídas
+     * @param bytes        bytes escritos o leídos
+     * @param exitosa      {@code false} si la operación falló o se canceló
+     */
+    public void terminar(int producciones, long bytes, boolean exitosa) {
+        metrica.registrar(System.nanoTime() - inicio, exitosa);
+        if (escritura) {
+            Metricas.global().sumarBytesEscritos(bytes);
+        } else {
+            Metricas.global().sumarBytesLeidos(bytes);
+        }
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = escritura ? "guardar" : "cargar";
+            evento.ruta = ruta;
+            evento.producciones = producciones;
+            evento.bytes = bytes;
+            evento.exitosa = exitosa;
+            evento.commit();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package co.edu.poli.parcial.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cantidad de llamadas, errores y distribución de la duración de una
+ * operación, por ejemplo {@code buscarPorCodigo} de un catálogo.
+ *
+ * <p>Se usa alrededor de la operación medida:</p>
+ * <pre>
+ *   long inicio = metrica.iniciar();
+ *   boolean exitosa = false;
+ *   try {
+ *       ...
+ *       exitosa = true;
+ *   } finally {
+ *       metrica.terminar(inicio, codigo, exitosa);
+ *   }
+ * </pre>
+ *
+ * <p>Cada llamada cuesta dos lecturas del reloj y unos pocos incrementos
+ * atómicos. Las que tardan al menos el {@linkplain Metricas#setUmbralEventos
+ * umbral de eventos} se registran además como {@link EventoOperacion} en
+ * Java Flight Recorder, con el detalle recibido, si hay una grabación activa.</p>
+ *
+ * <p>Se obtiene con {@link Metricas#operacion(String)}, que además la
+ * publica como MBean.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class MetricaOperacion implements MetricaOperacionMXBean {
+
+    private final String nombre;
+    private final Metricas metricas;
+    private final Histograma duraciones = new Histograma();
+    private final LongAdder errores = new LongAdder();
+
+    MetricaOperacion(String nombre, Metricas metricas) {
+        this.nombre = nombre;
+        this.metricas = metricas;
+    }
+
+    /**
+     * @return instante de inicio, para pasarlo a {@link #terminar}
+     */
+    public long iniciar() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra una llamada exitosa.
+     *
+     * @param inicio instante devuelto por {@link #iniciar()}
+     */
+    public void terminar(long inicio) {
+        terminar(inicio, null, true);
+    }
+
+    /**
+     * Registra una llamada.
+     *
+     * @param inicio  instante devuelto por {@link #iniciar()}
+     * @param detalle dato que identifica la llamada en el evento de JFR
+     *                (por ejemplo el código), o {@code null}
+     * @param exitosa {@code false} si terminó con una excepción
+     */
+    public void terminar(long inicio, String detalle, boolean exitosa) {
+        long duracion = System.nanoTime() - inicio;
+        registrar(duracion, exitosa);
+        if (duracion >= metricas.getUmbralEventosNanos()) {
+            EventoOperacion evento = new EventoOperacion();
+            if (evento.isEnabled()) {
+                evento.operacion = nombre;
+                evento.detalle = detalle;
+                evento.duracionOperacion = duracion;
+                evento.exitosa = exitosa;
+                evento.commit();
+            }
+        }
+    }
+
+    /**
+     * Registra una llamada ya medida, sin emitir el evento de JFR.
+     *
+     * @param duracion duración en nanosegundos
+     * @param exitosa  {@code false} si terminó con una excepción
+     */
+    void registrar(long duracion, boolean exitosa) {
+        duraciones.registrar(duracion);
+        if (!exitosa) errores.increment();
+    }
+
+    /** @return copia de la distribución de duraciones, en nanosegundos */
+    public Histograma.Instantanea getDuraciones() {
+        return duraciones.instantanea();
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public long getLlamadas() {
+        return duraciones.instantanea().getCantidad();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public double getMediaMicros() {
+        return duraciones.instantanea().getMedia() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return duraciones.instantanea().percentil(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return duraciones.instantanea().percentil(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return duraciones.instantanea().percentil(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return duraciones.instantanea().percentil(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaximoMicros() {
+        return duraciones.instantanea().getMaximo() / 1000.0;
+    }
+
+    @Override
+    public void reiniciar() {
+        duraciones.reiniciar();
+        errores.reset();
+    }
+}
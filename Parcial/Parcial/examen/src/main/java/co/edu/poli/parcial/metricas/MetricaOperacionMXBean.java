@@ -0,0 +1,40 @@
+package co.edu.poli.parcial.metricas;
+
+/**
+ * Vista JMX de una {@link MetricaOperacion}. Las duraciones se expresan en
+ * microsegundos.
+ *
+ * @author Felipe Parra
+ */
+public interface MetricaOperacionMXBean {
+
+    /** @return nombre de la operación */
+    String getNombre();
+
+    /** @return llamadas terminadas, con o sin error */
+    long getLlamadas();
+
+    /** @return llamadas que terminaron con una excepción */
+    long getErrores();
+
+    /** @return duración media */
+    double getMediaMicros();
+
+    /** @return mediana de la duración */
+    double getP50Micros();
+
+    /** @return percentil 90 de la duración */
+    double getP90Micros();
+
+    /** @return percentil 99 de la duración */
+    double getP99Micros();
+
+    /** @return percentil 99,9 de la duración */
+    double getP999Micros();
+
+    /** @return duración máxima */
+    double getMaximoMicros();
+
+    /** Descarta las llamadas registradas hasta ahora. */
+    void reiniciar();
+}
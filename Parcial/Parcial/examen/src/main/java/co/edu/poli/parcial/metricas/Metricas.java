@@ -0,0 +1,314 @@
+package co.edu.poli.parcial.metricas;
+
+import jdk.jfr.FlightRecorder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Registro global de las métricas de la aplicación: una
+ * {@link MetricaOperacion} por operación medida, los bytes leídos y escritos
+ * en disco y el tamaño de los catálogos.
+ *
+ * <p>Las métricas se pueden consultar de tres formas, sin detener la
+ * aplicación ni conectar un perfilador:</p>
+ * <ul>
+ *   <li>Por JMX (por ejemplo con JConsole o JDK Mission Control), en el
+ *       dominio {@value #DOMINIO}: {@code type=Metricas} con los totales y
+ *       {@code type=Operacion,name=...} por cada operación.</li>
+ *   <li>Como texto, con {@link #resumen()} o volcado cada cierto tiempo con
+ *       {@link #iniciarVolcado}.</li>
+ *   <li>En una grabación de Java Flight Recorder: las operaciones más lentas
+ *       que el {@linkplain #setUmbralEventos umbral}, cada guardado y carga del
+ *       archivo, y cada 10 segundos el tamaño de los catálogos.</li>
+ * </ul>
+ *
+ * @author Felipe Parra
+ */
+public final class Metricas implements MetricasMXBean {
+
+    /** Dominio de los nombres JMX. */
+    public static final String DOMINIO = "co.edu.poli.parcial";
+
+    /** Umbral de eventos por defecto: un milisegundo. */
+    private static final long UMBRAL_POR_DEFECTO = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Hilo único donde se vuelcan las métricas periódicamente. */
+    private static final ScheduledExecutorService VOLCADOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "volcado-metricas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Metricas GLOBAL = new Metricas();
+
+    static {
+        GLOBAL.publicar(GLOBAL, "type=Metricas");
+        try {
+            FlightRecorder.addPeriodicEvent(EventoCatalogo.class, GLOBAL::emitirCatalogos);
+        } catch (RuntimeException e) {
+            System.out.println("No se pudo registrar el evento periódico de JFR: " + e.getMessage());
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, MetricaOperacion> operaciones = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Catalogo<?>> catalogos = new ConcurrentSkipListMap<>();
+    private final LongAdder bytesLeidos = new LongAdder();
+    private final LongAdder bytesEscritos = new LongAdder();
+    private volatile long umbralEventos = UMBRAL_POR_DEFECTO;
+    private ScheduledFuture<?> volcado;
+
+    /**
+     * Catálogo medido. Se guarda con una referencia débil para que medirlo no
+     * impida liberarlo.
+     */
+    private static final class Catalogo<T> {
+        final WeakReference<T> servicio;
+        final ToIntFunction<? super T> tamano;
+
+        Catalogo(T servicio, ToIntFunction<? super T> tamano) {
+            this.servicio = new WeakReference<>(servicio);
+            this.tamano = tamano;
+        }
+
+        /** @return tamaño actual, o {@code -1} si el catálogo ya se liberó */
+        int medir() {
+            T s = servicio.get();
+            return s == null ? -1 : tamano.applyAsInt(s);
+        }
+    }
+
+    private Metricas() {
+    }
+
+    /**
+     * @return registro de métricas de la aplicación
+     */
+    public static Metricas global() {
+        return GLOBAL;
+    }
+
+    // -----------------------------------------------------------
+    // REGISTRO
+    // -----------------------------------------------------------
+
+    /**
+     * Retorna la métrica de una operación, creándola y publicándola por JMX la
+     * primera vez. Conviene guardarla en un campo en lugar de pedirla en cada
+     * llamada.
+     *
+     * @param nombre nombre de la operación, por ejemplo {@code servidor.buscarPorCodigo}
+     * @return métrica de la operación
+     */
+    public MetricaOperacion operacion(String nombre) {
+        MetricaOperacion m = operaciones.get(nombre);
+        if (m != null) return m;
+        MetricaOperacion nueva = new MetricaOperacion(nombre, this);
+        m = operaciones.putIfAbsent(nombre, nueva);
+        if (m != null) return m;
+        publicar(nueva, "type=Operacion,name=" + ObjectName.quote(nombre));
+        return nueva;
+    }
+
+    /**
+     * Mide el tamaño de un catálogo con el nombre dado, reemplazando al que
+     * tuviera ese nombre. El catálogo se consulta solo al leer las métricas.
+     *
+     * @param nombre   nombre del catálogo
+     * @param servicio catálogo; se deja de medir cuando se libera
+     * @param tamano   función que retorna su cantidad de producciones
+     * @param <T>      tipo del catálogo
+     */
+    public <T> void medirCatalogo(String nombre, T servicio, ToIntFunction<? super T> tamano) {
+        catalogos.put(nombre, new Catalogo<>(servicio, tamano));
+    }
+
+    /** @param bytes bytes leídos de un archivo de datos */
+    public void sumarBytesLeidos(long bytes) {
+        bytesLeidos.add(bytes);
+    }
+
+    /** @param bytes bytes escritos en un archivo de datos o una bitácora */
+    public void sumarBytesEscritos(long bytes) {
+        bytesEscritos.add(bytes);
+    }
+
+    /**
+     * Fija la duración desde la cual una operación medida se registra como
+     * evento de Java Flight Recorder. Con cero se registran todas, lo que solo
+     * conviene por poco tiempo.
+     *
+     * @param duracion duración mínima
+     * @param unidad   unidad de la duración
+     */
+    public void setUmbralEventos(long duracion, TimeUnit unidad) {
+        if (duracion < 0) throw new IllegalArgumentException("Umbral inválido: " + duracion);
+        umbralEventos = unidad.toNanos(duracion);
+    }
+
+    /** @return umbral de eventos en nanosegundos */
+    long getUmbralEventosNanos() {
+        return umbralEventos;
+    }
+
+    // -----------------------------------------------------------
+    // JMX
+    // -----------------------------------------------------------
+
+    @Override
+    public long getBytesLeidos() {
+        return bytesLeidos.sum();
+    }
+
+    @Override
+    public long getBytesEscritos() {
+        return bytesEscritos.sum();
+    }
+
+    @Override
+    public Map<String, Integer> getProducciones() {
+        Map<String, Integer> resultado = new TreeMap<>();
+        for (Map.Entry<String, Catalogo<?>> e : catalogos.entrySet()) {
+            int n = e.getValue().medir();
+            if (n < 0) {
+                catalogos.remove(e.getKey(), e.getValue());
+            } else {
+                resultado.put(e.getKey(), n);
+            }
+        }
+        return resultado;
+    }
+
+    @Override
+    public long getUmbralEventosMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(umbralEventos);
+    }
+
+    @Override
+    public void setUmbralEventosMicros(long micros) {
+        setUmbralEventos(micros, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public String getResumen() {
+        return resumen();
+    }
+
+    @Override
+    public void reiniciar() {
+        operaciones.values().forEach(MetricaOperacion::reiniciar);
+        bytesLeidos.reset();
+        bytesEscritos.reset();
+    }
+
+    /**
+     * Publica un MBean; si no se puede (por ejemplo, si ya hay uno con ese
+     * nombre), lo informa por consola y la métrica sigue funcionando.
+     */
+    private void publicar(Object mbean, String propiedades) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(DOMINIO + ":" + propiedades));
+        } catch (JMException e) {
+            System.out.println("No se pudo publicar la métrica " + propiedades + ": " + e.getMessage());
+        }
+    }
+
+    // -----------------------------------------------------------
+    // TEXTO
+    // -----------------------------------------------------------
+
+    /**
+     * Retorna una tabla con las métricas de cada operación (duraciones en
+     * microsegundos), el tamaño de los catálogos y los bytes transferidos.
+     *
+     * @return resumen en varias líneas
+     */
+    public String resumen() {
+        int ancho = "operación".length();
+        for (String nombre : operaciones.keySet()) ancho = Math.max(ancho, nombre.length());
+
+        StringBuilder sb = new StringBuilder();
+        String fila = "%-" + ancho + "s %10s %8s %9s %9s %9s %9s %10s%n";
+        sb.append(String.format(Locale.ROOT, fila, "operación", "llamadas", "errores",
+                "media", "p50", "p99", "p99.9", "máximo"));
+        for (MetricaOperacion m : operaciones.values()) {
+            Histograma.Instantanea d = m.getDuraciones();
+            if (d.getCantidad() == 0) continue;
+            sb.append(String.format(Locale.ROOT, fila, m.getNombre(), d.getCantidad(), m.getErrores(),
+                    micros(d.getMedia()), micros(d.percentil(50)), micros(d.percentil(99)),
+                    micros(d.percentil(99.9)), micros(d.getMaximo())));
+        }
+        for (Map.Entry<String, Integer> e : getProducciones().entrySet()) {
+            sb.append(String.format(Locale.ROOT, "catálogo %s: %,d producciones%n", e.getKey(), e.getValue()));
+        }
+        sb.append(String.format(Locale.ROOT, "bytes leídos: %,d; escritos: %,d%n",
+                bytesLeidos.sum(), bytesEscritos.sum()));
+        return sb.toString();
+    }
+
+    private static String micros(double nanos) {
+        double us = nanos / 1000;
+        return String.format(Locale.ROOT, us < 10 ? "%.2f" : us < 1000 ? "%.1f" : "%.0f", us);
+    }
+
+    /**
+     * Entrega el {@link #resumen()} al destino cada cierto tiempo, en un hilo
+     * aparte, reemplazando el volcado anterior si lo había. Las operaciones
+     * sin llamadas se omiten.
+     *
+     * @param intervalo tiempo entre volcados
+     * @param unidad    unidad del intervalo
+     * @param destino   receptor del texto, por ejemplo {@code System.out::print}
+     */
+    public synchronized void iniciarVolcado(long intervalo, TimeUnit unidad, Consumer<String> destino) {
+        if (intervalo <= 0) throw new IllegalArgumentException("Intervalo inválido: " + intervalo);
+        detenerVolcado();
+        volcado = VOLCADOR.scheduleAtFixedRate(() -> {
+            try {
+                destino.accept(resumen());
+            } catch (RuntimeException e) {
+                System.out.println("Error al volcar las métricas: " + e.getMessage());
+            }
+        }, intervalo, intervalo, unidad);
+    }
+
+    /**
+     * Detiene el volcado periódico, si está activo.
+     */
+    public synchronized void detenerVolcado() {
+        if (volcado != null) {
+            volcado.cancel(false);
+            volcado = null;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // JFR
+    // -----------------------------------------------------------
+
+    private void emitirCatalogos() {
+        long leidos = bytesLeidos.sum();
+        long escritos = bytesEscritos.sum();
+        for (Map.Entry<String, Integer> e : getProducciones().entrySet()) {
+            EventoCatalogo evento = new EventoCatalogo();
+            evento.catalogo = e.getKey();
+            evento.producciones = e.getValue();
+            evento.bytesLeidos = leidos;
+            evento.bytesEscritos = escritos;
+            evento.commit();
+        }
+    }
+}
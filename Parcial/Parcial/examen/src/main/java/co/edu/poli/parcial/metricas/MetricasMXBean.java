@@ -0,0 +1,32 @@
+package co.edu.poli.parcial.metricas;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de las {@link Metricas} globales.
+ *
+ * @author Felipe Parra
+ */
+public interface MetricasMXBean {
+
+    /** @return bytes leídos de los archivos de datos */
+    long getBytesLeidos();
+
+    /** @return bytes escritos en los archivos de datos y en las bitácoras */
+    long getBytesEscritos();
+
+    /** @return cantidad de producciones de cada catálogo medido, por nombre */
+    Map<String, Integer> getProducciones();
+
+    /** @return duración desde la cual una operación se registra como evento de JFR */
+    long getUmbralEventosMicros();
+
+    /** @param micros nueva duración desde la cual una operación se registra como evento de JFR */
+    void setUmbralEventosMicros(long micros);
+
+    /** @return resumen en texto de todas las métricas */
+    String getResumen();
+
+    /** Descarta las llamadas y los bytes registrados hasta ahora. */
+    void reiniciar();
+}
@@ -0,0 +1,197 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Agrupaciones y estadísticas sobre el catálogo de cualquier {@link OperacionCrud}.
+ *
+ * <p>Se define una agrupación (y opcionalmente un filtro) y luego se calcula
+ * sobre un servicio:</p>
+ * <pre>
+ *   Map&lt;String, IntSummaryStatistics&gt; r = Agregacion.por(Agregacion.DIRECTOR)
+ *           .resumir(servicio, ProduccionAudiovisual::getDuracionMin);
+ *   double promedio = r.get("Nolan").getAverage();
+ * </pre>
+ *
+ * <p>Los cálculos recorren una copia del catálogo con un flujo paralelo, que
+ * reparte las producciones entre los hilos del {@code ForkJoinPool} común y
+ * combina los resultados parciales de cada hilo. Las producciones cuya clave
+ * de grupo es {@code null} (por ejemplo, el género de una serie) se omiten.</p>
+ *
+ * <p>Para consultas repetidas sobre las mismas agrupaciones, ver
+ * {@link AgregadosMaterializados}, que se mantiene al día con cada cambio.</p>
+ *
+ * @param <K> tipo de la clave de grupo
+ * @author Felipe Parra
+ */
+public final class Agregacion<K> {
+
+    /** Agrupa por género; solo películas. */
+    public static final Function<ProduccionAudiovisual, String> GENERO =
+            p -> p instanceof Pelicula pel ? pel.getGenero() : null;
+
+    /** Agrupa por nombre del director. */
+    public static final Function<ProduccionAudiovisual, String> DIRECTOR = p -> {
+        Director d = p.getDirector();
+        return d == null ? null : d.getNombre();
+    };
+
+    /** Agrupa por década de estreno, como su primer año (1990, 2000, ...). */
+    public static final Function<ProduccionAudiovisual, Integer> DECADA = p -> decada(p.getFechaEstreno());
+
+    /** Agrupa por tipo: {@code "Película"} o {@code "Serie"}. */
+    public static final Function<ProduccionAudiovisual, String> TIPO =
+            p -> p instanceof Pelicula ? "Película" : "Serie";
+
+    /** Agrupa las series por número de temporadas; las películas se omiten. */
+    public static final Function<ProduccionAudiovisual, Integer> TEMPORADAS =
+            p -> p instanceof Serie s ? s.getNumeroTemporadas() : null;
+
+    private final Function<ProduccionAudiovisual, K> grupo;
+    private final Predicate<ProduccionAudiovisual> filtro;
+
+    private Agregacion(Function<ProduccionAudiovisual, K> grupo, Predicate<ProduccionAudiovisual> filtro) {
+        this.grupo = grupo;
+        this.filtro = filtro;
+    }
+
+    /**
+     * @param grupo función que da la clave de grupo de cada producción
+     * @param <K>   tipo de la clave
+     * @return agrupación sin filtro
+     */
+    public static <K> Agregacion<K> por(Function<ProduccionAudiovisual, K> grupo) {
+        return new Agregacion<>(Objects.requireNonNull(grupo), p -> true);
+    }
+
+    /**
+     * @param filtro condición que deben cumplir las producciones
+     * @return nueva agrupación que además aplica el filtro
+     */
+    public Agregacion<K> donde(Predicate<ProduccionAudiovisual> filtro) {
+        return new Agregacion<>(grupo, this.filtro.and(filtro));
+    }
+
+    /**
+     * @param consulta criterios que deben cumplir las producciones
+     * @return nueva agrupación que además aplica la consulta
+     */
+    public Agregacion<K> donde(Consulta consulta) {
+        return donde(consulta::coincide);
+    }
+
+    /** @return década de un año, como su primer año */
+    static int decada(int anio) {
+        return Math.floorDiv(anio, 10) * 10;
+    }
+
+    // -----------------------------------------------------------
+    // CÁLCULOS
+    // -----------------------------------------------------------
+
+    /**
+     * @param servicio catálogo a recorrer
+     * @return cantidad de producciones por grupo
+     */
+    public Map<K, Long> contar(OperacionCrud servicio) {
+        return agrupar(servicio, Collectors.counting());
+    }
+
+    /**
+     * Calcula cantidad, suma, mínimo, máximo y promedio de un valor por grupo.
+     *
+     * @param servicio catálogo a recorrer
+     * @param valor    valor a resumir, por ejemplo {@code ProduccionAudiovisual::getDuracionMin}
+     * @return resumen por grupo
+     */
+    public Map<K, IntSummaryStatistics> resumir(OperacionCrud servicio, ToIntFunction<ProduccionAudiovisual> valor) {
+        return agrupar(servicio, Collectors.summarizingInt(valor));
+    }
+
+    /**
+     * Calcula percentiles de un valor por grupo, por el método del rango más
+     * cercano: el percentil {@code p} es el menor valor que deja al menos
+     * {@code p}% de los valores del grupo por debajo o igual.
+     *
+     * <p>Reúne los valores de cada grupo en arreglos {@code int[]} sin
+     * envolverlos, y los ordena una vez por grupo.</p>
+     *
+     * @param servicio    catálogo a recorrer
+     * @param valor       valor a medir
+     * @param percentiles percentiles pedidos, entre 0 y 100
+     * @return por grupo, un valor por cada percentil pedido y en el mismo orden
+     * @throws IllegalArgumentException si algún percentil está fuera de rango
+     */
+    public Map<K, int[]> percentiles(OperacionCrud servicio, ToIntFunction<ProduccionAudiovisual> valor,
+                                     double... percentiles) {
+        for (double p : percentiles) {
+            if (!(p >= 0 && p <= 100)) throw new IllegalArgumentException("Percentil inválido: " + p);
+        }
+        Collector<ProduccionAudiovisual, Enteros, int[]> colector = Collector.of(
+                Enteros::new,
+                (e, p) -> e.agregar(valor.applyAsInt(p)),
+                Enteros::unir,
+                e -> e.percentiles(percentiles));
+        return agrupar(servicio, colector);
+    }
+
+    private <R> Map<K, R> agrupar(OperacionCrud servicio, Collector<ProduccionAudiovisual, ?, R> colector) {
+        return flujo(servicio.listarTodos())
+                .collect(Collectors.groupingBy(Map.Entry::getKey, HashMap::new,
+                        Collectors.mapping(Map.Entry::getValue, colector)));
+    }
+
+    private Stream<Map.Entry<K, ProduccionAudiovisual>> flujo(List<ProduccionAudiovisual> todas) {
+        return todas.parallelStream()
+                .filter(filtro)
+                .<Map.Entry<K, ProduccionAudiovisual>>map(p -> new AbstractMap.SimpleImmutableEntry<>(grupo.apply(p), p))
+                .filter(e -> e.getKey() != null);
+    }
+
+    /**
+     * Arreglo de enteros que crece, usado como acumulador de un hilo.
+     */
+    private static final class Enteros {
+        private int[] valores = new int[16];
+        private int n;
+
+        void agregar(int v) {
+            if (n == valores.length) valores = Arrays.copyOf(valores, n * 2);
+            valores[n++] = v;
+        }
+
+        Enteros unir(Enteros otro) {
+            if (n + otro.n > valores.length) valores = Arrays.copyOf(valores, n + otro.n);
+            System.arraycopy(otro.valores, 0, valores, n, otro.n);
+            n += otro.n;
+            return this;
+        }
+
+        int[] percentiles(double[] pedidos) {
+            Arrays.sort(valores, 0, n);
+            int[] r = new int[pedidos.length];
+            for (int i = 0; i < pedidos.length; i++) {
+                int rango = (int) Math.ceil(pedidos[i] / 100 * n);
+                r[i] = valores[Math.max(rango, 1) - 1];
+            }
+            return r;
+        }
+    }
+}
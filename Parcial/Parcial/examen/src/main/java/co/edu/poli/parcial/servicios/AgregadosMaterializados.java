@@ -0,0 +1,169 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agregados del catálogo que se mantienen al día con cada cambio, para
+ * tableros que los consultan seguido.
+ *
+ * <p>En lugar de recorrer el catálogo en cada consulta (como
+ * {@link Agregacion}), guarda contadores que se ajustan al agregar o quitar
+ * cada producción, así que cada consulta puntual cuesta O(1):</p>
+ * <ul>
+ *   <li>cantidad de películas por género;</li>
+ *   <li>cantidad y suma de duraciones por director, para su promedio;</li>
+ *   <li>estrenos por década;</li>
+ *   <li>series por número de temporadas.</li>
+ * </ul>
+ *
+ * <p>Géneros y directores se agrupan sin distinguir mayúsculas de minúsculas;
+ * cada grupo se muestra con el nombre de la primera producción que lo formó.
+ * Los mapas que retornan los métodos son copias. Se obtiene de
+ * {@link ImplOperacionCrud#getAgregados()}; no es segura para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+public class AgregadosMaterializados {
+
+    /** Cantidad y suma de un grupo, con el nombre con que se muestra. */
+    private static final class Acumulado {
+        final String nombre;
+        long cantidad;
+        long suma;
+
+        Acumulado(String nombre) {
+            this.nombre = nombre;
+        }
+    }
+
+    private long total;
+    private final Map<String, Acumulado> porGenero = new HashMap<>();
+    private final Map<String, Acumulado> porDirector = new HashMap<>();
+    private final TreeMap<Integer, Long> porDecada = new TreeMap<>();
+    private final TreeMap<Integer, Long> porTemporadas = new TreeMap<>();
+
+    /**
+     * Construye los agregados a partir de un conjunto de producciones.
+     *
+     * @param producciones producciones del catálogo
+     */
+    AgregadosMaterializados(Collection<ProduccionAudiovisual> producciones) {
+        for (ProduccionAudiovisual p : producciones) agregar(p);
+    }
+
+    // -----------------------------------------------------------
+    // MANTENIMIENTO
+    // -----------------------------------------------------------
+
+    /**
+     * @param p producción agregada al catálogo
+     */
+    void agregar(ProduccionAudiovisual p) {
+        ajustar(p, 1);
+    }
+
+    /**
+     * @param p producción que deja el catálogo, con los mismos valores que tenía al agregarse
+     */
+    void quitar(ProduccionAudiovisual p) {
+        ajustar(p, -1);
+    }
+
+    private void ajustar(ProduccionAudiovisual p, int signo) {
+        total += signo;
+        if (p instanceof Pelicula pel) {
+            ajustar(porGenero, pel.getGenero(), 0, signo);
+        }
+        Director d = p.getDirector();
+        if (d != null) {
+            ajustar(porDirector, d.getNombre(), p.getDuracionMin(), signo);
+        }
+        porDecada.merge(Agregacion.decada(p.getFechaEstreno()), (long) signo, AgregadosMaterializados::sumar);
+        if (p instanceof Serie s) {
+            porTemporadas.merge(s.getNumeroTemporadas(), (long) signo, AgregadosMaterializados::sumar);
+        }
+    }
+
+    private static void ajustar(Map<String, Acumulado> grupos, String nombre, int valor, int signo) {
+        if (nombre == null) return;
+        String k = ImplOperacionCrud.clave(nombre);
+        Acumulado a = grupos.computeIfAbsent(k, x -> new Acumulado(nombre));
+        a.cantidad += signo;
+        a.suma += (long) signo * valor;
+        if (a.cantidad == 0) grupos.remove(k);
+    }
+
+    /** Suma que elimina la entrada cuando el contador llega a cero. */
+    private static Long sumar(Long a, Long b) {
+        long s = a + b;
+        return s == 0 ? null : s;
+    }
+
+    // -----------------------------------------------------------
+    // CONSULTAS
+    // -----------------------------------------------------------
+
+    /** @return cantidad total de producciones */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param genero género a consultar
+     * @return cantidad de películas del género
+     */
+    public long contarGenero(String genero) {
+        Acumulado a = porGenero.get(ImplOperacionCrud.clave(genero));
+        return a == null ? 0 : a.cantidad;
+    }
+
+    /** @return cantidad de películas por género */
+    public Map<String, Long> conteoPorGenero() {
+        Map<String, Long> r = new LinkedHashMap<>();
+        for (Acumulado a : porGenero.values()) r.put(a.nombre, a.cantidad);
+        return r;
+    }
+
+    /**
+     * @param nombre nombre del director
+     * @return duración promedio de sus producciones, o {@code NaN} si no tiene
+     */
+    public double promedioDuracionDirector(String nombre) {
+        Acumulado a = porDirector.get(ImplOperacionCrud.clave(nombre));
+        return a == null ? Double.NaN : (double) a.suma / a.cantidad;
+    }
+
+    /** @return duración promedio por director */
+    public Map<String, Double> promedioDuracionPorDirector() {
+        Map<String, Double> r = new LinkedHashMap<>();
+        for (Acumulado a : porDirector.values()) r.put(a.nombre, (double) a.suma / a.cantidad);
+        return r;
+    }
+
+    /**
+     * @param anio cualquier año de la década
+     * @return cantidad de estrenos de la década
+     */
+    public long estrenosEnDecada(int anio) {
+        return porDecada.getOrDefault(Agregacion.decada(anio), 0L);
+    }
+
+    /** @return estrenos por década, identificada por su primer año, en orden */
+    public Map<Integer, Long> estrenosPorDecada() {
+        return new TreeMap<>(porDecada);
+    }
+
+    /** @return cantidad de series por número de temporadas, en orden */
+    public Map<Integer, Long> histogramaTemporadas() {
+        return new TreeMap<>(porTemporadas);
+    }
+}
@@ -0,0 +1,549 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.metricas.MetricaOperacion;
+import co.edu.poli.parcial.metricas.Metricas;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bitácora de cambios (journal) de solo anexado para el modo incremental
+ * de persistencia.
+ *
+ * <p>Cada operación {@code crear}, {@code modificar} o {@code eliminar} se
+ * registra como un registro pequeño al final del archivo, de modo que el costo
+ * de guardar un cambio depende del tamaño del cambio y no del catálogo
+ * completo. La instantánea ({@code data.dat}) se actualiza solo al compactar.</p>
+ *
+ * <p>Formato de cada registro:</p>
+ * <pre>
+ *   int    longitud del cuerpo, negada
+ *   cuerpo:
+ *     byte   tipo de operación (CREAR, MODIFICAR, ELIMINAR)
+ *     UTF    código afectado
+ *     bytes  producción en formato {@link CodecProduccion} (solo CREAR y MODIFICAR)
+ *   int    CRC32C del cuerpo
+ * </pre>
+ *
+ * <p>La longitud negada distingue estos registros de los escritos antes de
+ * existir la suma de verificación, que llevan la longitud positiva y ninguna
+ * suma; ambos se pueden leer, incluso mezclados en un mismo archivo.</p>
+ *
+ * <p>Un {@link Lote} se registra completo en un solo registro de tipo LOTE,
+ * que se reproduce como sus operaciones en orden:</p>
+ * <pre>
+ *   int    longitud del cuerpo, negada
+ *   byte   LOTE
+ *   int    cantidad de operaciones
+ *   por operación: byte tipo, UTF código
+ *   bytes  producciones de las operaciones CREAR y MODIFICAR, en orden, como
+ *          un archivo completo de {@link CodecProduccion} (cada director una vez)
+ *   int    CRC32C del cuerpo
+ * </pre>
+ *
+ * <p>Un registro incompleto o con la suma incorrecta (por ejemplo, tras una
+ * caída durante la escritura) detiene la reproducción: se descarta junto con
+ * lo que le sigue y se trunca al reabrir.</p>
+ *
+ * <p>Cada registro se entrega al sistema operativo antes de retornar; cuándo
+ * llega al disco lo decide la {@link PoliticaSincronizacion}. Si anexar un
+ * registro falla, incluida su sincronización, el archivo se trunca al final
+ * del registro anterior antes de informar el error, de modo que un registro
+ * rechazado nunca se reproduce ni deja ilegibles a los siguientes.</p>
+ *
+ * @author Felipe Parra
+ */
+class BitacoraCambios implements Closeable {
+
+    /** Registro de creación de una producción. */
+    static final byte CREAR = 1;
+
+    /** Registro de modificación de una producción. */
+    static final byte MODIFICAR = 2;
+
+    /** Registro de eliminación de una producción. */
+    static final byte ELIMINAR = 3;
+
+    /** Registro de un lote de operaciones. */
+    static final byte LOTE = 4;
+
+    /** Registros pendientes que fuerzan la sincronización con {@link PoliticaSincronizacion#POR_LOTES}. */
+    private static final int MAX_PENDIENTES = 256;
+
+    /** Espera máxima de un registro pendiente con {@link PoliticaSincronizacion#POR_LOTES}. */
+    private static final long INTERVALO_MS = 50;
+
+    /** Duración de cada sincronización con el disco. */
+    private static final MetricaOperacion SINCRONIZACIONES = Metricas.global().operacion("bitacora.sincronizar");
+
+    /** Hilo que sincroniza las bitácoras con registros pendientes. */
+    private static final ScheduledExecutorService SINCRONIZADOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sincronizador-bitacora");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Receptor de las operaciones leídas al reproducir la bitácora.
+     */
+    interface Receptor {
+
+        /** @param p producción creada */
+        void creado(ProduccionAudiovisual p);
+
+        /**
+         * @param codigo código que tenía la producción antes del cambio
+         * @param nuevo  producción con los nuevos valores
+         */
+        void modificado(String codigo, ProduccionAudiovisual nuevo);
+
+        /** @param codigo código de la producción eliminada */
+        void eliminado(String codigo);
+    }
+
+    /** Archivo de la bitácora activa. */
+    private final Path ruta;
+
+    /** Cuándo se fuerza la escritura en el disco. */
+    private final PoliticaSincronizacion politica;
+
+    /** Flujo de escritura abierto en modo anexado, o {@code null} si está cerrada. */
+    private DataOutputStream salida;
+
+    /** Archivo bajo {@code salida}, para reemplazar el búfer tras un error. */
+    private FileOutputStream archivo;
+
+    /** Canal del flujo de escritura, para sincronizarlo. */
+    private FileChannel canal;
+
+    /** Longitud del archivo hasta el final del último registro anexado con éxito. */
+    private long valido;
+
+    /** Sincronización periódica con {@link PoliticaSincronizacion#POR_LOTES}. */
+    private ScheduledFuture<?> sincronizacionPeriodica;
+
+    /** Registros escritos desde que se abrió. */
+    private volatile long escritos;
+
+    /** Registros escritos que ya están en el disco. */
+    private long sincronizados;
+
+    /**
+     * Crea una bitácora asociada a un archivo. No abre el archivo hasta
+     * llamar a {@link #abrir()}.
+     *
+     * @param ruta     archivo de la bitácora
+     * @param politica cuándo forzar la escritura en el disco
+     */
+    BitacoraCambios(Path ruta, PoliticaSincronizacion politica) {
+        this.ruta = ruta;
+        this.politica = politica;
+    }
+
+    /** @return archivo de la bitácora activa */
+    Path getRuta() {
+        return ruta;
+    }
+
+    /** @return {@code true} si la bitácora está abierta para anexar registros */
+    boolean isAbierta() {
+        return salida != null;
+    }
+
+    /**
+     * Ruta del segmento que se está compactando: la bitácora activa se renombra
+     * a esta ruta mientras la instantánea se escribe en segundo plano.
+     *
+     * @return archivo del segmento pendiente de compactar
+     */
+    Path getRutaPendiente() {
+        return ruta.resolveSibling(ruta.getFileName() + ".1");
+    }
+
+    // -----------------------------------------------------------
+    // ESCRITURA
+    // -----------------------------------------------------------
+
+    /**
+     * Abre la bitácora para anexar registros. Si el archivo termina en un
+     * registro incompleto, primero lo trunca al último registro válido.
+     *
+     * @throws IOException si no se puede abrir el archivo
+     */
+    void abrir() throws IOException {
+        if (salida != null) return;
+        if (Files.exists(ruta)) {
+            long valido = reproducir(ruta, null);
+            try (FileChannel ch = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+                if (ch.size() > valido) ch.truncate(valido);
+            }
+        }
+        archivo = new FileOutputStream(ruta.toFile(), true);
+        canal = archivo.getChannel();
+        salida = new DataOutputStream(new BufferedOutputStream(archivo));
+        valido = canal.size();
+        escritos = 0;
+        sincronizados = 0;
+        if (politica != PoliticaSincronizacion.SISTEMA) {
+            canal.force(true);
+            OperacionArchivo.sincronizarDirectorio(ruta);
+        }
+        if (politica == PoliticaSincronizacion.POR_LOTES) {
+            sincronizacionPeriodica = SINCRONIZADOR.scheduleWithFixedDelay(
+                    this::sincronizarPendientes, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Registra la creación de una producción.
+     *
+     * @param p producción creada
+     * @throws IOException si falla la escritura
+     */
+    void registrarCreacion(ProduccionAudiovisual p) throws IOException {
+        escribir(CREAR, p.getCodigo(), p);
+    }
+
+    /**
+     * Registra la modificación de una producción.
+     *
+     * @param codigo código anterior de la producción
+     * @param nuevo  producción con los nuevos valores
+     * @throws IOException si falla la escritura
+     */
+    void registrarModificacion(String codigo, ProduccionAudiovisual nuevo) throws IOException {
+        escribir(MODIFICAR, codigo, nuevo);
+    }
+
+    /**
+     * Registra la eliminación de una producción.
+     *
+     * @param codigo código de la producción eliminada
+     * @throws IOException si falla la escritura
+     */
+    void registrarEliminacion(String codigo) throws IOException {
+        escribir(ELIMINAR, codigo, null);
+    }
+
+    /**
+     * Registra las operaciones de un lote en un solo registro.
+     *
+     * @param operaciones operaciones del lote, en orden
+     * @throws IOException si falla la escritura
+     */
+    void registrarLote(List<Lote.Operacion> operaciones) throws IOException {
+        if (salida == null) throw new IOException("La bitácora no está abierta");
+
+        CodecProduccion.Bufer cuerpo = new CodecProduccion.Bufer(64 * operaciones.size() + 16);
+        DataOutputStream out = new DataOutputStream(cuerpo);
+        out.writeByte(LOTE);
+        out.writeInt(operaciones.size());
+        List<ProduccionAudiovisual> producciones = new ArrayList<>();
+        for (Lote.Operacion op : operaciones) {
+            out.writeByte(op.tipo);
+            out.writeUTF(op.codigo);
+            if (op.produccion != null) producciones.add(op.produccion);
+        }
+        CodecProduccion.escribirLista(out, producciones);
+        anexar(cuerpo);
+    }
+
+    /**
+     * Escribe un registro completo y vacía el búfer, de forma que el registro
+     * llegue al sistema operativo antes de retornar, y luego lo sincroniza
+     * según la política.
+     */
+    private void escribir(byte tipo, String codigo, ProduccionAudiovisual p) throws IOException {
+        if (salida == null) throw new IOException("La bitácora no está abierta");
+
+        CodecProduccion.Bufer cuerpo = new CodecProduccion.Bufer(128);
+        DataOutputStream out = new DataOutputStream(cuerpo);
+        out.writeByte(tipo);
+        out.writeUTF(codigo);
+        if (p != null) {
+            CodecProduccion.escribirProduccion(out, p);
+        }
+        anexar(cuerpo);
+    }
+
+    private void anexar(CodecProduccion.Bufer cuerpo) throws IOException {
+        boolean entregado = false;
+        try {
+            salida.writeInt(-cuerpo.size());
+            salida.write(cuerpo.datos(), 0, cuerpo.size());
+            salida.writeInt(CodecProduccion.crc32c(cuerpo.datos(), 0, cuerpo.size()));
+            salida.flush();
+            escritos++;
+            entregado = true;
+
+            if (politica == PoliticaSincronizacion.SIEMPRE
+                    || (politica == PoliticaSincronizacion.POR_LOTES && escritos - sincronizados >= MAX_PENDIENTES)) {
+                sincronizar();
+            }
+        } catch (IOException e) {
+            if (entregado) escritos--;
+            descartarIncompleto(e);
+            throw e;
+        }
+        valido += cuerpo.size() + 8L;
+        Metricas.global().sumarBytesEscritos(cuerpo.size() + 8L);
+    }
+
+    /**
+     * Descarta lo que quedó de un registro que no se pudo anexar, en el búfer y
+     * en el archivo. Si ni siquiera el truncado es posible, cierra la bitácora
+     * sin vaciar el búfer: los siguientes registros fallan hasta volver a
+     * abrirla, y al abrirla se trunca el registro a medias.
+     *
+     * @param error error de la escritura, al que se agregan los del descarte
+     */
+    private void descartarIncompleto(IOException error) {
+        try {
+            canal.truncate(valido);
+            salida = new DataOutputStream(new BufferedOutputStream(archivo));
+        } catch (IOException e) {
+            error.addSuppressed(e);
+            if (sincronizacionPeriodica != null) {
+                sincronizacionPeriodica.cancel(false);
+                sincronizacionPeriodica = null;
+            }
+            try {
+                archivo.close();
+            } catch (IOException ex) {
+                error.addSuppressed(ex);
+            }
+            synchronized (this) {
+                salida = null;
+                archivo = null;
+                canal = null;
+            }
+        }
+    }
+
+    /**
+     * Fuerza en el disco los registros escritos hasta ahora.
+     *
+     * @throws IOException si falla la sincronización
+     */
+    synchronized void sincronizar() throws IOException {
+        long hasta = escritos;
+        if (canal == null || hasta == sincronizados) return;
+        long inicio = SINCRONIZACIONES.iniciar();
+        boolean exitosa = false;
+        try {
+            canal.force(false);
+            exitosa = true;
+        } finally {
+            SINCRONIZACIONES.terminar(inicio, ruta.toString(), exitosa);
+        }
+        sincronizados = hasta;
+    }
+
+    /**
+     * Descarta todos los registros de la bitácora abierta y fuerza el cambio
+     * en el disco, salvo con {@link PoliticaSincronizacion#SISTEMA}.
+     *
+     * @throws IOException si la bitácora no está abierta o falla el truncado
+     */
+    synchronized void vaciar() throws IOException {
+        if (salida == null) throw new IOException("La bitácora no está abierta");
+        salida.flush();
+        canal.truncate(0);
+        valido = 0;
+        if (politica != PoliticaSincronizacion.SISTEMA) canal.force(true);
+        sincronizados = escritos;
+    }
+
+    /**
+     * Sincronización periódica: los errores se ignoran porque el siguiente
+     * registro o el cierre vuelven a intentarlo.
+     */
+    private void sincronizarPendientes() {
+        try {
+            sincronizar();
+        } catch (IOException e) {
+            // la bitácora se cerró entre tanto o el disco falló; se reintenta al escribir
+        }
+    }
+
+    /**
+     * Cierra la bitácora activa y la renombra como segmento pendiente de
+     * compactar, dejando lista una bitácora vacía para los siguientes cambios.
+     *
+     * <p>Si ya existía un segmento pendiente (una compactación anterior que no
+     * terminó), los registros activos se anexan a él para no perder el orden.</p>
+     *
+     * @throws IOException si falla el renombrado o la copia
+     */
+    void rotar() throws IOException {
+        close();
+        Path pendiente = getRutaPendiente();
+        if (Files.exists(ruta)) {
+            if (Files.exists(pendiente)) {
+                try (FileChannel out = FileChannel.open(pendiente, StandardOpenOption.APPEND)) {
+                    try (FileChannel in = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                        long copiados = 0;
+                        while (copiados < in.size()) copiados += in.transferTo(copiados, in.size() - copiados, out);
+                    }
+                    if (politica != PoliticaSincronizacion.SISTEMA) out.force(true);
+                }
+                Files.delete(ruta);
+            } else {
+                Files.move(ruta, pendiente);
+            }
+        }
+        abrir();
+    }
+
+    /**
+     * Sincroniza los registros pendientes, salvo con
+     * {@link PoliticaSincronizacion#SISTEMA}, y cierra el flujo de escritura,
+     * si está abierto.
+     *
+     * @throws IOException si falla la sincronización o el cierre
+     */
+    @Override
+    public void close() throws IOException {
+        if (salida != null) {
+            if (sincronizacionPeriodica != null) {
+                sincronizacionPeriodica.cancel(false);
+                sincronizacionPeriodica = null;
+            }
+            try {
+                salida.flush();
+                if (politica != PoliticaSincronizacion.SISTEMA) sincronizar();
+            } finally {
+                try {
+                    salida.close();
+                } finally {
+                    synchronized (this) {
+                        salida = null;
+                        archivo = null;
+                        canal = null;
+                    }
+                }
+            }
+        }
+    }
+
+    // -----------------------------------------------------------
+    // LECTURA
+    // -----------------------------------------------------------
+
+    /**
+     * Reproduce en orden los registros de un archivo de bitácora.
+     *
+     * <p>La lectura se detiene en el primer registro incompleto, ilegible o
+     * con la suma de verificación incorrecta.</p>
+     *
+     * @param archivo  archivo a reproducir; si no existe no se hace nada
+     * @param receptor destino de las operaciones, o {@code null} para solo validar
+     * @return número de bytes válidos leídos desde el inicio del archivo
+     * @throws IOException si no se puede abrir el archivo
+     */
+    static long reproducir(Path archivo, Receptor receptor) throws IOException {
+        if (!Files.exists(archivo)) return 0;
+
+        long valido = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            while (true) {
+                int longitud;
+                try {
+                    longitud = in.readInt();
+                } catch (EOFException fin) {
+                    break;
+                }
+                if (longitud == 0 || longitud == Integer.MIN_VALUE) break;
+                boolean conSuma = longitud < 0;
+                if (conSuma) longitud = -longitud;
+
+                byte[] cuerpo;
+                try {
+                    cuerpo = in.readNBytes(longitud);
+                    if (cuerpo.length < longitud) break;
+                    if (conSuma && in.readInt() != CodecProduccion.crc32c(cuerpo, 0, longitud)) break;
+                } catch (EOFException truncado) {
+                    break;
+                }
+
+                try {
+                    aplicar(cuerpo, receptor);
+                } catch (IOException ilegible) {
+                    break;
+                }
+                valido += 4 + longitud + (conSuma ? 4 : 0);
+            }
+        }
+        return valido;
+    }
+
+    /**
+     * Decodifica un registro y lo entrega al receptor.
+     */
+    private static void aplicar(byte[] cuerpo, Receptor receptor) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(cuerpo));
+        byte tipo = in.readByte();
+        if (tipo == LOTE) {
+            aplicarLote(in, receptor);
+            return;
+        }
+        String codigo = in.readUTF();
+
+        switch (tipo) {
+            case CREAR: {
+                ProduccionAudiovisual p = CodecProduccion.leerProduccion(in);
+                if (receptor != null) receptor.creado(p);
+                break;
+            }
+            case MODIFICAR: {
+                ProduccionAudiovisual p = CodecProduccion.leerProduccion(in);
+                if (receptor != null) receptor.modificado(codigo, p);
+                break;
+            }
+            case ELIMINAR:
+                if (receptor != null) receptor.eliminado(codigo);
+                break;
+            default:
+                throw new IOException("Tipo de registro desconocido: " + tipo);
+        }
+    }
+
+    /**
+     * Decodifica un registro de lote completo y luego entrega sus operaciones
+     * en orden, para que un lote dañado no se aplique a medias.
+     */
+    private static void aplicarLote(DataInputStream in, Receptor receptor) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new IOException("Lote inválido: " + n);
+        byte[] tipos = new byte[n];
+        String[] codigos = new String[n];
+        for (int i = 0; i < n; i++) {
+            tipos[i] = in.readByte();
+            codigos[i] = in.readUTF();
+            if (tipos[i] != CREAR && tipos[i] != MODIFICAR && tipos[i] != ELIMINAR) {
+                throw new IOException("Tipo de operación desconocido en lote: " + tipos[i]);
+            }
+        }
+        List<ProduccionAudiovisual> producciones = CodecProduccion.leerLista(in);
+        if (receptor == null) return;
+
+        int siguiente = 0;
+        for (int i = 0; i < n; i++) {
+            switch (tipos[i]) {
+                case CREAR -> receptor.creado(producciones.get(siguiente++));
+                case MODIFICAR -> receptor.modificado(codigos[i], producciones.get(siguiente++));
+                default -> receptor.eliminado(codigos[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,990 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché de lectura acotada delante de otro {@link OperacionCrud}, pensada
+ * para catálogos que viven en disco, como {@link ImplOperacionCrudMapeado}.
+ *
+ * <p>{@link #buscarPorCodigo(String)} responde desde memoria las producciones
+ * consultadas hace poco y carga las demás del respaldo. La caché se acota por
+ * cantidad de entradas o por un {@linkplain #PESO_ESTIMADO peso} por
+ * producción, de modo que el heap usado no depende del tamaño del catálogo.
+ * Al llenarse expulsa según la {@link Expulsion} elegida:</p>
+ * <ul>
+ *   <li>{@link Expulsion#LRU}: la producción usada hace más tiempo.</li>
+ *   <li>{@link Expulsion#TINY_LFU}: las producciones nuevas entran a una
+ *   ventana LRU pequeña (1 % de la capacidad); al salir de ella solo pasan a
+ *   la región principal si se consultaron más veces que la producción que
+ *   desplazarían, según un conteo aproximado de frecuencias. Así un recorrido
+ *   de producciones que no se repiten no vacía la caché.</li>
+ * </ul>
+ *
+ * <p>Con {@link Escritura#DIRECTA} cada cambio se aplica al respaldo antes de
+ * retornar. Con {@link Escritura#DIFERIDA} se valida y se aplica a la caché de
+ * inmediato, pero llega al respaldo en un {@link Lote}, cada poco tiempo o al
+ * acumular cambios a varias producciones; los cambios repetidos a una misma
+ * producción se escriben una sola vez, y un cambio de código se escribe como
+ * eliminación y creación. Las lecturas ven los cambios pendientes. Si el
+ * respaldo falla, los cambios siguen pendientes y se reintentan; si rechaza
+ * alguno por conflicto (por ejemplo, un código creado en el respaldo sin
+ * pasar por la caché), se aplican los demás y se descartan solo los
+ * rechazados, lo que se informa en la siguiente escritura o vaciado. Las
+ * operaciones que recorren el catálogo ({@link #listarTodos()},
+ * {@link #consultar(Consulta)}, etc.) aplican antes los cambios pendientes y
+ * se delegan al respaldo sin pasar por la caché.</p>
+ *
+ * <p>Esta clase es segura para uso concurrente: todas las operaciones se
+ * serializan con un candado, por lo que el respaldo no necesita serlo. Los
+ * cambios hechos al respaldo sin pasar por la caché no se ven hasta llamar a
+ * {@link #invalidar(String)} o {@link #limpiar()}. {@link #close()} aplica los
+ * cambios pendientes pero no cierra el respaldo. La escritura periódica no
+ * mantiene viva la caché: una caché diferida que se descarta sin cerrarla deja
+ * de escribirse y pierde los cambios que tuviera pendientes.</p>
+ *
+ * @author Felipe Parra
+ */
+public class CacheOperacionCrud implements OperacionCrud, Closeable {
+
+    /**
+     * Momento en que los cambios llegan al respaldo.
+     */
+    public enum Escritura {
+        /** Cada cambio se aplica al respaldo antes de retornar. */
+        DIRECTA,
+        /** Los cambios se acumulan y se aplican al respaldo en lotes. */
+        DIFERIDA
+    }
+
+    /**
+     * Criterio para elegir qué producción sale de la caché cuando se llena.
+     */
+    public enum Expulsion {
+        /** La usada hace más tiempo. */
+        LRU,
+        /** Ventana LRU más región principal con admisión por frecuencia (W-TinyLFU). */
+        TINY_LFU
+    }
+
+    /** Cada producción pesa 1: la capacidad es la cantidad de entradas. */
+    public static final ToLongFunction<ProduccionAudiovisual> PESO_UNITARIO = p -> 1;
+
+    /** Peso aproximado en bytes de la producción y su entrada en la caché; el director se comparte y no se cuenta. */
+    public static final ToLongFunction<ProduccionAudiovisual> PESO_ESTIMADO = CacheOperacionCrud::estimarBytes;
+
+    /** Producciones con cambios pendientes que fuerzan la escritura con {@link Escritura#DIFERIDA}. */
+    private static final int MAX_PENDIENTES = 1024;
+
+    /** Espera máxima de un cambio pendiente con {@link Escritura#DIFERIDA}. */
+    private static final long INTERVALO_MS = 100;
+
+    /** Hilo que aplica los cambios pendientes de las cachés con escritura diferida. */
+    private static final ScheduledExecutorService ESCRITOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "escritor-cache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final OperacionCrud respaldo;
+    private final long capacidad;
+    private final ToLongFunction<ProduccionAudiovisual> peso;
+    private final Escritura escritura;
+    private final ReentrantLock candado = new ReentrantLock();
+
+    /** Región de entrada de {@link Expulsion#TINY_LFU}; vacía y con límite 0 en {@link Expulsion#LRU}. */
+    private final Region ventana;
+    private final Region principal;
+
+    /** Frecuencias aproximadas, o {@code null} con {@link Expulsion#LRU}. */
+    private final Frecuencias frecuencias;
+
+    /** Último valor pendiente de escribir por clave, en el orden del primer cambio. */
+    private final Map<String, Pendiente> pendientes = new LinkedHashMap<>();
+    private ScheduledFuture<?> escrituraPeriodica;
+
+    /** Cambios descartados por el respaldo que aún no se informaron. */
+    private IllegalArgumentException errorEscritura;
+
+    /**
+     * Error con el que falló la última escritura al respaldo, periódica o no;
+     * los cambios siguen pendientes. Se borra cuando una escritura tiene éxito.
+     */
+    private RuntimeException errorSegundoPlano;
+
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+
+    /**
+     * Caché de hasta {@code maxEntradas} producciones, con escritura directa y
+     * expulsión {@link Expulsion#TINY_LFU}.
+     *
+     * @param respaldo    servicio donde se guardan las producciones
+     * @param maxEntradas cantidad máxima de producciones en memoria
+     */
+    public CacheOperacionCrud(OperacionCrud respaldo, int maxEntradas) {
+        this(respaldo, maxEntradas, PESO_UNITARIO, Escritura.DIRECTA, Expulsion.TINY_LFU);
+    }
+
+    /**
+     * @param respaldo  servicio donde se guardan las producciones
+     * @param capacidad peso total máximo de las producciones en memoria
+     * @param peso      peso de cada producción, por ejemplo {@link #PESO_UNITARIO}
+     *                  o {@link #PESO_ESTIMADO}; no debe cambiar mientras la
+     *                  producción está en la caché
+     * @param escritura momento en que los cambios llegan al respaldo
+     * @param expulsion criterio de expulsión
+     * @throws IllegalArgumentException si la capacidad no es positiva
+     */
+    public CacheOperacionCrud(OperacionCrud respaldo, long capacidad, ToLongFunction<ProduccionAudiovisual> peso,
+                              Escritura escritura, Expulsion expulsion) {
+        if (capacidad <= 0) throw new IllegalArgumentException("Capacidad inválida: " + capacidad);
+        this.respaldo = respaldo;
+        this.capacidad = capacidad;
+        this.peso = peso;
+        this.escritura = escritura;
+        long limiteVentana = expulsion == Expulsion.TINY_LFU && capacidad > 1 ? Math.max(1, capacidad / 100) : 0;
+        this.ventana = new Region(limiteVentana);
+        this.principal = new Region(capacidad - limiteVentana);
+        this.frecuencias = expulsion == Expulsion.TINY_LFU ? new Frecuencias() : null;
+        if (escritura == Escritura.DIFERIDA) escrituraPeriodica = EscrituraPeriodica.programar(this);
+    }
+
+    /** @return servicio donde se guardan las producciones */
+    public OperacionCrud getRespaldo() {
+        return respaldo;
+    }
+
+    /**
+     * Suscribe el observador a los cambios del respaldo. Con
+     * {@link Escritura#DIFERIDA} los cambios se publican cuando llegan al
+     * respaldo, no cuando se hacen en la caché.
+     */
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        respaldo.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return respaldo.desuscribir(observador);
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException si el código ya existe
+     */
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        String k = ImplOperacionCrud.clave(p.getCodigo());
+        candado.lock();
+        try {
+            if (escritura == Escritura.DIRECTA) {
+                respaldo.crear(p);
+            } else {
+                lanzarDescartados();
+                if (existe(k, p.getCodigo())) throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+                anotar(k, p.getCodigo(), p, false).origen = null;
+            }
+            guardar(k, p);
+            anotarPendiente();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        if (codigo == null) return null;
+        String k = ImplOperacionCrud.clave(codigo);
+        candado.lock();
+        try {
+            if (frecuencias != null) frecuencias.incrementar(k);
+            ProduccionAudiovisual p = obtener(k);
+            if (p != null) {
+                aciertos++;
+                return p;
+            }
+            fallos++;
+            Pendiente pendiente = pendientes.get(k);
+            p = pendiente != null ? pendiente.valor : respaldo.buscarPorCodigo(codigo);
+            if (p != null) guardar(k, p);
+            return p;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException si el código nuevo pertenece a otra producción
+     */
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        String kNuevo = ImplOperacionCrud.clave(nuevo.getCodigo());
+        candado.lock();
+        try {
+            if (escritura == Escritura.DIRECTA) {
+                if (!respaldo.modificar(codigo, nuevo)) return false;
+            } else {
+                lanzarDescartados();
+                if (!existe(k, codigo)) return false;
+                if (!kNuevo.equals(k) && existe(kNuevo, nuevo.getCodigo())) {
+                    throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+                }
+                if (kNuevo.equals(k)) {
+                    anotar(k, codigo, nuevo, true);
+                } else {
+                    // si la creación del código nuevo se rechaza, el código
+                    // de origen no debe eliminarse del respaldo
+                    Pendiente origen = anotar(k, codigo, null, true);
+                    String claveOrigen = origen.origen != null ? origen.origen : k;
+                    anotar(kNuevo, nuevo.getCodigo(), nuevo, false).origen = claveOrigen;
+                }
+            }
+            quitar(k);
+            guardar(kNuevo, nuevo);
+            anotarPendiente();
+            return true;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public boolean eliminar(String codigo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        candado.lock();
+        try {
+            if (escritura == Escritura.DIRECTA) {
+                quitar(k);
+                return respaldo.eliminar(codigo);
+            }
+            lanzarDescartados();
+            if (!existe(k, codigo)) return false;
+            anotar(k, codigo, null, true);
+            quitar(k);
+            anotarPendiente();
+            return true;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Aplica el lote directamente al respaldo, aun con escritura diferida, y
+     * quita de la caché las producciones que toca.
+     */
+    @Override
+    public int aplicar(Lote lote) {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            int aplicadas = respaldo.aplicar(lote);
+            for (Lote.Operacion op : lote.getOperaciones()) {
+                quitar(ImplOperacionCrud.clave(op.codigo));
+                if (op.produccion != null) quitar(ImplOperacionCrud.clave(op.produccion.getCodigo()));
+            }
+            return aplicadas;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // -----------------------------------------------------------
+    // RECORRIDOS (se delegan al respaldo)
+    // -----------------------------------------------------------
+
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            return respaldo.listarTodos();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public int contar() {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            return respaldo.contar();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            respaldo.recorrerTodos(accion);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            return respaldo.listarRango(desde, cantidad);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            return respaldo.consultar(consulta);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> buscarTexto(String texto, int limite) {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+            return respaldo.buscarTexto(texto, limite);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // -----------------------------------------------------------
+    // ADMINISTRACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Quita una producción de la caché, para que la próxima lectura la cargue
+     * del respaldo. Los cambios pendientes no se descartan.
+     *
+     * @param codigo código de la producción
+     */
+    public void invalidar(String codigo) {
+        candado.lock();
+        try {
+            quitar(ImplOperacionCrud.clave(codigo));
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Vacía la caché. Los cambios pendientes no se descartan.
+     */
+    public void limpiar() {
+        candado.lock();
+        try {
+            ventana.limpiar();
+            principal.limpiar();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Aplica al respaldo los cambios pendientes.
+     *
+     * @throws IllegalStateException si el respaldo falló, en cuyo caso los
+     *                               cambios siguen pendientes, o si descartó
+     *                               cambios por conflicto, ahora o en segundo plano
+     */
+    public void vaciar() {
+        candado.lock();
+        try {
+            escribirPendientesOLanzar();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Aplica los cambios pendientes y detiene la escritura periódica. No
+     * cierra el respaldo.
+     *
+     * @throws IllegalStateException si el respaldo falló o descartó cambios pendientes
+     */
+    @Override
+    public void close() {
+        candado.lock();
+        try {
+            if (escrituraPeriodica != null) {
+                escrituraPeriodica.cancel(false);
+                escrituraPeriodica = null;
+            }
+            escribirPendientesOLanzar();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /** @return contadores y ocupación actuales de la caché */
+    public Estadisticas getEstadisticas() {
+        candado.lock();
+        try {
+            return new Estadisticas(aciertos, fallos, expulsiones, ventana.mapa.size() + principal.mapa.size(),
+                    ventana.peso + principal.peso, capacidad, pendientes.size(), errorSegundoPlano);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /** Pone en cero los contadores de aciertos, fallos y expulsiones. */
+    public void reiniciarEstadisticas() {
+        candado.lock();
+        try {
+            aciertos = 0;
+            fallos = 0;
+            expulsiones = 0;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Contadores y ocupación de la caché en un momento dado.
+     */
+    public static final class Estadisticas {
+        private final long aciertos;
+        private final long fallos;
+        private final long expulsiones;
+        private final int entradas;
+        private final long peso;
+        private final long capacidad;
+        private final int pendientes;
+        private final RuntimeException errorEscritura;
+
+        Estadisticas(long aciertos, long fallos, long expulsiones, int entradas, long peso, long capacidad,
+                     int pendientes, RuntimeException errorEscritura) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.expulsiones = expulsiones;
+            this.entradas = entradas;
+            this.peso = peso;
+            this.capacidad = capacidad;
+            this.pendientes = pendientes;
+            this.errorEscritura = errorEscritura;
+        }
+
+        /** @return búsquedas respondidas desde la caché */
+        public long getAciertos() {
+            return aciertos;
+        }
+
+        /** @return búsquedas que no estaban en la caché */
+        public long getFallos() {
+            return fallos;
+        }
+
+        /** @return producciones expulsadas o no admitidas por falta de espacio */
+        public long getExpulsiones() {
+            return expulsiones;
+        }
+
+        /** @return producciones en la caché */
+        public int getEntradas() {
+            return entradas;
+        }
+
+        /** @return peso total de las producciones en la caché */
+        public long getPeso() {
+            return peso;
+        }
+
+        /** @return peso máximo de la caché */
+        public long getCapacidad() {
+            return capacidad;
+        }
+
+        /** @return producciones con cambios que aún no se aplicaron al respaldo */
+        public int getPendientes() {
+            return pendientes;
+        }
+
+        /**
+         * @return error con el que falló la última escritura en segundo plano,
+         *         por el que los cambios siguen pendientes, o {@code null} si no falló
+         */
+        public RuntimeException getErrorEscritura() {
+            return errorEscritura;
+        }
+
+        /** @return fracción de búsquedas respondidas desde la caché, entre 0 y 1 */
+        public double getTasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (double) aciertos / total;
+        }
+
+        @Override
+        public String toString() {
+            String texto = String.format("aciertos=%d, fallos=%d (%.1f %%), expulsiones=%d, entradas=%d, peso=%d/%d, pendientes=%d",
+                    aciertos, fallos, getTasaAciertos() * 100, expulsiones, entradas, peso, capacidad, pendientes);
+            return errorEscritura == null ? texto : texto + ", error=" + errorEscritura.getMessage();
+        }
+    }
+
+    // -----------------------------------------------------------
+    // AUXILIARES
+    // -----------------------------------------------------------
+
+    /**
+     * @return {@code true} si la producción existe contando los cambios
+     *         pendientes; se llama con el candado tomado
+     */
+    private boolean existe(String k, String codigo) {
+        if (obtener(k) != null) return true;
+        Pendiente pendiente = pendientes.get(k);
+        if (pendiente != null) return pendiente.valor != null;
+        return respaldo.buscarPorCodigo(codigo) != null;
+    }
+
+    /** @return producción en la caché, marcándola como usada, o {@code null} */
+    private ProduccionAudiovisual obtener(String k) {
+        Entrada e = ventana.mapa.get(k);
+        if (e == null) e = principal.mapa.get(k);
+        return e == null ? null : e.produccion;
+    }
+
+    private void quitar(String k) {
+        if (!ventana.quitar(k)) principal.quitar(k);
+    }
+
+    /**
+     * Agrega o reemplaza una producción y expulsa lo necesario para respetar
+     * la capacidad. Una producción que pesa más que la caché no se guarda.
+     */
+    private void guardar(String k, ProduccionAudiovisual p) {
+        quitar(k);
+        long w = peso.applyAsLong(p);
+        if (w < 0 || w > capacidad) return;
+        Entrada e = new Entrada(p, w);
+        if (ventana.limite == 0) {
+            principal.agregar(k, e);
+            while (principal.peso > principal.limite) {
+                principal.quitar(principal.primera());
+                expulsiones++;
+            }
+            return;
+        }
+        frecuencias.ajustarTamano(ventana.mapa.size() + principal.mapa.size() + 1);
+        ventana.agregar(k, e);
+        while (ventana.peso > ventana.limite) {
+            String candidata = ventana.primera();
+            Entrada c = ventana.mapa.get(candidata);
+            ventana.quitar(candidata);
+            admitir(candidata, c);
+        }
+    }
+
+    /**
+     * Pasa a la región principal la producción que sale de la ventana, si se
+     * usa más que las que tendría que desplazar.
+     */
+    private void admitir(String candidata, Entrada c) {
+        if (principal.peso + c.peso > principal.limite) {
+            String victima = principal.primera();
+            if (victima == null || frecuencias.estimar(candidata) <= frecuencias.estimar(victima)) {
+                expulsiones++;
+                return;
+            }
+        }
+        principal.agregar(candidata, c);
+        while (principal.peso > principal.limite) {
+            principal.quitar(principal.primera());
+            expulsiones++;
+        }
+    }
+
+    /**
+     * Con escritura directa no hay nada que acumular; con diferida, escribe
+     * los cambios si ya son muchos. Se llama con el candado tomado.
+     */
+    private void anotarPendiente() {
+        if (escritura == Escritura.DIFERIDA && pendientes.size() >= MAX_PENDIENTES) escribirPendientesOLanzar();
+    }
+
+    /**
+     * Tarea periódica de la escritura diferida. Si el respaldo falla, los
+     * cambios siguen pendientes: se reintentan en la próxima vuelta, el error
+     * queda en {@link Estadisticas#getErrorEscritura()} y se informa a quien
+     * vacíe la caché o acumule demasiados cambios.
+     */
+    private void escribirPendientes() {
+        candado.lock();
+        try {
+            escribirLote();
+            errorSegundoPlano = null;
+        } catch (RuntimeException e) {
+            errorSegundoPlano = e;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Aplica al respaldo los cambios pendientes y lanza el error de los
+     * cambios descartados, si los hubo. Se llama con el candado tomado.
+     */
+    private void escribirPendientesOLanzar() {
+        try {
+            escribirLote();
+        } catch (RuntimeException e) {
+            IllegalStateException error = new IllegalStateException(
+                    "No se pudieron guardar cambios diferidos; siguen pendientes: " + e.getMessage(), e);
+            if (errorSegundoPlano != null && errorSegundoPlano != e) error.addSuppressed(errorSegundoPlano);
+            errorSegundoPlano = e;
+            throw error;
+        }
+        errorSegundoPlano = null;
+        lanzarDescartados();
+    }
+
+    /**
+     * Lanza, una sola vez, el error de los cambios que el respaldo descartó
+     * en una escritura anterior. Se llama con el candado tomado.
+     */
+    private void lanzarDescartados() {
+        if (errorEscritura == null) return;
+        IllegalArgumentException e = errorEscritura;
+        errorEscritura = null;
+        throw new IllegalStateException("Se descartaron cambios diferidos: " + e.getMessage(), e);
+    }
+
+    /**
+     * Tarea periódica de una caché con escritura diferida. Guarda la caché con
+     * una referencia débil, para que el hilo {@link #ESCRITOR} no la mantenga
+     * viva: si se descarta sin cerrarla, la tarea se cancela en la siguiente
+     * vuelta en lugar de reintentar para siempre.
+     */
+    private static final class EscrituraPeriodica implements Runnable {
+        private final WeakReference<CacheOperacionCrud> cache;
+        private volatile ScheduledFuture<?> tarea;
+
+        private EscrituraPeriodica(CacheOperacionCrud cache) {
+            this.cache = new WeakReference<>(cache);
+        }
+
+        /** @return tarea programada, que {@link #close()} cancela */
+        static ScheduledFuture<?> programar(CacheOperacionCrud cache) {
+            EscrituraPeriodica e = new EscrituraPeriodica(cache);
+            e.tarea = ESCRITOR.scheduleWithFixedDelay(e, INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+            return e.tarea;
+        }
+
+        @Override
+        public void run() {
+            CacheOperacionCrud c = cache.get();
+            if (c != null) {
+                c.escribirPendientes();
+            } else if (tarea != null) {
+                tarea.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Registra el nuevo valor de una producción con escritura diferida. Si la
+     * clave ya tenía un cambio pendiente, se reemplaza: varios cambios a la
+     * misma producción llegan al respaldo como uno solo.
+     *
+     * @param enRespaldo si la producción existe en el respaldo, contando solo
+     *                   los cambios ya escritos; se usa para el primer cambio
+     *                   pendiente de la clave
+     * @param valor      nuevo valor, o {@code null} si se eliminó
+     * @return cambio pendiente de la clave
+     */
+    private Pendiente anotar(String k, String codigo, ProduccionAudiovisual valor, boolean enRespaldo) {
+        Pendiente pendiente = pendientes.get(k);
+        if (pendiente == null) {
+            pendiente = new Pendiente(codigo, valor, enRespaldo);
+            pendientes.put(k, pendiente);
+        } else {
+            pendiente.valor = valor;
+        }
+        return pendiente;
+    }
+
+    /**
+     * Aplica al respaldo los cambios pendientes, en un solo lote con una
+     * operación por producción: primero las eliminaciones, para que un código
+     * liberado pueda volver a crearse, luego las modificaciones y las
+     * creaciones. Los cambios solo dejan de estar pendientes cuando el
+     * respaldo los acepta.
+     *
+     * <p>Si el respaldo rechaza el lote por conflicto, se reintenta cada
+     * cambio por separado con {@link #escribirUnoAUno()}. Cualquier otro error
+     * se propaga con todos los cambios aún pendientes. Se llama con el candado
+     * tomado.</p>
+     */
+    private void escribirLote() {
+        if (pendientes.isEmpty()) return;
+        Lote aplicar = new Lote();
+        for (Pendiente p : pendientes.values()) {
+            if (p.valor == null && p.enRespaldo) aplicar.eliminar(p.codigo);
+        }
+        for (Pendiente p : pendientes.values()) {
+            if (p.valor == null) continue;
+            if (p.enRespaldo) {
+                aplicar.modificar(p.codigo, p.valor);
+            } else {
+                aplicar.crear(p.valor);
+            }
+        }
+        if (aplicar.tamano() > 0) {
+            try {
+                respaldo.aplicar(aplicar);
+            } catch (IllegalArgumentException e) {
+                escribirUnoAUno();
+                return;
+            }
+        }
+        pendientes.clear();
+    }
+
+    /**
+     * Aplica los cambios pendientes de a uno, después de que el respaldo
+     * rechazó el lote completo. Los rechazados se descartan, se quitan de la
+     * caché para que la próxima lectura vea el respaldo y se guardan en
+     * {@link #errorEscritura} para informarlos.
+     *
+     * <p>Primero van las creaciones y modificaciones, luego las eliminaciones:
+     * si se rechaza la creación de un código nuevo, la eliminación del código
+     * de origen también se descarta, así la producción no se pierde. Si el
+     * respaldo falla por otro motivo, el error se propaga y los cambios que
+     * faltan siguen pendientes.</p>
+     */
+    private void escribirUnoAUno() {
+        List<String> rechazados = new ArrayList<>();
+        IllegalArgumentException primero = null;
+        Set<String> conservar = new HashSet<>();
+
+        for (Iterator<Map.Entry<String, Pendiente>> it = pendientes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Pendiente> e = it.next();
+            Pendiente p = e.getValue();
+            if (p.valor == null) continue;
+            Lote uno = new Lote();
+            if (p.enRespaldo) {
+                uno.modificar(p.codigo, p.valor);
+            } else {
+                uno.crear(p.valor);
+            }
+            try {
+                respaldo.aplicar(uno);
+            } catch (IllegalArgumentException ex) {
+                if (primero == null) primero = ex;
+                rechazados.add(p.valor.getCodigo());
+                quitar(e.getKey());
+                if (p.origen != null) {
+                    conservar.add(p.origen);
+                    quitar(p.origen);
+                }
+            }
+            it.remove();
+        }
+        for (Iterator<Map.Entry<String, Pendiente>> it = pendientes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Pendiente> e = it.next();
+            Pendiente p = e.getValue();
+            if (p.enRespaldo && !conservar.contains(e.getKey())) {
+                Lote uno = new Lote();
+                uno.eliminar(p.codigo);
+                try {
+                    respaldo.aplicar(uno);
+                } catch (IllegalArgumentException ex) {
+                    if (primero == null) primero = ex;
+                    rechazados.add(p.codigo);
+                    quitar(e.getKey());
+                }
+            }
+            it.remove();
+        }
+
+        if (primero != null) {
+            IllegalArgumentException descartados = new IllegalArgumentException(
+                    "el respaldo rechazó " + String.join(", ", rechazados) + ": " + primero.getMessage(), primero);
+            if (errorEscritura != null) descartados.addSuppressed(errorEscritura);
+            errorEscritura = descartados;
+        }
+    }
+
+    private static long estimarBytes(ProduccionAudiovisual p) {
+        // entrada de la caché y del mapa, objeto de la producción y clave normalizada
+        long bytes = 160 + 2 * texto(p.getCodigo()) + texto(p.getTitulo());
+        if (p instanceof Pelicula pelicula) bytes += texto(pelicula.getGenero());
+        return bytes;
+    }
+
+    /** @return bytes aproximados de una cadena compacta (un byte por carácter latino) */
+    private static long texto(String s) {
+        return s == null ? 0 : 40 + ((s.length() + 7) & ~7);
+    }
+
+    /** Cambio pendiente de una producción con escritura diferida. */
+    private static final class Pendiente {
+        /** Código con que la producción existe en el respaldo, o con que se creará. */
+        final String codigo;
+        /** Si la producción existe en el respaldo. */
+        final boolean enRespaldo;
+        /** Valor que debe quedar en el respaldo, o {@code null} si se eliminó. */
+        ProduccionAudiovisual valor;
+        /**
+         * Clave con que la producción existe en el respaldo si llegó a esta
+         * por un cambio de código, o {@code null}.
+         */
+        String origen;
+
+        Pendiente(String codigo, ProduccionAudiovisual valor, boolean enRespaldo) {
+            this.codigo = codigo;
+            this.valor = valor;
+            this.enRespaldo = enRespaldo;
+        }
+    }
+
+    /** Producción en la caché junto con su peso. */
+    private static final class Entrada {
+        final ProduccionAudiovisual produccion;
+        final long peso;
+
+        Entrada(ProduccionAudiovisual produccion, long peso) {
+            this.produccion = produccion;
+            this.peso = peso;
+        }
+    }
+
+    /**
+     * Región LRU de la caché: un {@link LinkedHashMap} en orden de acceso y el
+     * peso total de sus entradas.
+     */
+    private static final class Region {
+        final LinkedHashMap<String, Entrada> mapa = new LinkedHashMap<>(16, 0.75f, true);
+        final long limite;
+        long peso;
+
+        Region(long limite) {
+            this.limite = limite;
+        }
+
+        void agregar(String k, Entrada e) {
+            mapa.put(k, e);
+            peso += e.peso;
+        }
+
+        boolean quitar(String k) {
+            Entrada e = mapa.remove(k);
+            if (e == null) return false;
+            peso -= e.peso;
+            return true;
+        }
+
+        /** @return clave usada hace más tiempo, o {@code null} si está vacía */
+        String primera() {
+            Iterator<String> it = mapa.keySet().iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        void limpiar() {
+            mapa.clear();
+            peso = 0;
+        }
+    }
+
+    /**
+     * Conteo aproximado de cuántas veces se consultó cada clave (count-min
+     * sketch): cuatro contadores de 4 bits por clave, en posiciones elegidas
+     * por funciones hash distintas, y la estimación es el menor. La tabla
+     * tiene unos ocho contadores por clave en la caché; cuando los incrementos
+     * llegan a unas diez veces la cantidad de claves, todos se dividen por
+     * dos, para que las frecuencias antiguas pesen menos que las recientes.
+     */
+    private static final class Frecuencias {
+        private static final long[] SEMILLAS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+        };
+        private static final long MITAD = 0x7777_7777_7777_7777L;
+
+        /** Contadores de 4 bits, 16 por elemento. */
+        private long[] tabla = new long[16];
+        private int muestras;
+
+        /**
+         * Agranda la tabla si hay muchas más claves que contadores, para que
+         * las colisiones no inflen las estimaciones. Al agrandarla se pierde
+         * el conteo.
+         */
+        void ajustarTamano(int claves) {
+            if (claves <= tabla.length * 2L) return;
+            int largo = tabla.length;
+            while (claves > largo * 2L && largo < (1 << 26)) largo <<= 1;
+            tabla = new long[largo];
+            muestras = 0;
+        }
+
+        void incrementar(String k) {
+            int h = k.hashCode();
+            for (long semilla : SEMILLAS) {
+                int i = indice(h, semilla);
+                int desplazamiento = (i & 15) << 2;
+                int e = i >>> 4;
+                if (((tabla[e] >>> desplazamiento) & 15) < 15) tabla[e] += 1L << desplazamiento;
+            }
+            if (++muestras >= 20 * tabla.length) envejecer();
+        }
+
+        int estimar(String k) {
+            int h = k.hashCode();
+            int minimo = 15;
+            for (long semilla : SEMILLAS) {
+                int i = indice(h, semilla);
+                minimo = Math.min(minimo, (int) (tabla[i >>> 4] >>> ((i & 15) << 2)) & 15);
+            }
+            return minimo;
+        }
+
+        private int indice(int h, long semilla) {
+            long x = (h + semilla) * 0xBF58476D1CE4E5B9L;
+            x ^= x >>> 31;
+            return (int) x & ((tabla.length << 4) - 1);
+        }
+
+        private void envejecer() {
+            for (int i = 0; i < tabla.length; i++) tabla[i] = (tabla[i] >>> 1) & MITAD;
+            muestras /= 2;
+        }
+    }
+}
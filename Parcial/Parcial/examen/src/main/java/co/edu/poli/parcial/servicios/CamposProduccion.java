@@ -0,0 +1,159 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.util.Locale;
+
+/**
+ * Campos de una producción en los formatos de texto ({@link CsvProduccion} y
+ * {@link JsonProduccion}), con su validación.
+ *
+ * <p>Ambos formatos usan los mismos nombres de campo, en el orden de
+ * {@link #NOMBRES}, y los valores se manejan como texto. Un valor
+ * {@code null} o en blanco es un campo ausente.</p>
+ *
+ * @author Felipe Parra
+ */
+final class CamposProduccion {
+
+    static final int CODIGO = 0;
+    static final int TIPO = 1;
+    static final int TITULO = 2;
+    static final int ANIO = 3;
+    static final int DURACION = 4;
+    static final int DIRECTOR_ID = 5;
+    static final int DIRECTOR = 6;
+    static final int NACIONALIDAD = 7;
+    static final int GENERO = 8;
+    static final int TEMPORADAS = 9;
+
+    /** Nombres de los campos, en el orden de sus índices. */
+    static final String[] NOMBRES = {
+            "codigo", "tipo", "titulo", "anio", "duracion",
+            "director_id", "director", "nacionalidad", "genero", "temporadas"
+    };
+
+    static final String PELICULA = "Película";
+    static final String SERIE = "Serie";
+
+    /** Rango de años de estreno aceptados. */
+    static final int ANIO_MINIMO = 1870;
+    static final int ANIO_MAXIMO = 2100;
+
+    private CamposProduccion() {}
+
+    /**
+     * @param nombre nombre de un campo, sin distinguir mayúsculas de minúsculas
+     * @return índice del campo, o {@code -1} si no existe
+     */
+    static int indice(String nombre) {
+        String n = nombre.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < NOMBRES.length; i++) {
+            if (NOMBRES[i].equals(n)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Construye una producción validando sus campos.
+     *
+     * <p>Son obligatorios el código, el tipo, el título y el año; además, la
+     * duración en las películas y las temporadas en las series. Si el registro
+     * no trae id o nacionalidad del director, se usan los mismos valores por
+     * defecto que el formulario.</p>
+     *
+     * @param v valores de los campos, indexados como {@link #NOMBRES}
+     * @return producción construida
+     * @throws IllegalArgumentException con el motivo, si algún campo no es válido
+     */
+    static ProduccionAudiovisual construir(String[] v) {
+        String codigo = requerido(v, CODIGO);
+        String tipo = requerido(v, TIPO);
+        String titulo = requerido(v, TITULO);
+        int anio = entero(v, ANIO, true);
+        if (anio < ANIO_MINIMO || anio > ANIO_MAXIMO) {
+            throw new IllegalArgumentException("Año fuera de rango: " + anio);
+        }
+
+        Director director = null;
+        String nombre = opcional(v, DIRECTOR);
+        if (nombre != null) {
+            String id = opcional(v, DIRECTOR_ID);
+            String nacionalidad = opcional(v, NACIONALIDAD);
+            director = new Director(id != null ? id : "DIR-" + codigo, nombre,
+                    nacionalidad != null ? nacionalidad : "Desconocida");
+        }
+
+        String t = tipo.toLowerCase(Locale.ROOT);
+        if (t.equals("película") || t.equals("pelicula")) {
+            int duracion = entero(v, DURACION, true);
+            if (duracion <= 0) throw new IllegalArgumentException("Duración inválida: " + duracion);
+            return new Pelicula(codigo, titulo, anio, duracion, director, opcional(v, GENERO));
+        }
+        if (t.equals("serie")) {
+            int duracion = entero(v, DURACION, false);
+            if (duracion < 0) throw new IllegalArgumentException("Duración inválida: " + duracion);
+            int temporadas = entero(v, TEMPORADAS, true);
+            if (temporadas <= 0) throw new IllegalArgumentException("Temporadas inválidas: " + temporadas);
+            return new Serie(codigo, titulo, anio, duracion, director, temporadas);
+        }
+        throw new IllegalArgumentException("Tipo desconocido: " + tipo);
+    }
+
+    /**
+     * @param p producción a describir
+     * @return valores de sus campos, indexados como {@link #NOMBRES}; los ausentes son {@code null}
+     */
+    static String[] valores(ProduccionAudiovisual p) {
+        String[] v = new String[NOMBRES.length];
+        v[CODIGO] = p.getCodigo();
+        v[TITULO] = p.getTitulo();
+        v[ANIO] = Integer.toString(p.getFechaEstreno());
+        v[DURACION] = Integer.toString(p.getDuracionMin());
+        Director d = p.getDirector();
+        if (d != null) {
+            v[DIRECTOR_ID] = d.getId();
+            v[DIRECTOR] = d.getNombre();
+            v[NACIONALIDAD] = d.getNacionalidad();
+        }
+        if (p instanceof Pelicula pel) {
+            v[TIPO] = PELICULA;
+            v[GENERO] = pel.getGenero();
+        } else if (p instanceof Serie s) {
+            v[TIPO] = SERIE;
+            v[TEMPORADAS] = Integer.toString(s.getNumeroTemporadas());
+        }
+        return v;
+    }
+
+    /** @return si el campo es numérico y se escribe sin comillas en JSON */
+    static boolean esNumerico(int campo) {
+        return campo == ANIO || campo == DURACION || campo == TEMPORADAS;
+    }
+
+    private static String opcional(String[] v, int campo) {
+        String s = v[campo];
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static String requerido(String[] v, int campo) {
+        String s = opcional(v, campo);
+        if (s == null) throw new IllegalArgumentException("Falta el campo " + NOMBRES[campo]);
+        return s;
+    }
+
+    private static int entero(String[] v, int campo, boolean obligatorio) {
+        String s = obligatorio ? requerido(v, campo) : opcional(v, campo);
+        if (s == null) return 0;
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no numérico en " + NOMBRES[campo] + ": " + s);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package co.edu.poli.parcial.servicios;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reparte los {@link EventoCambio} de un servicio entre sus observadores.
+ *
+ * <p>Cada suscripción tiene su propio {@link PublicadorLotes}: los eventos
+ * publicados mientras la entrega anterior aún no corrió se juntan en una sola
+ * ráfaga, que se resume con {@link EventoCambio#agrupar(List)} antes de
+ * entregarla. Un observador lento no retrasa a los demás.</p>
+ *
+ * <p>Publicar sin observadores no hace nada, así que los servicios pueden
+ * publicar siempre; para eventos costosos de armar conviene consultar
+ * {@link #activo()} antes. Puede usarse desde varios hilos: los eventos
+ * publicados por un mismo hilo se entregan en orden.</p>
+ *
+ * <p>Un servicio que aplica sus cambios bajo candados no debe publicar con
+ * ellos tomados: un observador con {@code Runnable::run} corre dentro de
+ * {@code publicar} y, si vuelve a llamar al servicio, puede bloquearse contra
+ * esos mismos candados. Para eso están {@link #anotar(EventoCambio)}, que se
+ * llama dentro de la sección crítica y fija el orden de los eventos, y
+ * {@link #entregarAnotados()}, que se llama después de soltar los candados.</p>
+ *
+ * <p>Si un observador lanza una excepción, la ráfaga se da por entregada y el
+ * error pasa al {@link Thread.UncaughtExceptionHandler} del hilo de entrega,
+ * sin afectar a los demás observadores ni a la operación que publicó el
+ * cambio (que con {@code Runnable::run} corre en ese mismo hilo).</p>
+ *
+ * @author Felipe Parra
+ */
+final class CanalCambios {
+
+    private static final class Suscripcion {
+        final ObservadorCambios observador;
+        final PublicadorLotes<EventoCambio> publicador;
+
+        Suscripcion(ObservadorCambios observador, Executor entregarEn) {
+            this.observador = observador;
+            this.publicador = new PublicadorLotes<>(entregarEn, eventos -> {
+                try {
+                    observador.cambios(EventoCambio.agrupar(eventos));
+                } catch (RuntimeException e) {
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                }
+            });
+        }
+    }
+
+    private final CopyOnWriteArrayList<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    /** Ráfagas anotadas que aún no se publicaron, en el orden en que se anotaron. */
+    private final ConcurrentLinkedQueue<List<EventoCambio>> anotados = new ConcurrentLinkedQueue<>();
+
+    /** Lo tiene el hilo que está publicando las ráfagas anotadas. */
+    private final ReentrantLock entrega = new ReentrantLock();
+
+    /**
+     * @param observador receptor de los cambios
+     * @param entregarEn ejecutor donde se le entregan
+     */
+    void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        suscripciones.add(new Suscripcion(observador, entregarEn));
+    }
+
+    /**
+     * @param observador receptor a quitar
+     * @return {@code true} si estaba suscrito
+     */
+    boolean desuscribir(ObservadorCambios observador) {
+        return suscripciones.removeIf(s -> s.observador == observador);
+    }
+
+    /** @return {@code true} si hay al menos un observador */
+    boolean activo() {
+        return !suscripciones.isEmpty();
+    }
+
+    /**
+     * @param evento cambio a entregar a todos los observadores
+     */
+    void publicar(EventoCambio evento) {
+        if (suscripciones.isEmpty()) return;
+        publicar(List.of(evento));
+    }
+
+    /**
+     * @param eventos cambios a entregar a todos los observadores; no debe modificarse después
+     */
+    void publicar(List<EventoCambio> eventos) {
+        for (Suscripcion s : suscripciones) s.publicador.publicar(eventos);
+    }
+
+    /**
+     * Anota un cambio para publicarlo con {@link #entregarAnotados()}.
+     *
+     * @param evento cambio a entregar a todos los observadores
+     */
+    void anotar(EventoCambio evento) {
+        if (suscripciones.isEmpty()) return;
+        anotados.add(List.of(evento));
+    }
+
+    /**
+     * Anota una ráfaga de cambios para publicarla con {@link #entregarAnotados()}.
+     *
+     * @param eventos cambios a entregar a todos los observadores; no debe modificarse después
+     */
+    void anotar(List<EventoCambio> eventos) {
+        if (suscripciones.isEmpty() || eventos.isEmpty()) return;
+        anotados.add(eventos);
+    }
+
+    /**
+     * Publica en orden las ráfagas anotadas. Si otro hilo ya las está
+     * publicando, retorna sin esperar: ese hilo publica también las anotadas
+     * antes de esta llamada.
+     */
+    void entregarAnotados() {
+        while (!anotados.isEmpty() && entrega.tryLock()) {
+            try {
+                for (List<EventoCambio> r; (r = anotados.poll()) != null; ) publicar(r);
+            } finally {
+                entrega.unlock();
+            }
+        }
+    }
+}
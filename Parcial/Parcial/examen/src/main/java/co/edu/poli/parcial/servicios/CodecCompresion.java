@@ -0,0 +1,107 @@
+package co.edu.poli.parcial.servicios;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+/**
+ * Algoritmo de compresión de los bloques del formato binario de
+ * {@link CodecProduccion}.
+ *
+ * <p>Cada bloque guarda el identificador del codec con que se comprimió, de
+ * modo que al cargar se elige el descompresor sin configuración: basta con que
+ * el codec esté registrado. Los codecs de la JDK ({@link #NINGUNO},
+ * {@link #DEFLATE} y {@link #DEFLATE_RAPIDO}) se registran solos; uno propio,
+ * por ejemplo un envoltorio de LZ4 o Zstandard, se registra con
+ * {@link #registrar(CodecCompresion)} antes de cargar archivos que lo usen.</p>
+ *
+ * <p>Las implementaciones deben ser seguras para uso concurrente, porque
+ * guardados y compactaciones pueden ejecutarse a la vez en hilos distintos.</p>
+ *
+ * @author Felipe Parra
+ * @see OperacionArchivo#setCompresion(CodecCompresion)
+ */
+public interface CodecCompresion {
+
+    /** Bloques sin comprimir. */
+    CodecCompresion NINGUNO = new CodecCompresion() {
+        @Override
+        public int getId() {
+            return 0;
+        }
+
+        @Override
+        public String getNombre() {
+            return "ninguno";
+        }
+
+        @Override
+        public int comprimir(byte[] origen, int inicio, int longitud, byte[] destino) {
+            return -1;
+        }
+
+        @Override
+        public void descomprimir(byte[] origen, int inicio, int longitud, byte[] destino, int longitudOriginal) {
+            System.arraycopy(origen, inicio, destino, 0, longitudOriginal);
+        }
+    };
+
+    /** Deflate de la JDK con el nivel por defecto: buena compresión a velocidad media. */
+    CodecCompresion DEFLATE = new CompresionDeflate(1, "deflate", Deflater.DEFAULT_COMPRESSION);
+
+    /** Deflate de la JDK con el nivel más rápido: algo menos de compresión, mucho menos tiempo. */
+    CodecCompresion DEFLATE_RAPIDO = new CompresionDeflate(2, "deflate-rapido", Deflater.BEST_SPEED);
+
+    /**
+     * @return identificador guardado en cada bloque, de 0 a 255; único entre
+     *         los codecs registrados
+     */
+    int getId();
+
+    /** @return nombre legible, único entre los codecs registrados */
+    String getNombre();
+
+    /**
+     * Comprime un rango de bytes.
+     *
+     * @param origen   datos a comprimir
+     * @param inicio   posición del primer byte
+     * @param longitud cantidad de bytes
+     * @param destino  arreglo donde escribir el resultado; tiene {@code longitud} bytes
+     * @return cantidad de bytes escritos en {@code destino}, o {@code -1} si el
+     *         resultado no cabe, en cuyo caso el bloque se guarda sin comprimir
+     * @throws IOException si falla la compresión
+     */
+    int comprimir(byte[] origen, int inicio, int longitud, byte[] destino) throws IOException;
+
+    /**
+     * Descomprime un bloque escrito con {@link #comprimir}.
+     *
+     * @param origen           datos comprimidos
+     * @param inicio           posición del primer byte
+     * @param longitud         cantidad de bytes comprimidos
+     * @param destino          arreglo donde escribir el resultado, de al menos {@code longitudOriginal} bytes
+     * @param longitudOriginal cantidad exacta de bytes que debe producir
+     * @throws IOException si los datos no son válidos o no producen {@code longitudOriginal} bytes
+     */
+    void descomprimir(byte[] origen, int inicio, int longitud, byte[] destino, int longitudOriginal)
+            throws IOException;
+
+    /**
+     * Registra un codec para poder leer los bloques que lo usan.
+     *
+     * @param codec codec a registrar
+     * @throws IllegalArgumentException si su id está fuera de rango o ya lo usa otro codec
+     */
+    static void registrar(CodecCompresion codec) {
+        RegistroCompresion.registrar(codec);
+    }
+
+    /**
+     * @param nombre nombre del codec, sin distinguir mayúsculas
+     * @return codec registrado con ese nombre
+     * @throws IllegalArgumentException si no hay ninguno
+     */
+    static CodecCompresion buscar(String nombre) {
+        return RegistroCompresion.buscar(nombre);
+    }
+}
@@ -0,0 +1,676 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Codificador binario compacto para las producciones audiovisuales.
+ *
+ * <p>Reemplaza la serialización estándar de Java, que usa reflexión y escribe
+ * descriptores de clase, por un formato escrito a mano y versionado:</p>
+ * <pre>
+ *   cabecera   'P' 'A' 'V' versión
+ *   varint     cantidad de producciones
+ *   bloques    uno o más, hasta completar la cantidad
+ * </pre>
+ *
+ * <p>Cada registro contiene un byte de tipo ({@link #PELICULA} o {@link #SERIE}),
+ * el código, el título, {@code fechaEstreno} y {@code duracionMin} como varints,
+ * el director y, según el tipo, el género o el número de temporadas. Los textos
+ * se escriben en UTF-8 precedidos de su longitud; los enteros usan codificación
+ * zigzag de longitud variable, por lo que un año ocupa dos bytes.</p>
+ *
+ * <p>Desde la versión 2, dentro de un archivo cada director se escribe completo
+ * una sola vez, la primera vez que aparece; las producciones siguientes lo
+ * referencian por su número de aparición (ver {@link Escritor}). La versión 1
+ * escribía el director completo en cada registro y se sigue pudiendo leer.
+ * Los registros sueltos ({@link #escribirProduccion}, usados por la bitácora
+ * y el almacén mapeado) conservan el director completo, porque se leen de
+ * forma independiente.</p>
+ *
+ * <p>Desde la versión 3, los registros se agrupan en bloques de unos
+ * {@value #TAM_BLOQUE} bytes que nunca parten un registro, cada uno con su suma
+ * de verificación CRC32C. Desde la versión 4 cada bloque puede ir comprimido
+ * con un {@link CodecCompresion}, y el género se escribe una sola vez por
+ * archivo igual que los directores:</p>
+ * <pre>
+ *   int    longitud de los datos guardados del bloque
+ *   int    cantidad de registros del bloque
+ *   byte   id del {@link CodecCompresion} (0 sin comprimir)       (versión 4)
+ *   int    longitud de los registros sin comprimir                (versión 4)
+ *   bytes  registros, comprimidos o no
+ *   int    CRC32C de todo lo anterior, incluida la cabecera del bloque
+ * </pre>
+ * <p>La suma se calcula sobre los datos guardados, así que un bloque dañado o
+ * truncado se detecta antes de descomprimirlo y de entregar cualquiera de sus
+ * registros, de modo que un archivo dañado puede recuperarse hasta el último
+ * bloque válido (ver {@link Lector#isPorBloques()}). Las versiones anteriores
+ * se siguen pudiendo leer.</p>
+ *
+ * @author Felipe Parra
+ */
+final class CodecProduccion {
+
+    /** Bytes mágicos al inicio de un archivo en formato binario. */
+    static final byte[] MAGICO = {'P', 'A', 'V'};
+
+    /** Versión actual del formato binario. */
+    static final int VERSION = 4;
+
+    /** Versión con bloques sin comprimir ni tabla de géneros; solo se lee. */
+    static final int VERSION_BLOQUES_SIN_COMPRESION = 3;
+
+    /** Versión con tabla de directores y sin bloques; solo se lee. */
+    static final int VERSION_SIN_BLOQUES = 2;
+
+    /** Versión con el director completo en cada registro; solo se lee. */
+    static final int VERSION_DIRECTOR_EN_LINEA = 1;
+
+    /** Referencia ausente en las tablas de directores (desde la versión 2) y géneros (desde la 4). */
+    private static final int SIN_REFERENCIA = 0;
+
+    /** Marca de director o género definido en el propio registro, en lugar de una referencia. */
+    private static final int REFERENCIA_NUEVA = -1;
+
+    /** Etiqueta de tipo para {@link Pelicula}. */
+    static final byte PELICULA = 1;
+
+    /** Etiqueta de tipo para {@link Serie}. */
+    static final byte SERIE = 2;
+
+    /** Tamaño a partir del cual se cierra un bloque, en bytes. */
+    static final int TAM_BLOQUE = 64 * 1024;
+
+    /** Tamaño máximo aceptado al leer un bloque; protege de longitudes dañadas. */
+    private static final int MAX_BLOQUE = 64 * 1024 * 1024;
+
+    /** Bytes de longitud, cantidad, compresión y longitud original al inicio de cada bloque. */
+    private static final int CABECERA_BLOQUE = 13;
+
+    /** Bytes de longitud y cantidad al inicio de cada bloque en la versión 3. */
+    private static final int CABECERA_BLOQUE_V3 = 8;
+
+    private CodecProduccion() {}
+
+    // -----------------------------------------------------------
+    // ARCHIVO COMPLETO
+    // -----------------------------------------------------------
+
+    /**
+     * Escribe la cabecera y todas las producciones de la lista.
+     *
+     * @param out   destino
+     * @param lista producciones a escribir
+     * @throws IOException si falla la escritura
+     */
+    static void escribirLista(DataOutput out, List<ProduccionAudiovisual> lista) throws IOException {
+        Escritor escritor = new Escritor(out, lista.size());
+        for (ProduccionAudiovisual p : lista) {
+            escritor.escribir(p);
+        }
+        escritor.terminar();
+    }
+
+    /**
+     * Lee una lista completa escrita con {@link #escribirLista}.
+     *
+     * @param in origen, posicionado al inicio de la cabecera
+     * @return lista de producciones leídas
+     * @throws IOException si la cabecera no es válida o el contenido está dañado
+     */
+    static List<ProduccionAudiovisual> leerLista(DataInput in) throws IOException {
+        Lector lector = new Lector(in);
+        List<ProduccionAudiovisual> lista = new ArrayList<>(Math.min(lector.getCantidad(), 1 << 16));
+        for (int i = 0; i < lector.getCantidad(); i++) {
+            lista.add(lector.leer());
+        }
+        return lista;
+    }
+
+    /**
+     * Escritor de un archivo completo: escribe la cabecera al crearse y luego
+     * los registros uno a uno, recordando los directores y géneros ya escritos.
+     *
+     * <p>Los directores se reconocen por su id, nombre y nacionalidad, de modo
+     * que dos instancias con los mismos datos se escriben una sola vez aunque
+     * no estén internadas.</p>
+     *
+     * <p>Los registros se acumulan en el bloque en curso, que se comprime y se
+     * escribe en el destino al superar {@link #TAM_BLOQUE}; {@link #terminar()}
+     * escribe el último bloque. Un bloque que no se reduce al comprimirlo se
+     * guarda sin comprimir.</p>
+     */
+    static final class Escritor {
+        private final DataOutput destino;
+        private final CodecCompresion compresion;
+        private final Bufer bloque = new Bufer(TAM_BLOQUE + 1024);
+        private final DataOutputStream out = new DataOutputStream(bloque);
+        private final byte[] cabeceraBloque = new byte[CABECERA_BLOQUE];
+        private byte[] comprimido = new byte[0];
+        private final CRC32C crc = new CRC32C();
+        private int registros;
+        private final Map<List<String>, Integer> directores = new HashMap<>();
+        private final Map<String, Integer> generos = new HashMap<>();
+
+        /**
+         * Escribe los bytes mágicos, la versión y la cantidad de producciones,
+         * sin comprimir los bloques.
+         *
+         * @param out      destino
+         * @param cantidad cantidad de producciones que se escribirán
+         * @throws IOException si falla la escritura
+         */
+        Escritor(DataOutput out, int cantidad) throws IOException {
+            this(out, cantidad, CodecCompresion.NINGUNO);
+        }
+
+        /**
+         * Escribe los bytes mágicos, la versión y la cantidad de producciones.
+         *
+         * @param out        destino
+         * @param cantidad   cantidad de producciones que se escribirán
+         * @param compresion codec con que se comprime cada bloque
+         * @throws IOException si falla la escritura
+         */
+        Escritor(DataOutput out, int cantidad, CodecCompresion compresion) throws IOException {
+            this.destino = out;
+            this.compresion = compresion;
+            out.write(MAGICO);
+            out.writeByte(VERSION);
+            escribirVarint(out, cantidad);
+        }
+
+        /**
+         * @param p producción a escribir a continuación
+         * @throws IOException si falla la escritura
+         */
+        void escribir(ProduccionAudiovisual p) throws IOException {
+            escribirRegistro(out, p, this);
+            registros++;
+            if (bloque.size() >= TAM_BLOQUE) cerrarBloque();
+        }
+
+        /**
+         * Escribe el bloque en curso, si tiene registros. Debe llamarse después
+         * de la última producción.
+         *
+         * @throws IOException si falla la escritura
+         */
+        void terminar() throws IOException {
+            if (registros > 0) cerrarBloque();
+        }
+
+        private void cerrarBloque() throws IOException {
+            byte[] datos = bloque.datos();
+            int original = bloque.size();
+            int id = compresion.getId();
+            int longitud = -1;
+            if (id != CodecCompresion.NINGUNO.getId()) {
+                if (comprimido.length < original) comprimido = new byte[Math.max(original, TAM_BLOQUE + 1024)];
+                longitud = compresion.comprimir(datos, 0, original, comprimido);
+                if (longitud >= original) longitud = -1;
+            }
+            if (longitud < 0) {
+                id = CodecCompresion.NINGUNO.getId();
+                longitud = original;
+            } else {
+                datos = comprimido;
+            }
+
+            escribirEntero(cabeceraBloque, 0, longitud);
+            escribirEntero(cabeceraBloque, 4, registros);
+            cabeceraBloque[8] = (byte) id;
+            escribirEntero(cabeceraBloque, 9, original);
+            crc.reset();
+            crc.update(cabeceraBloque, 0, CABECERA_BLOQUE);
+            crc.update(datos, 0, longitud);
+            destino.write(cabeceraBloque);
+            destino.write(datos, 0, longitud);
+            destino.writeInt((int) crc.getValue());
+
+            bloque.reset();
+            registros = 0;
+        }
+
+        private void escribirDirector(Director d) throws IOException {
+            if (d == null) {
+                escribirVarint(out, SIN_REFERENCIA);
+                return;
+            }
+            List<String> clave = Arrays.asList(d.getId(), d.getNombre(), d.getNacionalidad());
+            Integer n = directores.get(clave);
+            if (n != null) {
+                escribirVarint(out, n);
+                return;
+            }
+            directores.put(clave, directores.size() + 1);
+            escribirVarint(out, REFERENCIA_NUEVA);
+            escribirTexto(out, d.getId());
+            escribirTexto(out, d.getNombre());
+            escribirTexto(out, d.getNacionalidad());
+        }
+
+        private void escribirGenero(String genero) throws IOException {
+            if (genero == null) {
+                escribirVarint(out, SIN_REFERENCIA);
+                return;
+            }
+            Integer n = generos.get(genero);
+            if (n != null) {
+                escribirVarint(out, n);
+                return;
+            }
+            generos.put(genero, generos.size() + 1);
+            escribirVarint(out, REFERENCIA_NUEVA);
+            escribirTexto(out, genero);
+        }
+    }
+
+    /**
+     * Lector de un archivo completo en cualquier versión: lee y valida la
+     * cabecera al crearse y luego los registros uno a uno. Desde la versión 2,
+     * las producciones de un mismo director comparten la instancia de
+     * {@link Director}, y desde la versión 4 las de un mismo género comparten
+     * el texto.
+     *
+     * <p>Desde la versión 3 cada bloque se lee completo y se verifica su suma
+     * antes de descomprimirlo y entregar su primer registro.</p>
+     */
+    static final class Lector {
+        private final DataInput origen;
+        private final int version;
+        private final int cantidad;
+        private final List<Director> directores = new ArrayList<>();
+        private final List<String> generos = new ArrayList<>();
+        /** Origen de los registros: el archivo, o el bloque en curso desde la versión 3. */
+        private DataInput in;
+        private int restantesBloque;
+        private int restantesArchivo;
+        private final byte[] cabeceraBloque = new byte[CABECERA_BLOQUE];
+        private byte[] bloque = new byte[0];
+        private byte[] plano = new byte[0];
+        private final CRC32C crc = new CRC32C();
+
+        /**
+         * @param in origen, posicionado al inicio de la cabecera
+         * @throws IOException si la cabecera o la versión no son válidas
+         */
+        Lector(DataInput in) throws IOException {
+            this.origen = in;
+            this.in = in;
+            byte[] cabecera = new byte[MAGICO.length];
+            in.readFully(cabecera);
+            if (!esCabecera(cabecera)) throw new IOException("No es un archivo en formato binario");
+
+            version = in.readUnsignedByte();
+            if (version < VERSION_DIRECTOR_EN_LINEA || version > VERSION) {
+                throw new IOException("Versión de formato no soportada: " + version);
+            }
+            cantidad = leerVarint(in);
+            if (cantidad < 0) throw new IOException("Cantidad inválida: " + cantidad);
+            restantesArchivo = cantidad;
+        }
+
+        /** @return cantidad de producciones que siguen a la cabecera */
+        int getCantidad() {
+            return cantidad;
+        }
+
+        /**
+         * @return {@code true} si el archivo está dividido en bloques con suma de
+         *         verificación, de modo que las producciones ya entregadas cuando
+         *         {@link #leer()} falla provienen de bloques válidos
+         */
+        boolean isPorBloques() {
+            return version >= VERSION_BLOQUES_SIN_COMPRESION;
+        }
+
+        /**
+         * @return siguiente producción del archivo
+         * @throws IOException si el registro o su bloque están dañados
+         */
+        ProduccionAudiovisual leer() throws IOException {
+            if (isPorBloques() && restantesBloque == 0) siguienteBloque();
+            restantesBloque--;
+            return leerRegistro(in, version == VERSION_DIRECTOR_EN_LINEA ? null : this);
+        }
+
+        /**
+         * Lee el siguiente bloque completo, verifica su suma y lo descomprime
+         * antes de usarlo.
+         */
+        private void siguienteBloque() throws IOException {
+            int tamCabecera = version == VERSION_BLOQUES_SIN_COMPRESION ? CABECERA_BLOQUE_V3 : CABECERA_BLOQUE;
+            origen.readFully(cabeceraBloque, 0, tamCabecera);
+            int longitud = leerEntero(cabeceraBloque, 0);
+            int registros = leerEntero(cabeceraBloque, 4);
+            int id = CodecCompresion.NINGUNO.getId();
+            int original = longitud;
+            if (tamCabecera == CABECERA_BLOQUE) {
+                id = cabeceraBloque[8] & 0xFF;
+                original = leerEntero(cabeceraBloque, 9);
+            }
+            if (longitud < 0 || longitud > MAX_BLOQUE || original < 0 || original > MAX_BLOQUE
+                    || registros <= 0 || registros > restantesArchivo) {
+                throw new IOException("Bloque dañado: cabecera inválida");
+            }
+            if (bloque.length < longitud) bloque = new byte[Math.max(longitud, TAM_BLOQUE + 1024)];
+            origen.readFully(bloque, 0, longitud);
+            int suma = origen.readInt();
+            crc.reset();
+            crc.update(cabeceraBloque, 0, tamCabecera);
+            crc.update(bloque, 0, longitud);
+            if ((int) crc.getValue() != suma) {
+                throw new IOException("Bloque dañado: la suma de verificación no coincide");
+            }
+
+            byte[] datos = bloque;
+            if (id != CodecCompresion.NINGUNO.getId()) {
+                CodecCompresion codec = RegistroCompresion.buscar(id);
+                if (codec == null) throw new IOException("Compresión no registrada: " + id);
+                if (plano.length < original) plano = new byte[Math.max(original, TAM_BLOQUE + 1024)];
+                codec.descomprimir(bloque, 0, longitud, plano, original);
+                datos = plano;
+            } else if (original != longitud) {
+                throw new IOException("Bloque dañado: cabecera inválida");
+            }
+            in = new DataInputStream(new ByteArrayInputStream(datos, 0, original));
+            restantesBloque = registros;
+            restantesArchivo -= registros;
+        }
+
+        private Director leerDirector() throws IOException {
+            int n = leerVarint(in);
+            if (n == SIN_REFERENCIA) return null;
+            if (n == REFERENCIA_NUEVA) {
+                Director d = new Director(leerTexto(in), leerTexto(in), leerTexto(in));
+                directores.add(d);
+                return d;
+            }
+            if (n < 0 || n > directores.size()) throw new IOException("Referencia de director inválida: " + n);
+            return directores.get(n - 1);
+        }
+
+        private String leerGenero() throws IOException {
+            if (version < VERSION) return leerTexto(in);
+            int n = leerVarint(in);
+            if (n == SIN_REFERENCIA) return null;
+            if (n == REFERENCIA_NUEVA) {
+                String g = leerTexto(in);
+                generos.add(g);
+                return g;
+            }
+            if (n < 0 || n > generos.size()) throw new IOException("Referencia de género inválida: " + n);
+            return generos.get(n - 1);
+        }
+    }
+
+    /**
+     * Indica si los primeros bytes de un archivo corresponden al formato binario.
+     *
+     * @param cabecera primeros bytes leídos del archivo
+     * @return {@code true} si empiezan por los bytes mágicos
+     */
+    static boolean esCabecera(byte[] cabecera) {
+        if (cabecera.length < MAGICO.length) return false;
+        for (int i = 0; i < MAGICO.length; i++) {
+            if (cabecera[i] != MAGICO[i]) return false;
+        }
+        return true;
+    }
+
+    // -----------------------------------------------------------
+    // PRODUCCIONES
+    // -----------------------------------------------------------
+
+    /**
+     * Escribe una producción sin cabecera.
+     *
+     * @param out destino
+     * @param p   producción a escribir
+     * @throws IOException si falla la escritura
+     * @throws IllegalArgumentException si la producción no es película ni serie
+     */
+    static void escribirProduccion(DataOutput out, ProduccionAudiovisual p) throws IOException {
+        escribirRegistro(out, p, null);
+    }
+
+    /**
+     * Escribe un registro; el director va completo si {@code escritor} es
+     * {@code null} y como referencia a su tabla si no.
+     */
+    private static void escribirRegistro(DataOutput out, ProduccionAudiovisual p, Escritor escritor)
+            throws IOException {
+        byte tipo;
+        if (p instanceof Pelicula) {
+            tipo = PELICULA;
+        } else if (p instanceof Serie) {
+            tipo = SERIE;
+        } else {
+            throw new IllegalArgumentException("Tipo de producción no soportado: " + p.getClass().getName());
+        }
+
+        out.writeByte(tipo);
+        escribirTexto(out, p.getCodigo());
+        escribirTexto(out, p.getTitulo());
+        escribirVarint(out, p.getFechaEstreno());
+        escribirVarint(out, p.getDuracionMin());
+        if (escritor == null) {
+            escribirDirector(out, p.getDirector());
+        } else {
+            escritor.escribirDirector(p.getDirector());
+        }
+
+        if (tipo == PELICULA) {
+            if (escritor == null) {
+                escribirTexto(out, ((Pelicula) p).getGenero());
+            } else {
+                escritor.escribirGenero(((Pelicula) p).getGenero());
+            }
+        } else {
+            escribirVarint(out, ((Serie) p).getNumeroTemporadas());
+        }
+    }
+
+    /**
+     * Lee una producción escrita con {@link #escribirProduccion}.
+     *
+     * @param in origen
+     * @return producción leída
+     * @throws IOException si el registro está dañado
+     */
+    static ProduccionAudiovisual leerProduccion(DataInput in) throws IOException {
+        return leerRegistro(in, null);
+    }
+
+    /**
+     * Lee un registro; el director se lee completo si {@code lector} es
+     * {@code null} y como referencia a su tabla si no.
+     */
+    private static ProduccionAudiovisual leerRegistro(DataInput in, Lector lector) throws IOException {
+        byte tipo = in.readByte();
+        String codigo = leerTexto(in);
+        String titulo = leerTexto(in);
+        int fechaEstreno = leerVarint(in);
+        int duracionMin = leerVarint(in);
+        Director director = lector == null ? leerDirector(in) : lector.leerDirector();
+
+        switch (tipo) {
+            case PELICULA:
+                String genero = lector == null ? leerTexto(in) : lector.leerGenero();
+                return new Pelicula(codigo, titulo, fechaEstreno, duracionMin, director, genero);
+            case SERIE:
+                return new Serie(codigo, titulo, fechaEstreno, duracionMin, director, leerVarint(in));
+            default:
+                throw new IOException("Etiqueta de tipo desconocida: " + tipo);
+        }
+    }
+
+    /**
+     * Codifica una producción en un arreglo de bytes.
+     *
+     * @param p producción a codificar
+     * @return bytes del registro
+     */
+    static byte[] codificar(ProduccionAudiovisual p) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            escribirProduccion(new DataOutputStream(bytes), p);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void escribirDirector(DataOutput out, Director d) throws IOException {
+        if (d == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        escribirTexto(out, d.getId());
+        escribirTexto(out, d.getNombre());
+        escribirTexto(out, d.getNacionalidad());
+    }
+
+    private static Director leerDirector(DataInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new Director(leerTexto(in), leerTexto(in), leerTexto(in));
+    }
+
+    // -----------------------------------------------------------
+    // PRIMITIVAS
+    // -----------------------------------------------------------
+
+    /**
+     * {@link ByteArrayOutputStream} que expone su arreglo interno, para
+     * calcular sumas y escribir el contenido sin copiarlo.
+     */
+    static final class Bufer extends ByteArrayOutputStream {
+
+        /** @param capacidad capacidad inicial en bytes */
+        Bufer(int capacidad) {
+            super(capacidad);
+        }
+
+        /** @return arreglo interno; solo los primeros {@link #size()} bytes son válidos */
+        byte[] datos() {
+            return buf;
+        }
+    }
+
+    /**
+     * Calcula la suma CRC32C de un rango de bytes.
+     *
+     * @param datos    arreglo de origen
+     * @param inicio   posición del primer byte
+     * @param longitud cantidad de bytes
+     * @return suma de verificación
+     */
+    static int crc32c(byte[] datos, int inicio, int longitud) {
+        CRC32C crc = new CRC32C();
+        crc.update(datos, inicio, longitud);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Lee un entero en orden big-endian, igual que {@link DataInput#readInt}.
+     */
+    private static int leerEntero(byte[] origen, int posicion) {
+        return ((origen[posicion] & 0xFF) << 24) | ((origen[posicion + 1] & 0xFF) << 16)
+                | ((origen[posicion + 2] & 0xFF) << 8) | (origen[posicion + 3] & 0xFF);
+    }
+
+    /**
+     * Escribe un entero en orden big-endian, igual que {@link DataOutput#writeInt}.
+     */
+    private static void escribirEntero(byte[] destino, int posicion, int valor) {
+        destino[posicion] = (byte) (valor >>> 24);
+        destino[posicion + 1] = (byte) (valor >>> 16);
+        destino[posicion + 2] = (byte) (valor >>> 8);
+        destino[posicion + 3] = (byte) valor;
+    }
+
+    /**
+     * Escribe un entero con codificación zigzag de longitud variable
+     * (7 bits por byte, el bit alto indica que siguen más bytes).
+     *
+     * @param out   destino
+     * @param valor entero a escribir
+     * @throws IOException si falla la escritura
+     */
+    static void escribirVarint(DataOutput out, int valor) throws IOException {
+        int v = (valor << 1) ^ (valor >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * Lee un entero escrito con {@link #escribirVarint}.
+     *
+     * @param in origen
+     * @return entero leído
+     * @throws IOException si el varint es demasiado largo o el flujo termina
+     */
+    static int leerVarint(DataInput in) throws IOException {
+        int v = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Varint mal formado");
+    }
+
+    /**
+     * Escribe un texto como longitud más bytes UTF-8. La longitud se guarda
+     * incrementada en uno para poder representar {@code null} con cero.
+     *
+     * @param out   destino
+     * @param texto texto a escribir, puede ser {@code null}
+     * @throws IOException si falla la escritura
+     */
+    static void escribirTexto(DataOutput out, String texto) throws IOException {
+        if (texto == null) {
+            escribirVarint(out, 0);
+            return;
+        }
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        escribirVarint(out, utf8.length + 1);
+        out.write(utf8);
+    }
+
+    /**
+     * Lee un texto escrito con {@link #escribirTexto}.
+     *
+     * @param in origen
+     * @return texto leído, o {@code null}
+     * @throws IOException si la longitud es inválida o el flujo termina
+     */
+    static String leerTexto(DataInput in) throws IOException {
+        int longitud = leerVarint(in) - 1;
+        if (longitud < 0) {
+            if (longitud == -1) return null;
+            throw new IOException("Longitud de texto inválida: " + longitud);
+        }
+        byte[] utf8 = new byte[longitud];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package co.edu.poli.parcial.servicios;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec {@link CodecCompresion} basado en {@link Deflater} e {@link Inflater}.
+ *
+ * <p>Cada hilo reutiliza su propio compresor y descompresor, porque crearlos
+ * reserva memoria nativa y costaría más que comprimir un bloque pequeño.</p>
+ *
+ * @author Felipe Parra
+ */
+final class CompresionDeflate implements CodecCompresion {
+
+    private final int id;
+    private final String nombre;
+    private final ThreadLocal<Deflater> compresores;
+    private final ThreadLocal<Inflater> descompresores = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * @param id     identificador del codec
+     * @param nombre nombre del codec
+     * @param nivel  nivel de compresión de {@link Deflater}
+     */
+    CompresionDeflate(int id, String nombre, int nivel) {
+        this.id = id;
+        this.nombre = nombre;
+        this.compresores = ThreadLocal.withInitial(() -> new Deflater(nivel));
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public int comprimir(byte[] origen, int inicio, int longitud, byte[] destino) {
+        Deflater deflater = compresores.get();
+        try {
+            deflater.setInput(origen, inicio, longitud);
+            deflater.finish();
+            int escritos = 0;
+            while (!deflater.finished() && escritos < destino.length) {
+                escritos += deflater.deflate(destino, escritos, destino.length - escritos);
+            }
+            return deflater.finished() ? escritos : -1;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void descomprimir(byte[] origen, int inicio, int longitud, byte[] destino, int longitudOriginal)
+            throws IOException {
+        Inflater inflater = descompresores.get();
+        try {
+            inflater.setInput(origen, inicio, longitud);
+            int leidos = 0;
+            while (leidos < longitudOriginal && !inflater.finished()) {
+                int n = inflater.inflate(destino, leidos, longitudOriginal - leidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                leidos += n;
+            }
+            if (leidos != longitudOriginal || !inflater.finished()) {
+                throw new IOException("Bloque dañado: la descompresión no produjo la longitud esperada");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque dañado: " + e.getMessage(), e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+/**
+ * Criterios de búsqueda de producciones audiovisuales por sus atributos.
+ *
+ * <p>Se construye encadenando los criterios deseados; una producción coincide
+ * si cumple todos los indicados. Los criterios no indicados no filtran:</p>
+ * <pre>
+ *   new Consulta().genero("Drama").anioEntre(2000, 2010)
+ * </pre>
+ *
+ * <p>El género y el nombre del director se comparan sin distinguir mayúsculas
+ * de minúsculas, igual que los códigos. Los rangos incluyen ambos extremos.
+ * Solo las películas tienen género, así que una consulta por género nunca
+ * retorna series.</p>
+ *
+ * @author Felipe Parra
+ * @see OperacionCrud#consultar(Consulta)
+ */
+public class Consulta {
+
+    private String genero;
+    private String director;
+    private int anioDesde = Integer.MIN_VALUE;
+    private int anioHasta = Integer.MAX_VALUE;
+    private int duracionDesde = Integer.MIN_VALUE;
+    private int duracionHasta = Integer.MAX_VALUE;
+    private Class<? extends ProduccionAudiovisual> tipo;
+
+    // -----------------------------------------------------------
+    // CRITERIOS
+    // -----------------------------------------------------------
+
+    /**
+     * @param genero género exacto de la película
+     * @return esta consulta
+     */
+    public Consulta genero(String genero) {
+        this.genero = ImplOperacionCrud.clave(genero);
+        return this;
+    }
+
+    /**
+     * @param nombre nombre exacto del director
+     * @return esta consulta
+     */
+    public Consulta director(String nombre) {
+        this.director = ImplOperacionCrud.clave(nombre);
+        return this;
+    }
+
+    /**
+     * @param desde primer año de estreno aceptado
+     * @param hasta último año de estreno aceptado
+     * @return esta consulta
+     * @throws IllegalArgumentException si {@code desde} es mayor que {@code hasta}
+     */
+    public Consulta anioEntre(int desde, int hasta) {
+        if (desde > hasta) throw new IllegalArgumentException("Rango inválido: " + desde + ", " + hasta);
+        this.anioDesde = desde;
+        this.anioHasta = hasta;
+        return this;
+    }
+
+    /**
+     * @param desde duración mínima en minutos
+     * @param hasta duración máxima en minutos
+     * @return esta consulta
+     * @throws IllegalArgumentException si {@code desde} es mayor que {@code hasta}
+     */
+    public Consulta duracionEntre(int desde, int hasta) {
+        if (desde > hasta) throw new IllegalArgumentException("Rango inválido: " + desde + ", " + hasta);
+        this.duracionDesde = desde;
+        this.duracionHasta = hasta;
+        return this;
+    }
+
+    /**
+     * @param tipo clase de producción aceptada, por ejemplo {@code Pelicula.class}
+     * @return esta consulta
+     */
+    public Consulta tipo(Class<? extends ProduccionAudiovisual> tipo) {
+        this.tipo = tipo;
+        return this;
+    }
+
+    // -----------------------------------------------------------
+    // EVALUACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Indica si una producción cumple todos los criterios de la consulta.
+     *
+     * @param p producción a evaluar
+     * @return {@code true} si coincide
+     */
+    public boolean coincide(ProduccionAudiovisual p) {
+        if (tipo != null && !tipo.isInstance(p)) return false;
+        if (p.getFechaEstreno() < anioDesde || p.getFechaEstreno() > anioHasta) return false;
+        if (p.getDuracionMin() < duracionDesde || p.getDuracionMin() > duracionHasta) return false;
+        if (genero != null && !genero.equals(claveGenero(p))) return false;
+        if (director != null && !director.equals(claveDirector(p))) return false;
+        return true;
+    }
+
+    /** @return género normalizado de una película, o {@code null} para otras producciones */
+    static String claveGenero(ProduccionAudiovisual p) {
+        return p instanceof Pelicula pel ? ImplOperacionCrud.clave(pel.getGenero()) : null;
+    }
+
+    /** @return nombre normalizado del director, o {@code null} si no tiene */
+    static String claveDirector(ProduccionAudiovisual p) {
+        Director d = p.getDirector();
+        return d == null ? null : ImplOperacionCrud.clave(d.getNombre());
+    }
+
+    String getGenero() { return genero; }
+
+    String getDirector() { return director; }
+
+    int getAnioDesde() { return anioDesde; }
+
+    int getAnioHasta() { return anioHasta; }
+
+    int getDuracionDesde() { return duracionDesde; }
+
+    int getDuracionHasta() { return duracionHasta; }
+
+    Class<? extends ProduccionAudiovisual> getTipo() { return tipo; }
+
+    boolean filtraAnio() {
+        return anioDesde != Integer.MIN_VALUE || anioHasta != Integer.MAX_VALUE;
+    }
+
+    boolean filtraDuracion() {
+        return duracionDesde != Integer.MIN_VALUE || duracionHasta != Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,144 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura y escritura de producciones en CSV, una por línea.
+ *
+ * <p>La primera línea del archivo es la cabecera con los nombres de las
+ * columnas ({@link #CABECERA}); las columnas pueden venir en cualquier orden,
+ * se ignoran las desconocidas y las ausentes se toman como vacías. Los
+ * valores con comas o comillas van entre comillas dobles, con las comillas
+ * internas duplicadas. Un valor entre comillas no puede contener saltos de
+ * línea.</p>
+ *
+ * <p>Una instancia solo guarda el orden de las columnas de su cabecera, así
+ * que puede usarse desde varios hilos a la vez.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class CsvProduccion {
+
+    /** Cabecera con todas las columnas, en el orden en que se escriben. */
+    public static final String CABECERA = String.join(",", CamposProduccion.NOMBRES);
+
+    /** Por cada columna del archivo, el campo que contiene, o {@code -1} si se ignora. */
+    private final int[] campos;
+
+    /**
+     * @param cabecera primera línea del archivo
+     * @throws IllegalArgumentException si una columna está repetida o falta una obligatoria
+     */
+    public CsvProduccion(String cabecera) {
+        List<String> columnas = separar(cabecera);
+        campos = new int[columnas.size()];
+        boolean[] presentes = new boolean[CamposProduccion.NOMBRES.length];
+        for (int i = 0; i < campos.length; i++) {
+            int campo = CamposProduccion.indice(columnas.get(i));
+            campos[i] = campo;
+            if (campo < 0) continue;
+            if (presentes[campo]) throw new IllegalArgumentException("Columna repetida: " + columnas.get(i));
+            presentes[campo] = true;
+        }
+        for (int campo : new int[]{CamposProduccion.CODIGO, CamposProduccion.TIPO,
+                CamposProduccion.TITULO, CamposProduccion.ANIO}) {
+            if (!presentes[campo]) {
+                throw new IllegalArgumentException("Falta la columna " + CamposProduccion.NOMBRES[campo]);
+            }
+        }
+    }
+
+    /**
+     * @param linea línea de datos, sin el salto de línea
+     * @return producción de la línea
+     * @throws IllegalArgumentException con el motivo, si la línea no es válida
+     */
+    public ProduccionAudiovisual leer(String linea) {
+        List<String> valores = separar(linea);
+        if (valores.size() > campos.length) {
+            throw new IllegalArgumentException("Sobran columnas: " + valores.size() + " de " + campos.length);
+        }
+        String[] v = new String[CamposProduccion.NOMBRES.length];
+        for (int i = 0; i < valores.size(); i++) {
+            if (campos[i] >= 0) v[campos[i]] = valores.get(i);
+        }
+        return CamposProduccion.construir(v);
+    }
+
+    /**
+     * Agrega una producción como una línea con las columnas de
+     * {@link #CABECERA}, sin el salto de línea.
+     *
+     * @param sb destino
+     * @param p  producción a escribir
+     */
+    public static void escribir(StringBuilder sb, ProduccionAudiovisual p) {
+        String[] v = CamposProduccion.valores(p);
+        for (int i = 0; i < v.length; i++) {
+            if (i > 0) sb.append(',');
+            if (v[i] != null) escribirValor(sb, v[i]);
+        }
+    }
+
+    private static void escribirValor(StringBuilder sb, String valor) {
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            sb.append(valor);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Separa una línea en sus valores.
+     *
+     * @throws IllegalArgumentException si hay comillas sin cerrar o texto tras una comilla de cierre
+     */
+    static List<String> separar(String linea) {
+        List<String> valores = new ArrayList<>(CamposProduccion.NOMBRES.length);
+        int n = linea.length();
+        int i = 0;
+        while (true) {
+            if (i < n && linea.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= n) throw new IllegalArgumentException("Comillas sin cerrar");
+                    char c = linea.charAt(i++);
+                    if (c != '"') {
+                        sb.append(c);
+                    } else if (i < n && linea.charAt(i) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                valores.add(sb.toString());
+                if (i < n && linea.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Texto después de comillas en la columna " + valores.size());
+                }
+            } else {
+                int fin = linea.indexOf(',', i);
+                if (fin < 0) fin = n;
+                valores.add(linea.substring(i, fin));
+                i = fin;
+            }
+            if (i >= n) return valores;
+            i++; // coma
+        }
+    }
+}
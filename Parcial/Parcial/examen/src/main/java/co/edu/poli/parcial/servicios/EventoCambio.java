@@ -0,0 +1,182 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cambio en el contenido de un {@link OperacionCrud}, tal como lo reciben los
+ * {@link ObservadorCambios}.
+ *
+ * <p>Los eventos describen el efecto sobre el catálogo, no la operación que
+ * lo produjo: un lote que crea y luego modifica una producción puede llegar
+ * como una sola creación con el valor final. Una modificación conserva la
+ * posición de la producción; una creación la agrega al final.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class EventoCambio {
+
+    /**
+     * Tipo de cambio.
+     */
+    public enum Tipo {
+        /** Se agregó una producción al final del catálogo. */
+        CREADA,
+        /** Se reemplazó una producción en su lugar, quizá con otro código. */
+        MODIFICADA,
+        /** Se eliminó una producción. */
+        ELIMINADA,
+        /** Se reemplazó todo el contenido, por ejemplo al cargar el archivo. */
+        RECARGADA
+    }
+
+    private static final EventoCambio RECARGA = new EventoCambio(Tipo.RECARGADA, null, null, null);
+
+    private final Tipo tipo;
+    private final String codigo;
+    private final ProduccionAudiovisual anterior;
+    private final ProduccionAudiovisual nueva;
+
+    private EventoCambio(Tipo tipo, String codigo, ProduccionAudiovisual anterior, ProduccionAudiovisual nueva) {
+        this.tipo = tipo;
+        this.codigo = codigo;
+        this.anterior = anterior;
+        this.nueva = nueva;
+    }
+
+    /**
+     * @param p producción agregada
+     * @return evento de creación
+     */
+    public static EventoCambio creada(ProduccionAudiovisual p) {
+        return new EventoCambio(Tipo.CREADA, p.getCodigo(), null, p);
+    }
+
+    /**
+     * @param codigo   código con el que se modificó la producción
+     * @param anterior producción reemplazada
+     * @param nueva    producción que ocupa su lugar
+     * @return evento de modificación
+     */
+    public static EventoCambio modificada(String codigo, ProduccionAudiovisual anterior, ProduccionAudiovisual nueva) {
+        return new EventoCambio(Tipo.MODIFICADA, codigo, anterior, nueva);
+    }
+
+    /**
+     * @param codigo   código con el que se eliminó la producción
+     * @param anterior producción eliminada
+     * @return evento de eliminación
+     */
+    public static EventoCambio eliminada(String codigo, ProduccionAudiovisual anterior) {
+        return new EventoCambio(Tipo.ELIMINADA, codigo, anterior, null);
+    }
+
+    /**
+     * @return evento de recarga completa
+     */
+    public static EventoCambio recargada() {
+        return RECARGA;
+    }
+
+    /** @return tipo de cambio */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @return código de la producción antes del cambio (el de la nueva, en
+     *         una creación), o {@code null} en una recarga
+     */
+    public String getCodigo() {
+        return codigo;
+    }
+
+    /** @return producción que estaba antes del cambio, o {@code null} en creaciones y recargas */
+    public ProduccionAudiovisual getAnterior() {
+        return anterior;
+    }
+
+    /** @return producción que queda tras el cambio, o {@code null} en eliminaciones y recargas */
+    public ProduccionAudiovisual getNueva() {
+        return nueva;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + (codigo == null ? "" : " " + codigo);
+    }
+
+    // -----------------------------------------------------------
+    // AGRUPACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Resume una ráfaga de eventos en su efecto neto, sin alterar el
+     * significado de las posiciones.
+     *
+     * <ul>
+     *   <li>Una recarga descarta los eventos anteriores a ella.</li>
+     *   <li>Varias modificaciones seguidas de una producción se unen en una,
+     *       con la producción anterior de la primera y la nueva de la última.</li>
+     *   <li>Una creación seguida de modificaciones queda como una creación con
+     *       el valor final; si después se elimina, desaparecen ambas.</li>
+     *   <li>Una modificación seguida de una eliminación queda como la
+     *       eliminación de la producción original.</li>
+     * </ul>
+     *
+     * <p>Una eliminación seguida de una creación con el mismo código no se
+     * une, porque la producción creada pasa al final del catálogo.</p>
+     *
+     * @param eventos eventos en el orden en que ocurrieron
+     * @return eventos resumidos, en orden; puede ser la misma lista si no hay nada que unir
+     */
+    static List<EventoCambio> agrupar(List<EventoCambio> eventos) {
+        if (eventos.size() < 2) return eventos;
+        boolean soloCreaciones = true;
+        for (int i = 0; i < eventos.size() && soloCreaciones; i++) {
+            soloCreaciones = eventos.get(i).tipo == Tipo.CREADA;
+        }
+        // las creaciones de una ráfaga tienen códigos distintos: no hay nada que unir
+        if (soloCreaciones) return eventos;
+
+        List<EventoCambio> resultado = new ArrayList<>(eventos.size());
+        // posición en el resultado del último evento de cada producción viva, por su clave actual
+        Map<String, Integer> vivas = new HashMap<>();
+        int descartados = 0;
+        for (EventoCambio e : eventos) {
+            if (e.tipo == Tipo.RECARGADA) {
+                resultado.clear();
+                vivas.clear();
+                descartados = 0;
+                resultado.add(e);
+                continue;
+            }
+            String k = ImplOperacionCrud.clave(e.codigo);
+            Integer i = e.tipo == Tipo.CREADA ? null : vivas.remove(k);
+            EventoCambio previo = i == null ? null : resultado.get(i);
+            if (previo == null) {
+                if (e.tipo != Tipo.ELIMINADA) vivas.put(ImplOperacionCrud.clave(e.nueva.getCodigo()), resultado.size());
+                resultado.add(e);
+                continue;
+            }
+
+            EventoCambio unido;
+            if (e.tipo == Tipo.ELIMINADA) {
+                unido = previo.tipo == Tipo.CREADA ? null : eliminada(previo.codigo, previo.anterior);
+            } else {
+                unido = previo.tipo == Tipo.CREADA
+                        ? creada(e.nueva)
+                        : modificada(previo.codigo, previo.anterior, e.nueva);
+                vivas.put(ImplOperacionCrud.clave(e.nueva.getCodigo()), i);
+            }
+            resultado.set(i, unido);
+            if (unido == null) descartados++;
+        }
+        if (descartados > 0) resultado.removeIf(e -> e == null);
+        return resultado;
+    }
+}
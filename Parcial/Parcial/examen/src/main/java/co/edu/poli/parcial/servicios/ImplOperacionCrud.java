@@ -2,8 +2,20 @@ package co.edu.poli.parcial.servicios;
 
 import co.edu.poli.parcial.model.ProduccionAudiovisual;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Implementación concreta de la interfaz {@link OperacionCrud}.
@@ -12,6 +24,32 @@ import java.util.List;
  * permitiendo realizar operaciones CRUD sobre ellos. Además, delega los procesos
  * de persistencia en la clase {@link OperacionArchivo}.</p>
  *
+ * <p>Las producciones se indexan por su código normalizado (sin distinguir
+ * mayúsculas de minúsculas), de modo que las búsquedas, modificaciones y
+ * eliminaciones por código se resuelven en tiempo constante, también cuando
+ * una modificación cambia el código. El índice ({@link IndiceCodigos}) conserva
+ * el orden de inserción, que es el orden devuelto por {@link #listarTodos()}.</p>
+ *
+ * <p>Las consultas por atributos ({@link #consultar(Consulta)}) usan índices
+ * secundarios por género, director, año y duración, que se construyen en la
+ * primera consulta y luego se actualizan con cada {@code crear},
+ * {@code modificar} y {@code eliminar}; lo mismo ocurre con el índice de
+ * texto de {@link #buscarTexto(String, int)}. Por eso las producciones guardadas no
+ * deben modificarse en el lugar: se reemplazan con {@code modificar}.</p>
+ *
+ * <p>Los directores se internan en un {@link RegistroDirectores}: todas las
+ * producciones de un mismo director comparten una instancia, y
+ * {@link #listarPorDirector(String)} las obtiene del índice por director.</p>
+ *
+ * <p>Opcionalmente puede trabajar en modo bitácora: cada {@code crear},
+ * {@code modificar} y {@code eliminar} se anexa a una {@link BitacoraCambios}
+ * antes de aplicarse en memoria, y {@link #guardarArchivo()} pasa a ser una
+ * compactación en segundo plano que consolida la bitácora en la instantánea.</p>
+ *
+ * <p>Cada cambio se publica como un {@link EventoCambio} a los observadores
+ * suscritos con {@link #suscribir(ObservadorCambios, Executor)}, de modo que
+ * la tabla y otras vistas del catálogo se actualizan sin volver a leerlo.</p>
+ *
  * <p>Esta clase actúa como el servicio central de gestión de datos utilizado
  * por el controlador de la aplicación.</p>
  *
@@ -19,18 +57,109 @@ import java.util.List;
  */
 public class ImplOperacionCrud implements OperacionCrud {
 
-    /** Lista interna que almacena las producciones audiovisuales en memoria. */
-    private List<ProduccionAudiovisual> lista;
+    /**
+     * Índice interno que almacena las producciones audiovisuales en memoria,
+     * asociadas a su código normalizado y en orden de inserción.
+     */
+    private IndiceCodigos lista;
+
+    /**
+     * Copia indexable de las producciones en orden, usada por {@link #listarRango}.
+     * Se construye al pedirla, crece junto con {@code crear} y se descarta con
+     * cualquier otro cambio; {@code null} si no está construida.
+     */
+    private List<ProduccionAudiovisual> orden;
+
+    /**
+     * Índices secundarios para {@link #consultar(Consulta)}. Se construyen al
+     * pedirlos, se actualizan con cada cambio individual y se descartan con las
+     * cargas; {@code null} si no están construidos.
+     */
+    private IndicesSecundarios indices;
+
+    /**
+     * Índice de texto para {@link #buscarTexto(String, int)}; se mantiene igual
+     * que {@code indices}. {@code null} si no está construido.
+     */
+    private IndiceTexto textos;
+
+    /** Agregados para {@link #getAgregados()}; se mantienen igual que {@code indices}. */
+    private AgregadosMaterializados agregados;
+
+    /**
+     * Directores compartidos por las producciones del catálogo. Cada carga
+     * empieza un registro nuevo, para que los directores del archivo no se
+     * reemplacen por los del contenido anterior.
+     */
+    private RegistroDirectores directores = new RegistroDirectores();
+
+    /** Observadores de los cambios del catálogo. */
+    private final CanalCambios cambios = new CanalCambios();
 
     /** Servicio encargado de la serialización y deserialización de datos. */
     private OperacionArchivo archivo;
 
+    /** Bitácora de cambios, o {@code null} si el modo bitácora está desactivado. */
+    private BitacoraCambios bitacora;
+
+    /**
+     * {@code true} mientras el contenido en memoria no refleja por completo la
+     * instantánea y la bitácora (una carga en curso o que falló a medias);
+     * mientras tanto no se compacta.
+     */
+    private boolean cargaIncompleta;
+
+    /** Última compactación lanzada; se espera antes de recargar o compactar de nuevo. */
+    private CompletableFuture<Void> compactacion = CompletableFuture.completedFuture(null);
+
+    /** Hilo único donde se ejecutan las compactaciones de la bitácora. */
+    private static final ExecutorService COMPACTADOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "compactador-bitacora");
+        t.setDaemon(true);
+        return t;
+    });
+
     /**
      * Constructor que inicializa la lista interna y el servicio de archivo.
      */
     public ImplOperacionCrud() {
-        lista = new ArrayList<>();
-        archivo = new OperacionArchivo();
+        this(new OperacionArchivo(), false);
+    }
+
+    /**
+     * Constructor que permite indicar el archivo de datos y el modo de persistencia.
+     *
+     * <p>En modo bitácora, el contenido se carga de inmediato (instantánea más
+     * los registros de la bitácora) y cada cambio posterior queda guardado
+     * al anexarse a la bitácora. La instantánea se lee en modo
+     * {@link OperacionArchivo#setLecturaEstricta(boolean) estricto}.</p>
+     *
+     * @param archivo      servicio de archivo a utilizar
+     * @param conBitacora  {@code true} para activar el modo bitácora
+     * @throws UncheckedIOException en modo bitácora, si la instantánea o la
+     *         bitácora no se pueden leer completas
+     */
+    public ImplOperacionCrud(OperacionArchivo archivo, boolean conBitacora) {
+        this.lista = new IndiceCodigos();
+        this.archivo = archivo;
+        if (conBitacora) {
+            archivo.setLecturaEstricta(true);
+            bitacora = archivo.crearBitacora();
+            cargarDesdeArchivo();
+        }
+    }
+
+    /**
+     * Normaliza un código para usarlo como clave del índice.
+     *
+     * <p>Dos códigos que solo difieren en mayúsculas y minúsculas producen
+     * la misma clave, igual que con {@link String#equalsIgnoreCase(String)}.</p>
+     *
+     * @param codigo código a normalizar
+     * @return clave normalizada, o {@code null} si el código es {@code null}
+     */
+    static String clave(String codigo) {
+        return codigo == null ? null : codigo.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
     }
 
     // -----------------------------------------------------------
@@ -41,29 +170,77 @@ public class ImplOperacionCrud implements OperacionCrud {
      * Agrega una nueva producción audiovisual a la lista interna.
      *
      * @param p objeto {@link ProduccionAudiovisual} a agregar
+     * @throws IllegalArgumentException si ya existe una producción con el mismo código
      */
     @Override
     public void crear(ProduccionAudiovisual p) {
-        lista.add(p);
+        String k = clave(p.getCodigo());
+        if (lista.containsKey(k)) {
+            throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+        }
+        internar(p);
+        if (bitacora != null) {
+            try {
+                bitacora.registrarCreacion(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al registrar en bitácora", e);
+            }
+        }
+        lista.put(k, p);
+        if (orden != null) orden.add(p);
+        indexar(p);
+        cambios.publicar(EventoCambio.creada(p));
     }
 
     /**
      * Modifica una producción existente identificada por su código.
      *
+     * <p>Si el nuevo objeto conserva el código, el reemplazo es directo y mantiene
+     * su posición. Si el código cambia, la producción conserva su posición
+     * bajo la nueva clave, también en tiempo constante.</p>
+     *
      * @param codigo código de la producción a modificar
      * @param nuevo  objeto con los nuevos valores
      * @return {@code true} si la modificación fue exitosa,
      *         {@code false} si no se encontró el elemento
+     * @throws IllegalArgumentException si el nuevo código pertenece a otra producción
      */
     @Override
     public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
-        for (int i = 0; i < lista.size(); i++) {
-            if (lista.get(i).getCodigo().equalsIgnoreCase(codigo)) {
-                lista.set(i, nuevo);
-                return true;
+        String k = clave(codigo);
+        if (k == null || !lista.containsKey(k)) return false;
+
+        String kNuevo = clave(nuevo.getCodigo());
+        if (!k.equals(kNuevo) && lista.containsKey(kNuevo)) {
+            throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+        }
+        internar(nuevo);
+        if (bitacora != null) {
+            try {
+                bitacora.registrarModificacion(codigo, nuevo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al registrar en bitácora", e);
             }
         }
-        return false;
+        ProduccionAudiovisual anterior = lista.get(k);
+        reemplazar(k, kNuevo, nuevo);
+        cambios.publicar(EventoCambio.modificada(codigo, anterior, nuevo));
+        return true;
+    }
+
+    /**
+     * Reemplaza la producción de la clave {@code k} conservando su posición,
+     * con la clave {@code kNuevo}.
+     */
+    private void reemplazar(String k, String kNuevo, ProduccionAudiovisual nuevo) {
+        orden = null;
+        desindexar(lista.get(k));
+        indexar(nuevo);
+        if (k.equals(kNuevo)) {
+            lista.put(k, nuevo);
+        } else {
+            lista.renombrar(k, kNuevo, nuevo);
+        }
     }
 
     /**
@@ -75,12 +252,105 @@ public class ImplOperacionCrud implements OperacionCrud {
      */
     @Override
     public boolean eliminar(String codigo) {
-        ProduccionAudiovisual p = buscarPorCodigo(codigo);
-        if (p != null) {
-            lista.remove(p);
-            return true;
+        String k = clave(codigo);
+        if (k == null || !lista.containsKey(k)) return false;
+        if (bitacora != null) {
+            try {
+                bitacora.registrarEliminacion(codigo);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al registrar en bitácora", e);
+            }
         }
-        return false;
+        ProduccionAudiovisual eliminada = lista.remove(k);
+        orden = null;
+        desindexar(eliminada);
+        cambios.publicar(EventoCambio.eliminada(codigo, eliminada));
+        return true;
+    }
+
+    /**
+     * Aplica el lote en una sola pasada sobre el índice.
+     *
+     * <p>Valida el lote completo, lo anexa a la bitácora como un único
+     * registro y aplica su efecto neto: las producciones existentes se
+     * reemplazan o eliminan en su lugar y las creadas se agregan al final. Las
+     * que cambian de código se sueltan de su clave anterior antes de tomar la
+     * nueva, de modo que un lote puede intercambiar códigos entre producciones.</p>
+     *
+     * <p>Los índices secundarios se actualizan producción por producción si el
+     * lote es chico; si toca más de un octavo del catálogo se descartan, y se
+     * reconstruyen en una pasada en la próxima consulta.</p>
+     */
+    @Override
+    public int aplicar(Lote lote) {
+        PlanLote plan = new PlanLote(lote, lista::containsKey);
+        if (plan.efectivas.isEmpty()) return 0;
+        for (Lote.Operacion op : plan.efectivas) {
+            if (op.produccion != null) internar(op.produccion);
+        }
+        if (bitacora != null) {
+            try {
+                bitacora.registrarLote(plan.efectivas);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al registrar en bitácora", e);
+            }
+        }
+
+        List<EventoCambio> eventos = null;
+        if (cambios.activo()) {
+            eventos = new ArrayList<>(plan.tocadas.size() + plan.creadas.size());
+            for (PlanLote.Entrada e : plan.tocadas.values()) {
+                ProduccionAudiovisual anterior = lista.get(e.claveOriginal);
+                eventos.add(e.produccion == null
+                        ? EventoCambio.eliminada(anterior.getCodigo(), anterior)
+                        : EventoCambio.modificada(anterior.getCodigo(), anterior, e.produccion));
+            }
+            for (PlanLote.Entrada e : plan.creadas) eventos.add(EventoCambio.creada(e.produccion));
+        }
+
+        boolean masivo = plan.tocadas.size() + plan.creadas.size() > lista.size() / 8;
+        if (masivo) {
+            descartarIndices();
+        } else {
+            for (String k : plan.tocadas.keySet()) desindexar(lista.get(k));
+        }
+
+        List<PlanLote.Entrada> renombradas = plan.renombra ? new ArrayList<>() : null;
+        List<IndiceCodigos.Nodo> sueltos = plan.renombra ? new ArrayList<>() : null;
+        for (PlanLote.Entrada e : plan.tocadas.values()) {
+            if (e.produccion == null) {
+                lista.remove(e.claveOriginal);
+            } else if (e.renombrada()) {
+                renombradas.add(e);
+                sueltos.add(lista.soltar(e.claveOriginal));
+            } else {
+                lista.put(e.clave, e.produccion);
+            }
+        }
+        if (renombradas != null) {
+            for (int i = 0; i < renombradas.size(); i++) {
+                PlanLote.Entrada e = renombradas.get(i);
+                IndiceCodigos.reemplazar(sueltos.get(i), e.produccion);
+                lista.atar(e.clave, sueltos.get(i));
+            }
+        }
+        for (PlanLote.Entrada e : plan.creadas) {
+            lista.put(e.clave, e.produccion);
+        }
+
+        if (!plan.tocadas.isEmpty()) {
+            orden = null;
+        } else if (orden != null) {
+            for (PlanLote.Entrada e : plan.creadas) orden.add(e.produccion);
+        }
+        if (!masivo) {
+            for (PlanLote.Entrada e : plan.tocadas.values()) {
+                if (e.produccion != null) indexar(e.produccion);
+            }
+            for (PlanLote.Entrada e : plan.creadas) indexar(e.produccion);
+        }
+        if (eventos != null) cambios.publicar(eventos);
+        return plan.getAplicadas();
     }
 
     /**
@@ -91,20 +361,177 @@ public class ImplOperacionCrud implements OperacionCrud {
      */
     @Override
     public ProduccionAudiovisual buscarPorCodigo(String codigo) {
-        for (ProduccionAudiovisual p : lista) {
-            if (p.getCodigo().equalsIgnoreCase(codigo)) return p;
-        }
-        return null;
+        String k = clave(codigo);
+        return k == null ? null : lista.get(k);
     }
 
     /**
-     * Retorna la lista completa de producciones almacenadas.
+     * Retorna la lista completa de producciones almacenadas, en orden de inserción.
+     *
+     * <p>La lista devuelta es una copia: modificarla no altera el servicio.</p>
      *
      * @return lista de objetos {@link ProduccionAudiovisual}
      */
     @Override
     public List<ProduccionAudiovisual> listarTodos() {
-        return lista;
+        return new ArrayList<>(orden != null ? orden : lista.values());
+    }
+
+    /**
+     * @return cantidad de producciones, sin copiar el catálogo
+     */
+    @Override
+    public int contar() {
+        return lista.size();
+    }
+
+    /**
+     * Recorre las producciones directamente sobre el índice, sin copiarlo.
+     */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        (orden != null ? orden : lista.values()).forEach(accion);
+    }
+
+    /**
+     * Retorna una página de producciones en orden de inserción.
+     *
+     * <p>Usa una copia indexable del orden que se construye una vez y se
+     * reutiliza mientras solo se agreguen producciones, de modo que recorrer
+     * páginas consecutivas no vuelve a recorrer el catálogo.</p>
+     *
+     * @param desde    posición de la primera producción
+     * @param cantidad cantidad máxima de producciones
+     * @return producciones del rango pedido
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0) {
+            throw new IllegalArgumentException("Rango inválido: " + desde + ", " + cantidad);
+        }
+        if (orden == null) orden = new ArrayList<>(lista.values());
+        if (desde >= orden.size()) return new ArrayList<>();
+        return new ArrayList<>(orden.subList(desde, (int) Math.min(orden.size(), (long) desde + cantidad)));
+    }
+
+    /**
+     * Retorna las producciones que cumplen una consulta usando los índices
+     * secundarios.
+     *
+     * <p>Entre los criterios de igualdad (género, director) y de rango (año,
+     * duración) se elige el que deja menos candidatos, y el resto se verifica
+     * sobre ellos. Si ningún índice deja menos candidatos que el catálogo, o la
+     * consulta solo filtra por tipo, se recorre el catálogo completo. Las
+     * coincidencias se retornan en el orden del índice usado (por ejemplo, de
+     * menor a mayor año para un rango de años).</p>
+     *
+     * @param consulta criterios de búsqueda
+     * @return producciones que coinciden
+     */
+    @Override
+    public List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        if (indices == null) indices = new IndicesSecundarios(lista.values());
+        List<ProduccionAudiovisual> resultado = indices.resolver(consulta, lista.size());
+        if (resultado != null) return resultado;
+
+        resultado = new ArrayList<>();
+        for (ProduccionAudiovisual p : lista.values()) {
+            if (consulta.coincide(p)) resultado.add(p);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca producciones por palabras del título o del nombre del director,
+     * usando un índice invertido.
+     *
+     * <p>No distingue mayúsculas ni tildes, busca la última palabra como prefijo
+     * y tolera una letra de diferencia en las palabras que no aparecen tal cual
+     * (ver {@link IndiceTexto}). El índice se construye en la primera búsqueda y
+     * luego se actualiza con cada cambio.</p>
+     *
+     * @param texto  texto buscado
+     * @param limite cantidad máxima de resultados
+     * @return producciones encontradas
+     */
+    @Override
+    public List<ProduccionAudiovisual> buscarTexto(String texto, int limite) {
+        if (textos == null) textos = new IndiceTexto(lista.values());
+        return textos.buscar(texto, limite);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Los eventos se publican después de aplicar cada cambio, en el hilo
+     * que lo aplicó; un lote publica sus eventos juntos. Las cargas desde
+     * archivo publican una recarga; la carga por lotes publica además la
+     * creación de cada producción leída.</p>
+     */
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        cambios.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return cambios.desuscribir(observador);
+    }
+
+    /**
+     * Retorna el registro de directores del catálogo. Al crear o modificar una
+     * producción, su director se reemplaza por el registrado con los mismos
+     * id, nombre y nacionalidad. Cada carga desde el archivo lo reemplaza por
+     * uno nuevo, así que no conviene guardar la referencia.
+     *
+     * @return registro de directores
+     */
+    public RegistroDirectores getDirectores() {
+        return directores;
+    }
+
+    /**
+     * Reemplaza el director de una producción por el canónico del registro.
+     *
+     * @return la misma producción
+     */
+    private ProduccionAudiovisual internar(ProduccionAudiovisual p) {
+        p.setDirector(directores.registrar(p.getDirector()));
+        return p;
+    }
+
+    /**
+     * Retorna los agregados del catálogo (conteos por género, promedios por
+     * director, estrenos por década, histograma de temporadas). Se calculan en
+     * la primera llamada y desde entonces se actualizan con cada cambio, así
+     * que consultarlos no recorre el catálogo.
+     *
+     * @return agregados al día; el mismo objeto mientras no se recargue el archivo
+     */
+    public AgregadosMaterializados getAgregados() {
+        if (agregados == null) agregados = new AgregadosMaterializados(lista.values());
+        return agregados;
+    }
+
+    /** Agrega una producción a los índices que estén construidos. */
+    private void indexar(ProduccionAudiovisual p) {
+        if (indices != null) indices.agregar(p);
+        if (textos != null) textos.agregar(p);
+        if (agregados != null) agregados.agregar(p);
+    }
+
+    /** Quita una producción de los índices que estén construidos. */
+    private void desindexar(ProduccionAudiovisual p) {
+        if (indices != null) indices.quitar(p);
+        if (textos != null) textos.quitar(p);
+        if (agregados != null) agregados.quitar(p);
+    }
+
+    /** Descarta los índices para que se reconstruyan en la próxima consulta. */
+    private void descartarIndices() {
+        indices = null;
+        textos = null;
+        agregados = null;
     }
 
     // -----------------------------------------------------------
@@ -113,22 +540,388 @@ public class ImplOperacionCrud implements OperacionCrud {
 
     /**
      * Guarda en archivo la lista completa de producciones audiovisuales.
-     * <p>Utiliza el servicio {@link OperacionArchivo}.</p>
+     * <p>Utiliza el servicio {@link OperacionArchivo}. En modo bitácora los
+     * cambios ya están guardados, y este método lanza una compactación; para
+     * conocer su resultado use {@link #compactar()}.</p>
      */
     public void guardarArchivo() {
-        archivo.guardarArchivo(lista);
+        if (bitacora != null) {
+            compactar();
+            return;
+        }
+        archivo.guardarArchivo(listarTodos());
+    }
+
+    /**
+     * Consolida la bitácora en la instantánea {@code data.dat} en segundo plano.
+     *
+     * <p>En el hilo que llama solo se rota la bitácora y se copia la lista de
+     * referencias; la escritura de la instantánea y el descarte del segmento
+     * rotado ocurren en el hilo compactador. Si la escritura falla, la tarea
+     * devuelta termina con el error y el segmento se conserva: se vuelve a
+     * reproducir en la siguiente carga y se incluye en la siguiente
+     * compactación, que puede lanzarse de inmediato.</p>
+     *
+     * @return tarea que termina cuando la instantánea quedó escrita, o con un
+     *         {@link UncheckedIOException} si no se pudo escribir
+     * @throws IllegalStateException si el modo bitácora no está activo, o si
+     *         una carga está en curso o no terminó y el contenido en memoria
+     *         no es el del archivo completo
+     */
+    public CompletableFuture<Void> compactar() {
+        return compactar(COMPACTADOR);
+    }
+
+    /**
+     * Igual que {@link #compactar()}, pero escribe la instantánea en el
+     * ejecutor dado; lo usa {@link ImplOperacionCrudParticionado} para
+     * compactar todas sus particiones a la vez.
+     *
+     * @param escribirEn ejecutor donde se escribe la instantánea
+     * @return tarea que termina cuando la instantánea quedó escrita
+     */
+    CompletableFuture<Void> compactar(Executor escribirEn) {
+        if (bitacora == null) {
+            throw new IllegalStateException("El modo bitácora no está activo");
+        }
+        if (cargaIncompleta) {
+            throw new IllegalStateException("La última carga no terminó: no se compacta un contenido incompleto");
+        }
+        // una compactación fallida ya informó su error en su propia tarea
+        compactacion.exceptionally(e -> null).join();
+        try {
+            bitacora.rotar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al rotar la bitácora", e);
+        }
+
+        List<ProduccionAudiovisual> instantanea = listarTodos();
+        BitacoraCambios b = bitacora;
+        compactacion = CompletableFuture.runAsync(() -> {
+            try {
+                archivo.guardarInstantanea(instantanea);
+                Files.deleteIfExists(b.getRutaPendiente());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al compactar la bitácora", e);
+            }
+        }, escribirEn);
+        return compactacion;
+    }
+
+    /**
+     * Guarda el catálogo en segundo plano, sin bloquear el hilo que llama.
+     *
+     * <p>En el hilo que llama solo se copia la lista de referencias; la escritura
+     * ocurre en el hilo de entrada y salida de {@link OperacionArchivo}. En modo
+     * bitácora equivale a {@link #compactar()}, que no informa avance.</p>
+     *
+     * @param progreso receptor del avance
+     * @return tarea que termina al quedar guardado el archivo; puede cancelarse
+     */
+    public CompletableFuture<Void> guardarArchivoAsync(ProgresoOperacion progreso) {
+        if (bitacora != null) {
+            return compactar();
+        }
+        return archivo.guardarArchivoAsync(listarTodos(), progreso);
     }
 
     /**
      * Carga los datos desde el archivo y los reemplaza en la lista interna.
-     * <p>Si no se encuentra información válida, la lista se inicializa vacía.</p>
+     * <p>Si no se encuentra información válida, la lista se inicializa vacía.
+     * Si el archivo contiene códigos repetidos, se conserva la primera aparición.
+     * En modo bitácora se reproducen además los registros pendientes y activos
+     * de la bitácora sobre la instantánea.</p>
+     *
+     * <p>En modo bitácora la instantánea debe leerse completa: si no se puede,
+     * el contenido y la bitácora quedan como estaban y se lanza la excepción.</p>
+     *
+     * @throws UncheckedIOException en modo bitácora, si la instantánea o la
+     *         bitácora no se pueden leer completas
      */
     public void cargarDesdeArchivo() {
-        List<ProduccionAudiovisual> cargado = archivo.cargarArchivo();
+        boolean abierta = bitacora != null && bitacora.isAbierta();
+        cerrarBitacora();
+        List<ProduccionAudiovisual> cargado;
+        try {
+            cargado = archivo.cargarArchivo();
+        } catch (UncheckedIOException e) {
+            // el contenido actual sigue siendo el de la última carga más la bitácora
+            if (abierta) {
+                try {
+                    bitacora.abrir();
+                } catch (IOException ex) {
+                    e.addSuppressed(ex);
+                }
+            }
+            throw e;
+        }
+        aplicarCarga(cargado);
+    }
+
+    /**
+     * Carga el archivo en segundo plano y reemplaza el contenido del servicio
+     * al terminar.
+     *
+     * <p>La lectura y decodificación ocurren en el hilo de entrada y salida; el
+     * reemplazo de la lista interna se ejecuta en {@code aplicarEn}, que debe ser
+     * el hilo que usa normalmente este servicio (por ejemplo
+     * {@code Platform::runLater}), ya que esta clase no es segura para uso
+     * concurrente. Cancelar la tarea devuelta cancela también la lectura.</p>
+     *
+     * @param progreso  receptor del avance de la lectura
+     * @param aplicarEn ejecutor donde se reemplaza el contenido del servicio
+     * @return tarea que termina con la lista cargada, en orden
+     */
+    public CompletableFuture<List<ProduccionAudiovisual>> cargarDesdeArchivoAsync(ProgresoOperacion progreso,
+                                                                                  Executor aplicarEn) {
+        CompletableFuture<List<ProduccionAudiovisual>> lectura = archivo.cargarArchivoAsync(progreso);
+        CompletableFuture<List<ProduccionAudiovisual>> resultado = lectura.thenApplyAsync(cargado -> {
+            cerrarBitacora();
+            aplicarCarga(cargado);
+            return listarTodos();
+        }, aplicarEn);
+        resultado.whenComplete((r, e) -> {
+            if (resultado.isCancelled()) lectura.cancel(true);
+        });
+        return resultado;
+    }
+
+    /**
+     * Carga el archivo en segundo plano entregando las producciones por lotes,
+     * para que la interfaz pueda mostrar las primeras filas sin esperar al final.
+     *
+     * <p>El contenido actual se descarta al comenzar. Cada lote leído se agrega
+     * al servicio y se pasa a {@code alAgregar}, ambos en {@code aplicarEn}; si
+     * ese ejecutor se atrasa, los lotes acumulados se entregan juntos (ver
+     * {@link PublicadorLotes}). En modo bitácora, los registros de la bitácora
+     * se reproducen al final, por lo que la lista devuelta puede diferir de la
+     * suma de los lotes entregados.</p>
+     *
+     * <p>Si la carga se cancela o falla, sin bitácora el servicio conserva los
+     * lotes ya agregados. En modo bitácora, en cambio, vuelve al contenido
+     * anterior y reabre la bitácora, también en {@code aplicarEn}: reproducirla
+     * sobre una parte del archivo y compactar después borraría el resto.
+     * Cancelar la tarea devuelta cancela también la lectura, aunque aún no
+     * haya comenzado, y los lotes que lleguen después se descartan.</p>
+     *
+     * @param tamLote   cantidad de producciones por lote leído
+     * @param progreso  receptor del avance de la lectura
+     * @param aplicarEn ejecutor donde se modifica el servicio y se entregan los lotes
+     * @param alAgregar receptor de las producciones agregadas en cada entrega
+     * @return tarea que termina con la lista completa cargada, en orden
+     */
+    public CompletableFuture<List<ProduccionAudiovisual>> cargarDesdeArchivoPorLotes(
+            int tamLote, ProgresoOperacion progreso, Executor aplicarEn,
+            Consumer<List<ProduccionAudiovisual>> alAgregar) {
+
+        AtomicReference<IndiceCodigos> anterior = new AtomicReference<>();
+        AtomicReference<RegistroDirectores> directoresAnteriores = new AtomicReference<>();
+        AtomicBoolean abandonada = new AtomicBoolean();
+        PublicadorLotes<ProduccionAudiovisual> publicador = new PublicadorLotes<>(aplicarEn, lote -> {
+            if (abandonada.get()) return;
+            List<ProduccionAudiovisual> agregados = new ArrayList<>(lote.size());
+            for (ProduccionAudiovisual p : lote) {
+                if (lista.putIfAbsent(clave(p.getCodigo()), internar(p)) == null) agregados.add(p);
+            }
+            if (orden != null) orden.addAll(agregados);
+            agregados.forEach(this::indexar);
+            if (cambios.activo()) {
+                List<EventoCambio> eventos = new ArrayList<>(agregados.size());
+                for (ProduccionAudiovisual p : agregados) eventos.add(EventoCambio.creada(p));
+                cambios.publicar(eventos);
+            }
+            alAgregar.accept(agregados);
+        });
+
+        AtomicReference<CompletableFuture<Integer>> lectura = new AtomicReference<>();
+        CompletableFuture<List<ProduccionAudiovisual>> cadena = CompletableFuture
+                .runAsync(() -> {
+                    if (abandonada.get()) throw new CancellationException("Carga cancelada");
+                    cerrarBitacora();
+                    anterior.set(lista);
+                    directoresAnteriores.set(directores);
+                    cargaIncompleta = bitacora != null;
+                    lista = new IndiceCodigos();
+                    directores = new RegistroDirectores();
+                    orden = null;
+                    descartarIndices();
+                    cambios.publicar(EventoCambio.recargada());
+                }, aplicarEn)
+                .thenCompose(v -> {
+                    lectura.set(archivo.cargarArchivoPorLotes(tamLote, publicador::publicar, progreso));
+                    if (abandonada.get()) lectura.get().cancel(true);
+                    return lectura.get();
+                })
+                .thenCompose(total -> publicador.vaciar())
+                .thenApplyAsync(v -> {
+                    if (abandonada.get()) throw new CancellationException("Carga cancelada");
+                    reabrirBitacora();
+                    cargaIncompleta = false;
+                    if (bitacora != null) cambios.publicar(EventoCambio.recargada());
+                    return listarTodos();
+                }, aplicarEn);
+
+        CompletableFuture<List<ProduccionAudiovisual>> resultado = new CompletableFuture<>();
+        cadena.whenCompleteAsync((cargada, error) -> {
+            if (error == null) {
+                resultado.complete(cargada);
+                return;
+            }
+            abandonada.set(true);
+            try {
+                deshacerCarga(anterior.get(), directoresAnteriores.get());
+            } catch (RuntimeException e) {
+                error.addSuppressed(e);
+            }
+            resultado.completeExceptionally(error);
+        }, aplicarEn);
+        resultado.whenComplete((r, e) -> {
+            if (!resultado.isCancelled()) return;
+            abandonada.set(true);
+            CompletableFuture<Integer> l = lectura.get();
+            if (l != null) l.cancel(true);
+        });
+        return resultado;
+    }
+
+    /**
+     * Deshace una carga por lotes que no terminó. En modo bitácora vuelve al
+     * contenido anterior y reabre la bitácora sin reproducirla, porque ese
+     * contenido ya la incluía; sin bitácora se conservan los lotes agregados.
+     *
+     * @param previo            contenido antes de la carga, o {@code null} si
+     *                          la carga no llegó a reemplazarlo
+     * @param directoresPrevios registro de directores de ese contenido
+     */
+    private void deshacerCarga(IndiceCodigos previo, RegistroDirectores directoresPrevios) {
+        if (previo == null || bitacora == null) return;
+        lista = previo;
+        directores = directoresPrevios;
+        orden = null;
+        descartarIndices();
+        try {
+            bitacora.abrir();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al abrir la bitácora", e);
+        }
+        cargaIncompleta = false;
+        cambios.publicar(EventoCambio.recargada());
+    }
+
+    /**
+     * Indica si el servicio trabaja en modo bitácora.
+     *
+     * @return {@code true} si los cambios se anexan a una bitácora
+     */
+    public boolean isModoBitacora() {
+        return bitacora != null;
+    }
+
+    /**
+     * Fuerza en el disco los registros de la bitácora escritos hasta ahora,
+     * sin esperar a la política de sincronización; sin bitácora no hace nada.
+     *
+     * @throws IOException si falla la sincronización
+     */
+    void sincronizarBitacora() throws IOException {
+        if (bitacora != null) bitacora.sincronizar();
+    }
+
+    /**
+     * Espera la compactación en curso y cierra la bitácora antes de recargar.
+     *
+     * @throws UncheckedIOException si la bitácora no se pudo cerrar; los
+     *         últimos registros podrían no haber llegado al disco
+     */
+    private void cerrarBitacora() {
+        if (bitacora == null) return;
+        compactacion.exceptionally(e -> null).join();
+        try {
+            bitacora.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al cerrar la bitácora", e);
+        }
+    }
+
+    /**
+     * Reemplaza el contenido por la lista cargada y, en modo bitácora,
+     * reproduce la bitácora y la vuelve a abrir. Si la reproducción falla, el
+     * contenido queda marcado como incompleto y no se compacta.
+     */
+    private void aplicarCarga(List<ProduccionAudiovisual> cargado) {
+        cargaIncompleta = bitacora != null;
+        lista = new IndiceCodigos(cargado == null ? 0 : cargado.size());
+        directores = new RegistroDirectores();
+        orden = null;
+        descartarIndices();
         if (cargado != null) {
-            lista = cargado;
-        } else {
-            lista = new ArrayList<>();
+            for (ProduccionAudiovisual p : cargado) {
+                lista.putIfAbsent(clave(p.getCodigo()), internar(p));
+            }
+        }
+        reabrirBitacora();
+        cargaIncompleta = false;
+        cambios.publicar(EventoCambio.recargada());
+    }
+
+    /**
+     * En modo bitácora, reproduce los registros pendientes y activos sobre el
+     * contenido actual y vuelve a abrir la bitácora para anexar.
+     */
+    private void reabrirBitacora() {
+        if (bitacora != null) {
+            orden = null;
+            descartarIndices();
+            try {
+                BitacoraCambios.reproducir(bitacora.getRutaPendiente(), receptor());
+                BitacoraCambios.reproducir(bitacora.getRuta(), receptor());
+                bitacora.abrir();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al abrir la bitácora", e);
+            }
         }
     }
+
+    /**
+     * Cierra la bitácora, si el modo bitácora está activo, esperando a que
+     * termine la compactación en curso.
+     *
+     * @throws UncheckedIOException si la bitácora no se pudo cerrar
+     */
+    public void cerrar() {
+        cerrarBitacora();
+    }
+
+    /**
+     * Receptor que aplica en memoria los registros reproducidos de la bitácora.
+     *
+     * <p>Las operaciones se aplican como asignaciones idempotentes, porque un
+     * segmento puede reproducirse sobre una instantánea que ya lo incluye.</p>
+     */
+    private BitacoraCambios.Receptor receptor() {
+        return new BitacoraCambios.Receptor() {
+            @Override
+            public void creado(ProduccionAudiovisual p) {
+                lista.put(clave(p.getCodigo()), internar(p));
+            }
+
+            @Override
+            public void modificado(String codigo, ProduccionAudiovisual nuevo) {
+                internar(nuevo);
+                String k = clave(codigo);
+                String kNuevo = clave(nuevo.getCodigo());
+                if (lista.containsKey(k)) {
+                    if (!k.equals(kNuevo)) lista.remove(kNuevo);
+                    reemplazar(k, kNuevo, nuevo);
+                } else {
+                    lista.put(kNuevo, nuevo);
+                }
+            }
+
+            @Override
+            public void eliminado(String codigo) {
+                lista.remove(clave(codigo));
+            }
+        };
+    }
 }
@@ -0,0 +1,687 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link OperacionCrud} que guarda el catálogo por columnas
+ * en lugar de un objeto por producción.
+ *
+ * <p>Cada producción es una fila, y cada atributo una columna:</p>
+ * <ul>
+ *   <li>{@code fechaEstreno}, {@code duracionMin} y {@code numeroTemporadas}
+ *       en arreglos {@code int[]};</li>
+ *   <li>el género y el director codificados por diccionario: la columna guarda
+ *       el número de la entrada y cada valor distinto se guarda una sola vez;</li>
+ *   <li>el código y el título en un montón de bytes UTF-8, precedidos por su
+ *       longitud, del que la columna guarda la posición.</li>
+ * </ul>
+ *
+ * <p>Una fila ocupa así unos 40 bytes más sus textos, frente a los objetos,
+ * cadenas y entradas de mapa de {@link ImplOperacionCrud}. Los recorridos que
+ * solo leen columnas numéricas ({@link #sumarDuracion()},
+ * {@link #contarEstrenosEntre(int, int)}, {@link #consultar(Consulta)}) leen
+ * memoria contigua sin crear objetos.</p>
+ *
+ * <p>Las producciones se crean al pedirlas: {@link #buscarPorCodigo(String)} y
+ * {@link #listarTodos()} devuelven copias, por lo que modificarlas no altera el
+ * catálogo. Para recorrer sin crear objetos está {@link #recorrer(Consumer)},
+ * que entrega una misma {@link Fila} reposicionada en cada fila.</p>
+ *
+ * <p>Eliminar deja un hueco en las filas; cuando los huecos superan a las filas
+ * vivas, las columnas y el montón se compactan, sin alterar el orden. No es
+ * segura para uso concurrente.</p>
+ *
+ * <p>Los cambios se publican como {@link EventoCambio}; la producción anterior
+ * de una modificación o eliminación solo se materializa si hay observadores.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ImplOperacionCrudColumnar implements OperacionCrud {
+
+    /** Tipo de una fila eliminada. */
+    private static final byte LIBRE = 0;
+
+    /** Marca de entrada eliminada en la tabla de códigos. */
+    private static final int BORRADO = -1;
+
+    /** Número de diccionario para un valor ausente. */
+    private static final int NULO = -1;
+
+    /** Capacidad inicial de las columnas. */
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // Columnas. La fila i es válida si tipo[i] != LIBRE.
+    private byte[] tipo = new byte[CAPACIDAD_INICIAL];
+    private int[] anio = new int[CAPACIDAD_INICIAL];
+    private int[] duracion = new int[CAPACIDAD_INICIAL];
+    private int[] temporadas = new int[CAPACIDAD_INICIAL];
+    private int[] genero = new int[CAPACIDAD_INICIAL];
+    private int[] director = new int[CAPACIDAD_INICIAL];
+    private int[] codigo = new int[CAPACIDAD_INICIAL];
+    private int[] titulo = new int[CAPACIDAD_INICIAL];
+    private int[] hashClave = new int[CAPACIDAD_INICIAL];
+
+    /** Filas usadas, contando los huecos. */
+    private int filas;
+
+    /** Filas vivas. */
+    private int vivas;
+
+    /** Montón de textos: longitud más uno en varint y luego los bytes UTF-8. */
+    private byte[] monton = new byte[CAPACIDAD_INICIAL * 32];
+    private int usadoMonton;
+    private int basuraMonton;
+
+    /** Diccionario de géneros. */
+    private final List<String> generos = new ArrayList<>();
+    private final Map<String, Integer> idGeneros = new HashMap<>();
+
+    /** Diccionario de directores; las producciones creadas comparten estas instancias. */
+    private final List<Director> directores = new ArrayList<>();
+    private final Map<List<String>, Integer> idDirectores = new HashMap<>();
+
+    /**
+     * Tabla hash abierta del código normalizado a la fila: cada entrada es
+     * fila + 1, {@code 0} si está vacía o {@link #BORRADO}.
+     */
+    private int[] tabla = new int[CAPACIDAD_INICIAL * 2];
+    private int ocupadasTabla;
+
+    /** Servicio encargado de la serialización y deserialización de datos. */
+    private final OperacionArchivo archivo;
+
+    /** Observadores de los cambios del catálogo. */
+    private final CanalCambios cambios = new CanalCambios();
+
+    /**
+     * Constructor que utiliza el archivo de datos por defecto.
+     */
+    public ImplOperacionCrudColumnar() {
+        this(new OperacionArchivo());
+    }
+
+    /**
+     * Constructor que permite indicar el servicio de archivo.
+     *
+     * @param archivo servicio de archivo a utilizar
+     */
+    public ImplOperacionCrudColumnar(OperacionArchivo archivo) {
+        this.archivo = archivo;
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    /**
+     * Agrega una producción como una fila nueva al final.
+     *
+     * @param p producción a agregar
+     * @throws IllegalArgumentException si ya existe una producción con el mismo código
+     *         o la producción no es película ni serie
+     */
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        String k = ImplOperacionCrud.clave(p.getCodigo());
+        if (buscarFila(k) >= 0) {
+            throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+        }
+        agregar(k, p);
+        cambios.publicar(EventoCambio.creada(p));
+    }
+
+    /** Escribe la producción en una fila nueva al final, sin publicar el cambio. */
+    private void agregar(String k, ProduccionAudiovisual p) {
+        byte t = tipoDe(p);
+        asegurarCapacidad(filas + 1);
+        int f = filas++;
+        tipo[f] = t;
+        codigo[f] = escribirTexto(p.getCodigo());
+        hashClave[f] = hash(k);
+        escribirValores(f, p);
+        vivas++;
+        insertarEnTabla(f);
+    }
+
+    /**
+     * @param codigo código a buscar
+     * @return copia de la producción encontrada o {@code null}
+     */
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        int f = buscarFila(ImplOperacionCrud.clave(codigo));
+        return f < 0 ? null : materializar(f);
+    }
+
+    /**
+     * @return copias de todas las producciones, en orden de inserción
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        List<ProduccionAudiovisual> r = new ArrayList<>(vivas);
+        for (int f = 0; f < filas; f++) {
+            if (tipo[f] != LIBRE) r.add(materializar(f));
+        }
+        return r;
+    }
+
+    /**
+     * Crea el objeto de cada fila solo cuando la acción lo consume.
+     */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        for (int f = 0; f < filas; f++) {
+            if (tipo[f] != LIBRE) accion.accept(materializar(f));
+        }
+    }
+
+    /**
+     * @return cantidad de filas vivas
+     */
+    @Override
+    public int contar() {
+        return vivas;
+    }
+
+    /**
+     * Retorna una página sin crear los objetos de las demás filas. Si no hay
+     * huecos, la posición es directamente la fila.
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0) {
+            throw new IllegalArgumentException("Rango inválido: " + desde + ", " + cantidad);
+        }
+        List<ProduccionAudiovisual> r = new ArrayList<>();
+        if (desde >= vivas) return r;
+
+        int f = desde;
+        if (filas != vivas) {
+            f = 0;
+            for (int saltadas = 0; f < filas; f++) {
+                if (tipo[f] != LIBRE && saltadas++ == desde) break;
+            }
+        }
+        for (; f < filas && r.size() < cantidad; f++) {
+            if (tipo[f] != LIBRE) r.add(materializar(f));
+        }
+        return r;
+    }
+
+    /**
+     * Reescribe la fila de la producción, que conserva su posición.
+     *
+     * @param codigo código de la producción a modificar
+     * @param nuevo  producción con los nuevos valores
+     * @return {@code true} si se modificó, {@code false} si no existe el código
+     * @throws IllegalArgumentException si el nuevo código pertenece a otra producción
+     */
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        int f = buscarFila(ImplOperacionCrud.clave(codigo));
+        if (f < 0) return false;
+
+        String kNuevo = ImplOperacionCrud.clave(nuevo.getCodigo());
+        int otra = buscarFila(kNuevo);
+        if (otra >= 0 && otra != f) {
+            throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+        }
+        byte t = tipoDe(nuevo);
+        ProduccionAudiovisual anterior = cambios.activo() ? materializar(f) : null;
+
+        if (otra != f) {
+            quitarDeTabla(f);
+            hashClave[f] = hash(kNuevo);
+            insertarEnTabla(f);
+        }
+        basuraMonton += largoTexto(this.codigo[f]) + largoTexto(titulo[f]);
+        tipo[f] = t;
+        this.codigo[f] = escribirTexto(nuevo.getCodigo());
+        escribirValores(f, nuevo);
+        compactarSiConviene();
+        if (anterior != null) cambios.publicar(EventoCambio.modificada(codigo, anterior, nuevo));
+        return true;
+    }
+
+    /**
+     * Deja un hueco en la fila de la producción.
+     *
+     * @param codigo código de la producción a eliminar
+     * @return {@code true} si se eliminó, {@code false} si no existe el código
+     */
+    @Override
+    public boolean eliminar(String codigo) {
+        int f = buscarFila(ImplOperacionCrud.clave(codigo));
+        if (f < 0) return false;
+        ProduccionAudiovisual anterior = cambios.activo() ? materializar(f) : null;
+
+        quitarDeTabla(f);
+        basuraMonton += largoTexto(this.codigo[f]) + largoTexto(titulo[f]);
+        tipo[f] = LIBRE;
+        // Las columnas numéricas de un hueco quedan en cero para que las sumas no lo distingan.
+        anio[f] = 0;
+        duracion[f] = 0;
+        temporadas[f] = 0;
+        vivas--;
+        compactarSiConviene();
+        if (anterior != null) cambios.publicar(EventoCambio.eliminada(codigo, anterior));
+        return true;
+    }
+
+    // -----------------------------------------------------------
+    // RECORRIDOS POR COLUMNAS
+    // -----------------------------------------------------------
+
+    /**
+     * Resuelve la consulta leyendo solo las columnas, y crea objetos únicamente
+     * para las filas que coinciden. Los criterios de género y director se
+     * traducen primero a los números de diccionario que los cumplen.
+     *
+     * @param consulta criterios de búsqueda
+     * @return producciones que coinciden, en orden de inserción
+     */
+    @Override
+    public List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        boolean[] generoAcepta = consulta.getGenero() == null ? null : aceptados(generos, consulta.getGenero(), true);
+        boolean[] directorAcepta = consulta.getDirector() == null ? null : aceptados(directores, consulta.getDirector(), false);
+        Class<? extends ProduccionAudiovisual> c = consulta.getTipo();
+        boolean peliculas = c == null || c.isAssignableFrom(Pelicula.class);
+        boolean series = c == null || c.isAssignableFrom(Serie.class);
+        int anioDesde = consulta.getAnioDesde(), anioHasta = consulta.getAnioHasta();
+        int durDesde = consulta.getDuracionDesde(), durHasta = consulta.getDuracionHasta();
+
+        List<ProduccionAudiovisual> r = new ArrayList<>();
+        for (int f = 0; f < filas; f++) {
+            byte t = tipo[f];
+            if (t == LIBRE || (t == CodecProduccion.PELICULA ? !peliculas : !series)) continue;
+            if (anio[f] < anioDesde || anio[f] > anioHasta) continue;
+            if (duracion[f] < durDesde || duracion[f] > durHasta) continue;
+            if (generoAcepta != null && (genero[f] == NULO || !generoAcepta[genero[f]])) continue;
+            if (directorAcepta != null && (director[f] == NULO || !directorAcepta[director[f]])) continue;
+            r.add(materializar(f));
+        }
+        return r;
+    }
+
+    /**
+     * @return suma de {@code duracionMin} de todas las producciones
+     */
+    public long sumarDuracion() {
+        long s = 0;
+        for (int f = 0; f < filas; f++) {
+            s += duracion[f];
+        }
+        return s;
+    }
+
+    /**
+     * @param desde primer año aceptado
+     * @param hasta último año aceptado
+     * @return cantidad de producciones estrenadas en el rango, ambos incluidos
+     */
+    public int contarEstrenosEntre(int desde, int hasta) {
+        int n = 0;
+        for (int f = 0; f < filas; f++) {
+            int a = anio[f];
+            n += (tipo[f] != LIBRE & a >= desde & a <= hasta) ? 1 : 0;
+        }
+        return n;
+    }
+
+    /**
+     * Recorre las producciones en orden sin crear objetos: entrega siempre la
+     * misma {@link Fila}, posicionada en cada fila viva. La fila solo es válida
+     * durante la llamada a {@code accion}, que no debe modificar el catálogo.
+     *
+     * @param accion acción a aplicar a cada fila
+     */
+    public void recorrer(Consumer<Fila> accion) {
+        Fila cursor = new Fila();
+        for (int f = 0; f < filas; f++) {
+            if (tipo[f] == LIBRE) continue;
+            cursor.fila = f;
+            accion.accept(cursor);
+        }
+    }
+
+    /**
+     * Vista de una fila del catálogo columnar. Los atributos numéricos se leen
+     * directamente de las columnas; los textos se decodifican al pedirlos.
+     */
+    public final class Fila {
+        private int fila;
+
+        private Fila() {}
+
+        /** @return {@code true} si la fila es una película, {@code false} si es una serie */
+        public boolean esPelicula() { return tipo[fila] == CodecProduccion.PELICULA; }
+
+        /** @return código de la producción */
+        public String getCodigo() { return leerTexto(codigo[fila]); }
+
+        /** @return título de la producción */
+        public String getTitulo() { return leerTexto(titulo[fila]); }
+
+        /** @return año de estreno */
+        public int getFechaEstreno() { return anio[fila]; }
+
+        /** @return duración en minutos */
+        public int getDuracionMin() { return duracion[fila]; }
+
+        /** @return número de temporadas, o {@code 0} si es película */
+        public int getNumeroTemporadas() { return temporadas[fila]; }
+
+        /** @return género, o {@code null} si es serie */
+        public String getGenero() { return genero[fila] == NULO ? null : generos.get(genero[fila]); }
+
+        /** @return director, compartido por todas sus producciones */
+        public Director getDirector() { return director[fila] == NULO ? null : directores.get(director[fila]); }
+
+        /** @return copia de la producción de esta fila */
+        public ProduccionAudiovisual materializar() { return ImplOperacionCrudColumnar.this.materializar(fila); }
+    }
+
+    // -----------------------------------------------------------
+    // SERIALIZACIÓN / ARCHIVO
+    // -----------------------------------------------------------
+
+    /**
+     * Guarda en archivo el catálogo completo.
+     */
+    public void guardarArchivo() {
+        archivo.guardarArchivo(listarTodos());
+    }
+
+    /**
+     * Reemplaza el contenido por el del archivo de datos. Si el archivo
+     * contiene códigos repetidos, se conserva la primera aparición.
+     */
+    public void cargarDesdeArchivo() {
+        List<ProduccionAudiovisual> cargado = archivo.cargarArchivo();
+        vaciar();
+        for (ProduccionAudiovisual p : cargado) {
+            String k = ImplOperacionCrud.clave(p.getCodigo());
+            if (buscarFila(k) < 0) agregar(k, p);
+        }
+        cambios.publicar(EventoCambio.recargada());
+    }
+
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        cambios.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return cambios.desuscribir(observador);
+    }
+
+    // -----------------------------------------------------------
+    // FILAS
+    // -----------------------------------------------------------
+
+    private static byte tipoDe(ProduccionAudiovisual p) {
+        if (p instanceof Pelicula) return CodecProduccion.PELICULA;
+        if (p instanceof Serie) return CodecProduccion.SERIE;
+        throw new IllegalArgumentException("Tipo de producción no soportado: " + p.getClass().getName());
+    }
+
+    /** Escribe en la fila todo menos el tipo y el código. */
+    private void escribirValores(int f, ProduccionAudiovisual p) {
+        titulo[f] = escribirTexto(p.getTitulo());
+        anio[f] = p.getFechaEstreno();
+        duracion[f] = p.getDuracionMin();
+        director[f] = idDirector(p.getDirector());
+        if (p instanceof Pelicula pel) {
+            genero[f] = idGenero(pel.getGenero());
+            temporadas[f] = 0;
+        } else {
+            genero[f] = NULO;
+            temporadas[f] = ((Serie) p).getNumeroTemporadas();
+        }
+    }
+
+    private ProduccionAudiovisual materializar(int f) {
+        Director d = director[f] == NULO ? null : directores.get(director[f]);
+        if (tipo[f] == CodecProduccion.PELICULA) {
+            return new Pelicula(leerTexto(codigo[f]), leerTexto(titulo[f]), anio[f], duracion[f], d,
+                    genero[f] == NULO ? null : generos.get(genero[f]));
+        }
+        return new Serie(leerTexto(codigo[f]), leerTexto(titulo[f]), anio[f], duracion[f], d, temporadas[f]);
+    }
+
+    private void asegurarCapacidad(int n) {
+        if (n <= tipo.length) return;
+        int c = Math.max(n, tipo.length + (tipo.length >> 1));
+        tipo = Arrays.copyOf(tipo, c);
+        anio = Arrays.copyOf(anio, c);
+        duracion = Arrays.copyOf(duracion, c);
+        temporadas = Arrays.copyOf(temporadas, c);
+        genero = Arrays.copyOf(genero, c);
+        director = Arrays.copyOf(director, c);
+        codigo = Arrays.copyOf(codigo, c);
+        titulo = Arrays.copyOf(titulo, c);
+        hashClave = Arrays.copyOf(hashClave, c);
+    }
+
+    /**
+     * Compacta columnas y montón cuando los huecos superan a las filas vivas
+     * o la basura del montón supera a los textos vivos.
+     */
+    private void compactarSiConviene() {
+        boolean huecos = filas - vivas > Math.max(vivas, CAPACIDAD_INICIAL);
+        boolean basura = basuraMonton > Math.max(usadoMonton - basuraMonton, CAPACIDAD_INICIAL * 32);
+        if (huecos || basura) compactar();
+    }
+
+    private void compactar() {
+        byte[] nuevoMonton = new byte[Math.max(usadoMonton - basuraMonton, CAPACIDAD_INICIAL * 32)];
+        int usado = 0;
+        int n = 0;
+        for (int f = 0; f < filas; f++) {
+            if (tipo[f] == LIBRE) continue;
+            tipo[n] = tipo[f];
+            anio[n] = anio[f];
+            duracion[n] = duracion[f];
+            temporadas[n] = temporadas[f];
+            genero[n] = genero[f];
+            director[n] = director[f];
+            hashClave[n] = hashClave[f];
+
+            int lc = largoTexto(codigo[f]);
+            System.arraycopy(monton, codigo[f], nuevoMonton, usado, lc);
+            codigo[n] = usado;
+            usado += lc;
+            int lt = largoTexto(titulo[f]);
+            System.arraycopy(monton, titulo[f], nuevoMonton, usado, lt);
+            titulo[n] = usado;
+            usado += lt;
+            n++;
+        }
+        Arrays.fill(tipo, n, filas, LIBRE);
+        filas = n;
+        monton = nuevoMonton;
+        usadoMonton = usado;
+        basuraMonton = 0;
+        reconstruirTabla(tabla.length);
+    }
+
+    private void vaciar() {
+        Arrays.fill(tipo, 0, filas, LIBRE);
+        filas = 0;
+        vivas = 0;
+        usadoMonton = 0;
+        basuraMonton = 0;
+        Arrays.fill(tabla, 0);
+        ocupadasTabla = 0;
+    }
+
+    // -----------------------------------------------------------
+    // DICCIONARIOS
+    // -----------------------------------------------------------
+
+    private int idGenero(String g) {
+        if (g == null) return NULO;
+        Integer id = idGeneros.get(g);
+        if (id == null) {
+            id = generos.size();
+            generos.add(g);
+            idGeneros.put(g, id);
+        }
+        return id;
+    }
+
+    private int idDirector(Director d) {
+        if (d == null) return NULO;
+        List<String> clave = Arrays.asList(d.getId(), d.getNombre(), d.getNacionalidad());
+        Integer id = idDirectores.get(clave);
+        if (id == null) {
+            id = directores.size();
+            directores.add(new Director(d.getId(), d.getNombre(), d.getNacionalidad()));
+            idDirectores.put(clave, id);
+        }
+        return id;
+    }
+
+    /**
+     * Marca las entradas del diccionario cuyo valor normalizado es {@code buscado}.
+     */
+    private static boolean[] aceptados(List<?> diccionario, String buscado, boolean sonGeneros) {
+        boolean[] r = new boolean[diccionario.size()];
+        for (int i = 0; i < r.length; i++) {
+            Object v = diccionario.get(i);
+            String texto = sonGeneros ? (String) v : ((Director) v).getNombre();
+            r[i] = buscado.equals(ImplOperacionCrud.clave(texto));
+        }
+        return r;
+    }
+
+    // -----------------------------------------------------------
+    // MONTÓN DE TEXTOS
+    // -----------------------------------------------------------
+
+    /** Anexa un texto al montón y retorna su posición. */
+    private int escribirTexto(String s) {
+        byte[] utf8 = s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+        int largo = utf8 == null ? 0 : utf8.length + 1;
+        int necesario = usadoMonton + 5 + (utf8 == null ? 0 : utf8.length);
+        if (necesario > monton.length) {
+            monton = Arrays.copyOf(monton, Math.max(necesario, monton.length + (monton.length >> 1)));
+        }
+        int pos = usadoMonton;
+        int i = pos;
+        while ((largo & ~0x7F) != 0) {
+            monton[i++] = (byte) ((largo & 0x7F) | 0x80);
+            largo >>>= 7;
+        }
+        monton[i++] = (byte) largo;
+        if (utf8 != null) {
+            System.arraycopy(utf8, 0, monton, i, utf8.length);
+            i += utf8.length;
+        }
+        usadoMonton = i;
+        return pos;
+    }
+
+    private String leerTexto(int pos) {
+        int largo = 0;
+        int i = pos;
+        for (int desplazamiento = 0; ; desplazamiento += 7) {
+            byte b = monton[i++];
+            largo |= (b & 0x7F) << desplazamiento;
+            if (b >= 0) break;
+        }
+        return largo == 0 ? null : new String(monton, i, largo - 1, StandardCharsets.UTF_8);
+    }
+
+    /** @return bytes que ocupa el texto en la posición, incluida su longitud */
+    private int largoTexto(int pos) {
+        int largo = 0;
+        int i = pos;
+        for (int desplazamiento = 0; ; desplazamiento += 7) {
+            byte b = monton[i++];
+            largo |= (b & 0x7F) << desplazamiento;
+            if (b >= 0) break;
+        }
+        return i - pos + Math.max(largo - 1, 0);
+    }
+
+    // -----------------------------------------------------------
+    // TABLA DE CÓDIGOS
+    // -----------------------------------------------------------
+
+    private static int hash(String k) {
+        int h = k == null ? 0 : k.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** @return fila viva con la clave, o {@code -1} */
+    private int buscarFila(String k) {
+        int ranura = buscarRanura(k);
+        return ranura < 0 ? -1 : tabla[ranura] - 1;
+    }
+
+    /** @return ranura de la tabla que apunta a la clave, o {@code -1} */
+    private int buscarRanura(String k) {
+        int h = hash(k);
+        int mascara = tabla.length - 1;
+        for (int i = h & mascara; ; i = (i + 1) & mascara) {
+            int e = tabla[i];
+            if (e == 0) return -1;
+            if (e != BORRADO && hashClave[e - 1] == h
+                    && Objects.equals(k, ImplOperacionCrud.clave(leerTexto(codigo[e - 1])))) {
+                return i;
+            }
+        }
+    }
+
+    private void insertarEnTabla(int f) {
+        if ((ocupadasTabla + 1) * 2 > tabla.length) {
+            // La fila ya está escrita, así que la reconstrucción la incluye.
+            reconstruirTabla(vivas * 4 > tabla.length ? tabla.length * 2 : tabla.length);
+            return;
+        }
+        int mascara = tabla.length - 1;
+        int i = hashClave[f] & mascara;
+        while (tabla[i] > 0) i = (i + 1) & mascara;
+        if (tabla[i] == 0) ocupadasTabla++;
+        tabla[i] = f + 1;
+    }
+
+    private void quitarDeTabla(int f) {
+        int mascara = tabla.length - 1;
+        for (int i = hashClave[f] & mascara; ; i = (i + 1) & mascara) {
+            if (tabla[i] == f + 1) {
+                tabla[i] = BORRADO;
+                return;
+            }
+        }
+    }
+
+    /** Reconstruye la tabla con las filas vivas, descartando las marcas de borrado. */
+    private void reconstruirTabla(int capacidad) {
+        tabla = new int[capacidad];
+        ocupadasTabla = 0;
+        int mascara = capacidad - 1;
+        for (int f = 0; f < filas; f++) {
+            if (tipo[f] == LIBRE) continue;
+            int i = hashClave[f] & mascara;
+            while (tabla[i] != 0) i = (i + 1) & mascara;
+            tabla[i] = f + 1;
+            ocupadasTabla++;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link OperacionCrud} segura para uso concurrente.
+ *
+ * <p>Pensada para escenarios donde hilos de carga o de guardado en segundo
+ * plano trabajan a la vez que el hilo de JavaFX:</p>
+ * <ul>
+ *   <li>Las escrituras sobre un mismo código se serializan con candados por
+ *       franjas (la franja depende del hash del código), de modo que escrituras
+ *       sobre códigos distintos avanzan en paralelo.</li>
+ *   <li>{@link #buscarPorCodigo(String)} no toma candados: es una sola lectura
+ *       de un {@link ConcurrentHashMap}.</li>
+ *   <li>{@link #listarTodos()} devuelve una copia consistente, tomada en un
+ *       instante en que ninguna escritura está a medias, en orden de inserción.
+ *       Para eso toma la parte exclusiva del candado de lectura/escritura: cada
+ *       copia detiene a todos los escritores mientras dura. Los recorridos que
+ *       no necesitan una instantánea deben usar {@link #recorrerTodos}.</li>
+ * </ul>
+ *
+ * <p>Los cambios se anotan mientras se tiene el candado de la franja, así
+ * que los eventos de un mismo código llegan a los {@link ObservadorCambios}
+ * en el orden en que se aplicaron, y se entregan después de soltar los
+ * candados: un observador síncrono puede volver a llamar al servicio, incluso
+ * a {@link #listarTodos()}.</p>
+ *
+ * <p>Cuando {@code modificar} cambia el código, la producción pasa de una clave
+ * a otra en un único paso atómico: ningún lector puede verla en ambas claves
+ * ni en ninguna de las dos.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ImplOperacionCrudConcurrente implements OperacionCrud {
+
+    /** Cantidad de franjas de candados para las escrituras. */
+    private static final int FRANJAS = 64;
+
+    /**
+     * Entrada del índice. Es inmutable; si pertenece a un cambio de código en
+     * curso, su vigencia depende del estado compartido {@code cambio}.
+     */
+    private static final class Entrada {
+        final long orden;
+        final ProduccionAudiovisual produccion;
+        final CambioCodigo cambio;
+        final boolean esDestino;
+
+        Entrada(long orden, ProduccionAudiovisual produccion) {
+            this(orden, produccion, null, false);
+        }
+
+        Entrada(long orden, ProduccionAudiovisual produccion, CambioCodigo cambio, boolean esDestino) {
+            this.orden = orden;
+            this.produccion = produccion;
+            this.cambio = cambio;
+            this.esDestino = esDestino;
+        }
+
+        /** La entrada de origen es vigente hasta confirmar el cambio; la de destino, desde entonces. */
+        boolean vigente() {
+            return cambio == null || cambio.confirmado == esDestino;
+        }
+    }
+
+    /** Punto de linealización de un cambio de código. */
+    private static final class CambioCodigo {
+        volatile boolean confirmado;
+    }
+
+    /** Índice por código normalizado. */
+    private final ConcurrentHashMap<String, Entrada> indice = new ConcurrentHashMap<>();
+
+    /** Producciones por número de orden de inserción. */
+    private final ConcurrentSkipListMap<Long, ProduccionAudiovisual> orden = new ConcurrentSkipListMap<>();
+
+    /** Generador de números de orden. */
+    private final AtomicLong secuencia = new AtomicLong();
+
+    /** Cantidad de producciones; evita el conteo lineal de {@link ConcurrentSkipListMap#size()}. */
+    private final AtomicInteger cantidad = new AtomicInteger();
+
+    /** Candados por franja de código. */
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+
+    /**
+     * Las escrituras toman la parte compartida; las copias completas toman la
+     * exclusiva para observar un estado sin escrituras a medias.
+     */
+    private final ReentrantReadWriteLock instantanea = new ReentrantReadWriteLock();
+
+    /** Servicio encargado de la serialización y deserialización de datos. */
+    private final OperacionArchivo archivo;
+
+    /** Observadores de los cambios del catálogo. */
+    private final CanalCambios cambios = new CanalCambios();
+
+    /**
+     * Constructor que utiliza el archivo de datos por defecto.
+     */
+    public ImplOperacionCrudConcurrente() {
+        this(new OperacionArchivo());
+    }
+
+    /**
+     * Constructor que permite indicar el servicio de archivo.
+     *
+     * @param archivo servicio de archivo a utilizar
+     */
+    public ImplOperacionCrudConcurrente(OperacionArchivo archivo) {
+        this.archivo = archivo;
+        for (int i = 0; i < FRANJAS; i++) franjas[i] = new ReentrantLock();
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    /**
+     * Agrega una producción de forma atómica respecto a otras escrituras
+     * sobre el mismo código.
+     *
+     * @param p producción a agregar
+     * @throws IllegalArgumentException si ya existe una producción con el mismo código
+     */
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        String k = ImplOperacionCrud.clave(p.getCodigo());
+        ReentrantLock f = franja(k);
+        instantanea.readLock().lock();
+        f.lock();
+        try {
+            if (leer(k) != null) {
+                throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+            }
+            long n = secuencia.incrementAndGet();
+            orden.put(n, p);
+            indice.put(k, new Entrada(n, p));
+            cantidad.incrementAndGet();
+            cambios.anotar(EventoCambio.creada(p));
+        } finally {
+            f.unlock();
+            instantanea.readLock().unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    /**
+     * Busca sin tomar candados.
+     *
+     * @param codigo código a buscar
+     * @return producción encontrada o {@code null}
+     */
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return null;
+        Entrada e = leer(k);
+        return e == null ? null : e.produccion;
+    }
+
+    /**
+     * Retorna una copia consistente de todas las producciones, en orden de inserción.
+     *
+     * <p>Toma la parte exclusiva del candado de instantánea: mientras se copia,
+     * ninguna escritura avanza, y la copia espera a que terminen las que están
+     * en curso. Con copias frecuentes de un catálogo grande, los escritores
+     * quedan detenidos la mayor parte del tiempo; {@link #recorrerTodos} y
+     * {@link #contar()} no bloquean.</p>
+     *
+     * @return lista independiente del servicio
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        instantanea.writeLock().lock();
+        try {
+            return new ArrayList<>(orden.values());
+        } finally {
+            instantanea.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recorre las producciones sin copiarlas ni bloquear las escrituras.
+     *
+     * <p>A diferencia de {@link #listarTodos()}, el recorrido no es una
+     * instantánea: puede reflejar o no los cambios hechos mientras avanza,
+     * pero nunca entrega dos veces la misma posición.</p>
+     */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        orden.values().forEach(accion);
+    }
+
+    /**
+     * @return cantidad de producciones en este instante
+     */
+    @Override
+    public int contar() {
+        return cantidad.get();
+    }
+
+    /**
+     * Reemplaza una producción conservando su posición. Si el código cambia,
+     * se toman las franjas de ambos códigos en orden fijo para evitar bloqueos
+     * mutuos.
+     *
+     * @param codigo código de la producción a modificar
+     * @param nuevo  producción con los nuevos valores
+     * @return {@code true} si se modificó, {@code false} si no existe el código
+     * @throws IllegalArgumentException si el nuevo código pertenece a otra producción
+     */
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return false;
+        String kNuevo = ImplOperacionCrud.clave(nuevo.getCodigo());
+
+        ReentrantLock f1 = franja(k);
+        ReentrantLock f2 = franja(kNuevo);
+        if (indiceFranja(k) > indiceFranja(kNuevo)) {
+            ReentrantLock t = f1;
+            f1 = f2;
+            f2 = t;
+        }
+
+        instantanea.readLock().lock();
+        f1.lock();
+        f2.lock();
+        try {
+            Entrada actual = leer(k);
+            if (actual == null) return false;
+
+            if (k.equals(kNuevo)) {
+                orden.put(actual.orden, nuevo);
+                indice.put(k, new Entrada(actual.orden, nuevo));
+                cambios.anotar(EventoCambio.modificada(codigo, actual.produccion, nuevo));
+                return true;
+            }
+            if (leer(kNuevo) != null) {
+                throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+            }
+
+            CambioCodigo cambio = new CambioCodigo();
+            Entrada origen = new Entrada(actual.orden, actual.produccion, cambio, false);
+            Entrada destino = new Entrada(actual.orden, nuevo, cambio, true);
+            indice.put(k, origen);
+            indice.put(kNuevo, destino);
+            orden.put(actual.orden, nuevo);
+            cambio.confirmado = true;
+
+            indice.remove(k, origen);
+            indice.put(kNuevo, new Entrada(actual.orden, nuevo));
+            cambios.anotar(EventoCambio.modificada(codigo, actual.produccion, nuevo));
+            return true;
+        } finally {
+            f2.unlock();
+            f1.unlock();
+            instantanea.readLock().unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    /**
+     * Elimina una producción de forma atómica respecto a otras escrituras
+     * sobre el mismo código.
+     *
+     * @param codigo código de la producción a eliminar
+     * @return {@code true} si se eliminó, {@code false} si no existe el código
+     */
+    @Override
+    public boolean eliminar(String codigo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return false;
+        ReentrantLock f = franja(k);
+        instantanea.readLock().lock();
+        f.lock();
+        try {
+            Entrada e = leer(k);
+            if (e == null) return false;
+            indice.remove(k);
+            orden.remove(e.orden);
+            cantidad.decrementAndGet();
+            cambios.anotar(EventoCambio.eliminada(codigo, e.produccion));
+            return true;
+        } finally {
+            f.unlock();
+            instantanea.readLock().unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        cambios.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return cambios.desuscribir(observador);
+    }
+
+    // -----------------------------------------------------------
+    // SERIALIZACIÓN / ARCHIVO
+    // -----------------------------------------------------------
+
+    /**
+     * Guarda en archivo una copia consistente del catálogo.
+     */
+    public void guardarArchivo() {
+        archivo.guardarArchivo(listarTodos());
+    }
+
+    /**
+     * Reemplaza el contenido por el del archivo de datos. Mientras se
+     * reemplaza, las demás escrituras esperan.
+     */
+    public void cargarDesdeArchivo() {
+        List<ProduccionAudiovisual> cargado = archivo.cargarArchivo();
+        instantanea.writeLock().lock();
+        try {
+            indice.clear();
+            orden.clear();
+            for (ProduccionAudiovisual p : cargado) {
+                String k = ImplOperacionCrud.clave(p.getCodigo());
+                if (indice.containsKey(k)) continue;
+                long n = secuencia.incrementAndGet();
+                orden.put(n, p);
+                indice.put(k, new Entrada(n, p));
+            }
+            cantidad.set(orden.size());
+            cambios.anotar(EventoCambio.recargada());
+        } finally {
+            instantanea.writeLock().unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    // -----------------------------------------------------------
+    // AUXILIARES
+    // -----------------------------------------------------------
+
+    /** Lee la entrada vigente de una clave, ignorando la mitad no vigente de un cambio de código. */
+    private Entrada leer(String k) {
+        Entrada e = indice.get(k);
+        return e != null && e.vigente() ? e : null;
+    }
+
+    private static int indiceFranja(String k) {
+        int h = k.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+
+    private ReentrantLock franja(String k) {
+        return franjas[indiceFranja(k)];
+    }
+}
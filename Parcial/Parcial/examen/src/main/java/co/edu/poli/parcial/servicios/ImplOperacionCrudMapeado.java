@@ -0,0 +1,688 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de {@link OperacionCrud} respaldada por archivos mapeados en
+ * memoria, que no necesita cargar el catálogo completo para responder.
+ *
+ * <p>Utiliza dos archivos:</p>
+ * <ul>
+ *   <li><strong>registros</strong> ({@code archivo.reg}): ranuras de tamaño fijo,
+ *   cada una con un byte de estado, la longitud y la producción codificada con
+ *   {@link CodecProduccion}. Las ranuras eliminadas quedan marcadas como lápidas
+ *   y forman una lista de ranuras libres que se reutilizan al crear.</li>
+ *   <li><strong>índice</strong> ({@code archivo.idx.N}): tabla hash de
+ *   direccionamiento abierto que asocia el código normalizado con la ranura.
+ *   Cada entrada guarda el hash del código y el número de ranura, de modo que
+ *   una búsqueda solo decodifica la ranura cuando el hash coincide.</li>
+ * </ul>
+ *
+ * <p>Cada vez que el índice se reconstruye o cambia de tamaño se escribe en un
+ * archivo nuevo, con el siguiente número de generación {@code N}, y la
+ * cabecera de registros pasa a apuntar a él. Así nunca se reemplaza un archivo
+ * que sigue mapeado, algo que Windows no permite; el anterior se borra en
+ * cuanto se puede, o al abrir de nuevo el almacén. Los almacenes creados antes
+ * de existir las generaciones usan {@code archivo.idx} como generación 0.</p>
+ *
+ * <p>Leer, modificar en el lugar o eliminar una producción solo toca su ranura
+ * y su entrada de índice; el tiempo de apertura y el uso de memoria del heap no
+ * dependen del tamaño del catálogo. Si el almacén no se cerró correctamente,
+ * el índice y la lista de libres se reconstruyen a partir de los registros
+ * al abrir.</p>
+ *
+ * <p>{@link #listarTodos()} devuelve las producciones en orden de ranura; como
+ * las ranuras libres se reutilizan, no corresponde necesariamente al orden de
+ * inserción. Por lo mismo, una creación publicada como {@link EventoCambio}
+ * no implica que la producción quedó al final. Esta clase no es segura para
+ * uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ImplOperacionCrudMapeado implements OperacionCrud, Closeable {
+
+    /** Tamaño por defecto de cada ranura de registro, en bytes. */
+    public static final int TAM_REGISTRO = 512;
+
+    /** Tamaño de cada segmento mapeado del archivo de registros. */
+    private static final int SEGMENTO = 16 * 1024 * 1024;
+
+    private static final int MAGICO_REGISTROS = 0x5041564D; // "PAVM"
+    private static final int MAGICO_INDICE = 0x50415649;    // "PAVI"
+    private static final int VERSION = 1;
+
+    // Cabecera del archivo de registros (ocupa la primera ranura).
+    private static final int CAB_MAGICO = 0;
+    private static final int CAB_VERSION = 4;
+    private static final int CAB_TAM_REGISTRO = 8;
+    private static final int CAB_USADAS = 12;
+    private static final int CAB_VIVAS = 16;
+    private static final int CAB_PRIMER_LIBRE = 20;
+    private static final int CAB_ABIERTO = 24;
+    private static final int CAB_GENERACION = 28;
+
+    // Estados de una ranura.
+    private static final byte LIBRE = 0;
+    private static final byte VIVA = 1;
+    private static final byte ELIMINADA = 2;
+
+    /** Bytes de cada ranura antes de la producción: estado y longitud. */
+    private static final int ENCABEZADO_RANURA = 3;
+
+    // Índice: cabecera de 16 bytes y entradas de 8 bytes (hash, ranura + 1).
+    private static final int CAB_INDICE = 16;
+    private static final int TAM_ENTRADA = 8;
+    private static final int ENTRADA_VACIA = 0;
+    private static final int ENTRADA_BORRADA = -1;
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final Path rutaRegistros;
+    private final Path rutaIndice;
+    private final int tamRegistro;
+
+    private final FileChannel canalRegistros;
+    private final List<MappedByteBuffer> segmentos = new ArrayList<>();
+
+    private MappedByteBuffer indice;
+    private int capacidad;
+
+    /** Generación del archivo de índice en uso, según la cabecera de registros. */
+    private int generacion;
+
+    /** Observadores de los cambios del almacén. */
+    private final CanalCambios cambios = new CanalCambios();
+
+    /**
+     * Abre (o crea) el almacén mapeado con el tamaño de ranura por defecto.
+     *
+     * @param archivo ruta base; se usan {@code archivo.reg} y {@code archivo.idx.N}
+     * @throws UncheckedIOException si no se pueden abrir los archivos
+     */
+    public ImplOperacionCrudMapeado(String archivo) {
+        this(archivo, TAM_REGISTRO);
+    }
+
+    /**
+     * Abre (o crea) el almacén mapeado.
+     *
+     * @param archivo     ruta base; se usan {@code archivo.reg} y {@code archivo.idx.N}
+     * @param tamRegistro tamaño de ranura para un almacén nuevo; debe ser una
+     *                    potencia de dos entre 64 y 32768
+     * @throws UncheckedIOException si no se pueden abrir los archivos
+     */
+    public ImplOperacionCrudMapeado(String archivo, int tamRegistro) {
+        if (tamRegistro < 64 || tamRegistro > 32768 || Integer.bitCount(tamRegistro) != 1) {
+            throw new IllegalArgumentException("Tamaño de registro inválido: " + tamRegistro);
+        }
+        this.rutaRegistros = Paths.get(archivo + ".reg");
+        this.rutaIndice = Paths.get(archivo + ".idx");
+
+        try {
+            boolean nuevo = !Files.exists(rutaRegistros) || Files.size(rutaRegistros) == 0;
+            canalRegistros = FileChannel.open(rutaRegistros, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            mapearSegmento(0);
+            MappedByteBuffer cab = segmentos.get(0);
+
+            if (nuevo) {
+                cab.putInt(CAB_MAGICO, MAGICO_REGISTROS);
+                cab.putInt(CAB_VERSION, VERSION);
+                cab.putInt(CAB_TAM_REGISTRO, tamRegistro);
+                cab.putInt(CAB_USADAS, 0);
+                cab.putInt(CAB_VIVAS, 0);
+                cab.putInt(CAB_PRIMER_LIBRE, -1);
+                cab.putInt(CAB_GENERACION, 0);
+                this.tamRegistro = tamRegistro;
+            } else {
+                if (cab.getInt(CAB_MAGICO) != MAGICO_REGISTROS) {
+                    throw new IOException("No es un archivo de registros: " + rutaRegistros);
+                }
+                if (cab.getInt(CAB_VERSION) != VERSION) {
+                    throw new IOException("Versión no soportada: " + cab.getInt(CAB_VERSION));
+                }
+                this.tamRegistro = cab.getInt(CAB_TAM_REGISTRO);
+            }
+            generacion = cab.getInt(CAB_GENERACION);
+
+            boolean cerradoCorrectamente = cab.get(CAB_ABIERTO) == 0;
+            if (nuevo || !cerradoCorrectamente || !abrirIndice()) {
+                reconstruir();
+            }
+            cab.put(CAB_ABIERTO, (byte) 1);
+            cab.force();
+            borrarIndicesAnteriores();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al abrir el almacén mapeado", e);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    /**
+     * Escribe la producción en una ranura libre y la agrega al índice.
+     *
+     * @param p producción a agregar
+     * @throws IllegalArgumentException si el código ya existe o la producción
+     *                                  codificada no cabe en una ranura
+     */
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        String k = ImplOperacionCrud.clave(p.getCodigo());
+        int h = k.hashCode();
+        if (buscarEntrada(k, h) >= 0) {
+            throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+        }
+        byte[] datos = codificar(p);
+
+        MappedByteBuffer cab = segmentos.get(0);
+        int ranura = cab.getInt(CAB_PRIMER_LIBRE);
+        if (ranura >= 0) {
+            cab.putInt(CAB_PRIMER_LIBRE, buffer(ranura).getInt(offset(ranura) + ENCABEZADO_RANURA));
+        } else {
+            ranura = cab.getInt(CAB_USADAS);
+            cab.putInt(CAB_USADAS, ranura + 1);
+        }
+
+        escribirRanura(ranura, datos);
+        insertarEntrada(h, ranura);
+        cab.putInt(CAB_VIVAS, cab.getInt(CAB_VIVAS) + 1);
+        cambios.publicar(EventoCambio.creada(p));
+    }
+
+    /**
+     * Lee una única ranura a través del índice, sin recorrer el archivo.
+     *
+     * @param codigo código a buscar
+     * @return producción encontrada o {@code null}
+     */
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return null;
+        int e = buscarEntrada(k, k.hashCode());
+        return e < 0 ? null : leerRanura(ranuraDeEntrada(e));
+    }
+
+    /**
+     * Recorre todas las ranuras y decodifica las que están vivas.
+     *
+     * @return lista con todas las producciones, en orden de ranura
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        int usadas = segmentos.get(0).getInt(CAB_USADAS);
+        List<ProduccionAudiovisual> lista = new ArrayList<>(segmentos.get(0).getInt(CAB_VIVAS));
+        for (int r = 0; r < usadas; r++) {
+            if (buffer(r).get(offset(r)) == VIVA) lista.add(leerRanura(r));
+        }
+        return lista;
+    }
+
+    /**
+     * Decodifica las ranuras de a una, a medida que la acción las consume.
+     */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        int usadas = segmentos.get(0).getInt(CAB_USADAS);
+        for (int r = 0; r < usadas; r++) {
+            if (buffer(r).get(offset(r)) == VIVA) accion.accept(leerRanura(r));
+        }
+    }
+
+    /**
+     * Reescribe la ranura en el lugar. Si el código cambia, se actualiza
+     * también la entrada del índice.
+     *
+     * @param codigo código de la producción a modificar
+     * @param nuevo  producción con los nuevos valores
+     * @return {@code true} si se modificó, {@code false} si no existe el código
+     * @throws IllegalArgumentException si el nuevo código pertenece a otra producción
+     *                                  o la producción codificada no cabe en una ranura
+     */
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return false;
+        int e = buscarEntrada(k, k.hashCode());
+        if (e < 0) return false;
+
+        String kNuevo = ImplOperacionCrud.clave(nuevo.getCodigo());
+        boolean cambiaCodigo = !k.equals(kNuevo);
+        if (cambiaCodigo && buscarEntrada(kNuevo, kNuevo.hashCode()) >= 0) {
+            throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+        }
+        byte[] datos = codificar(nuevo);
+
+        int ranura = ranuraDeEntrada(e);
+        // la producción anterior solo se decodifica si alguien la va a recibir
+        ProduccionAudiovisual anterior = cambios.activo() ? leerRanura(ranura) : null;
+        escribirRanura(ranura, datos);
+        if (cambiaCodigo) {
+            marcarEntrada(e, ENTRADA_BORRADA);
+            insertarEntrada(kNuevo.hashCode(), ranura);
+        }
+        if (anterior != null) cambios.publicar(EventoCambio.modificada(codigo, anterior, nuevo));
+        return true;
+    }
+
+    /**
+     * Marca la ranura como lápida, la agrega a la lista de libres y quita
+     * su entrada del índice.
+     *
+     * @param codigo código de la producción a eliminar
+     * @return {@code true} si se eliminó, {@code false} si no existe el código
+     */
+    @Override
+    public boolean eliminar(String codigo) {
+        String k = ImplOperacionCrud.clave(codigo);
+        if (k == null) return false;
+        int e = buscarEntrada(k, k.hashCode());
+        if (e < 0) return false;
+
+        int ranura = ranuraDeEntrada(e);
+        ProduccionAudiovisual anterior = cambios.activo() ? leerRanura(ranura) : null;
+        MappedByteBuffer cab = segmentos.get(0);
+        MappedByteBuffer seg = buffer(ranura);
+        int off = offset(ranura);
+        seg.putInt(off + ENCABEZADO_RANURA, cab.getInt(CAB_PRIMER_LIBRE));
+        seg.put(off, ELIMINADA);
+        cab.putInt(CAB_PRIMER_LIBRE, ranura);
+        cab.putInt(CAB_VIVAS, cab.getInt(CAB_VIVAS) - 1);
+
+        marcarEntrada(e, ENTRADA_BORRADA);
+        if (anterior != null) cambios.publicar(EventoCambio.eliminada(codigo, anterior));
+        return true;
+    }
+
+    /**
+     * Valida el lote consultando solo el índice, sin decodificar las
+     * producciones, y luego aplica sus operaciones una a una.
+     */
+    @Override
+    public int aplicar(Lote lote) {
+        PlanLote plan = new PlanLote(lote, k -> buscarEntrada(k, k.hashCode()) >= 0);
+        for (Lote.Operacion op : plan.efectivas) {
+            switch (op.tipo) {
+                case BitacoraCambios.CREAR -> crear(op.produccion);
+                case BitacoraCambios.MODIFICAR -> modificar(op.codigo, op.produccion);
+                default -> eliminar(op.codigo);
+            }
+        }
+        return plan.getAplicadas();
+    }
+
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        cambios.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return cambios.desuscribir(observador);
+    }
+
+    /** @return número de producciones vivas en el almacén */
+    public int cantidad() {
+        return segmentos.get(0).getInt(CAB_VIVAS);
+    }
+
+    /**
+     * @return número de producciones vivas, leído de la cabecera
+     */
+    @Override
+    public int contar() {
+        return cantidad();
+    }
+
+    /**
+     * Retorna una página en orden de ranura. Las ranuras anteriores al rango
+     * solo se recorren leyendo su byte de estado; únicamente se decodifican
+     * las producciones de la página.
+     *
+     * @param desde    posición de la primera producción viva
+     * @param cantidad cantidad máxima de producciones
+     * @return producciones del rango pedido
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0) {
+            throw new IllegalArgumentException("Rango inválido: " + desde + ", " + cantidad);
+        }
+        int usadas = segmentos.get(0).getInt(CAB_USADAS);
+        List<ProduccionAudiovisual> pagina = new ArrayList<>(Math.min(cantidad, 1024));
+        int vistas = 0;
+        for (int r = 0; r < usadas && pagina.size() < cantidad; r++) {
+            if (buffer(r).get(offset(r)) != VIVA) continue;
+            if (vistas++ >= desde) pagina.add(leerRanura(r));
+        }
+        return pagina;
+    }
+
+    /**
+     * Fuerza la escritura en disco de las páginas modificadas.
+     */
+    public void sincronizar() {
+        for (MappedByteBuffer seg : segmentos) seg.force();
+        indice.force();
+    }
+
+    /**
+     * Sincroniza con disco, marca el almacén como cerrado correctamente y
+     * libera el canal de registros.
+     *
+     * @throws IOException si falla el cierre del canal
+     */
+    @Override
+    public void close() throws IOException {
+        sincronizar();
+        MappedByteBuffer cab = segmentos.get(0);
+        cab.put(CAB_ABIERTO, (byte) 0);
+        cab.force();
+        canalRegistros.close();
+    }
+
+    // -----------------------------------------------------------
+    // RANURAS
+    // -----------------------------------------------------------
+
+    private byte[] codificar(ProduccionAudiovisual p) {
+        byte[] datos = CodecProduccion.codificar(p);
+        if (datos.length > tamRegistro - ENCABEZADO_RANURA) {
+            throw new IllegalArgumentException("La producción " + p.getCodigo()
+                    + " ocupa " + datos.length + " bytes y no cabe en una ranura de " + tamRegistro);
+        }
+        return datos;
+    }
+
+    /** Ranura {@code r} en bytes desde el inicio del archivo; la ranura de cabecera es la 0. */
+    private long posicion(int r) {
+        return (long) (r + 1) * tamRegistro;
+    }
+
+    private int offset(int r) {
+        return (int) (posicion(r) % SEGMENTO);
+    }
+
+    private MappedByteBuffer buffer(int r) {
+        int s = (int) (posicion(r) / SEGMENTO);
+        while (segmentos.size() <= s) {
+            try {
+                mapearSegmento(segmentos.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al ampliar el almacén", e);
+            }
+        }
+        return segmentos.get(s);
+    }
+
+    private void mapearSegmento(int s) throws IOException {
+        segmentos.add(canalRegistros.map(FileChannel.MapMode.READ_WRITE, (long) s * SEGMENTO, SEGMENTO));
+    }
+
+    /** Escribe primero los datos y al final el estado, para no exponer ranuras a medio escribir. */
+    private void escribirRanura(int r, byte[] datos) {
+        MappedByteBuffer seg = buffer(r);
+        int off = offset(r);
+        seg.putShort(off + 1, (short) datos.length);
+        seg.put(off + ENCABEZADO_RANURA, datos);
+        seg.put(off, VIVA);
+    }
+
+    private byte[] bytesRanura(int r) {
+        MappedByteBuffer seg = buffer(r);
+        int off = offset(r);
+        byte[] datos = new byte[Short.toUnsignedInt(seg.getShort(off + 1))];
+        seg.get(off + ENCABEZADO_RANURA, datos);
+        return datos;
+    }
+
+    private ProduccionAudiovisual leerRanura(int r) {
+        try {
+            return CodecProduccion.leerProduccion(new DataInputStream(new ByteArrayInputStream(bytesRanura(r))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ranura dañada: " + r, e);
+        }
+    }
+
+    /** Decodifica solo el código de la ranura, sin construir la producción. */
+    private String claveRanura(int r) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytesRanura(r)));
+            in.readByte();
+            return ImplOperacionCrud.clave(CodecProduccion.leerTexto(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ranura dañada: " + r, e);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // ÍNDICE
+    // -----------------------------------------------------------
+
+    private int posicionEntrada(int e) {
+        return CAB_INDICE + e * TAM_ENTRADA;
+    }
+
+    private int ranuraDeEntrada(int e) {
+        return indice.getInt(posicionEntrada(e) + 4) - 1;
+    }
+
+    private void marcarEntrada(int e, int valor) {
+        indice.putInt(posicionEntrada(e) + 4, valor);
+    }
+
+    /**
+     * Busca la entrada de índice de una clave mediante sondeo lineal.
+     *
+     * @return número de entrada, o -1 si la clave no está
+     */
+    private int buscarEntrada(String k, int h) {
+        int mascara = capacidad - 1;
+        for (int e = mezclar(h) & mascara; ; e = (e + 1) & mascara) {
+            int pos = posicionEntrada(e);
+            int valor = indice.getInt(pos + 4);
+            if (valor == ENTRADA_VACIA) return -1;
+            if (valor != ENTRADA_BORRADA && indice.getInt(pos) == h && k.equals(claveRanura(valor - 1))) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Inserta una entrada nueva, reutilizando entradas borradas. Si el índice
+     * está muy lleno, lo reconstruye: al doble de tamaño si la mayoría de las
+     * entradas están vivas, o al mismo tamaño si basta con limpiar las borradas.
+     */
+    private void insertarEntrada(int h, int ranura) {
+        int ocupadas = indice.getInt(8);
+        if ((ocupadas + 1) * 10L > capacidad * 6L) {
+            boolean crecer = (cantidad() + 1) * 10L > capacidad * 3L;
+            redimensionarIndice(crecer ? capacidad * 2 : capacidad);
+            ocupadas = indice.getInt(8);
+        }
+        int mascara = capacidad - 1;
+        for (int e = mezclar(h) & mascara; ; e = (e + 1) & mascara) {
+            int pos = posicionEntrada(e);
+            int valor = indice.getInt(pos + 4);
+            if (valor == ENTRADA_VACIA || valor == ENTRADA_BORRADA) {
+                indice.putInt(pos, h);
+                indice.putInt(pos + 4, ranura + 1);
+                if (valor == ENTRADA_VACIA) indice.putInt(8, ocupadas + 1);
+                return;
+            }
+        }
+    }
+
+    private static int mezclar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Ruta del archivo de índice de una generación; la generación 0 es el
+     * {@code archivo.idx} de los almacenes anteriores a las generaciones.
+     */
+    private Path rutaIndice(int g) {
+        return g == 0 ? rutaIndice : rutaIndice.resolveSibling(rutaIndice.getFileName() + "." + g);
+    }
+
+    /**
+     * Abre el índice de la generación actual si es válido y coherente con el
+     * archivo de registros. La cabecera se valida con una lectura normal antes
+     * de mapear el archivo.
+     *
+     * @return {@code false} si debe reconstruirse
+     */
+    private boolean abrirIndice() throws IOException {
+        Path ruta = rutaIndice(generacion);
+        if (!Files.exists(ruta)) return false;
+        try (FileChannel ch = FileChannel.open(ruta, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer cab = ByteBuffer.allocate(CAB_INDICE);
+            while (cab.hasRemaining()) {
+                if (ch.read(cab, cab.position()) < 0) return false;
+            }
+            int cap = cab.getInt(4);
+            if (cab.getInt(0) != MAGICO_INDICE || Integer.bitCount(cap) != 1
+                    || ch.size() != CAB_INDICE + (long) cap * TAM_ENTRADA) {
+                return false;
+            }
+            indice = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+            capacidad = cap;
+            return true;
+        }
+    }
+
+    /**
+     * Fuerza al disco el índice recién escrito de la generación {@code nueva},
+     * apunta la cabecera de registros a él e intenta borrar el anterior.
+     */
+    private void publicarIndice(int nueva) {
+        indice.force();
+        MappedByteBuffer cab = segmentos.get(0);
+        cab.putInt(CAB_GENERACION, nueva);
+        cab.force();
+        Path anterior = rutaIndice(generacion);
+        generacion = nueva;
+        try {
+            Files.deleteIfExists(anterior);
+        } catch (IOException e) {
+            // sigue mapeado (en Windows no se puede borrar); se borra al volver a abrir
+        }
+    }
+
+    /**
+     * Borra los archivos de índice de generaciones anteriores que no se
+     * pudieron borrar al reemplazarlos.
+     */
+    private void borrarIndicesAnteriores() {
+        String nombre = rutaIndice.getFileName().toString();
+        Path actual = rutaIndice(generacion);
+        Path directorio = rutaIndice.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, p -> {
+            String n = p.getFileName().toString();
+            return n.equals(nombre) || n.startsWith(nombre + ".");
+        })) {
+            for (Path p : archivos) {
+                if (p.getFileName().equals(actual.getFileName())) continue;
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    // otro proceso lo mantiene abierto; se intenta en la siguiente apertura
+                }
+            }
+        } catch (IOException e) {
+            // el directorio no se puede listar; los archivos sobrantes no afectan al almacén
+        }
+    }
+
+    /**
+     * Crea un archivo de índice vacío en {@code destino} y lo mapea.
+     */
+    private static MappedByteBuffer crearIndice(Path destino, int cap) throws IOException {
+        Files.deleteIfExists(destino);
+        try (FileChannel ch = FileChannel.open(destino, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_WRITE, 0, CAB_INDICE + (long) cap * TAM_ENTRADA);
+            m.putInt(0, MAGICO_INDICE);
+            m.putInt(4, cap);
+            m.putInt(8, 0);
+            return m;
+        }
+    }
+
+    /**
+     * Copia las entradas vivas a un índice más grande usando los hashes
+     * almacenados, sin leer los registros, en la siguiente generación.
+     */
+    private void redimensionarIndice(int nuevaCapacidad) {
+        try {
+            MappedByteBuffer anterior = indice;
+            int capAnterior = capacidad;
+            int nueva = generacion + 1;
+
+            indice = crearIndice(rutaIndice(nueva), nuevaCapacidad);
+            capacidad = nuevaCapacidad;
+            for (int e = 0; e < capAnterior; e++) {
+                int pos = CAB_INDICE + e * TAM_ENTRADA;
+                int valor = anterior.getInt(pos + 4);
+                if (valor > 0) insertarEntrada(anterior.getInt(pos), valor - 1);
+            }
+            publicarIndice(nueva);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al ampliar el índice", e);
+        }
+    }
+
+    /**
+     * Reconstruye el índice, el contador de vivas y la lista de libres
+     * recorriendo todas las ranuras. Solo se usa al crear el almacén o al
+     * abrirlo tras un cierre incorrecto.
+     */
+    private void reconstruir() throws IOException {
+        MappedByteBuffer cab = segmentos.get(0);
+        int usadas = cab.getInt(CAB_USADAS);
+
+        int vivas = 0;
+        for (int r = 0; r < usadas; r++) {
+            if (buffer(r).get(offset(r)) == VIVA) vivas++;
+        }
+        int cap = CAPACIDAD_INICIAL;
+        while (cap * 6L < (vivas + 1) * 10L) cap <<= 1;
+
+        int nueva = generacion + 1;
+        indice = crearIndice(rutaIndice(nueva), cap);
+        capacidad = cap;
+
+        int primerLibre = -1;
+        for (int r = usadas - 1; r >= 0; r--) {
+            MappedByteBuffer seg = buffer(r);
+            int off = offset(r);
+            byte estado = seg.get(off);
+            if (estado == VIVA) {
+                insertarEntrada(claveRanura(r).hashCode(), r);
+            } else {
+                if (estado == LIBRE) seg.put(off, ELIMINADA);
+                seg.putInt(off + ENCABEZADO_RANURA, primerLibre);
+                primerLibre = r;
+            }
+        }
+        cab.putInt(CAB_VIVAS, vivas);
+        cab.putInt(CAB_PRIMER_LIBRE, primerLibre);
+        publicarIndice(nueva);
+    }
+}
@@ -0,0 +1,1073 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Implementación de {@link OperacionCrud} que reparte el catálogo en
+ * particiones independientes según el hash del código, para aprovechar
+ * varios núcleos.
+ *
+ * <p>Cada partición es un {@link ImplOperacionCrud} con sus propios índices y
+ * su propio archivo: con {@code data.dat} y cuatro particiones, los archivos
+ * son {@code data-0.dat} a {@code data-3.dat}, y en modo bitácora cada uno
+ * tiene su bitácora. La partición de un código depende solo de su clave
+ * normalizada, así que los archivos siguen siendo válidos entre
+ * ejecuciones.</p>
+ * <ul>
+ *   <li>Las operaciones por código se dirigen a una sola partición y solo
+ *       toman su candado, de modo que las escrituras sobre particiones
+ *       distintas avanzan en paralelo.</li>
+ *   <li>{@link #listarTodos()}, {@link #consultar(Consulta)} y
+ *       {@link #buscarTexto(String, int)} consultan todas las particiones en
+ *       paralelo y unen los resultados; las agregaciones de
+ *       {@link Agregacion} lo aprovechan a través de {@code listarTodos}.</li>
+ *   <li>{@link #guardarArchivo()} y {@link #cargarDesdeArchivo()} escriben y
+ *       leen los archivos de todas las particiones a la vez; sin bitácora, el
+ *       guardado reemplaza los archivos de todas como una sola operación.</li>
+ * </ul>
+ *
+ * <p>Los listados siguen el orden de las particiones y, dentro de cada una,
+ * el de inserción; no es el orden global de inserción, y una producción que
+ * cambia de código puede cambiar de partición y pasar al final de la nueva.
+ * Cada partición se copia por separado, así que un listado no es una
+ * instantánea de todo el catálogo si otro hilo escribe mientras tanto.</p>
+ *
+ * <p>Los cambios de todas las particiones se publican como
+ * {@link EventoCambio}s en un solo canal. Se anotan mientras se tienen los
+ * candados de las particiones tocadas, así que los eventos de un mismo código
+ * llegan en el orden en que se aplicaron, y se entregan después de soltarlos,
+ * así que un observador síncrono puede volver a llamar al servicio. Por el
+ * orden de los listados, una creación no implica que la producción quedó al
+ * final.</p>
+ *
+ * <p>En modo bitácora, un cambio que toca varias particiones (un cambio de
+ * código que cruza de partición, un lote o un reparto) se registra antes en
+ * una bitácora de movimientos, {@code data.dat.mov}, que se vacía cuando las
+ * bitácoras de las particiones tienen sus partes; si el proceso se
+ * interrumpe entre medio, la siguiente carga lo completa.</p>
+ *
+ * <p>Es segura para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ImplOperacionCrudParticionado implements OperacionCrud {
+
+    private static final int NUCLEOS = Runtime.getRuntime().availableProcessors();
+
+    private static final int HILOS = Math.max(2, NUCLEOS);
+
+    /**
+     * Hilos donde se consultan, guardan y cargan las particiones en paralelo.
+     * Sus tareas pueden esperar el candado de una partición, así que nunca se
+     * espera una de ellas mientras se tiene un candado.
+     */
+    private static final ExecutorService PARALELO = grupo("particion", HILOS);
+
+    /**
+     * Ejecutor de los recorridos y consultas: con un solo núcleo se recorren
+     * las particiones una tras otra en el hilo que llama, porque repartirlas
+     * entre hilos solo agrega cambios de contexto.
+     */
+    private static final Executor CONSULTAS = NUCLEOS > 1 ? PARALELO : null;
+
+    /**
+     * Hilos donde se modifican o escriben particiones cuyos candados ya tiene
+     * el hilo que espera; sus tareas nunca toman candados.
+     */
+    private static final ExecutorService ESCRITOR = grupo("escritor-particion", HILOS);
+
+    /** Ejecutor de las copias que se hacen con todos los candados tomados; con un solo núcleo, el hilo que llama. */
+    private static final Executor COPIAS = NUCLEOS > 1 ? ESCRITOR : null;
+
+    /** Particiones, cada una protegida por el candado de la misma posición. */
+    private final ImplOperacionCrud[] particiones;
+
+    private final OperacionArchivo[] archivos;
+
+    private final ReentrantLock[] candados;
+
+    /** Archivo sin particionar, del que se derivan los de las particiones. */
+    private final OperacionArchivo plantilla;
+
+    private final boolean conBitacora;
+
+    /** {@code true} si la política de sincronización fuerza las escrituras en el disco. */
+    private final boolean forzar;
+
+    /** Archivos de particiones sobrantes, ya repartidos; se borran en el siguiente guardado. */
+    private final List<Path> sobrantes = new ArrayList<>();
+
+    /**
+     * Serializa los guardados y las cargas, que usan los mismos archivos
+     * temporales; se toma antes que los candados de las particiones.
+     */
+    private final ReentrantLock candadoArchivos = new ReentrantLock();
+
+    /**
+     * Bitácora de los cambios que tocan varias particiones, o {@code null} sin
+     * modo bitácora. Solo tiene registros mientras uno de ellos se aplica.
+     */
+    private final BitacoraCambios movimientos;
+
+    /** Serializa los movimientos; se toma después de los candados de las particiones. */
+    private final ReentrantLock candadoMovimientos = new ReentrantLock();
+
+    /**
+     * Un movimiento no se pudo completar ni confirmar: su registro se conserva,
+     * y los siguientes se acumulan tras él, hasta la siguiente carga.
+     */
+    private boolean movimientoPendiente;
+
+    /** Observadores de los cambios de todas las particiones. */
+    private final CanalCambios cambios = new CanalCambios();
+
+    /**
+     * Constructor que utiliza el archivo de datos por defecto y una partición
+     * por procesador.
+     */
+    public ImplOperacionCrudParticionado() {
+        this(new OperacionArchivo(), Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    /**
+     * Constructor que permite indicar el archivo de datos, la cantidad de
+     * particiones y el modo de persistencia.
+     *
+     * <p>Cada partición usa el formato, la compresión y la política de
+     * sincronización de {@code archivo}. En modo bitácora las particiones se
+     * cargan de inmediato y en paralelo, como en {@link ImplOperacionCrud}, y
+     * se completan los movimientos que quedaron a medias. En ambos modos se
+     * termina el último guardado si se interrumpió después de confirmarse.</p>
+     *
+     * @param archivo     archivo de datos sin particionar, que da nombre a los de las particiones
+     * @param cantidad    cantidad de particiones
+     * @param conBitacora {@code true} para activar el modo bitácora en cada partición
+     * @throws IllegalArgumentException si la cantidad de particiones no es positiva
+     * @throws UncheckedIOException     si no se puede terminar el último guardado
+     *                                  o completar los movimientos pendientes
+     */
+    public ImplOperacionCrudParticionado(OperacionArchivo archivo, int cantidad, boolean conBitacora) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("Cantidad de particiones inválida: " + cantidad);
+        }
+        this.plantilla = archivo;
+        this.conBitacora = conBitacora;
+        this.forzar = archivo.getPoliticaSincronizacion() != PoliticaSincronizacion.SISTEMA;
+        this.movimientos = conBitacora
+                ? new BitacoraCambios(Paths.get(archivo.getArchivo() + ".mov"), archivo.getPoliticaSincronizacion())
+                : null;
+        this.particiones = new ImplOperacionCrud[cantidad];
+        this.archivos = new OperacionArchivo[cantidad];
+        this.candados = new ReentrantLock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            archivos[i] = archivoParticion(i);
+            candados[i] = new ReentrantLock();
+        }
+        terminarGuardado();
+        if (conBitacora) {
+            boolean migrar = debeMigrar();
+            List<List<ProduccionAudiovisual>> fuera = enParalelo(i -> {
+                particiones[i] = new ImplOperacionCrud(archivos[i], true);
+                return fueraDeLugar(i);
+            }, PARALELO);
+            recuperarMovimientos();
+            repartir(fuera, migrar);
+        } else {
+            for (int i = 0; i < cantidad; i++) particiones[i] = new ImplOperacionCrud(archivos[i], false);
+        }
+    }
+
+    private static ExecutorService grupo(String nombre, int hilos) {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, nombre + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Ruta del archivo de una partición: el número se inserta antes de la
+     * extensión, de modo que {@code data.dat} pasa a {@code data-3.dat}.
+     *
+     * @param archivo ruta del archivo sin particionar
+     * @param i       número de partición
+     * @return ruta del archivo de la partición
+     */
+    static String rutaParticion(String archivo, int i) {
+        int punto = archivo.lastIndexOf('.');
+        int separador = Math.max(archivo.lastIndexOf('/'), archivo.lastIndexOf(File.separatorChar));
+        if (punto <= separador + 1) return archivo + "-" + i;
+        return archivo.substring(0, punto) + "-" + i + archivo.substring(punto);
+    }
+
+    private OperacionArchivo archivoParticion(int i) {
+        return comoPlantilla(rutaParticion(plantilla.getArchivo(), i));
+    }
+
+    /** @return servicio de archivo con el formato, la compresión, la política y el aviso de la plantilla */
+    private OperacionArchivo comoPlantilla(String ruta) {
+        OperacionArchivo a = new OperacionArchivo(ruta);
+        a.setFormato(plantilla.getFormato());
+        a.setCompresion(plantilla.getCompresion());
+        a.setPoliticaSincronizacion(plantilla.getPoliticaSincronizacion());
+        a.setAvisoLecturaIncompleta(plantilla.getAvisoLecturaIncompleta());
+        return a;
+    }
+
+    /** @return archivo donde se escribe el nuevo contenido de una partición antes de confirmar el guardado */
+    private Path rutaNueva(int i) {
+        return Paths.get(rutaParticion(plantilla.getArchivo(), i) + ".nuevo");
+    }
+
+    /** @return marca que indica que los archivos nuevos de todas las particiones están completos */
+    private Path rutaConfirmacion() {
+        return Paths.get(plantilla.getArchivo() + ".confirmar");
+    }
+
+    /** @return archivo de datos y de bitácora (activa y pendiente) de un servicio de archivo */
+    private static List<Path> rutas(OperacionArchivo a) {
+        return List.of(Paths.get(a.getArchivo()), Paths.get(a.getArchivo() + ".log"),
+                Paths.get(a.getArchivo() + ".log.1"));
+    }
+
+    private static boolean existe(OperacionArchivo a) {
+        for (Path r : rutas(a)) {
+            if (Files.exists(r)) return true;
+        }
+        return false;
+    }
+
+    /** @return {@code true} si no hay archivos de particiones pero sí el archivo sin particionar */
+    private boolean debeMigrar() {
+        for (OperacionArchivo a : archivos) {
+            if (existe(a)) return false;
+        }
+        return Files.exists(Paths.get(plantilla.getArchivo()));
+    }
+
+    /** @return número de partición de una clave normalizada */
+    private int indice(String k) {
+        if (k == null) return 0;
+        int h = k.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), particiones.length);
+    }
+
+    private int indiceCodigo(String codigo) {
+        return indice(ImplOperacionCrud.clave(codigo));
+    }
+
+    // -----------------------------------------------------------
+    // EJECUCIÓN EN PARALELO
+    // -----------------------------------------------------------
+
+    /** Ejecuta una acción sobre una partición con su candado tomado. */
+    private <T> T conCandado(int i, Function<ImplOperacionCrud, T> accion) {
+        candados[i].lock();
+        try {
+            return accion.apply(particiones[i]);
+        } finally {
+            candados[i].unlock();
+        }
+    }
+
+    /**
+     * Ejecuta una tarea por partición en el ejecutor, la primera en el hilo
+     * que llama, y espera a todas; sin ejecutor, las ejecuta todas en el hilo
+     * que llama. Si alguna falla, la excepción se relanza después de que
+     * terminen las demás.
+     *
+     * @return resultados en el orden de las particiones
+     */
+    private <T> List<T> enParalelo(IntFunction<T> tarea, Executor ejecutor) {
+        int n = particiones.length;
+        if (ejecutor == null) {
+            List<T> resultados = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) resultados.add(tarea.apply(i));
+            return resultados;
+        }
+        List<CompletableFuture<T>> tareas = new ArrayList<>(n - 1);
+        for (int i = 1; i < n; i++) {
+            int p = i;
+            tareas.add(CompletableFuture.supplyAsync(() -> tarea.apply(p), ejecutor));
+        }
+        List<T> resultados = new ArrayList<>(n);
+        RuntimeException error = null;
+        try {
+            resultados.add(tarea.apply(0));
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        for (CompletableFuture<T> t : tareas) {
+            try {
+                resultados.add(t.join());
+            } catch (CompletionException e) {
+                if (error == null) error = causa(e);
+            }
+        }
+        if (error != null) throw error;
+        return resultados;
+    }
+
+    private static RuntimeException causa(CompletionException e) {
+        Throwable c = e.getCause();
+        if (c instanceof RuntimeException r) return r;
+        if (c instanceof Error err) throw err;
+        return e;
+    }
+
+    /** Une las listas en orden, hasta {@code limite} elementos. */
+    private static List<ProduccionAudiovisual> unir(List<List<ProduccionAudiovisual>> partes, int limite) {
+        int total = 0;
+        for (List<ProduccionAudiovisual> p : partes) total += p.size();
+        List<ProduccionAudiovisual> resultado = new ArrayList<>(Math.min(total, limite));
+        for (List<ProduccionAudiovisual> p : partes) {
+            int resta = limite - resultado.size();
+            if (resta <= 0) break;
+            resultado.addAll(p.size() <= resta ? p : p.subList(0, resta));
+        }
+        return resultado;
+    }
+
+    private void tomarTodos() {
+        for (ReentrantLock c : candados) c.lock();
+    }
+
+    private void soltarTodos() {
+        for (int i = candados.length - 1; i >= 0; i--) candados[i].unlock();
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    /**
+     * Agrega una producción en la partición de su código.
+     *
+     * @param p producción a agregar
+     * @throws IllegalArgumentException si ya existe una producción con el mismo código
+     */
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        try {
+            conCandado(indiceCodigo(p.getCodigo()), particion -> {
+                particion.crear(p);
+                cambios.anotar(EventoCambio.creada(p));
+                return null;
+            });
+        } finally {
+            cambios.entregarAnotados();
+        }
+    }
+
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        if (codigo == null) return null;
+        return conCandado(indiceCodigo(codigo), particion -> particion.buscarPorCodigo(codigo));
+    }
+
+    /**
+     * Modifica una producción existente identificada por su código.
+     *
+     * <p>Si el nuevo código corresponde a otra partición, se toman los
+     * candados de ambas (siempre en el mismo orden) y la producción se crea
+     * en la nueva y se elimina de la anterior como un solo movimiento (ver
+     * {@link #aplicarMovimiento}).</p>
+     *
+     * @param codigo código de la producción a modificar
+     * @param nuevo  objeto con los nuevos valores
+     * @return {@code true} si la modificación fue exitosa,
+     *         {@code false} si no se encontró el elemento
+     * @throws IllegalArgumentException si el nuevo código pertenece a otra producción
+     */
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        if (codigo == null) return false;
+        int i = indiceCodigo(codigo);
+        int j = indiceCodigo(nuevo.getCodigo());
+        if (i == j) {
+            try {
+                return conCandado(i, particion -> {
+                    ProduccionAudiovisual anterior = cambios.activo() ? particion.buscarPorCodigo(codigo) : null;
+                    boolean modificada = particion.modificar(codigo, nuevo);
+                    if (modificada && anterior != null) {
+                        cambios.anotar(EventoCambio.modificada(codigo, anterior, nuevo));
+                    }
+                    return modificada;
+                });
+            } finally {
+                cambios.entregarAnotados();
+            }
+        }
+
+        ReentrantLock primero = candados[Math.min(i, j)];
+        ReentrantLock segundo = candados[Math.max(i, j)];
+        primero.lock();
+        segundo.lock();
+        try {
+            ProduccionAudiovisual anterior = particiones[i].buscarPorCodigo(codigo);
+            if (anterior == null) return false;
+            if (particiones[j].buscarPorCodigo(nuevo.getCodigo()) != null) {
+                throw new IllegalArgumentException("Código ya existe: " + nuevo.getCodigo());
+            }
+            Lote[] partes = new Lote[particiones.length];
+            parte(partes, j).crear(nuevo);
+            parte(partes, i).eliminar(codigo);
+            aplicarMovimiento(List.of(new Lote.Operacion(BitacoraCambios.MODIFICAR, codigo, nuevo)), partes);
+            cambios.anotar(EventoCambio.modificada(codigo, anterior, nuevo));
+            return true;
+        } finally {
+            segundo.unlock();
+            primero.unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    @Override
+    public boolean eliminar(String codigo) {
+        if (codigo == null) return false;
+        try {
+            return conCandado(indiceCodigo(codigo), particion -> {
+                ProduccionAudiovisual anterior = cambios.activo() ? particion.buscarPorCodigo(codigo) : null;
+                boolean eliminada = particion.eliminar(codigo);
+                if (eliminada && anterior != null) cambios.anotar(EventoCambio.eliminada(codigo, anterior));
+                return eliminada;
+            });
+        } finally {
+            cambios.entregarAnotados();
+        }
+    }
+
+    /**
+     * Aplica el lote con los candados de todas las particiones tomados.
+     *
+     * <p>El lote se valida completo contra todas las particiones y luego se
+     * divide en un lote por partición, que cada una aplica en paralelo; un
+     * cambio de código que cruza de partición se divide en una creación y una
+     * eliminación. Si el lote toca más de una partición, se aplica como un
+     * solo movimiento (ver {@link #aplicarMovimiento}).</p>
+     */
+    @Override
+    public int aplicar(Lote lote) {
+        if (lote.tamano() == 0) return 0;
+        tomarTodos();
+        try {
+            PlanLote plan = new PlanLote(lote, k -> particiones[indice(k)].buscarPorCodigo(k) != null);
+            if (plan.efectivas.isEmpty()) return 0;
+            List<EventoCambio> eventos = cambios.activo() ? eventos(plan) : null;
+            Lote[] partes = new Lote[particiones.length];
+            for (Lote.Operacion op : plan.efectivas) {
+                int i = indiceCodigo(op.codigo);
+                if (op.tipo == BitacoraCambios.CREAR) {
+                    parte(partes, i).crear(op.produccion);
+                } else if (op.tipo == BitacoraCambios.ELIMINAR) {
+                    parte(partes, i).eliminar(op.codigo);
+                } else {
+                    int j = indiceCodigo(op.produccion.getCodigo());
+                    if (i == j) {
+                        parte(partes, i).modificar(op.codigo, op.produccion);
+                    } else {
+                        parte(partes, j).crear(op.produccion);
+                        parte(partes, i).eliminar(op.codigo);
+                    }
+                }
+            }
+            aplicarMovimiento(plan.efectivas, partes);
+            if (eventos != null) cambios.anotar(eventos);
+            return plan.getAplicadas();
+        } finally {
+            soltarTodos();
+            cambios.entregarAnotados();
+        }
+    }
+
+    /** @return eventos del plan, con los valores anteriores de las particiones; se llama antes de aplicarlo */
+    private List<EventoCambio> eventos(PlanLote plan) {
+        List<EventoCambio> eventos = new ArrayList<>(plan.tocadas.size() + plan.creadas.size());
+        for (PlanLote.Entrada e : plan.tocadas.values()) {
+            ProduccionAudiovisual anterior = particiones[indice(e.claveOriginal)].buscarPorCodigo(e.claveOriginal);
+            eventos.add(e.produccion == null
+                    ? EventoCambio.eliminada(anterior.getCodigo(), anterior)
+                    : EventoCambio.modificada(anterior.getCodigo(), anterior, e.produccion));
+        }
+        for (PlanLote.Entrada e : plan.creadas) eventos.add(EventoCambio.creada(e.produccion));
+        return eventos;
+    }
+
+    private static Lote parte(Lote[] partes, int i) {
+        if (partes[i] == null) partes[i] = new Lote();
+        return partes[i];
+    }
+
+    /** Aplica la parte de cada partición en paralelo; quien llama tiene todos los candados. */
+    private void aplicarPartes(Lote[] partes) {
+        enParalelo(i -> partes[i] == null ? 0 : particiones[i].aplicar(partes[i]), ESCRITOR);
+    }
+
+    /**
+     * Aplica las partes de un cambio; quien llama tiene los candados de las
+     * particiones que toca.
+     *
+     * <p>En modo bitácora, si toca más de una partición, las operaciones se
+     * registran antes como un solo registro en la bitácora de movimientos, y
+     * la bitácora se vacía cuando las de las particiones tienen sus partes en
+     * el disco. Si una parte falla, las operaciones se vuelven a aplicar
+     * completas; si tampoco se puede, el registro se conserva y la siguiente
+     * carga completa el movimiento.</p>
+     *
+     * @param operaciones operaciones del cambio, en orden, con las que se rehace
+     * @param partes      parte de cada partición, o {@code null} si no la toca
+     */
+    private void aplicarMovimiento(List<Lote.Operacion> operaciones, Lote[] partes) {
+        int tocadas = 0;
+        for (Lote p : partes) {
+            if (p != null) tocadas++;
+        }
+        if (movimientos == null || tocadas < 2) {
+            aplicarPartes(partes);
+            return;
+        }
+        candadoMovimientos.lock();
+        try {
+            try {
+                movimientos.registrarLote(operaciones);
+                if (forzar) movimientos.sincronizar();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al registrar el movimiento entre particiones", e);
+            }
+            try {
+                aplicarPartes(partes);
+            } catch (RuntimeException e) {
+                try {
+                    rehacer(operaciones);
+                } catch (RuntimeException otra) {
+                    e.addSuppressed(otra);
+                    movimientoPendiente = true;
+                    throw e;
+                }
+            }
+            try {
+                if (forzar) {
+                    for (int i = 0; i < partes.length; i++) {
+                        if (partes[i] != null) particiones[i].sincronizarBitacora();
+                    }
+                }
+                if (!movimientoPendiente) movimientos.vaciar();
+            } catch (IOException e) {
+                movimientoPendiente = true;
+                throw new UncheckedIOException("Error al confirmar el movimiento entre particiones", e);
+            }
+        } finally {
+            candadoMovimientos.unlock();
+        }
+    }
+
+    /** Vuelve a aplicar las operaciones de un movimiento (ver {@link #receptor()}). */
+    private void rehacer(List<Lote.Operacion> operaciones) {
+        BitacoraCambios.Receptor receptor = receptor();
+        for (Lote.Operacion op : operaciones) {
+            if (op.tipo == BitacoraCambios.CREAR) {
+                receptor.creado(op.produccion);
+            } else if (op.tipo == BitacoraCambios.ELIMINAR) {
+                receptor.eliminado(op.codigo);
+            } else {
+                receptor.modificado(op.codigo, op.produccion);
+            }
+        }
+    }
+
+    /**
+     * Receptor que aplica las operaciones de un movimiento como asignaciones:
+     * cada una deja su código como indica, se haya aplicado antes o no, así que
+     * repetir un movimiento completo o a medias da el mismo resultado.
+     */
+    private BitacoraCambios.Receptor receptor() {
+        return new BitacoraCambios.Receptor() {
+            @Override
+            public void creado(ProduccionAudiovisual p) {
+                asignar(p);
+            }
+
+            @Override
+            public void modificado(String codigo, ProduccionAudiovisual nuevo) {
+                String k = ImplOperacionCrud.clave(codigo);
+                String kNuevo = ImplOperacionCrud.clave(nuevo.getCodigo());
+                ImplOperacionCrud origen = particiones[indice(k)];
+                if (indice(k) == indice(kNuevo) && origen.buscarPorCodigo(codigo) != null) {
+                    if (!k.equals(kNuevo)) origen.eliminar(nuevo.getCodigo());
+                    origen.modificar(codigo, nuevo);
+                } else {
+                    origen.eliminar(codigo);
+                    asignar(nuevo);
+                }
+            }
+
+            @Override
+            public void eliminado(String codigo) {
+                particiones[indiceCodigo(codigo)].eliminar(codigo);
+            }
+        };
+    }
+
+    /** Crea la producción en su partición o reemplaza la que tiene su código. */
+    private void asignar(ProduccionAudiovisual p) {
+        ImplOperacionCrud destino = particiones[indiceCodigo(p.getCodigo())];
+        if (!destino.modificar(p.getCodigo(), p)) destino.crear(p);
+    }
+
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        cambios.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return cambios.desuscribir(observador);
+    }
+
+    // -----------------------------------------------------------
+    // RECORRIDOS Y CONSULTAS
+    // -----------------------------------------------------------
+
+    /**
+     * Copia todas las particiones en paralelo y las une en orden de partición.
+     *
+     * @return lista de objetos {@link ProduccionAudiovisual}
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        return unir(enParalelo(i -> conCandado(i, ImplOperacionCrud::listarTodos), CONSULTAS), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int contar() {
+        int total = 0;
+        for (int i = 0; i < particiones.length; i++) total += conCandado(i, ImplOperacionCrud::contar);
+        return total;
+    }
+
+    /**
+     * Recorre una partición a la vez sobre una copia, sin retener su candado
+     * mientras se ejecuta la acción.
+     */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        for (int i = 0; i < particiones.length; i++) {
+            conCandado(i, ImplOperacionCrud::listarTodos).forEach(accion);
+        }
+    }
+
+    /**
+     * Retorna una página en el orden de {@link #listarTodos()}, leyendo solo
+     * las particiones que la contienen.
+     */
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0) {
+            throw new IllegalArgumentException("Rango inválido: " + desde + ", " + cantidad);
+        }
+        List<ProduccionAudiovisual> resultado = new ArrayList<>();
+        int saltar = desde;
+        for (int i = 0; i < particiones.length && resultado.size() < cantidad; i++) {
+            candados[i].lock();
+            try {
+                int n = particiones[i].contar();
+                if (saltar >= n) {
+                    saltar -= n;
+                    continue;
+                }
+                resultado.addAll(particiones[i].listarRango(saltar, cantidad - resultado.size()));
+                saltar = 0;
+            } finally {
+                candados[i].unlock();
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Resuelve la consulta en todas las particiones en paralelo, cada una con
+     * sus índices secundarios, y une las coincidencias en orden de partición.
+     */
+    @Override
+    public List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        return unir(enParalelo(i -> conCandado(i, particion -> particion.consultar(consulta)), CONSULTAS),
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca en el índice de texto de todas las particiones en paralelo y une
+     * los resultados en orden de partición, hasta {@code limite}.
+     */
+    @Override
+    public List<ProduccionAudiovisual> buscarTexto(String texto, int limite) {
+        return unir(enParalelo(i -> conCandado(i, particion -> particion.buscarTexto(texto, limite)), CONSULTAS),
+                limite);
+    }
+
+    /** @return cantidad de particiones */
+    public int getParticiones() {
+        return particiones.length;
+    }
+
+    // -----------------------------------------------------------
+    // SERIALIZACIÓN / ARCHIVO
+    // -----------------------------------------------------------
+
+    /**
+     * Guarda todas las particiones como una sola operación.
+     *
+     * <p>Las particiones se copian con todos los candados tomados, así que el
+     * guardado es una instantánea de todo el catálogo; mientras se copian,
+     * ninguna escritura avanza. Las copias se escriben a la vez, cada una en
+     * un archivo nuevo junto al de su partición, y solo si todas se
+     * escribieron se crea una marca de confirmación y los archivos nuevos
+     * reemplazan a los anteriores. Si el proceso se interrumpe antes de la
+     * marca, quedan los archivos anteriores; después, la siguiente carga
+     * termina el reemplazo. En modo bitácora lanza una compactación de todas
+     * las particiones.</p>
+     *
+     * @throws UncheckedIOException si alguna partición no se pudo escribir (se
+     *         conservan todos los archivos anteriores), si no se pudo terminar
+     *         el reemplazo (lo termina la siguiente carga) o si no se pudieron
+     *         borrar los archivos de particiones sobrantes
+     */
+    public void guardarArchivo() {
+        if (conBitacora) {
+            compactar();
+            return;
+        }
+        candadoArchivos.lock();
+        try {
+            List<List<ProduccionAudiovisual>> copias;
+            tomarTodos();
+            try {
+                copias = enParalelo(i -> particiones[i].listarTodos(), COPIAS);
+            } finally {
+                soltarTodos();
+            }
+            List<IOException> errores = enParalelo(i -> {
+                try {
+                    comoPlantilla(rutaNueva(i).toString()).guardarInstantanea(copias.get(i));
+                    return null;
+                } catch (IOException e) {
+                    return e;
+                }
+            }, PARALELO);
+            List<IOException> fallas = new ArrayList<>();
+            for (IOException e : errores) {
+                if (e != null) fallas.add(e);
+            }
+            if (!fallas.isEmpty()) {
+                UncheckedIOException error = new UncheckedIOException("Error al guardar " + fallas.size()
+                        + " de " + particiones.length + " particiones", fallas.get(0));
+                for (int i = 1; i < fallas.size(); i++) error.addSuppressed(fallas.get(i));
+                try {
+                    terminarGuardado();
+                } catch (UncheckedIOException e) {
+                    error.addSuppressed(e);
+                }
+                throw error;
+            }
+            Path marca = rutaConfirmacion();
+            try (FileChannel canal = FileChannel.open(marca, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (forzar) canal.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al confirmar el guardado de las particiones", e);
+            }
+            if (forzar) OperacionArchivo.sincronizarDirectorio(marca);
+            terminarGuardado();
+        } finally {
+            candadoArchivos.unlock();
+        }
+        borrarSobrantes();
+    }
+
+    /**
+     * Termina el último guardado: si se confirmó, mueve a su lugar los
+     * archivos nuevos que queden y borra la marca; si no, descarta los
+     * archivos nuevos.
+     *
+     * @throws UncheckedIOException si no se pueden mover o borrar los archivos
+     */
+    private void terminarGuardado() {
+        Path marca = rutaConfirmacion();
+        boolean confirmado = Files.exists(marca);
+        try {
+            // un guardado con más particiones deja archivos que luego se reparten como sobrantes
+            for (int i = 0; ; i++) {
+                Path nuevo = rutaNueva(i);
+                boolean existe = Files.exists(nuevo);
+                if (!existe && i >= particiones.length) break;
+                if (!existe) continue;
+                if (confirmado) {
+                    Files.move(nuevo, Paths.get(rutaParticion(plantilla.getArchivo(), i)),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.delete(nuevo);
+                }
+            }
+            if (confirmado) {
+                if (forzar) OperacionArchivo.sincronizarDirectorio(marca);
+                Files.delete(marca);
+                if (forzar) OperacionArchivo.sincronizarDirectorio(marca);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al terminar el guardado de las particiones", e);
+        }
+    }
+
+    /**
+     * Consolida la bitácora de cada partición en su instantánea, escribiendo
+     * todas las instantáneas a la vez (ver {@link ImplOperacionCrud#compactar()}),
+     * y luego borra los archivos de particiones sobrantes.
+     *
+     * @return tarea que termina cuando todas las instantáneas quedaron
+     *         escritas, o con un {@link UncheckedIOException} si alguna no se
+     *         pudo escribir o algún archivo sobrante no se pudo borrar
+     * @throws IllegalStateException si el modo bitácora no está activo
+     */
+    public CompletableFuture<Void> compactar() {
+        if (!conBitacora) {
+            throw new IllegalStateException("El modo bitácora no está activo");
+        }
+        CompletableFuture<?>[] tareas = new CompletableFuture<?>[particiones.length];
+        for (int i = 0; i < particiones.length; i++) {
+            tareas[i] = conCandado(i, particion -> particion.compactar(ESCRITOR));
+        }
+        return CompletableFuture.allOf(tareas).thenRun(this::borrarSobrantes);
+    }
+
+    /**
+     * Carga todas las particiones a la vez, cada una desde su archivo.
+     *
+     * <p>Antes termina el último guardado si se interrumpió después de
+     * confirmarse y, en modo bitácora, completa después los movimientos entre
+     * particiones que quedaron a medias. Luego reparte las producciones que
+     * no están en su partición, lo que ocurre si cambió la cantidad de
+     * particiones: las de particiones que ya no existen se agregan a las
+     * actuales y sus archivos se borran al guardar (en modo bitácora, de
+     * inmediato). Si no hay ningún archivo de partición pero sí el archivo sin
+     * particionar, se reparte su contenido. Si un código aparece en más de un
+     * lugar, se conserva el que ya estaba en su partición.</p>
+     *
+     * @throws UncheckedIOException si no se puede terminar el último guardado
+     *         o completar los movimientos pendientes
+     */
+    public void cargarDesdeArchivo() {
+        candadoArchivos.lock();
+        try {
+            terminarGuardado();
+            boolean migrar = debeMigrar();
+            List<List<ProduccionAudiovisual>> fuera = enParalelo(i -> conCandado(i, particion -> {
+                particion.cargarDesdeArchivo();
+                return fueraDeLugar(i);
+            }), PARALELO);
+            if (conBitacora) recuperarMovimientos();
+            repartir(fuera, migrar);
+            cambios.anotar(EventoCambio.recargada());
+        } finally {
+            candadoArchivos.unlock();
+            cambios.entregarAnotados();
+        }
+    }
+
+    /**
+     * Vuelve a aplicar los movimientos entre particiones que quedaron
+     * registrados sin confirmar y vacía la bitácora de movimientos.
+     */
+    private void recuperarMovimientos() {
+        tomarTodos();
+        candadoMovimientos.lock();
+        try {
+            movimientos.close();
+            BitacoraCambios.reproducir(movimientos.getRuta(), receptor());
+            movimientos.abrir();
+            sincronizarBitacoras();
+            movimientos.vaciar();
+            movimientoPendiente = false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al recuperar los movimientos entre particiones", e);
+        } finally {
+            candadoMovimientos.unlock();
+            soltarTodos();
+        }
+    }
+
+    /** Fuerza en el disco las bitácoras de todas las particiones, salvo que la política no lo pida. */
+    private void sincronizarBitacoras() throws IOException {
+        if (!forzar) return;
+        for (ImplOperacionCrud particion : particiones) particion.sincronizarBitacora();
+    }
+
+    /** @return producciones de la partición {@code i} que corresponden a otra */
+    private List<ProduccionAudiovisual> fueraDeLugar(int i) {
+        List<ProduccionAudiovisual> fuera = new ArrayList<>();
+        particiones[i].recorrerTodos(p -> {
+            if (indiceCodigo(p.getCodigo()) != i) fuera.add(p);
+        });
+        return fuera;
+    }
+
+    /**
+     * Lleva a su partición las producciones fuera de lugar, las de archivos
+     * de particiones sobrantes y, si se pide, las del archivo sin particionar.
+     */
+    private void repartir(List<List<ProduccionAudiovisual>> fuera, boolean migrar) {
+        List<ProduccionAudiovisual> llegadas = new ArrayList<>();
+        List<Path> leidos = new ArrayList<>();
+        for (int i = particiones.length; ; i++) {
+            OperacionArchivo a = archivoParticion(i);
+            if (!existe(a)) break;
+            ImplOperacionCrud sobrante = new ImplOperacionCrud(a, conBitacora);
+            if (!conBitacora) sobrante.cargarDesdeArchivo();
+            llegadas.addAll(sobrante.listarTodos());
+            sobrante.cerrar();
+            leidos.addAll(rutas(a));
+        }
+        if (migrar) {
+            // en modo bitácora, como en cada partición, el archivo sin particionar se lee completo o nada
+            OperacionArchivo origen = comoPlantilla(plantilla.getArchivo());
+            origen.setLecturaEstricta(conBitacora);
+            llegadas.addAll(origen.cargarArchivo());
+        }
+
+        int movidas = 0;
+        for (List<ProduccionAudiovisual> f : fuera) movidas += f.size();
+        if (movidas == 0 && llegadas.isEmpty() && leidos.isEmpty()) return;
+
+        Lote[] partes = new Lote[particiones.length];
+        Set<String> agregadas = new HashSet<>();
+        tomarTodos();
+        try {
+            for (int i = 0; i < fuera.size(); i++) {
+                for (ProduccionAudiovisual p : fuera.get(i)) {
+                    // otro hilo pudo cambiarla entre la carga y la toma de los candados
+                    if (particiones[i].buscarPorCodigo(p.getCodigo()) != p) continue;
+                    parte(partes, i).eliminar(p.getCodigo());
+                    agregar(partes, agregadas, p);
+                }
+            }
+            for (ProduccionAudiovisual p : llegadas) agregar(partes, agregadas, p);
+            // las eliminaciones no se rehacen: la copia fuera de lugar se descarta en la siguiente carga
+            List<Lote.Operacion> creaciones = new ArrayList<>();
+            for (Lote parte : partes) {
+                if (parte == null) continue;
+                for (Lote.Operacion op : parte.getOperaciones()) {
+                    if (op.tipo == BitacoraCambios.CREAR) creaciones.add(op);
+                }
+            }
+            aplicarMovimiento(creaciones, partes);
+        } finally {
+            soltarTodos();
+        }
+
+        synchronized (sobrantes) {
+            sobrantes.addAll(leidos);
+        }
+        if (conBitacora) {
+            try {
+                sincronizarBitacoras();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al sincronizar las bitácoras de las particiones", e);
+            }
+            try {
+                borrarSobrantes();
+            } catch (UncheckedIOException e) {
+                // los que quedan se vuelven a intentar en la siguiente compactación, que informa el error
+            }
+        }
+    }
+
+    /** Agrega la creación a la parte de su partición, si el código no existe ni se agregó ya. */
+    private void agregar(Lote[] partes, Set<String> agregadas, ProduccionAudiovisual p) {
+        String k = ImplOperacionCrud.clave(p.getCodigo());
+        int j = indice(k);
+        if (particiones[j].buscarPorCodigo(k) == null && agregadas.add(k)) parte(partes, j).crear(p);
+    }
+
+    /**
+     * Borra los archivos de particiones sobrantes ya repartidos; los que no se
+     * pueden borrar se conservan para el siguiente intento.
+     *
+     * @throws UncheckedIOException si algún archivo no se pudo borrar
+     */
+    private void borrarSobrantes() {
+        synchronized (sobrantes) {
+            UncheckedIOException error = null;
+            for (Iterator<Path> it = sobrantes.iterator(); it.hasNext(); ) {
+                Path r = it.next();
+                try {
+                    Files.deleteIfExists(r);
+                    it.remove();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = new UncheckedIOException("No se pudieron borrar los archivos de particiones sobrantes", e);
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+            if (error != null) throw error;
+        }
+    }
+
+    /**
+     * Indica si las particiones trabajan en modo bitácora.
+     *
+     * @return {@code true} si los cambios se anexan a una bitácora
+     */
+    public boolean isModoBitacora() {
+        return conBitacora;
+    }
+
+    /**
+     * Cierra la bitácora de cada partición y la de movimientos, si el modo
+     * bitácora está activo, esperando a que terminen las compactaciones en
+     * curso.
+     *
+     * @throws UncheckedIOException si alguna bitácora no se pudo cerrar
+     */
+    public void cerrar() {
+        for (int i = 0; i < particiones.length; i++) {
+            conCandado(i, particion -> {
+                particion.cerrar();
+                return null;
+            });
+        }
+        if (movimientos == null) return;
+        candadoMovimientos.lock();
+        try {
+            movimientos.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al cerrar la bitácora de movimientos", e);
+        } finally {
+            candadoMovimientos.unlock();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Índice de producciones por código normalizado que conserva el orden de
+ * inserción, como un {@link java.util.LinkedHashMap}, pero que además permite
+ * cambiar la clave de una producción sin moverla de su posición.
+ *
+ * <p>Cada producción ocupa un nodo de una lista doblemente enlazada, y el
+ * mapa asocia cada clave a su nodo. Agregar, reemplazar, eliminar y cambiar
+ * de clave son operaciones de tiempo constante: un cambio de clave solo
+ * vuelve a asociar el mismo nodo en el mapa.</p>
+ *
+ * <p>No es seguro para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+final class IndiceCodigos {
+
+    /** Posición de una producción en el orden de inserción. */
+    static final class Nodo {
+        private ProduccionAudiovisual produccion;
+        private Nodo anterior;
+        private Nodo siguiente;
+
+        private Nodo(ProduccionAudiovisual produccion) {
+            this.produccion = produccion;
+        }
+    }
+
+    private final Map<String, Nodo> nodos;
+    private Nodo primero;
+    private Nodo ultimo;
+
+    /** Cambios estructurales, para detectar modificaciones durante un recorrido. */
+    private int cambios;
+
+    private final Collection<ProduccionAudiovisual> valores = new Valores();
+
+    IndiceCodigos() {
+        nodos = new HashMap<>();
+    }
+
+    /**
+     * @param capacidad cantidad de producciones esperada
+     */
+    IndiceCodigos(int capacidad) {
+        nodos = new HashMap<>(capacidad * 4 / 3 + 1);
+    }
+
+    // -----------------------------------------------------------
+    // CONSULTAS
+    // -----------------------------------------------------------
+
+    int size() {
+        return nodos.size();
+    }
+
+    boolean containsKey(String k) {
+        return nodos.containsKey(k);
+    }
+
+    /** @return producción de la clave, o {@code null} si no existe */
+    ProduccionAudiovisual get(String k) {
+        Nodo n = nodos.get(k);
+        return n == null ? null : n.produccion;
+    }
+
+    /**
+     * @return vista de las producciones en orden de inserción; refleja los
+     *         cambios posteriores y no admite modificaciones
+     */
+    Collection<ProduccionAudiovisual> values() {
+        return valores;
+    }
+
+    // -----------------------------------------------------------
+    // CAMBIOS
+    // -----------------------------------------------------------
+
+    /**
+     * Reemplaza la producción de la clave en su lugar, o la agrega al final
+     * si la clave no existe.
+     *
+     * @return producción anterior, o {@code null} si se agregó
+     */
+    ProduccionAudiovisual put(String k, ProduccionAudiovisual p) {
+        Nodo n = nodos.get(k);
+        if (n != null) {
+            ProduccionAudiovisual anterior = n.produccion;
+            n.produccion = p;
+            return anterior;
+        }
+        enlazar(k, new Nodo(p));
+        return null;
+    }
+
+    /**
+     * Agrega la producción al final si la clave no existe.
+     *
+     * @return producción existente, o {@code null} si se agregó
+     */
+    ProduccionAudiovisual putIfAbsent(String k, ProduccionAudiovisual p) {
+        Nodo n = nodos.get(k);
+        if (n != null) return n.produccion;
+        enlazar(k, new Nodo(p));
+        return null;
+    }
+
+    /**
+     * @return producción eliminada, o {@code null} si la clave no existía
+     */
+    ProduccionAudiovisual remove(String k) {
+        Nodo n = nodos.remove(k);
+        if (n == null) return null;
+        desenlazar(n);
+        return n.produccion;
+    }
+
+    /**
+     * Cambia la clave de una producción existente y la reemplaza, sin
+     * moverla de su posición.
+     *
+     * @param k      clave actual; debe existir
+     * @param kNuevo clave nueva; no debe pertenecer a otra producción
+     * @param p      producción que ocupa el lugar
+     */
+    void renombrar(String k, String kNuevo, ProduccionAudiovisual p) {
+        Nodo n = soltar(k);
+        n.produccion = p;
+        atar(kNuevo, n);
+    }
+
+    /**
+     * Quita la clave del mapa dejando el nodo en su posición, para volver a
+     * asociarlo con {@link #atar}. Permite intercambiar claves entre varias
+     * producciones sin que choquen en el camino.
+     *
+     * @param k clave actual; debe existir
+     * @return nodo de la producción
+     */
+    Nodo soltar(String k) {
+        return nodos.remove(k);
+    }
+
+    /**
+     * Asocia un nodo soltado a una clave libre.
+     *
+     * @param k clave nueva
+     * @param n nodo obtenido con {@link #soltar}
+     */
+    void atar(String k, Nodo n) {
+        nodos.put(k, n);
+    }
+
+    /**
+     * @param n nodo soltado
+     * @param p producción que ocupa su lugar
+     */
+    static void reemplazar(Nodo n, ProduccionAudiovisual p) {
+        n.produccion = p;
+    }
+
+    private void enlazar(String k, Nodo n) {
+        nodos.put(k, n);
+        n.anterior = ultimo;
+        if (ultimo == null) {
+            primero = n;
+        } else {
+            ultimo.siguiente = n;
+        }
+        ultimo = n;
+        cambios++;
+    }
+
+    private void desenlazar(Nodo n) {
+        if (n.anterior == null) {
+            primero = n.siguiente;
+        } else {
+            n.anterior.siguiente = n.siguiente;
+        }
+        if (n.siguiente == null) {
+            ultimo = n.anterior;
+        } else {
+            n.siguiente.anterior = n.anterior;
+        }
+        n.anterior = null;
+        n.siguiente = null;
+        cambios++;
+    }
+
+    /** Vista de las producciones en orden de inserción. */
+    private final class Valores extends AbstractCollection<ProduccionAudiovisual> {
+        @Override
+        public int size() {
+            return nodos.size();
+        }
+
+        @Override
+        public Iterator<ProduccionAudiovisual> iterator() {
+            return new Iterator<>() {
+                private Nodo siguiente = primero;
+                private final int esperados = cambios;
+
+                @Override
+                public boolean hasNext() {
+                    return siguiente != null;
+                }
+
+                @Override
+                public ProduccionAudiovisual next() {
+                    if (cambios != esperados) throw new ConcurrentModificationException();
+                    if (siguiente == null) throw new NoSuchElementException();
+                    ProduccionAudiovisual p = siguiente.produccion;
+                    siguiente = siguiente.siguiente;
+                    return p;
+                }
+            };
+        }
+    }
+}
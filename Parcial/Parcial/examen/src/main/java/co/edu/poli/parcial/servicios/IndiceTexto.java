@@ -0,0 +1,336 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Índice invertido sobre el título y el nombre del director de las
+ * producciones, para búsquedas de texto mientras se escribe.
+ *
+ * <p>Los textos se dividen en términos por los caracteres que no son letras ni
+ * dígitos, se pasan a minúsculas y se les quitan las tildes y diéresis
+ * ({@code "Acción"} y {@code "accion"} producen el mismo término). Cada
+ * término apunta al conjunto de producciones que lo contienen.</p>
+ *
+ * <p>Una búsqueda exige que la producción contenga todos los términos
+ * buscados. El último término se busca como prefijo, porque es el que el
+ * usuario está escribiendo; los demás deben coincidir completos. Si un término
+ * no aparece en el índice, se aceptan los términos a distancia de edición 1
+ * (una letra agregada, quitada o cambiada, o dos letras vecinas
+ * intercambiadas), para tolerar errores de tipeo.</p>
+ *
+ * <p>La búsqueda aproximada usa un índice de borrados: cada término se
+ * registra también bajo cada variante que resulta de quitarle una letra. Dos
+ * términos a distancia 1 comparten siempre alguna de esas variantes (o uno es
+ * variante del otro), así que
+ * basta consultar las variantes del término buscado y verificar la distancia
+ * de los pocos candidatos, sin recorrer el vocabulario.</p>
+ *
+ * <p>No es segura para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+class IndiceTexto {
+
+    /** Largo mínimo de un término para buscarlo de forma aproximada. */
+    private static final int MIN_APROXIMADO = 4;
+
+    /** Producciones por término, con los términos ordenados para buscar prefijos. */
+    private final TreeMap<String, Set<ProduccionAudiovisual>> terminos = new TreeMap<>();
+
+    /**
+     * Términos del índice por cada variante con una letra menos. El valor es el
+     * término si hay uno solo, o un {@code String[]} si varios comparten la
+     * variante; casi todas las variantes tienen un solo término, y así no se
+     * crea un conjunto por cada una.
+     */
+    private final Map<String, Object> borrados = new HashMap<>();
+
+    /**
+     * Forma en minúsculas y sin tildes de los caracteres latinos
+     * ({@code 'Á'} a {@code 'a'}, {@code 'ñ'} a {@code 'n'}), o {@code 0} si el
+     * carácter no es letra ni dígito.
+     */
+    private static final char[] PLIEGUE = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLIEGUE.length; c++) {
+            if (!Character.isLetterOrDigit(c)) continue;
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            PLIEGUE[c] = Character.toLowerCase(base.charAt(0));
+        }
+    }
+
+    /** Términos de cada producción indexada, para verificar el resto de la búsqueda. */
+    private final Map<ProduccionAudiovisual, String[]> porProduccion = new IdentityHashMap<>();
+
+    /**
+     * Construye el índice a partir de un conjunto de producciones.
+     *
+     * @param producciones producciones a indexar
+     */
+    IndiceTexto(Collection<ProduccionAudiovisual> producciones) {
+        for (ProduccionAudiovisual p : producciones) agregar(p);
+    }
+
+    // -----------------------------------------------------------
+    // MANTENIMIENTO
+    // -----------------------------------------------------------
+
+    /**
+     * @param p producción agregada al catálogo
+     */
+    void agregar(ProduccionAudiovisual p) {
+        String[] propios = terminosDe(p);
+        porProduccion.put(p, propios);
+        for (String t : propios) {
+            Set<ProduccionAudiovisual> grupo = terminos.get(t);
+            if (grupo == null) {
+                grupo = new LinkedHashSet<>();
+                terminos.put(t, grupo);
+                if (t.length() >= MIN_APROXIMADO) {
+                    for (String b : variantes(t)) borrados.merge(b, t, IndiceTexto::unir);
+                }
+            }
+            grupo.add(p);
+        }
+    }
+
+    /**
+     * @param p producción que deja el catálogo
+     */
+    void quitar(ProduccionAudiovisual p) {
+        String[] propios = porProduccion.remove(p);
+        if (propios == null) return;
+        for (String t : propios) {
+            Set<ProduccionAudiovisual> grupo = terminos.get(t);
+            if (grupo == null || !grupo.remove(p) || !grupo.isEmpty()) continue;
+            terminos.remove(t);
+            if (t.length() >= MIN_APROXIMADO) {
+                for (String b : variantes(t)) {
+                    borrados.computeIfPresent(b, (x, v) -> separar(v, t));
+                }
+            }
+        }
+    }
+
+    // -----------------------------------------------------------
+    // BÚSQUEDA
+    // -----------------------------------------------------------
+
+    /**
+     * Busca las producciones que contienen todos los términos del texto.
+     *
+     * <p>Se recorren los grupos del término buscado con menos producciones y el
+     * resto de los términos se verifica contra los términos de cada candidata,
+     * hasta reunir {@code limite} resultados. Los términos completos se miden
+     * primero porque su costo es el tamaño de un solo grupo; así el prefijo,
+     * que puede abarcar muchos grupos, deja de medirse en cuanto los supera.</p>
+     *
+     * @param texto  texto buscado
+     * @param limite cantidad máxima de resultados
+     * @return producciones encontradas, a lo sumo {@code limite}
+     */
+    List<ProduccionAudiovisual> buscar(String texto, int limite) {
+        List<ProduccionAudiovisual> resultado = new ArrayList<>();
+        String[] buscados = tokenizar(texto);
+        if (buscados.length == 0 || limite <= 0) return resultado;
+        boolean ultimoEsPrefijo = !Character.isWhitespace(texto.charAt(texto.length() - 1));
+
+        // Términos del índice, con sus producciones, que aceptan cada término buscado.
+        List<Map<String, Set<ProduccionAudiovisual>>> aceptados = new ArrayList<>(buscados.length);
+        for (int i = 0; i < buscados.length; i++) {
+            Map<String, Set<ProduccionAudiovisual>> c =
+                    coincidentes(buscados[i], ultimoEsPrefijo && i == buscados.length - 1);
+            if (c.isEmpty()) return resultado;
+            aceptados.add(c);
+        }
+
+        int guia = 0;
+        if (aceptados.size() > 1) {
+            long menor = Long.MAX_VALUE;
+            for (int i = aceptados.size() - 1; i >= 0; i--) {
+                long n = 0;
+                for (Set<ProduccionAudiovisual> g : aceptados.get(i).values()) {
+                    n += g.size();
+                    if (n >= menor) break;
+                }
+                if (n < menor) {
+                    menor = n;
+                    guia = i;
+                }
+            }
+        }
+
+        Map<String, Set<ProduccionAudiovisual>> grupos = aceptados.get(guia);
+        boolean varios = grupos.size() > 1;
+        for (Map.Entry<String, Set<ProduccionAudiovisual>> grupo : grupos.entrySet()) {
+            for (ProduccionAudiovisual p : grupo.getValue()) {
+                String[] propios = porProduccion.get(p);
+                // Una producción está en un grupo por cada término que acepta el
+                // guía ("sol" y "soles"); se toma solo en el grupo del primero.
+                if (varios && !grupo.getKey().equals(primero(propios, grupos))) continue;
+                if (!contieneTodos(propios, aceptados, guia)) continue;
+                resultado.add(p);
+                if (resultado.size() >= limite) return resultado;
+            }
+        }
+        return resultado;
+    }
+
+    /** @return el primer término propio que está entre los aceptados */
+    private static String primero(String[] propios, Map<String, ?> aceptados) {
+        for (String t : propios) {
+            if (aceptados.containsKey(t)) return t;
+        }
+        return null;
+    }
+
+    /**
+     * Términos del índice que aceptan un término buscado: el propio término o,
+     * si es prefijo, todos los que empiezan por él; si no hay ninguno, los que
+     * están a distancia de edición 1.
+     */
+    private Map<String, Set<ProduccionAudiovisual>> coincidentes(String buscado, boolean prefijo) {
+        Map<String, Set<ProduccionAudiovisual>> r;
+        if (prefijo) {
+            r = terminos.subMap(buscado, true, buscado + Character.MAX_VALUE, false);
+        } else {
+            Set<ProduccionAudiovisual> g = terminos.get(buscado);
+            r = g == null ? Map.of() : Map.of(buscado, g);
+        }
+        if (!r.isEmpty() || buscado.length() < MIN_APROXIMADO) return r;
+
+        Map<String, Set<ProduccionAudiovisual>> aproximados = new HashMap<>();
+        List<String> claves = variantes(buscado);
+        claves.add(buscado);
+        for (String b : claves) {
+            Object v = borrados.get(b);
+            if (v == null) continue;
+            for (String t : v instanceof String u ? new String[]{u} : (String[]) v) {
+                if (!aproximados.containsKey(t) && distanciaUno(buscado, t)) aproximados.put(t, terminos.get(t));
+            }
+        }
+        // Variantes del término buscado que son términos completos (le sobra una letra).
+        for (String b : variantes(buscado)) {
+            Set<ProduccionAudiovisual> g = terminos.get(b);
+            if (g != null) aproximados.putIfAbsent(b, g);
+        }
+        return aproximados;
+    }
+
+    /**
+     * Verifica que una producción contenga, para cada término buscado distinto
+     * del guía, alguno de los términos que lo aceptan.
+     */
+    private static boolean contieneTodos(String[] propios, List<Map<String, Set<ProduccionAudiovisual>>> aceptados,
+                                         int guia) {
+        for (int i = 0; i < aceptados.size(); i++) {
+            if (i != guia && primero(propios, aceptados.get(i)) == null) return false;
+        }
+        return true;
+    }
+
+    // -----------------------------------------------------------
+    // TÉRMINOS
+    // -----------------------------------------------------------
+
+    /**
+     * @return términos distintos del título y del nombre del director
+     */
+    static String[] terminosDe(ProduccionAudiovisual p) {
+        Director d = p.getDirector();
+        String texto = p.getTitulo() == null ? "" : p.getTitulo();
+        if (d != null && d.getNombre() != null) texto = texto + ' ' + d.getNombre();
+        return new LinkedHashSet<>(List.of(tokenizar(texto))).toArray(new String[0]);
+    }
+
+    /**
+     * Divide un texto en términos en minúsculas y sin tildes.
+     *
+     * @param texto texto a dividir, puede ser {@code null}
+     * @return términos en el orden en que aparecen
+     */
+    static String[] tokenizar(String texto) {
+        if (texto == null || texto.isEmpty()) return new String[0];
+        List<String> r = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < PLIEGUE.length) {
+                c = PLIEGUE[c];
+            } else if (Character.isLetterOrDigit(c)) {
+                c = Character.toLowerCase(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0));
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            } else {
+                c = 0;
+            }
+
+            if (c != 0) {
+                actual.append(c);
+            } else if (actual.length() > 0) {
+                r.add(actual.toString());
+                actual.setLength(0);
+            }
+        }
+        if (actual.length() > 0) r.add(actual.toString());
+        return r.toArray(new String[0]);
+    }
+
+    /** Agrega un término al valor de una variante en {@code borrados}. */
+    private static Object unir(Object v, Object t) {
+        if (v instanceof String u) return new String[]{u, (String) t};
+        String[] a = (String[]) v;
+        String[] r = Arrays.copyOf(a, a.length + 1);
+        r[a.length] = (String) t;
+        return r;
+    }
+
+    /** Quita un término del valor de una variante; {@code null} si queda vacío. */
+    private static Object separar(Object v, String t) {
+        if (v instanceof String u) return u.equals(t) ? null : u;
+        String[] a = (String[]) v;
+        List<String> r = new ArrayList<>(List.of(a));
+        r.remove(t);
+        return r.size() == 1 ? r.get(0) : r.toArray(new String[0]);
+    }
+
+    /** @return las variantes de un término con una letra menos */
+    private static List<String> variantes(String t) {
+        List<String> r = new ArrayList<>(t.length());
+        for (int i = 0; i < t.length(); i++) {
+            r.add(t.substring(0, i) + t.substring(i + 1));
+        }
+        return r;
+    }
+
+    /**
+     * @return {@code true} si los términos difieren en una sola edición: una
+     *         letra agregada, quitada o cambiada, o dos letras vecinas intercambiadas
+     */
+    static boolean distanciaUno(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1 || a.equals(b)) return false;
+        if (la < lb) return distanciaUno(b, a);
+
+        int i = 0;
+        while (i < lb && a.charAt(i) == b.charAt(i)) i++;
+        if (la != lb) return a.regionMatches(i + 1, b, i, lb - i);
+        if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) return true;
+        return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+    }
+}
@@ -0,0 +1,157 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Índices secundarios sobre los atributos de las producciones, usados para
+ * resolver una {@link Consulta} sin recorrer todo el catálogo.
+ *
+ * <ul>
+ *   <li>Índices hash por género (solo películas) y por nombre de director,
+ *       ambos con la clave normalizada de {@link ImplOperacionCrud#clave}.</li>
+ *   <li>Índices ordenados por año de estreno y por duración, para rangos.</li>
+ * </ul>
+ *
+ * <p>Las producciones no redefinen {@code equals}, así que cada grupo
+ * identifica a sus producciones por instancia; quien mantiene los índices debe
+ * quitar la instancia anterior antes de agregar la nueva al modificar.</p>
+ *
+ * <p>No es segura para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+class IndicesSecundarios {
+
+    private final Map<String, Set<ProduccionAudiovisual>> porGenero = new HashMap<>();
+    private final Map<String, Set<ProduccionAudiovisual>> porDirector = new HashMap<>();
+    private final NavigableMap<Integer, Set<ProduccionAudiovisual>> porAnio = new TreeMap<>();
+    private final NavigableMap<Integer, Set<ProduccionAudiovisual>> porDuracion = new TreeMap<>();
+
+    /**
+     * Construye los índices a partir de un conjunto de producciones.
+     *
+     * @param producciones producciones a indexar
+     */
+    IndicesSecundarios(Collection<ProduccionAudiovisual> producciones) {
+        for (ProduccionAudiovisual p : producciones) agregar(p);
+    }
+
+    // -----------------------------------------------------------
+    // MANTENIMIENTO
+    // -----------------------------------------------------------
+
+    /**
+     * @param p producción agregada al catálogo
+     */
+    void agregar(ProduccionAudiovisual p) {
+        agregar(porGenero, Consulta.claveGenero(p), p);
+        agregar(porDirector, Consulta.claveDirector(p), p);
+        agregar(porAnio, p.getFechaEstreno(), p);
+        agregar(porDuracion, p.getDuracionMin(), p);
+    }
+
+    /**
+     * @param p producción que deja el catálogo, con los mismos valores que tenía al agregarse
+     */
+    void quitar(ProduccionAudiovisual p) {
+        quitar(porGenero, Consulta.claveGenero(p), p);
+        quitar(porDirector, Consulta.claveDirector(p), p);
+        quitar(porAnio, p.getFechaEstreno(), p);
+        quitar(porDuracion, p.getDuracionMin(), p);
+    }
+
+    private static <K> void agregar(Map<K, Set<ProduccionAudiovisual>> indice, K k, ProduccionAudiovisual p) {
+        if (k == null) return;
+        indice.computeIfAbsent(k, x -> new LinkedHashSet<>()).add(p);
+    }
+
+    private static <K> void quitar(Map<K, Set<ProduccionAudiovisual>> indice, K k, ProduccionAudiovisual p) {
+        if (k == null) return;
+        Set<ProduccionAudiovisual> grupo = indice.get(k);
+        if (grupo != null && grupo.remove(p) && grupo.isEmpty()) indice.remove(k);
+    }
+
+    // -----------------------------------------------------------
+    // PLANIFICACIÓN
+    // -----------------------------------------------------------
+
+    /**
+     * Elige el índice más selectivo para la consulta y retorna sus candidatos.
+     *
+     * <p>Cada criterio de igualdad cuesta lo que mide su grupo; cada rango, la
+     * suma de los grupos que abarca. Se usa el de menor costo y los demás
+     * criterios se verifican sobre sus candidatos. Al estimar un rango se deja
+     * de sumar en cuanto supera el mejor costo encontrado.</p>
+     *
+     * @param c     consulta a resolver
+     * @param total tamaño del catálogo, costo de recorrerlo completo
+     * @return producciones que coinciden, o {@code null} si ningún índice
+     *         mejora el recorrido completo
+     */
+    List<ProduccionAudiovisual> resolver(Consulta c, int total) {
+        Collection<Set<ProduccionAudiovisual>> mejor = null;
+        long costo = total;
+
+        if (c.getGenero() != null) {
+            Set<ProduccionAudiovisual> g = porGenero.get(c.getGenero());
+            if (g == null) return new ArrayList<>();
+            if (g.size() < costo) {
+                mejor = List.of(g);
+                costo = g.size();
+            }
+        }
+        if (c.getDirector() != null) {
+            Set<ProduccionAudiovisual> g = porDirector.get(c.getDirector());
+            if (g == null) return new ArrayList<>();
+            if (g.size() < costo) {
+                mejor = List.of(g);
+                costo = g.size();
+            }
+        }
+        if (c.filtraAnio()) {
+            Collection<Set<ProduccionAudiovisual>> r = porAnio.subMap(c.getAnioDesde(), true, c.getAnioHasta(), true).values();
+            long n = medir(r, costo);
+            if (n < costo) {
+                mejor = r;
+                costo = n;
+            }
+        }
+        if (c.filtraDuracion()) {
+            Collection<Set<ProduccionAudiovisual>> r = porDuracion.subMap(c.getDuracionDesde(), true, c.getDuracionHasta(), true).values();
+            long n = medir(r, costo);
+            if (n < costo) {
+                mejor = r;
+                costo = n;
+            }
+        }
+        if (mejor == null) return null;
+
+        List<ProduccionAudiovisual> resultado = new ArrayList<>();
+        for (Set<ProduccionAudiovisual> grupo : mejor) {
+            for (ProduccionAudiovisual p : grupo) {
+                if (c.coincide(p)) resultado.add(p);
+            }
+        }
+        return resultado;
+    }
+
+    /** Suma el tamaño de los grupos, deteniéndose al alcanzar {@code limite}. */
+    private static long medir(Collection<Set<ProduccionAudiovisual>> grupos, long limite) {
+        long n = 0;
+        for (Set<ProduccionAudiovisual> grupo : grupos) {
+            n += grupo.size();
+            if (n >= limite) break;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,213 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+/**
+ * Lectura y escritura de producciones como objetos JSON de una línea
+ * (JSON Lines).
+ *
+ * <p>Cada producción es un objeto plano con los mismos campos que
+ * {@link CsvProduccion#CABECERA}, por ejemplo:</p>
+ * <pre>
+ *   {"codigo":"P1","tipo":"Película","titulo":"Origen","anio":2010,"duracion":148,
+ *    "director_id":"D1","director":"Nolan","nacionalidad":"Británica","genero":"Ciencia ficción"}
+ * </pre>
+ *
+ * <p>Los valores pueden ser textos, números, booleanos o {@code null}; se
+ * ignoran los campos desconocidos. No se aceptan objetos ni arreglos
+ * anidados.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class JsonProduccion {
+
+    private JsonProduccion() {}
+
+    /**
+     * @param linea objeto JSON en una línea
+     * @return producción del objeto
+     * @throws IllegalArgumentException con el motivo, si el objeto no es válido
+     */
+    public static ProduccionAudiovisual leer(String linea) {
+        return CamposProduccion.construir(new Lector(linea).objeto());
+    }
+
+    /**
+     * Agrega una producción como un objeto JSON en una línea, sin el salto de
+     * línea. Los campos ausentes no se escriben.
+     *
+     * @param sb destino
+     * @param p  producción a escribir
+     */
+    public static void escribir(StringBuilder sb, ProduccionAudiovisual p) {
+        String[] v = CamposProduccion.valores(p);
+        sb.append('{');
+        boolean primero = true;
+        for (int i = 0; i < v.length; i++) {
+            if (v[i] == null) continue;
+            if (!primero) sb.append(',');
+            primero = false;
+            escribirTexto(sb, CamposProduccion.NOMBRES[i]);
+            sb.append(':');
+            if (CamposProduccion.esNumerico(i)) {
+                sb.append(v[i]);
+            } else {
+                escribirTexto(sb, v[i]);
+            }
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Agrega un texto como cadena JSON, entre comillas y con los caracteres
+     * especiales escapados.
+     *
+     * @param sb destino
+     * @param s  texto a escribir
+     */
+    public static void escribirTexto(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Analizador de un objeto JSON plano.
+     */
+    private static final class Lector {
+        private final String s;
+        private int i;
+
+        Lector(String s) {
+            this.s = s;
+        }
+
+        /** @return valores de los campos, indexados como {@link CamposProduccion#NOMBRES} */
+        String[] objeto() {
+            String[] v = new String[CamposProduccion.NOMBRES.length];
+            espacios();
+            esperar('{');
+            espacios();
+            if (!consumir('}')) {
+                do {
+                    espacios();
+                    String nombre = texto();
+                    espacios();
+                    esperar(':');
+                    espacios();
+                    String valor = valor();
+                    int campo = CamposProduccion.indice(nombre);
+                    if (campo >= 0) {
+                        if (v[campo] != null) throw error("Campo repetido: " + nombre);
+                        v[campo] = valor;
+                    }
+                    espacios();
+                } while (consumir(','));
+                esperar('}');
+            }
+            espacios();
+            if (i < s.length()) throw error("Texto después del objeto");
+            return v;
+        }
+
+        private String valor() {
+            if (i >= s.length()) throw error("Falta un valor");
+            char c = s.charAt(i);
+            if (c == '"') return texto();
+            if (c == '{' || c == '[') throw error("Valor anidado no soportado");
+            int inicio = i;
+            while (i < s.length() && "-+.0123456789eEtrufalsn".indexOf(s.charAt(i)) >= 0) i++;
+            String literal = s.substring(inicio, i);
+            if (literal.equals("null")) return null;
+            if (literal.equals("true") || literal.equals("false")) return literal;
+            if (literal.isEmpty() || !Character.isDigit(literal.charAt(literal.length() - 1))) {
+                throw error("Valor inválido en la posición " + inicio);
+            }
+            if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0) {
+                // 148.0 se acepta como 148; 148.5 lo rechaza la validación
+                double d;
+                try {
+                    d = Double.parseDouble(literal);
+                } catch (NumberFormatException e) {
+                    throw error("Número inválido: " + literal);
+                }
+                return d == Math.rint(d) && Math.abs(d) <= Integer.MAX_VALUE ? Integer.toString((int) d) : literal;
+            }
+            return literal;
+        }
+
+        private String texto() {
+            esperar('"');
+            StringBuilder sb = null;
+            int inicio = i;
+            while (true) {
+                if (i >= s.length()) throw error("Texto sin cerrar");
+                char c = s.charAt(i++);
+                if (c == '"') {
+                    return sb == null ? s.substring(inicio, i - 1) : sb.toString();
+                }
+                if (c != '\\') {
+                    if (sb != null) sb.append(c);
+                    continue;
+                }
+                if (sb == null) sb = new StringBuilder().append(s, inicio, i - 1);
+                if (i >= s.length()) throw error("Texto sin cerrar");
+                char e = s.charAt(i++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > s.length()) throw error("Escape \\u incompleto");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("Escape \\u inválido");
+                        }
+                        i += 4;
+                    }
+                    default -> throw error("Escape inválido: \\" + e);
+                }
+            }
+        }
+
+        private void espacios() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        }
+
+        private boolean consumir(char c) {
+            if (i < s.length() && s.charAt(i) == c) {
+                i++;
+                return true;
+            }
+            return false;
+        }
+
+        private void esperar(char c) {
+            if (!consumir(c)) throw error("Se esperaba '" + c + "' en la posición " + i);
+        }
+
+        private IllegalArgumentException error(String motivo) {
+            return new IllegalArgumentException("JSON inválido: " + motivo);
+        }
+    }
+}
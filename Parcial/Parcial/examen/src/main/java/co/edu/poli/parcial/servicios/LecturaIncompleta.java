@@ -0,0 +1,79 @@
+package co.edu.poli.parcial.servicios;
+
+import java.io.EOFException;
+import java.nio.file.Path;
+
+/**
+ * Resultado de una carga que no pudo leer completo el archivo de datos y
+ * recuperó solo una parte, o nada.
+ *
+ * <p>{@link OperacionArchivo} lo entrega al aviso configurado con
+ * {@link OperacionArchivo#setAvisoLecturaIncompleta(java.util.function.Consumer)},
+ * para que quien inició la carga sepa que hubo pérdida de datos y dónde quedó
+ * la copia del archivo dañado.</p>
+ *
+ * @author Felipe Parra
+ */
+public final class LecturaIncompleta {
+
+    private final Path archivo;
+    private final int recuperadas;
+    private final int total;
+    private final Exception causa;
+    private final Path copia;
+
+    /**
+     * @param archivo     archivo que no se pudo leer completo
+     * @param recuperadas cantidad de producciones recuperadas
+     * @param total       cantidad de producciones según la cabecera, o {@code -1} si no se conoce
+     * @param causa       error que detuvo la lectura
+     * @param copia       copia del archivo dañado, o {@code null} si no se pudo copiar
+     */
+    LecturaIncompleta(Path archivo, int recuperadas, int total, Exception causa, Path copia) {
+        this.archivo = archivo;
+        this.recuperadas = recuperadas;
+        this.total = total;
+        this.causa = causa;
+        this.copia = copia;
+    }
+
+    /** @return archivo que no se pudo leer completo */
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /** @return cantidad de producciones recuperadas */
+    public int getRecuperadas() {
+        return recuperadas;
+    }
+
+    /** @return cantidad de producciones según la cabecera, o {@code -1} si no se conoce */
+    public int getTotal() {
+        return total;
+    }
+
+    /** @return error que detuvo la lectura */
+    public Exception getCausa() {
+        return causa;
+    }
+
+    /** @return copia del archivo dañado, o {@code null} si no se pudo copiar */
+    public Path getCopia() {
+        return copia;
+    }
+
+    /**
+     * @return descripción para mostrar al usuario
+     */
+    @Override
+    public String toString() {
+        String motivo = causa instanceof EOFException ? "archivo truncado" : causa.getMessage();
+        String recuperado = total >= 0
+                ? "se recuperaron " + recuperadas + " de " + total + " producciones"
+                : "no se recuperó ninguna producción";
+        String respaldo = copia != null
+                ? "Se conservó una copia del archivo dañado en " + copia + "."
+                : "No se pudo copiar el archivo dañado.";
+        return "Archivo dañado (" + motivo + "): " + recuperado + ". " + respaldo;
+    }
+}
@@ -0,0 +1,84 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Secuencia de operaciones {@code crear}, {@code modificar} y
+ * {@code eliminar} que se aplican juntas con {@link OperacionCrud#aplicar(Lote)}.
+ *
+ * <p>Las operaciones se interpretan en el orden en que se agregan, igual que
+ * si se llamaran una a una: una producción creada en el lote puede
+ * modificarse o eliminarse más adelante en el mismo lote. Se construye
+ * encadenando las operaciones:</p>
+ * <pre>
+ *   servicio.aplicar(new Lote()
+ *           .crear(nueva)
+ *           .modificar("P1", cambiada)
+ *           .eliminar("P2"));
+ * </pre>
+ *
+ * @author Felipe Parra
+ */
+public final class Lote {
+
+    /**
+     * Una operación del lote. El tipo usa las mismas etiquetas que los
+     * registros de {@link BitacoraCambios}.
+     */
+    static final class Operacion {
+        final byte tipo;
+        final String codigo;
+        final ProduccionAudiovisual produccion;
+
+        Operacion(byte tipo, String codigo, ProduccionAudiovisual produccion) {
+            this.tipo = tipo;
+            this.codigo = codigo;
+            this.produccion = produccion;
+        }
+    }
+
+    private final List<Operacion> operaciones = new ArrayList<>();
+
+    /**
+     * @param p producción a crear
+     * @return este lote
+     */
+    public Lote crear(ProduccionAudiovisual p) {
+        operaciones.add(new Operacion(BitacoraCambios.CREAR, p.getCodigo(), p));
+        return this;
+    }
+
+    /**
+     * @param codigo código de la producción a modificar
+     * @param nuevo  producción con los nuevos valores
+     * @return este lote
+     */
+    public Lote modificar(String codigo, ProduccionAudiovisual nuevo) {
+        operaciones.add(new Operacion(BitacoraCambios.MODIFICAR, codigo, Objects.requireNonNull(nuevo)));
+        return this;
+    }
+
+    /**
+     * @param codigo código de la producción a eliminar
+     * @return este lote
+     */
+    public Lote eliminar(String codigo) {
+        operaciones.add(new Operacion(BitacoraCambios.ELIMINAR, codigo, null));
+        return this;
+    }
+
+    /** @return cantidad de operaciones del lote */
+    public int tamano() {
+        return operaciones.size();
+    }
+
+    /** @return operaciones en orden, sin copiar */
+    List<Operacion> getOperaciones() {
+        return Collections.unmodifiableList(operaciones);
+    }
+}
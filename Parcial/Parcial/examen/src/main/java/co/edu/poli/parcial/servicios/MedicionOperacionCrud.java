@@ -0,0 +1,209 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.metricas.MetricaOperacion;
+import co.edu.poli.parcial.metricas.Metricas;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Envoltorio de otro {@link OperacionCrud} que mide cada operación en las
+ * {@link Metricas} globales, sin cambiar su comportamiento.
+ *
+ * <p>Las métricas se llaman {@code <nombre>.<operación>}, por ejemplo
+ * {@code servidor.buscarPorCodigo}, y el tamaño del catálogo se publica con
+ * el nombre dado. Medir una llamada cuesta unas decenas de nanosegundos, así
+ * que el envoltorio puede quedar siempre puesto; las llamadas más lentas que
+ * el umbral de eventos quedan además en Java Flight Recorder con su código.</p>
+ *
+ * <p>Es seguro para uso concurrente si el servicio envuelto lo es.</p>
+ *
+ * @author Felipe Parra
+ */
+public class MedicionOperacionCrud implements OperacionCrud {
+
+    private final OperacionCrud respaldo;
+
+    private final MetricaOperacion crear;
+    private final MetricaOperacion buscar;
+    private final MetricaOperacion modificar;
+    private final MetricaOperacion eliminar;
+    private final MetricaOperacion aplicar;
+    private final MetricaOperacion listar;
+    private final MetricaOperacion consultar;
+    private final MetricaOperacion buscarTexto;
+
+    /**
+     * @param respaldo servicio a medir
+     * @param nombre   prefijo de las métricas y nombre del catálogo
+     */
+    public MedicionOperacionCrud(OperacionCrud respaldo, String nombre) {
+        this.respaldo = respaldo;
+        Metricas metricas = Metricas.global();
+        crear = metricas.operacion(nombre + ".crear");
+        buscar = metricas.operacion(nombre + ".buscarPorCodigo");
+        modificar = metricas.operacion(nombre + ".modificar");
+        eliminar = metricas.operacion(nombre + ".eliminar");
+        aplicar = metricas.operacion(nombre + ".aplicar");
+        listar = metricas.operacion(nombre + ".listar");
+        consultar = metricas.operacion(nombre + ".consultar");
+        buscarTexto = metricas.operacion(nombre + ".buscarTexto");
+        metricas.medirCatalogo(nombre, respaldo, OperacionCrud::contar);
+    }
+
+    /** @return servicio medido */
+    public OperacionCrud getRespaldo() {
+        return respaldo;
+    }
+
+    // -----------------------------------------------------------
+    // CRUD
+    // -----------------------------------------------------------
+
+    @Override
+    public void crear(ProduccionAudiovisual p) {
+        long inicio = crear.iniciar();
+        boolean exitosa = false;
+        try {
+            respaldo.crear(p);
+            exitosa = true;
+        } finally {
+            crear.terminar(inicio, p.getCodigo(), exitosa);
+        }
+    }
+
+    @Override
+    public ProduccionAudiovisual buscarPorCodigo(String codigo) {
+        long inicio = buscar.iniciar();
+        boolean exitosa = false;
+        try {
+            ProduccionAudiovisual p = respaldo.buscarPorCodigo(codigo);
+            exitosa = true;
+            return p;
+        } finally {
+            buscar.terminar(inicio, codigo, exitosa);
+        }
+    }
+
+    @Override
+    public boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+        long inicio = modificar.iniciar();
+        boolean exitosa = false;
+        try {
+            boolean r = respaldo.modificar(codigo, nuevo);
+            exitosa = true;
+            return r;
+        } finally {
+            modificar.terminar(inicio, codigo, exitosa);
+        }
+    }
+
+    @Override
+    public boolean eliminar(String codigo) {
+        long inicio = eliminar.iniciar();
+        boolean exitosa = false;
+        try {
+            boolean r = respaldo.eliminar(codigo);
+            exitosa = true;
+            return r;
+        } finally {
+            eliminar.terminar(inicio, codigo, exitosa);
+        }
+    }
+
+    @Override
+    public int aplicar(Lote lote) {
+        long inicio = aplicar.iniciar();
+        boolean exitosa = false;
+        try {
+            int r = respaldo.aplicar(lote);
+            exitosa = true;
+            return r;
+        } finally {
+            aplicar.terminar(inicio, null, exitosa);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // RECORRIDOS Y CONSULTAS
+    // -----------------------------------------------------------
+
+    @Override
+    public List<ProduccionAudiovisual> listarTodos() {
+        long inicio = listar.iniciar();
+        boolean exitosa = false;
+        try {
+            List<ProduccionAudiovisual> r = respaldo.listarTodos();
+            exitosa = true;
+            return r;
+        } finally {
+            listar.terminar(inicio, null, exitosa);
+        }
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        long inicio = listar.iniciar();
+        boolean exitosa = false;
+        try {
+            List<ProduccionAudiovisual> r = respaldo.listarRango(desde, cantidad);
+            exitosa = true;
+            return r;
+        } finally {
+            listar.terminar(inicio, null, exitosa);
+        }
+    }
+
+    /** No se mide: su duración depende de la acción. */
+    @Override
+    public void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        respaldo.recorrerTodos(accion);
+    }
+
+    @Override
+    public int contar() {
+        return respaldo.contar();
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        long inicio = consultar.iniciar();
+        boolean exitosa = false;
+        try {
+            List<ProduccionAudiovisual> r = respaldo.consultar(consulta);
+            exitosa = true;
+            return r;
+        } finally {
+            consultar.terminar(inicio, null, exitosa);
+        }
+    }
+
+    @Override
+    public List<ProduccionAudiovisual> buscarTexto(String texto, int limite) {
+        long inicio = buscarTexto.iniciar();
+        boolean exitosa = false;
+        try {
+            List<ProduccionAudiovisual> r = respaldo.buscarTexto(texto, limite);
+            exitosa = true;
+            return r;
+        } finally {
+            buscarTexto.terminar(inicio, texto, exitosa);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // CAMBIOS
+    // -----------------------------------------------------------
+
+    @Override
+    public void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        respaldo.suscribir(observador, entregarEn);
+    }
+
+    @Override
+    public boolean desuscribir(ObservadorCambios observador) {
+        return respaldo.desuscribir(observador);
+    }
+}
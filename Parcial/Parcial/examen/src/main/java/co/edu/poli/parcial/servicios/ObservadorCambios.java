@@ -0,0 +1,24 @@
+package co.edu.poli.parcial.servicios;
+
+import java.util.List;
+
+/**
+ * Receptor de los cambios de un {@link OperacionCrud}.
+ *
+ * <p>Los cambios llegan por ráfagas y ya resumidos (ver
+ * {@link EventoCambio}), en el ejecutor indicado al suscribirse. Cuando se
+ * reciben, el servicio ya refleja al menos todos los cambios entregados.</p>
+ *
+ * @author Felipe Parra
+ * @see OperacionCrud#suscribir(ObservadorCambios, java.util.concurrent.Executor)
+ */
+@FunctionalInterface
+public interface ObservadorCambios {
+
+    /**
+     * Recibe una ráfaga de cambios.
+     *
+     * @param eventos cambios en el orden en que ocurrieron; nunca vacía
+     */
+    void cambios(List<EventoCambio> eventos);
+}
@@ -1,10 +1,24 @@
 package co.edu.poli.parcial.servicios;
 
+import co.edu.poli.parcial.metricas.MedicionArchivo;
 import co.edu.poli.parcial.model.ProduccionAudiovisual;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Clase encargada de la persistencia de datos mediante serialización.
@@ -14,41 +28,432 @@ import java.util.List;
  * denominado <strong>data.dat</strong>.</p>
  *
  * <p>Esta clase es utilizada por {@link ImplOperacionCrud} para manejar la
- * persistencia del sistema.</p>
+ * persistencia del sistema. En el modo con bitácora, los cambios se anexan a
+ * un archivo {@code data.dat.log} (ver {@link BitacoraCambios}) y la
+ * instantánea solo se reescribe al compactar.</p>
+ *
+ * <p>Soporta dos formatos de archivo, identificados por su cabecera: la
+ * serialización estándar de Java (formato original) y el formato binario
+ * compacto de {@link CodecProduccion}, que es el utilizado por defecto al
+ * guardar, con los bloques comprimidos según {@link #setCompresion}. La carga
+ * detecta el formato automáticamente, por lo que un archivo antiguo se migra
+ * al volver a guardarlo o mediante {@link #migrarArchivo()}.</p>
+ *
+ * <p>Las variantes asíncronas ({@link #guardarArchivoAsync} y
+ * {@link #cargarArchivoAsync}) se ejecutan en un hilo dedicado de entrada y
+ * salida, informan el avance y pueden cancelarse con
+ * {@link CompletableFuture#cancel(boolean)}. {@link #cargarArchivoPorLotes}
+ * entrega además las producciones en lotes a medida que se leen, sin esperar
+ * al final del archivo.</p>
+ *
+ * <p>Todo guardado escribe primero un archivo temporal, lo sincroniza con el
+ * disco según la {@link PoliticaSincronizacion} y lo renombra de forma atómica
+ * sobre el archivo de datos, así que una caída deja el archivo anterior o el
+ * nuevo, nunca uno a medio escribir. Al cargar, un archivo binario con bloques
+ * dañados se recupera hasta el último bloque válido; el archivo dañado se
+ * conserva como {@code data.dat.danado} antes de que un guardado lo reemplace,
+ * y el resultado se entrega como {@link LecturaIncompleta} al
+ * {@link #setAvisoLecturaIncompleta(Consumer) aviso configurado}.
+ * Con {@link #setLecturaEstricta(boolean) lectura estricta}, en cambio, la
+ * carga falla sin recuperar nada.</p>
+ *
+ * <p>Cada guardado y cada lectura completa se miden con
+ * {@link MedicionArchivo}: duración, producciones y bytes quedan en las
+ * métricas y, si hay una grabación activa, en Java Flight Recorder.</p>
  *
  * @author Felipe Parra
  */
 public class OperacionArchivo {
 
+    /**
+     * Formatos de archivo soportados.
+     */
+    public enum Formato {
+        /** Serialización estándar de Java mediante {@link ObjectOutputStream}. */
+        SERIALIZACION_JAVA,
+        /** Formato binario compacto y versionado de {@link CodecProduccion}. */
+        BINARIO
+    }
+
     /** Nombre del archivo donde se almacenan los datos serializados. */
-    private final String archivo = "data.dat";
+    private final String archivo;
+
+    /** Formato utilizado al guardar. */
+    private Formato formato = Formato.BINARIO;
+
+    /** Política de sincronización con el disco de instantáneas y bitácora. */
+    private PoliticaSincronizacion politica = PoliticaSincronizacion.SIEMPRE;
+
+    /** Compresión de los bloques en el formato binario. */
+    private CodecCompresion compresion = CodecCompresion.DEFLATE_RAPIDO;
+
+    /** Si una lectura incompleta falla en lugar de recuperar lo legible. */
+    private volatile boolean lecturaEstricta;
+
+    /** Receptor de las cargas que recuperaron solo una parte del archivo. */
+    private volatile Consumer<LecturaIncompleta> avisoLecturaIncompleta = AVISO_CONSOLA;
+
+    /** Aviso por defecto: escribe el resultado de la recuperación en la consola. */
+    public static final Consumer<LecturaIncompleta> AVISO_CONSOLA = System.out::println;
+
+    /** Cada cuántas producciones se informa el avance. */
+    private static final int PASO_PROGRESO = 1024;
+
+    /**
+     * Hilo dedicado a las operaciones asíncronas de archivo. Es uno solo para
+     * que dos guardados sobre el mismo archivo nunca se intercalen.
+     */
+    private static final ExecutorService ENTRADA_SALIDA = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "archivo-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Constructor que utiliza el archivo por defecto {@code data.dat}.
+     */
+    public OperacionArchivo() {
+        this("data.dat");
+    }
+
+    /**
+     * Constructor que permite indicar el archivo de datos.
+     *
+     * @param archivo ruta del archivo donde se almacenan los datos
+     */
+    public OperacionArchivo(String archivo) {
+        this.archivo = archivo;
+    }
+
+    /** @return ruta del archivo de datos */
+    public String getArchivo() {
+        return archivo;
+    }
+
+    /** @return formato utilizado al guardar */
+    public Formato getFormato() {
+        return formato;
+    }
+
+    /** @param formato formato a utilizar en los siguientes guardados */
+    public void setFormato(Formato formato) {
+        this.formato = formato;
+    }
+
+    /** @return compresión de los bloques en el formato binario */
+    public CodecCompresion getCompresion() {
+        return compresion;
+    }
+
+    /**
+     * Define cómo se comprimen los bloques en los siguientes guardados en
+     * formato {@link Formato#BINARIO}. La carga no depende de este valor: cada
+     * bloque indica su compresión.
+     *
+     * @param compresion codec a utilizar ({@link CodecCompresion#DEFLATE_RAPIDO} por defecto)
+     */
+    public void setCompresion(CodecCompresion compresion) {
+        this.compresion = compresion;
+    }
+
+    /** @return política de sincronización con el disco */
+    public PoliticaSincronizacion getPoliticaSincronizacion() {
+        return politica;
+    }
+
+    /**
+     * Define cuándo se fuerza la escritura en el disco. Afecta a los siguientes
+     * guardados y a las bitácoras creadas después de llamarlo.
+     *
+     * @param politica política a utilizar ({@link PoliticaSincronizacion#SIEMPRE} por defecto)
+     */
+    public void setPoliticaSincronizacion(PoliticaSincronizacion politica) {
+        this.politica = politica;
+    }
+
+    /** @return {@code true} si una lectura incompleta falla en lugar de recuperarse */
+    boolean isLecturaEstricta() {
+        return lecturaEstricta;
+    }
+
+    /**
+     * Define si las cargas deben leer el archivo completo. En modo estricto, un
+     * archivo dañado, truncado o ilegible hace fallar la carga (con
+     * {@link UncheckedIOException} en {@link #cargarArchivo()} y de forma
+     * excepcional en las variantes asíncronas) y no se copia a
+     * {@code .danado}, en lugar de recuperar las producciones legibles o
+     * devolver una lista vacía.
+     *
+     * <p>Lo utiliza el modo bitácora: reproducir la bitácora sobre una
+     * instantánea incompleta y compactar después haría definitiva la pérdida.</p>
+     *
+     * @param estricta {@code true} para que las cargas incompletas fallen
+     */
+    void setLecturaEstricta(boolean estricta) {
+        this.lecturaEstricta = estricta;
+    }
+
+    /** @return receptor de las cargas que recuperaron solo una parte del archivo */
+    public Consumer<LecturaIncompleta> getAvisoLecturaIncompleta() {
+        return avisoLecturaIncompleta;
+    }
+
+    /**
+     * Define quién recibe el resultado de una carga que no pudo leer completo
+     * el archivo: cuántas producciones se recuperaron, por qué se detuvo y
+     * dónde quedó la copia del archivo dañado. La carga sigue retornando las
+     * producciones recuperadas; sin este aviso, quien la inició no podría
+     * distinguirla de una carga completa.
+     *
+     * <p>Se invoca desde el hilo que ejecuta la carga, que en las variantes
+     * asíncronas es el hilo de entrada y salida.</p>
+     *
+     * @param aviso receptor a utilizar ({@link #AVISO_CONSOLA} por defecto)
+     */
+    public void setAvisoLecturaIncompleta(Consumer<LecturaIncompleta> aviso) {
+        this.avisoLecturaIncompleta = aviso;
+    }
 
     /**
      * Guarda en el archivo binario la lista completa de producciones audiovisuales.
      *
-     * <p>Utiliza {@link ObjectOutputStream} para serializar el contenido.
-     * Si ocurre algún error, el método lo notifica por consola.</p>
+     * <p>Utiliza el formato configurado ({@link Formato#BINARIO} por defecto).
+     * El archivo anterior solo se reemplaza cuando el nuevo quedó escrito por
+     * completo. Si ocurre algún error, el método lo notifica por consola.</p>
      *
      * @param lista lista de objetos {@link ProduccionAudiovisual} a serializar
      */
     public void guardarArchivo(List<ProduccionAudiovisual> lista) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(archivo))) {
-            oos.writeObject(lista);
+        try {
+            guardarInstantanea(lista);
             System.out.println("Archivo guardado correctamente.");
         } catch (IOException e) {
             System.out.println("Error al guardar: " + e.getMessage());
         }
     }
 
+    /**
+     * Guarda la lista en segundo plano, en el hilo de entrada y salida.
+     *
+     * <p>La escritura se hace sobre un archivo temporal que se renombra al
+     * terminar, por lo que cancelar o fallar deja intacto el archivo anterior.
+     * La lista no debe modificarse mientras se guarda; normalmente es una copia.</p>
+     *
+     * @param lista    producciones a guardar
+     * @param progreso receptor del avance
+     * @return tarea que termina al quedar guardado el archivo, o de forma
+     *         excepcional si falla o se cancela
+     */
+    public CompletableFuture<Void> guardarArchivoAsync(List<ProduccionAudiovisual> lista,
+                                                       ProgresoOperacion progreso) {
+        CompletableFuture<Void> resultado = new CompletableFuture<>();
+        ENTRADA_SALIDA.execute(() -> {
+            if (resultado.isDone()) return;
+            try {
+                guardarInstantanea(lista, progreso, resultado::isCancelled);
+                resultado.complete(null);
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Carga el archivo en segundo plano, en el hilo de entrada y salida.
+     *
+     * <p>Si el archivo no existe, la tarea termina con una lista vacía.</p>
+     *
+     * @param progreso receptor del avance
+     * @return tarea que termina con la lista cargada, o de forma excepcional
+     *         si falla o se cancela
+     */
+    public CompletableFuture<List<ProduccionAudiovisual>> cargarArchivoAsync(ProgresoOperacion progreso) {
+        CompletableFuture<List<ProduccionAudiovisual>> resultado = new CompletableFuture<>();
+        ENTRADA_SALIDA.execute(() -> {
+            if (resultado.isDone()) return;
+            try {
+                Path ruta = Paths.get(archivo);
+                resultado.complete(Files.exists(ruta)
+                        ? leer(ruta, progreso, resultado::isCancelled, !lecturaEstricta)
+                        : new ArrayList<>());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Reescribe el archivo de datos en formato {@link Formato#BINARIO},
+     * sin importar el formato en que esté guardado actualmente.
+     *
+     * @return {@code true} si el archivo se migró, {@code false} si no existe,
+     *         ya estaba en formato binario o no se pudo leer
+     */
+    public boolean migrarArchivo() {
+        Path ruta = Paths.get(archivo);
+        if (!Files.exists(ruta)) return false;
+        try {
+            if (detectarFormato(ruta) == Formato.BINARIO) return false;
+            List<ProduccionAudiovisual> lista = leer(ruta, ProgresoOperacion.NINGUNO, () -> false, !lecturaEstricta);
+            Formato anterior = formato;
+            formato = Formato.BINARIO;
+            try {
+                guardarInstantanea(lista);
+            } finally {
+                formato = anterior;
+            }
+            System.out.println("Archivo migrado a formato binario.");
+            return true;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("Error al migrar: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Lee el archivo en segundo plano entregando las producciones en lotes a
+     * medida que se decodifican, de modo que quien las consume puede mostrar
+     * las primeras sin esperar a que termine la lectura.
+     *
+     * <p>El formato binario se decodifica registro a registro. Un archivo en
+     * serialización de Java se lee completo y luego se entrega por lotes.
+     * El consumidor se invoca desde el hilo de entrada y salida.</p>
+     *
+     * @param tamLote    cantidad de producciones por lote
+     * @param consumidor receptor de cada lote; no se conserva la lista entregada
+     * @param progreso   receptor del avance
+     * @return tarea que termina con la cantidad total de producciones leídas
+     */
+    public CompletableFuture<Integer> cargarArchivoPorLotes(int tamLote,
+                                                          Consumer<List<ProduccionAudiovisual>> consumidor,
+                                                          ProgresoOperacion progreso) {
+        if (tamLote <= 0) throw new IllegalArgumentException("Tamaño de lote inválido: " + tamLote);
+        CompletableFuture<Integer> resultado = new CompletableFuture<>();
+        ENTRADA_SALIDA.execute(() -> {
+            if (resultado.isDone()) return;
+            try {
+                Path ruta = Paths.get(archivo);
+                if (!Files.exists(ruta)) {
+                    resultado.complete(0);
+                    return;
+                }
+                var agrupador = new Object() {
+                    List<ProduccionAudiovisual> lote = new ArrayList<>(tamLote);
+
+                    void agregar(ProduccionAudiovisual p) {
+                        lote.add(p);
+                        if (lote.size() == tamLote) entregar();
+                    }
+
+                    void entregar() {
+                        if (lote.isEmpty()) return;
+                        consumidor.accept(lote);
+                        lote = new ArrayList<>(tamLote);
+                    }
+                };
+                int total = leer(ruta, agrupador::agregar, progreso, resultado::isCancelled, !lecturaEstricta);
+                agrupador.entregar();
+                resultado.complete(total);
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            }
+        });
+        return resultado;
+    }
+
+    /**
+     * Escribe una instantánea completa en un archivo temporal y luego lo
+     * renombra sobre el archivo de datos, de modo que una interrupción nunca
+     * deja el archivo a medio escribir.
+     *
+     * <p>Salvo con {@link PoliticaSincronizacion#SISTEMA}, el temporal se
+     * sincroniza antes de renombrarlo y el directorio después, de modo que al
+     * retornar la instantánea ya está en el disco.</p>
+     *
+     * <p>Es utilizado por la compactación de la bitácora, que necesita
+     * saber si la escritura tuvo éxito antes de descartar los registros.</p>
+     *
+     * @param lista lista de producciones a serializar
+     * @throws IOException si falla la escritura o el renombrado
+     */
+    void guardarInstantanea(List<ProduccionAudiovisual> lista) throws IOException {
+        guardarInstantanea(lista, ProgresoOperacion.NINGUNO, () -> false);
+    }
+
+    private void guardarInstantanea(List<ProduccionAudiovisual> lista, ProgresoOperacion progreso,
+                                    BooleanSupplier cancelado) throws IOException {
+        Path destino = Paths.get(archivo);
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        boolean sincronizar = politica != PoliticaSincronizacion.SISTEMA;
+        MedicionArchivo medicion = MedicionArchivo.guardado(archivo);
+        long bytes = 0;
+        boolean exitosa = false;
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16);
+                escribir(out, lista, progreso, cancelado);
+                out.flush();
+                bytes = canal.position();
+                if (sincronizar) canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            if (sincronizar) sincronizarDirectorio(destino);
+            exitosa = true;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporal);
+            throw e;
+        } finally {
+            medicion.terminar(lista.size(), bytes, exitosa);
+        }
+    }
+
+    /**
+     * Crea la bitácora de cambios asociada a este archivo de datos.
+     *
+     * @return bitácora sin abrir, ubicada junto al archivo de datos
+     */
+    BitacoraCambios crearBitacora() {
+        return new BitacoraCambios(Paths.get(archivo + ".log"), politica);
+    }
+
+    /**
+     * Sincroniza el directorio que contiene un archivo, para que un renombrado
+     * o una creación recientes sobrevivan a una caída del equipo.
+     *
+     * <p>En sistemas donde un directorio no puede abrirse como canal (por
+     * ejemplo Windows) no hace nada: allí el renombrado ya es duradero.</p>
+     *
+     * @param archivo archivo cuyo directorio se sincroniza
+     */
+    static void sincronizarDirectorio(Path archivo) {
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio == null) return;
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // el sistema de archivos no permite sincronizar directorios
+        }
+    }
+
     /**
      * Carga desde el archivo binario la lista de producciones audiovisuales previamente guardada.
      *
      * <p>Si el archivo no existe, se indica en consola y se retorna una lista vacía.
-     * Si ocurre un error durante la carga o la lectura, también se retorna una lista vacía.</p>
+     * Si el archivo binario tiene bloques dañados, se retornan las producciones
+     * de los bloques válidos anteriores al primero dañado. Si ocurre otro error
+     * durante la carga o la lectura, también se retorna una lista vacía. En ambos
+     * casos el archivo dañado se copia a {@code data.dat.danado}, sin reemplazar
+     * copias anteriores, y se informa una {@link LecturaIncompleta} al
+     * {@link #setAvisoLecturaIncompleta(Consumer) aviso configurado}.</p>
      *
      * @return lista cargada desde el archivo o una lista vacía si no existe o ocurre un error
+     * @throws UncheckedIOException si la {@link #setLecturaEstricta(boolean) lectura es estricta}
+     *         y el archivo no se pudo leer completo
      */
-    @SuppressWarnings("unchecked")
     public List<ProduccionAudiovisual> cargarArchivo() {
 
         File f = new File(archivo);
@@ -57,12 +462,166 @@ public class OperacionArchivo {
             return new ArrayList<>();
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archivo))) {
+        boolean recuperar = !lecturaEstricta;
+        try {
+            List<ProduccionAudiovisual> lista = leer(f.toPath(), ProgresoOperacion.NINGUNO, () -> false, recuperar);
             System.out.println("Datos cargados correctamente.");
-            return (ArrayList<ProduccionAudiovisual>) ois.readObject();
+            return lista;
         } catch (Exception e) {
-            System.out.println("Error al cargar datos: " + e.getMessage());
+            if (!recuperar) {
+                throw new UncheckedIOException("No se pudo leer completo " + archivo,
+                        e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+            avisoLecturaIncompleta.accept(new LecturaIncompleta(f.toPath(), 0, -1, e, respaldarDanado(f.toPath())));
             return new ArrayList<>();
         }
     }
+
+    /**
+     * Copia un archivo que no se pudo leer completo junto al original, para
+     * que el siguiente guardado no borre lo que aún podría rescatarse.
+     *
+     * <p>Nunca reemplaza una copia anterior: si {@code .danado} ya existe con
+     * otro contenido, usa {@code .danado.1}, {@code .danado.2}, etc. Si alguna
+     * ya guarda el mismo contenido, no copia de nuevo.</p>
+     *
+     * @return copia con el contenido del archivo, o {@code null} si no se pudo copiar
+     */
+    private static Path respaldarDanado(Path ruta) {
+        Path copia = ruta.resolveSibling(ruta.getFileName() + ".danado");
+        try {
+            for (int n = 1; Files.exists(copia); n++) {
+                if (Files.mismatch(ruta, copia) == -1) return copia;
+                copia = ruta.resolveSibling(ruta.getFileName() + ".danado." + n);
+            }
+            Files.copy(ruta, copia);
+            return copia;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // -----------------------------------------------------------
+    // FORMATOS
+    // -----------------------------------------------------------
+
+    /**
+     * Escribe la lista en el formato configurado, informando el avance y
+     * abandonando la escritura si se solicita la cancelación.
+     */
+    private void escribir(OutputStream out, List<ProduccionAudiovisual> lista,
+                          ProgresoOperacion progreso, BooleanSupplier cancelado) throws IOException {
+        int total = lista.size();
+        progreso.actualizar(0, total);
+        if (formato == Formato.BINARIO) {
+            DataOutputStream dos = new DataOutputStream(out);
+            CodecProduccion.Escritor escritor = new CodecProduccion.Escritor(dos, total, compresion);
+            for (int i = 0; i < total; i++) {
+                escritor.escribir(lista.get(i));
+                if ((i + 1) % PASO_PROGRESO == 0) {
+                    if (cancelado.getAsBoolean()) throw new CancellationException("Guardado cancelado");
+                    progreso.actualizar(i + 1, total);
+                }
+            }
+            escritor.terminar();
+            dos.flush();
+        } else {
+            ObjectOutputStream oos = new ObjectOutputStream(out);
+            oos.writeObject(new ArrayList<>(lista));
+            oos.flush();
+        }
+        progreso.actualizar(total, total);
+    }
+
+    /**
+     * Lee un archivo completo en una lista.
+     */
+    private List<ProduccionAudiovisual> leer(Path ruta, ProgresoOperacion progreso,
+                                                    BooleanSupplier cancelado, boolean recuperar)
+            throws IOException, ClassNotFoundException {
+        List<ProduccionAudiovisual> lista = new ArrayList<>();
+        leer(ruta, lista::add, progreso, cancelado, recuperar);
+        return lista;
+    }
+
+    /**
+     * Lee un archivo entregando cada producción al destino, eligiendo el
+     * decodificador según su cabecera. El avance solo se informa por
+     * producción en el formato binario.
+     *
+     * <p>Si un archivo por bloques está dañado o truncado y {@code recuperar}
+     * es {@code true}, se detiene en el primer bloque inválido: las
+     * producciones ya entregadas provienen de bloques verificados y se
+     * conservan, y el resultado se informa al aviso de lectura incompleta.
+     * Si es {@code false}, el error se propaga.</p>
+     *
+     * @return cantidad de producciones leídas
+     */
+    private int leer(Path ruta, Consumer<ProduccionAudiovisual> destino, ProgresoOperacion progreso,
+                            BooleanSupplier cancelado, boolean recuperar) throws IOException, ClassNotFoundException {
+        MedicionArchivo medicion = MedicionArchivo.carga(ruta.toString());
+        int leidas = 0;
+        long bytes = 0;
+        boolean exitosa = false;
+        try {
+            leidas = leerFormato(ruta, destino, progreso, cancelado, recuperar);
+            bytes = Files.size(ruta);
+            exitosa = true;
+            return leidas;
+        } finally {
+            medicion.terminar(leidas, bytes, exitosa);
+        }
+    }
+
+    /** Decodifica el archivo según su formato; ver {@link #leer(Path, Consumer, ProgresoOperacion, BooleanSupplier, boolean)}. */
+    @SuppressWarnings("unchecked")
+    private int leerFormato(Path ruta, Consumer<ProduccionAudiovisual> destino, ProgresoOperacion progreso,
+                                   BooleanSupplier cancelado, boolean recuperar) throws IOException, ClassNotFoundException {
+        Formato detectado = detectarFormato(ruta);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(ruta))) {
+            if (detectado == Formato.SERIALIZACION_JAVA) {
+                progreso.actualizar(0, -1);
+                List<ProduccionAudiovisual> lista = (ArrayList<ProduccionAudiovisual>) new ObjectInputStream(in).readObject();
+                lista.forEach(destino);
+                progreso.actualizar(lista.size(), lista.size());
+                return lista.size();
+            }
+
+            CodecProduccion.Lector lector = new CodecProduccion.Lector(new DataInputStream(in));
+            int total = lector.getCantidad();
+            progreso.actualizar(0, total);
+            for (int i = 0; i < total; i++) {
+                ProduccionAudiovisual p;
+                try {
+                    p = lector.leer();
+                } catch (IOException e) {
+                    if (!lector.isPorBloques() || !recuperar) throw e;
+                    avisoLecturaIncompleta.accept(new LecturaIncompleta(ruta, i, total, e, respaldarDanado(ruta)));
+                    progreso.actualizar(i, i);
+                    return i;
+                }
+                destino.accept(p);
+                if ((i + 1) % PASO_PROGRESO == 0) {
+                    if (cancelado.getAsBoolean()) throw new CancellationException("Carga cancelada");
+                    progreso.actualizar(i + 1, total);
+                }
+            }
+            progreso.actualizar(total, total);
+            return total;
+        }
+    }
+
+    /**
+     * Determina el formato de un archivo a partir de sus primeros bytes.
+     */
+    private static Formato detectarFormato(Path ruta) throws IOException {
+        byte[] cabecera = new byte[CodecProduccion.MAGICO.length];
+        try (InputStream in = Files.newInputStream(ruta)) {
+            int leidos = in.readNBytes(cabecera, 0, cabecera.length);
+            if (leidos == cabecera.length && CodecProduccion.esCabecera(cabecera)) {
+                return Formato.BINARIO;
+            }
+        }
+        return Formato.SERIALIZACION_JAVA;
+    }
 }
@@ -1,7 +1,13 @@
 package co.edu.poli.parcial.servicios;
 
 import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * Interfaz que define las operaciones CRUD (Crear, Leer, Actualizar y Eliminar)
@@ -52,4 +58,222 @@ public interface OperacionCrud {
      * @return {@code true} si se eliminó, {@code false} si no se encontró el código
      */
     boolean eliminar(String codigo);
+
+    /**
+     * Retorna la cantidad de producciones almacenadas.
+     *
+     * <p>La implementación por defecto cuenta los elementos de
+     * {@link #listarTodos()}; las implementaciones deberían sobrescribirla
+     * con una versión que no copie el catálogo.</p>
+     *
+     * @return cantidad de producciones
+     */
+    default int contar() {
+        return listarTodos().size();
+    }
+
+    /**
+     * Aplica una acción a cada producción, en el mismo orden que
+     * {@link #listarTodos()}.
+     *
+     * <p>Sirve para recorrer catálogos grandes (por ejemplo, al exportarlos)
+     * sin tener todas las producciones en una lista a la vez. La acción no
+     * debe modificar el servicio. La implementación por defecto recorre
+     * {@link #listarTodos()}; las implementaciones deberían sobrescribirla con
+     * una versión que no copie el catálogo.</p>
+     *
+     * @param accion acción a aplicar a cada producción
+     */
+    default void recorrerTodos(Consumer<? super ProduccionAudiovisual> accion) {
+        listarTodos().forEach(accion);
+    }
+
+    /**
+     * Retorna una página de producciones, en el mismo orden que {@link #listarTodos()}.
+     *
+     * <p>Permite que la interfaz gráfica solo materialice las filas visibles.
+     * La implementación por defecto recorta {@link #listarTodos()}.</p>
+     *
+     * @param desde    posición de la primera producción (desde cero)
+     * @param cantidad cantidad máxima de producciones a retornar
+     * @return producciones en el rango pedido; vacía si {@code desde} supera el total
+     * @throws IllegalArgumentException si {@code desde} o {@code cantidad} son negativos
+     */
+    default List<ProduccionAudiovisual> listarRango(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0) {
+            throw new IllegalArgumentException("Rango inválido: " + desde + ", " + cantidad);
+        }
+        List<ProduccionAudiovisual> todos = listarTodos();
+        if (desde >= todos.size()) return new ArrayList<>();
+        return new ArrayList<>(todos.subList(desde, (int) Math.min(todos.size(), (long) desde + cantidad)));
+    }
+
+    /**
+     * Retorna las producciones que cumplen todos los criterios de una consulta.
+     *
+     * <p>La implementación por defecto recorre {@link #listarTodos()} y retorna
+     * las coincidencias en ese orden. Las implementaciones con índices pueden
+     * retornarlas en el orden del índice usado.</p>
+     *
+     * @param consulta criterios de búsqueda
+     * @return producciones que coinciden; vacía si ninguna
+     */
+    default List<ProduccionAudiovisual> consultar(Consulta consulta) {
+        List<ProduccionAudiovisual> resultado = new ArrayList<>();
+        for (ProduccionAudiovisual p : listarTodos()) {
+            if (consulta.coincide(p)) resultado.add(p);
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca producciones cuyo título o nombre de director contengan todas las
+     * palabras del texto, sin distinguir mayúsculas ni tildes. La última
+     * palabra puede estar incompleta: se busca como prefijo.
+     *
+     * <p>La implementación por defecto recorre {@link #listarTodos()} y no
+     * tolera errores de tipeo; las implementaciones con índice de texto pueden
+     * aceptar además palabras con una letra de diferencia.</p>
+     *
+     * @param texto  texto buscado
+     * @param limite cantidad máxima de resultados
+     * @return producciones encontradas, a lo sumo {@code limite}
+     */
+    default List<ProduccionAudiovisual> buscarTexto(String texto, int limite) {
+        List<ProduccionAudiovisual> resultado = new ArrayList<>();
+        String[] buscados = IndiceTexto.tokenizar(texto);
+        if (buscados.length == 0 || limite <= 0) return resultado;
+        boolean ultimoEsPrefijo = !Character.isWhitespace(texto.charAt(texto.length() - 1));
+
+        for (ProduccionAudiovisual p : listarTodos()) {
+            List<String> propios = List.of(IndiceTexto.terminosDe(p));
+            boolean coincide = true;
+            for (int i = 0; i < buscados.length && coincide; i++) {
+                String b = buscados[i];
+                coincide = ultimoEsPrefijo && i == buscados.length - 1
+                        ? propios.stream().anyMatch(t -> t.startsWith(b))
+                        : propios.contains(b);
+            }
+            if (coincide) {
+                resultado.add(p);
+                if (resultado.size() >= limite) break;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Retorna todas las producciones de un director, comparando el nombre sin
+     * distinguir mayúsculas de minúsculas.
+     *
+     * @param nombre nombre del director
+     * @return producciones del director; vacía si ninguna
+     */
+    default List<ProduccionAudiovisual> listarPorDirector(String nombre) {
+        return consultar(new Consulta().director(nombre));
+    }
+
+    /**
+     * Aplica un lote de operaciones, validándolo completo antes de aplicar
+     * ninguna.
+     *
+     * <p>Las operaciones se interpretan en orden, como si se llamaran una a
+     * una; las modificaciones y eliminaciones de códigos que no existen se
+     * omiten. Si alguna creación o cambio de código choca con un código
+     * existente, no se aplica ninguna operación.</p>
+     *
+     * <p>La implementación por defecto valida el lote con
+     * {@link #buscarPorCodigo(String)} y luego llama a las operaciones
+     * individuales; las implementaciones pueden sobrescribirla para aplicar
+     * el lote en una sola pasada. La validación no es atómica frente a otros
+     * hilos que modifiquen el servicio al mismo tiempo.</p>
+     *
+     * @param lote operaciones a aplicar
+     * @return cantidad de operaciones aplicadas
+     * @throws IllegalArgumentException si una operación crea o renombra a un código ya existente
+     */
+    default int aplicar(Lote lote) {
+        PlanLote plan = new PlanLote(lote, k -> buscarPorCodigo(k) != null);
+        for (Lote.Operacion op : plan.efectivas) {
+            switch (op.tipo) {
+                case BitacoraCambios.CREAR -> crear(op.produccion);
+                case BitacoraCambios.MODIFICAR -> modificar(op.codigo, op.produccion);
+                default -> eliminar(op.codigo);
+            }
+        }
+        return plan.getAplicadas();
+    }
+
+    /**
+     * Crea varias producciones de una vez: o se crean todas, o ninguna.
+     *
+     * @param producciones producciones a crear, en orden
+     * @throws IllegalArgumentException si algún código ya existe o se repite en la colección
+     */
+    default void crearTodos(Collection<? extends ProduccionAudiovisual> producciones) {
+        Lote lote = new Lote();
+        for (ProduccionAudiovisual p : producciones) lote.crear(p);
+        aplicar(lote);
+    }
+
+    /**
+     * Modifica varias producciones de una vez; los códigos que no existen se omiten.
+     *
+     * @param cambios nuevos valores por código de la producción a modificar, en orden
+     * @return cantidad de producciones modificadas
+     * @throws IllegalArgumentException si algún código nuevo pertenece a otra producción;
+     *                                  en ese caso no se modifica ninguna
+     */
+    default int modificarTodos(Map<String, ? extends ProduccionAudiovisual> cambios) {
+        Lote lote = new Lote();
+        for (Map.Entry<String, ? extends ProduccionAudiovisual> e : cambios.entrySet()) {
+            lote.modificar(e.getKey(), e.getValue());
+        }
+        return aplicar(lote);
+    }
+
+    /**
+     * Elimina varias producciones de una vez; los códigos que no existen se omiten.
+     *
+     * @param codigos códigos de las producciones a eliminar
+     * @return cantidad de producciones eliminadas
+     */
+    default int eliminarTodos(Collection<String> codigos) {
+        Lote lote = new Lote();
+        for (String codigo : codigos) lote.eliminar(codigo);
+        return aplicar(lote);
+    }
+
+    /**
+     * Suscribe un observador a los cambios del servicio.
+     *
+     * <p>Cada creación, modificación, eliminación o recarga se publica como un
+     * {@link EventoCambio}. Los eventos se entregan en {@code entregarEn} (por
+     * ejemplo {@code Platform::runLater}); los que se acumulan mientras la
+     * entrega anterior no corrió llegan juntos y resumidos en una sola
+     * llamada. Con {@code Runnable::run} se entregan en el hilo que modificó
+     * el servicio, antes de que la operación retorne.</p>
+     *
+     * <p>Todas las implementaciones del proyecto publican sus cambios. La
+     * implementación por defecto, pensada para servicios de solo lectura,
+     * acepta la suscripción pero no entrega nada; un servicio que modifica el
+     * catálogo debe reemplazarla.</p>
+     *
+     * @param observador receptor de los cambios
+     * @param entregarEn ejecutor donde se entregan los cambios
+     */
+    default void suscribir(ObservadorCambios observador, Executor entregarEn) {
+        // no hay cambios que publicar
+    }
+
+    /**
+     * Quita un observador suscrito con {@link #suscribir}. Los cambios ya
+     * publicados pueden entregarse igual.
+     *
+     * @param observador receptor a quitar
+     * @return {@code true} si estaba suscrito
+     */
+    default boolean desuscribir(ObservadorCambios observador) {
+        return false;
+    }
 }
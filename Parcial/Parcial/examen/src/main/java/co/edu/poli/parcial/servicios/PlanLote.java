@@ -0,0 +1,136 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Resultado de validar un {@link Lote} contra el catálogo sin modificarlo.
+ *
+ * <p>Simula las operaciones en orden sobre una capa de cambios encima del
+ * catálogo, de modo que todo el lote se valida antes de aplicar nada: si una
+ * operación no es válida, la construcción falla y el catálogo queda intacto.
+ * El plan resume el efecto neto del lote:</p>
+ * <ul>
+ *   <li>por cada producción existente que el lote toca, su valor y código
+ *       finales, o su eliminación;</li>
+ *   <li>las producciones creadas que siguen vivas al final, en orden de
+ *       creación;</li>
+ *   <li>las operaciones efectivas, sin las que no encontraron su código,
+ *       que son las que se registran en la bitácora.</li>
+ * </ul>
+ *
+ * @author Felipe Parra
+ */
+final class PlanLote {
+
+    /**
+     * Estado final de una producción tocada por el lote.
+     */
+    static final class Entrada {
+        /** Clave que tenía en el catálogo, o {@code null} si se creó en el lote. */
+        final String claveOriginal;
+        /** Clave final. */
+        String clave;
+        /** Valor final, o {@code null} si se eliminó. */
+        ProduccionAudiovisual produccion;
+
+        Entrada(String claveOriginal, String clave, ProduccionAudiovisual produccion) {
+            this.claveOriginal = claveOriginal;
+            this.clave = clave;
+            this.produccion = produccion;
+        }
+
+        /** @return {@code true} si sigue en el catálogo con otra clave */
+        boolean renombrada() {
+            return produccion != null && claveOriginal != null && !claveOriginal.equals(clave);
+        }
+    }
+
+    /** Producciones existentes tocadas, por su clave original, en el orden en que se tocaron. */
+    final Map<String, Entrada> tocadas = new LinkedHashMap<>();
+
+    /** Producciones creadas en el lote que siguen vivas, en orden de creación. */
+    final Set<Entrada> creadas = new LinkedHashSet<>();
+
+    /** Operaciones que encontraron su código, en orden. */
+    final List<Lote.Operacion> efectivas = new ArrayList<>();
+
+    /** {@code true} si alguna producción existente cambia de código. */
+    boolean renombra;
+
+    /** Producciones vivas tocadas por el lote, por su clave actual. */
+    private final Map<String, Entrada> vivas = new HashMap<>();
+
+    private final Predicate<String> existeEnCatalogo;
+
+    /**
+     * @param lote             operaciones a validar
+     * @param existeEnCatalogo indica si una clave normalizada existe en el catálogo antes del lote
+     * @throws IllegalArgumentException si una operación crea o renombra a un código ya existente
+     */
+    PlanLote(Lote lote, Predicate<String> existeEnCatalogo) {
+        this.existeEnCatalogo = existeEnCatalogo;
+        for (Lote.Operacion op : lote.getOperaciones()) {
+            String k = ImplOperacionCrud.clave(op.codigo);
+            switch (op.tipo) {
+                case BitacoraCambios.CREAR -> {
+                    if (existe(k)) throw new IllegalArgumentException("Código ya existe: " + op.codigo);
+                    Entrada e = new Entrada(null, k, op.produccion);
+                    vivas.put(k, e);
+                    creadas.add(e);
+                }
+                case BitacoraCambios.MODIFICAR -> {
+                    Entrada e = resolver(k);
+                    if (e == null) continue;
+                    String kNuevo = ImplOperacionCrud.clave(op.produccion.getCodigo());
+                    if (!k.equals(kNuevo) && existe(kNuevo)) {
+                        throw new IllegalArgumentException("Código ya existe: " + op.produccion.getCodigo());
+                    }
+                    vivas.remove(k);
+                    e.clave = kNuevo;
+                    e.produccion = op.produccion;
+                    vivas.put(kNuevo, e);
+                }
+                default -> {
+                    Entrada e = resolver(k);
+                    if (e == null) continue;
+                    vivas.remove(k);
+                    e.produccion = null;
+                    if (e.claveOriginal == null) creadas.remove(e);
+                }
+            }
+            efectivas.add(op);
+        }
+        for (Entrada e : tocadas.values()) {
+            renombra |= e.renombrada();
+        }
+    }
+
+    /** @return cantidad de operaciones que encontraron su código */
+    int getAplicadas() {
+        return efectivas.size();
+    }
+
+    private boolean existe(String k) {
+        return vivas.containsKey(k) || (!tocadas.containsKey(k) && existeEnCatalogo.test(k));
+    }
+
+    /** @return entrada viva con la clave, tomándola del catálogo si aún no se tocó; o {@code null} */
+    private Entrada resolver(String k) {
+        if (k == null) return null;
+        Entrada e = vivas.get(k);
+        if (e != null || tocadas.containsKey(k) || !existeEnCatalogo.test(k)) return e;
+        e = new Entrada(k, k, null);
+        tocadas.put(k, e);
+        vivas.put(k, e);
+        return e;
+    }
+}
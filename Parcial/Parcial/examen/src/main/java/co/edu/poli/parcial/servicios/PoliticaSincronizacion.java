@@ -0,0 +1,41 @@
+package co.edu.poli.parcial.servicios;
+
+/**
+ * Política de sincronización con el disco ({@code fsync}) de los archivos de
+ * datos y de la bitácora.
+ *
+ * <p>Escribir en un archivo solo deja los datos en la caché del sistema
+ * operativo; una caída del equipo o un corte de energía puede perder lo que
+ * aún no llegó al disco. Forzar la sincronización hace duradero cada cambio a
+ * costa del tiempo de escritura, por lo que la política permite elegir el
+ * punto intermedio. En todas las políticas las instantáneas se escriben en un
+ * archivo temporal que se renombra de forma atómica, así que una caída del
+ * programa nunca deja el archivo de datos a medio escribir.</p>
+ *
+ * @author Felipe Parra
+ * @see OperacionArchivo#setPoliticaSincronizacion(PoliticaSincronizacion)
+ */
+public enum PoliticaSincronizacion {
+
+    /**
+     * Sincroniza cada registro de la bitácora antes de retornar, y cada
+     * instantánea antes y después de renombrarla. Ningún cambio confirmado se
+     * pierde, pero cada uno paga una escritura física.
+     */
+    SIEMPRE,
+
+    /**
+     * Sincroniza la bitácora en grupo: cuando se acumulan varios registros o
+     * pasa un intervalo corto desde el primero pendiente, y siempre al cerrar.
+     * Las instantáneas se sincronizan igual que con {@link #SIEMPRE}. Una caída
+     * del equipo puede perder los últimos milisegundos de cambios.
+     */
+    POR_LOTES,
+
+    /**
+     * No fuerza la sincronización: el sistema operativo decide cuándo escribir
+     * en el disco. Es la opción más rápida y protege de caídas del programa,
+     * pero no de caídas del equipo.
+     */
+    SISTEMA
+}
@@ -0,0 +1,26 @@
+package co.edu.poli.parcial.servicios;
+
+/**
+ * Receptor del avance de una operación larga de archivo, como guardar o
+ * cargar el catálogo en segundo plano.
+ *
+ * <p>Se invoca desde el hilo que ejecuta la operación, no desde el hilo de
+ * JavaFX; quien lo implemente debe encargarse de pasar la actualización a la
+ * interfaz gráfica si es necesario.</p>
+ *
+ * @author Felipe Parra
+ */
+@FunctionalInterface
+public interface ProgresoOperacion {
+
+    /** Receptor que ignora el avance. */
+    ProgresoOperacion NINGUNO = (procesados, total) -> {};
+
+    /**
+     * Informa el avance de la operación.
+     *
+     * @param procesados cantidad de producciones procesadas hasta el momento
+     * @param total      cantidad total de producciones, o {@code -1} si aún no se conoce
+     */
+    void actualizar(long procesados, long total);
+}
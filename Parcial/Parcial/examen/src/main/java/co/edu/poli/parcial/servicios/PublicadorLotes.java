@@ -0,0 +1,119 @@
+package co.edu.poli.parcial.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Entrega lotes de elementos a un consumidor que corre en otro hilo,
+ * agrupando las ráfagas.
+ *
+ * <p>Cada llamada a {@link #publicar(List)} encola el lote, pero solo se
+ * programa una tarea en el ejecutor de destino si no hay otra pendiente. Si
+ * el productor va más rápido que el destino (por ejemplo, el hilo de JavaFX
+ * a través de {@code Platform::runLater}), los lotes acumulados se entregan
+ * juntos en una sola llamada, en el orden en que se publicaron.</p>
+ *
+ * <p>Las entregas nunca se solapan, aunque el ejecutor tenga varios hilos o
+ * corra las tareas en el hilo que publica ({@code Runnable::run}): hay a lo
+ * sumo una tarea de entrega programada o en curso, y la siguiente se programa
+ * cuando esa termina. Así el consumidor no necesita ser seguro para uso
+ * concurrente y recibe los lotes en orden.</p>
+ *
+ * @param <T> tipo de los elementos publicados
+ * @author Felipe Parra
+ */
+public final class PublicadorLotes<T> {
+
+    private final ConcurrentLinkedQueue<List<T>> pendientes = new ConcurrentLinkedQueue<>();
+
+    /** Avisos de {@link #vaciar()} que esperan la próxima entrega. */
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> esperas = new ConcurrentLinkedQueue<>();
+
+    /** Marca de que hay una tarea de entrega programada o en curso. */
+    private final AtomicBoolean programado = new AtomicBoolean();
+    private final Executor destino;
+    private final Consumer<List<T>> consumidor;
+
+    /**
+     * @param destino    ejecutor donde corre el consumidor
+     * @param consumidor receptor de los lotes agrupados
+     */
+    public PublicadorLotes(Executor destino, Consumer<List<T>> consumidor) {
+        this.destino = destino;
+        this.consumidor = consumidor;
+    }
+
+    /**
+     * Encola un lote para su entrega. Puede llamarse desde cualquier hilo.
+     *
+     * @param lote elementos a entregar; no debe modificarse después de publicarlo
+     */
+    public void publicar(List<T> lote) {
+        if (lote.isEmpty()) return;
+        pendientes.add(lote);
+        programar();
+    }
+
+    /**
+     * Entrega lo que quede pendiente y avisa cuando el consumidor lo procesó.
+     *
+     * @return tarea que termina, en el ejecutor de destino, tras la entrega que
+     *         incluye todo lo publicado antes de esta llamada, o con el error
+     *         del consumidor si esa entrega falló
+     */
+    public CompletableFuture<Void> vaciar() {
+        CompletableFuture<Void> listo = new CompletableFuture<>();
+        esperas.add(listo);
+        programar();
+        return listo;
+    }
+
+    private void programar() {
+        if (programado.compareAndSet(false, true)) {
+            destino.execute(this::drenar);
+        }
+    }
+
+    /**
+     * Une todos los lotes pendientes y los entrega en una sola llamada. La
+     * marca de programado se mantiene durante la entrega, así que ninguna
+     * otra entrega corre a la vez; al terminar se limpia y, si mientras tanto
+     * llegaron lotes o pedidos de vaciado, se programa otra tarea.
+     */
+    private void drenar() {
+        // los avisos se toman antes que los lotes: todo lo publicado antes
+        // de pedirlos entra en esta entrega
+        List<CompletableFuture<Void>> avisar = new ArrayList<>();
+        for (CompletableFuture<Void> f; (f = esperas.poll()) != null; ) avisar.add(f);
+        try {
+            List<T> todo = juntar();
+            if (todo != null) consumidor.accept(todo);
+            for (CompletableFuture<Void> f : avisar) f.complete(null);
+        } catch (RuntimeException | Error e) {
+            for (CompletableFuture<Void> f : avisar) f.completeExceptionally(e);
+            throw e;
+        } finally {
+            programado.set(false);
+            if (!pendientes.isEmpty() || !esperas.isEmpty()) programar();
+        }
+    }
+
+    /** @return lotes pendientes unidos en orden, o {@code null} si no hay */
+    private List<T> juntar() {
+        List<T> primero = pendientes.poll();
+        if (primero == null) return null;
+
+        List<T> siguiente = pendientes.poll();
+        if (siguiente == null) return primero;
+        List<T> todo = new ArrayList<>(primero);
+        do {
+            todo.addAll(siguiente);
+        } while ((siguiente = pendientes.poll()) != null);
+        return todo;
+    }
+}
@@ -0,0 +1,70 @@
+package co.edu.poli.parcial.servicios;
+
+import java.util.Locale;
+
+/**
+ * Codecs de compresión registrados, por id y por nombre.
+ *
+ * <p>Los codecs de la JDK se registran al cargar la clase. Los registros son
+ * pocos y casi nunca cambian, por lo que basta con sincronizar la escritura y
+ * publicar una copia nueva de la tabla.</p>
+ *
+ * @author Felipe Parra
+ */
+final class RegistroCompresion {
+
+    /** Codecs por id; se reemplaza completa al registrar uno nuevo. */
+    private static volatile CodecCompresion[] porId = new CodecCompresion[256];
+
+    static {
+        registrar(CodecCompresion.NINGUNO);
+        registrar(CodecCompresion.DEFLATE);
+        registrar(CodecCompresion.DEFLATE_RAPIDO);
+    }
+
+    private RegistroCompresion() {}
+
+    /**
+     * @param codec codec a registrar; registrar dos veces el mismo no tiene efecto
+     * @throws IllegalArgumentException si su id está fuera de rango o su id o
+     *                                  nombre ya los usa otro codec
+     */
+    static synchronized void registrar(CodecCompresion codec) {
+        int id = codec.getId();
+        if (id < 0 || id > 255) throw new IllegalArgumentException("Id de compresión fuera de rango: " + id);
+        CodecCompresion[] tabla = porId;
+        if (tabla[id] == codec) return;
+        if (tabla[id] != null) {
+            throw new IllegalArgumentException("Id de compresión ya registrado: " + id + " (" + tabla[id].getNombre() + ")");
+        }
+        for (CodecCompresion c : tabla) {
+            if (c != null && c.getNombre().equalsIgnoreCase(codec.getNombre())) {
+                throw new IllegalArgumentException("Nombre de compresión ya registrado: " + codec.getNombre());
+            }
+        }
+        CodecCompresion[] nueva = tabla.clone();
+        nueva[id] = codec;
+        porId = nueva;
+    }
+
+    /**
+     * @param id id guardado en un bloque
+     * @return codec registrado con ese id, o {@code null}
+     */
+    static CodecCompresion buscar(int id) {
+        return id < 0 || id > 255 ? null : porId[id];
+    }
+
+    /**
+     * @param nombre nombre del codec, sin distinguir mayúsculas
+     * @return codec registrado con ese nombre
+     * @throws IllegalArgumentException si no hay ninguno
+     */
+    static CodecCompresion buscar(String nombre) {
+        String buscado = nombre.trim().toLowerCase(Locale.ROOT);
+        for (CodecCompresion c : porId) {
+            if (c != null && c.getNombre().toLowerCase(Locale.ROOT).equals(buscado)) return c;
+        }
+        throw new IllegalArgumentException("Compresión desconocida: " + nombre);
+    }
+}
@@ -0,0 +1,99 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de directores que garantiza una sola instancia de {@link Director}
+ * por id, nombre y nacionalidad.
+ *
+ * <p>Un director solo se reemplaza por otro con los mismos tres datos, igual
+ * que en el diccionario de {@link ImplOperacionCrudColumnar}; dos directores
+ * con el mismo nombre y distinto id o nacionalidad se conservan tal como
+ * vienen. Así las producciones de un mismo director comparten el objeto en
+ * memoria, y el formato binario lo escribe una sola vez por archivo.</p>
+ *
+ * <p>Para las búsquedas por nombre, que se comparan normalizadas igual que
+ * los códigos de producción, y por id, vale el primer director registrado
+ * con ese nombre o ese id.</p>
+ *
+ * <p>No es segura para uso concurrente.</p>
+ *
+ * @author Felipe Parra
+ */
+public class RegistroDirectores {
+
+    /** Directores canónicos por id, nombre y nacionalidad. */
+    private final Map<List<String>, Director> canonicos = new HashMap<>();
+
+    /** Primer director registrado con cada nombre normalizado. */
+    private final Map<String, Director> porNombre = new HashMap<>();
+
+    /** Primer director registrado con cada id. */
+    private final Map<String, Director> porId = new HashMap<>();
+
+    /**
+     * Retorna el primer director registrado con ese nombre o, si no existe,
+     * registra uno nuevo con los datos indicados.
+     *
+     * @param id           id del director si hay que crearlo
+     * @param nombre       nombre del director
+     * @param nacionalidad nacionalidad del director si hay que crearlo
+     * @return director registrado
+     */
+    public Director obtener(String id, String nombre, String nacionalidad) {
+        Director d = porNombre.get(ImplOperacionCrud.clave(nombre));
+        return d != null ? d : registrar(new Director(id, nombre, nacionalidad));
+    }
+
+    /**
+     * Interna un director: retorna el canónico con sus mismos id, nombre y
+     * nacionalidad, o registra este como canónico si no había ninguno.
+     *
+     * @param d director a internar, puede ser {@code null}
+     * @return director canónico, o {@code null} si {@code d} es {@code null}
+     */
+    public Director registrar(Director d) {
+        if (d == null) return null;
+        Director canonico = canonicos.putIfAbsent(Arrays.asList(d.getId(), d.getNombre(), d.getNacionalidad()), d);
+        if (canonico != null) return canonico;
+        porNombre.putIfAbsent(ImplOperacionCrud.clave(d.getNombre()), d);
+        if (d.getId() != null) porId.putIfAbsent(d.getId(), d);
+        return d;
+    }
+
+    /**
+     * @param nombre nombre del director
+     * @return primer director registrado con ese nombre, o {@code null} si no hay ninguno
+     */
+    public Director buscarPorNombre(String nombre) {
+        return porNombre.get(ImplOperacionCrud.clave(nombre));
+    }
+
+    /**
+     * @param id id del director
+     * @return primer director registrado con ese id, o {@code null} si no hay ninguno
+     */
+    public Director buscarPorId(String id) {
+        return porId.get(id);
+    }
+
+    /**
+     * @return cantidad de directores registrados
+     */
+    public int cantidad() {
+        return canonicos.size();
+    }
+
+    /**
+     * @return copia de los directores registrados
+     */
+    public List<Director> listar() {
+        return new ArrayList<>(canonicos.values());
+    }
+}
@@ -0,0 +1,657 @@
+package co.edu.poli.parcial.servidor;
+
+import co.edu.poli.parcial.metricas.Metricas;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+import co.edu.poli.parcial.model.Serie;
+import co.edu.poli.parcial.servicios.Consulta;
+import co.edu.poli.parcial.servicios.ImplOperacionCrud;
+import co.edu.poli.parcial.servicios.ImplOperacionCrudConcurrente;
+import co.edu.poli.parcial.servicios.ImplOperacionCrudParticionado;
+import co.edu.poli.parcial.servicios.JsonProduccion;
+import co.edu.poli.parcial.servicios.MedicionOperacionCrud;
+import co.edu.poli.parcial.servicios.OperacionArchivo;
+import co.edu.poli.parcial.servicios.OperacionCrud;
+import co.edu.poli.parcial.servicios.PoliticaSincronizacion;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Servicio HTTP/JSON sobre un {@link OperacionCrud}, para que otros procesos
+ * consulten y modifiquen el catálogo sin la interfaz gráfica.
+ *
+ * <p>Usa el servidor HTTP incluido en la JDK ({@code com.sun.net.httpserver}).
+ * Rutas:</p>
+ * <pre>
+ *   GET    /producciones/{codigo}   una producción
+ *   GET    /producciones            página del catálogo, o de una consulta si hay filtros:
+ *                                   desde, cantidad, genero, director, tipo (pelicula|serie),
+ *                                   anioDesde, anioHasta, duracionDesde, duracionHasta, texto
+ *   POST   /producciones            crea; el cuerpo es un objeto de {@link JsonProduccion}
+ *   PUT    /producciones/{codigo}   modifica; el cuerpo es el objeto con los nuevos valores
+ *   DELETE /producciones/{codigo}   elimina
+ *   GET    /estado                  cantidad de producciones y versión del catálogo
+ *   GET    /metricas                resumen en texto de las {@link Metricas}
+ * </pre>
+ *
+ * <p>Las páginas se escriben a medida que se codifican, con transferencia por
+ * bloques, como un objeto {@code {"desde":..,"cantidad":..,"producciones":[..]}}
+ * o, si el cliente acepta {@code application/x-ndjson}, como un objeto por
+ * línea. Las respuestas de lectura llevan {@code ETag}: el de una producción
+ * depende de su contenido y el de una página, de la versión del catálogo, que
+ * cambia con cada modificación hecha por este servidor. Con
+ * {@code If-None-Match} se responde 304 sin cuerpo.</p>
+ *
+ * <p>Cada solicitud se atiende en un hilo virtual si la JVM los ofrece (Java 21
+ * o posterior) y si no, en un grupo fijo de {@link #setHilos(int) hilos}. Si
+ * el catálogo (o el que envuelve un {@link MedicionOperacionCrud}) no es
+ * {@link ImplOperacionCrudConcurrente} ni {@link ImplOperacionCrudParticionado},
+ * las llamadas a él se serializan con un candado, que solo se retiene mientras se copia el
+ * resultado y no mientras se envía.</p>
+ *
+ * @author Felipe Parra
+ */
+public class ServidorCatalogo {
+
+    /** Puerto por defecto. */
+    public static final int PUERTO_POR_DEFECTO = 8080;
+
+    /** Tamaño de página si la solicitud no indica {@code cantidad}. */
+    static final int CANTIDAD_POR_DEFECTO = 50;
+
+    /** Tamaño máximo de página. */
+    static final int MAX_CANTIDAD = 10_000;
+
+    /** Tamaño máximo del cuerpo de una solicitud, en bytes. */
+    private static final int MAX_CUERPO = 64 * 1024;
+
+    /** Tipo de contenido de un objeto JSON por línea. */
+    static final String NDJSON = "application/x-ndjson";
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final OperacionCrud servicio;
+
+    /** Candado para catálogos que no admiten uso concurrente, o {@code null}. */
+    private final ReentrantLock candado;
+
+    /** Versión del catálogo; aumenta con cada modificación. */
+    private final AtomicLong version = new AtomicLong();
+
+    private int hilos = Math.max(4, Runtime.getRuntime().availableProcessors() * 4);
+    private HttpServer servidor;
+    private ExecutorService ejecutor;
+    private boolean hilosVirtuales;
+
+    /**
+     * @param servicio catálogo a exponer
+     */
+    public ServidorCatalogo(OperacionCrud servicio) {
+        this.servicio = servicio;
+        OperacionCrud base = servicio instanceof MedicionOperacionCrud m ? m.getRespaldo() : servicio;
+        boolean concurrente = base instanceof ImplOperacionCrudConcurrente
+                || base instanceof ImplOperacionCrudParticionado;
+        this.candado = concurrente ? null : new ReentrantLock();
+    }
+
+    /**
+     * @param hilos hilos del grupo fijo que atiende las solicitudes cuando la
+     *              JVM no ofrece hilos virtuales
+     */
+    public void setHilos(int hilos) {
+        if (hilos <= 0) throw new IllegalArgumentException("Cantidad de hilos inválida: " + hilos);
+        this.hilos = hilos;
+    }
+
+    /** @return {@code true} si las solicitudes se atienden en hilos virtuales */
+    public boolean isHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /** @return versión actual del catálogo */
+    public long getVersion() {
+        return version.get();
+    }
+
+    // -----------------------------------------------------------
+    // CICLO DE VIDA
+    // -----------------------------------------------------------
+
+    /**
+     * Empieza a atender solicitudes.
+     *
+     * @param puerto puerto donde escuchar; 0 elige uno libre
+     * @return puerto donde quedó escuchando
+     * @throws IOException si no se puede abrir el puerto
+     * @throws IllegalStateException si ya está iniciado
+     */
+    public int iniciar(int puerto) throws IOException {
+        if (servidor != null) throw new IllegalStateException("El servidor ya está iniciado");
+        // Sin TCP_NODELAY, el algoritmo de Nagle retrasa unos 40 ms cada
+        // respuesta cuyo cuerpo se envía después de los encabezados.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer http = HttpServer.create(new InetSocketAddress(puerto), 1024);
+        http.createContext("/producciones", this::atenderProducciones);
+        http.createContext("/estado", this::atenderEstado);
+        http.createContext("/metricas", this::atenderMetricas);
+        ejecutor = crearEjecutor();
+        http.setExecutor(ejecutor);
+        http.start();
+        servidor = http;
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Deja de aceptar solicitudes y espera hasta {@code espera} segundos a que
+     * terminen las que están en curso.
+     *
+     * @param espera segundos de espera
+     */
+    public void detener(int espera) {
+        if (servidor == null) return;
+        servidor.stop(espera);
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(espera, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        servidor = null;
+        ejecutor = null;
+    }
+
+    /**
+     * Un hilo virtual por solicitud si la JVM los ofrece. Se busca por
+     * reflexión porque el proyecto compila para Java 17.
+     */
+    private ExecutorService crearEjecutor() {
+        try {
+            ExecutorService virtuales = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            hilosVirtuales = true;
+            return virtuales;
+        } catch (ReflectiveOperationException e) {
+            hilosVirtuales = false;
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newFixedThreadPool(hilos, r -> {
+                Thread t = new Thread(r, "servidor-http-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // -----------------------------------------------------------
+    // RUTAS
+    // -----------------------------------------------------------
+
+    private void atenderEstado(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                error(ex, 405, "Método no permitido");
+                return;
+            }
+            long v = version.get();
+            int total = conCandado(servicio::contar);
+            enviar(ex, 200, "{\"producciones\":" + total + ",\"version\":" + v
+                    + ",\"hilosVirtuales\":" + hilosVirtuales + "}", null);
+        }
+    }
+
+    private void atenderMetricas(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (!ex.getRequestMethod().equals("GET")) {
+                error(ex, 405, "Método no permitido");
+                return;
+            }
+            byte[] cuerpo = Metricas.global().resumen().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            ex.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        }
+    }
+
+    private void atenderProducciones(HttpExchange ex) throws IOException {
+        try (ex) {
+            String ruta = ex.getRequestURI().getRawPath();
+            String codigo = null;
+            if (ruta.length() > "/producciones/".length()) {
+                if (!ruta.startsWith("/producciones/")) {
+                    error(ex, 404, "Ruta desconocida: " + ruta);
+                    return;
+                }
+                codigo = URLDecoder.decode(ruta.substring("/producciones/".length()), StandardCharsets.UTF_8);
+            }
+            String metodo = ex.getRequestMethod();
+            try {
+                if (codigo == null) {
+                    switch (metodo) {
+                        case "GET" -> listar(ex);
+                        case "POST" -> crear(ex);
+                        default -> error(ex, 405, "Método no permitido");
+                    }
+                } else {
+                    switch (metodo) {
+                        case "GET" -> obtener(ex, codigo);
+                        case "PUT" -> modificar(ex, codigo);
+                        case "DELETE" -> eliminar(ex, codigo);
+                        default -> error(ex, 405, "Método no permitido");
+                    }
+                }
+            } catch (SolicitudInvalida e) {
+                error(ex, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                // si la respuesta ya empezó no se puede cambiar su estado: solo queda cortarla
+                if (ex.getResponseCode() != -1) throw e;
+                error(ex, 500, "Error interno: " + e.getMessage());
+            }
+        }
+    }
+
+    private void obtener(HttpExchange ex, String codigo) throws IOException {
+        ProduccionAudiovisual p = conCandado(() -> servicio.buscarPorCodigo(codigo));
+        if (p == null) {
+            error(ex, 404, "No existe la producción " + codigo);
+            return;
+        }
+        byte[] cuerpo = objeto(p);
+        String etiqueta = etiqueta(cuerpo);
+        if (noModificado(ex, etiqueta)) return;
+        enviar(ex, 200, cuerpo, etiqueta);
+    }
+
+    private void listar(HttpExchange ex) throws IOException {
+        Map<String, String> parametros = parametros(ex);
+        int desde = entero(parametros, "desde", 0);
+        int cantidad = entero(parametros, "cantidad", CANTIDAD_POR_DEFECTO);
+        if (desde < 0 || cantidad < 0 || cantidad > MAX_CANTIDAD) {
+            throw new SolicitudInvalida("Rango inválido: desde=" + desde + ", cantidad=" + cantidad
+                    + " (máximo " + MAX_CANTIDAD + ")");
+        }
+        Consulta consulta = consulta(parametros);
+        String texto = parametros.get("texto");
+        if (texto != null && texto.isBlank()) throw new SolicitudInvalida("Texto de búsqueda vacío");
+
+        String etiqueta = "W/\"v" + version.get() + "\"";
+        if (noModificado(ex, etiqueta)) return;
+
+        List<ProduccionAudiovisual> pagina = conCandado(() -> {
+            if (texto != null) {
+                List<ProduccionAudiovisual> r = servicio.buscarTexto(texto, (int) Math.min(Integer.MAX_VALUE, (long) desde + cantidad));
+                return r.subList(Math.min(desde, r.size()), r.size());
+            }
+            if (consulta == null) return servicio.listarRango(desde, cantidad);
+            List<ProduccionAudiovisual> r = servicio.consultar(consulta);
+            return r.subList(Math.min(desde, r.size()), (int) Math.min(r.size(), (long) desde + cantidad));
+        });
+        boolean lineas = acepta(ex, NDJSON);
+
+        Headers h = ex.getResponseHeaders();
+        h.set("Content-Type", lineas ? NDJSON + "; charset=utf-8" : JSON);
+        h.set("ETag", etiqueta);
+        ex.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024)) {
+            StringBuilder sb = new StringBuilder(256);
+            if (!lineas) {
+                out.write("{\"desde\":" + desde + ",\"cantidad\":" + pagina.size() + ",\"producciones\":[");
+            }
+            for (int i = 0; i < pagina.size(); i++) {
+                sb.setLength(0);
+                if (!lineas && i > 0) sb.append(',');
+                JsonProduccion.escribir(sb, pagina.get(i));
+                if (lineas) sb.append('\n');
+                out.append(sb);
+            }
+            if (!lineas) out.write("]}");
+        }
+    }
+
+    private void crear(HttpExchange ex) throws IOException {
+        ProduccionAudiovisual p = leerCuerpo(ex);
+        boolean creada = conCandado(() -> {
+            if (servicio.buscarPorCodigo(p.getCodigo()) != null) return false;
+            try {
+                servicio.crear(p);
+            } catch (IllegalArgumentException e) {
+                // sin candado, otra solicitud pudo crear el mismo código después de buscarlo
+                if (servicio.buscarPorCodigo(p.getCodigo()) != null) return false;
+                throw e;
+            }
+            version.incrementAndGet();
+            return true;
+        });
+        if (!creada) {
+            error(ex, 409, "Código ya existe: " + p.getCodigo());
+            return;
+        }
+        ex.getResponseHeaders().set("Location", "/producciones/"
+                + URLEncoder.encode(p.getCodigo(), StandardCharsets.UTF_8).replace("+", "%20"));
+        byte[] cuerpo = objeto(p);
+        enviar(ex, 201, cuerpo, etiqueta(cuerpo));
+    }
+
+    private void modificar(HttpExchange ex, String codigo) throws IOException {
+        ProduccionAudiovisual nuevo = leerCuerpo(ex);
+        Boolean modificada = conCandado(() -> {
+            try {
+                boolean ok = servicio.modificar(codigo, nuevo);
+                if (ok) version.incrementAndGet();
+                return ok;
+            } catch (IllegalArgumentException duplicado) {
+                return null;
+            }
+        });
+        if (modificada == null) {
+            error(ex, 409, "Código ya existe: " + nuevo.getCodigo());
+        } else if (!modificada) {
+            error(ex, 404, "No existe la producción " + codigo);
+        } else {
+            byte[] cuerpo = objeto(nuevo);
+            enviar(ex, 200, cuerpo, etiqueta(cuerpo));
+        }
+    }
+
+    private void eliminar(HttpExchange ex, String codigo) throws IOException {
+        boolean eliminada = conCandado(() -> {
+            boolean ok = servicio.eliminar(codigo);
+            if (ok) version.incrementAndGet();
+            return ok;
+        });
+        if (!eliminada) {
+            error(ex, 404, "No existe la producción " + codigo);
+            return;
+        }
+        sinCuerpo(ex, 204);
+    }
+
+    // -----------------------------------------------------------
+    // AUXILIARES
+    // -----------------------------------------------------------
+
+    /**
+     * Parámetro o cuerpo de la solicitud inválidos; se responde 400.
+     */
+    private static final class SolicitudInvalida extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SolicitudInvalida(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /**
+     * Ejecuta una llamada al catálogo con el candado, si el catálogo lo necesita.
+     */
+    private <T> T conCandado(Supplier<T> accion) {
+        if (candado == null) return accion.get();
+        candado.lock();
+        try {
+            return accion.get();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /** @return consulta con los filtros de la solicitud, o {@code null} si no hay ninguno */
+    private static Consulta consulta(Map<String, String> parametros) {
+        Consulta c = new Consulta();
+        boolean filtra = false;
+        try {
+            if (parametros.containsKey("genero")) {
+                c.genero(parametros.get("genero"));
+                filtra = true;
+            }
+            if (parametros.containsKey("director")) {
+                c.director(parametros.get("director"));
+                filtra = true;
+            }
+            if (parametros.containsKey("tipo")) {
+                c.tipo(switch (parametros.get("tipo").toLowerCase(Locale.ROOT)) {
+                    case "pelicula", "película" -> Pelicula.class;
+                    case "serie" -> Serie.class;
+                    default -> throw new SolicitudInvalida("Tipo desconocido: " + parametros.get("tipo"));
+                });
+                filtra = true;
+            }
+            if (parametros.containsKey("anioDesde") || parametros.containsKey("anioHasta")) {
+                c.anioEntre(entero(parametros, "anioDesde", Integer.MIN_VALUE),
+                        entero(parametros, "anioHasta", Integer.MAX_VALUE));
+                filtra = true;
+            }
+            if (parametros.containsKey("duracionDesde") || parametros.containsKey("duracionHasta")) {
+                c.duracionEntre(entero(parametros, "duracionDesde", Integer.MIN_VALUE),
+                        entero(parametros, "duracionHasta", Integer.MAX_VALUE));
+                filtra = true;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new SolicitudInvalida(e.getMessage());
+        }
+        return filtra ? c : null;
+    }
+
+    private static Map<String, String> parametros(HttpExchange ex) {
+        Map<String, String> r = new HashMap<>();
+        String consulta = ex.getRequestURI().getRawQuery();
+        if (consulta == null || consulta.isEmpty()) return r;
+        for (String par : consulta.split("&")) {
+            if (par.isEmpty()) continue;
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            r.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return r;
+    }
+
+    private static int entero(Map<String, String> parametros, String nombre, int porDefecto) {
+        String valor = parametros.get(nombre);
+        if (valor == null) return porDefecto;
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new SolicitudInvalida("Número inválido en " + nombre + ": " + valor);
+        }
+    }
+
+    private static ProduccionAudiovisual leerCuerpo(HttpExchange ex) throws IOException {
+        byte[] bytes;
+        try (InputStream in = ex.getRequestBody()) {
+            bytes = in.readNBytes(MAX_CUERPO + 1);
+        }
+        if (bytes.length > MAX_CUERPO) throw new SolicitudInvalida("Cuerpo demasiado grande");
+        try {
+            return JsonProduccion.leer(new String(bytes, StandardCharsets.UTF_8).strip());
+        } catch (IllegalArgumentException e) {
+            throw new SolicitudInvalida(e.getMessage());
+        }
+    }
+
+    private static byte[] objeto(ProduccionAudiovisual p) {
+        StringBuilder sb = new StringBuilder(256);
+        JsonProduccion.escribir(sb, p);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** @return etiqueta fuerte a partir del contenido de la respuesta */
+    private static String etiqueta(byte[] cuerpo) {
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo);
+        return "\"" + Long.toHexString(crc.getValue()) + Integer.toHexString(cuerpo.length) + "\"";
+    }
+
+    /**
+     * Si la solicitud trae {@code If-None-Match} con la etiqueta, responde 304.
+     *
+     * @return {@code true} si ya se respondió
+     */
+    private static boolean noModificado(HttpExchange ex, String etiqueta) throws IOException {
+        String condicion = ex.getRequestHeaders().getFirst("If-None-Match");
+        if (condicion == null) return false;
+        String debil = etiqueta.startsWith("W/") ? etiqueta.substring(2) : etiqueta;
+        for (String e : condicion.split(",")) {
+            e = e.trim();
+            if (e.startsWith("W/")) e = e.substring(2);
+            if (e.equals("*") || e.equals(debil)) {
+                ex.getResponseHeaders().set("ETag", etiqueta);
+                sinCuerpo(ex, 304);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Envía una respuesta sin cuerpo. Antes se termina de leer la solicitud:
+     * el servidor de la JDK da por terminado el intercambio al enviar los
+     * encabezados y, si la solicitud no se leyó, cierra la conexión sin
+     * avisarle al cliente, que la reutiliza y falla.
+     */
+    private static void sinCuerpo(HttpExchange ex, int estado) throws IOException {
+        ex.getRequestBody().close();
+        ex.sendResponseHeaders(estado, -1);
+    }
+
+    private static boolean acepta(HttpExchange ex, String tipo) {
+        String aceptados = ex.getRequestHeaders().getFirst("Accept");
+        return aceptados != null && aceptados.contains(tipo);
+    }
+
+    private static void error(HttpExchange ex, int estado, String mensaje) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        JsonProduccion.escribirTexto(sb, mensaje);
+        sb.append('}');
+        enviar(ex, estado, sb.toString(), null);
+    }
+
+    private static void enviar(HttpExchange ex, int estado, String cuerpo, String etiqueta) throws IOException {
+        enviar(ex, estado, cuerpo.getBytes(StandardCharsets.UTF_8), etiqueta);
+    }
+
+    private static void enviar(HttpExchange ex, int estado, byte[] cuerpo, String etiqueta) throws IOException {
+        Headers h = ex.getResponseHeaders();
+        h.set("Content-Type", JSON);
+        if (etiqueta != null) h.set("ETag", etiqueta);
+        ex.sendResponseHeaders(estado, cuerpo.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(cuerpo);
+        }
+    }
+
+    // -----------------------------------------------------------
+    // LÍNEA DE COMANDOS
+    // -----------------------------------------------------------
+
+    /**
+     * Sirve el catálogo guardado en disco, en modo bitácora para que cada
+     * modificación quede guardada. Las operaciones se miden con el nombre
+     * {@code servidor}; con {@code --metricas} el resumen se imprime además
+     * cada tantos segundos. Con {@code --particiones} el catálogo se reparte
+     * en esa cantidad de archivos ({@link ImplOperacionCrudParticionado}).
+     *
+     * <pre>
+     *   ServidorCatalogo [--datos data.dat] [--puerto 8080] [--hilos N]
+     *                    [--politica SIEMPRE|POR_LOTES|SISTEMA] [--metricas SEGUNDOS]
+     *                    [--particiones N]
+     * </pre>
+     *
+     * @param args argumentos de la línea de comandos
+     */
+    public static void main(String[] args) {
+        if (args.length % 2 != 0) {
+            uso();
+            return;
+        }
+        String datos = "data.dat";
+        int puerto = PUERTO_POR_DEFECTO;
+        Integer hilos = null;
+        int volcado = 0;
+        int particiones = 0;
+        PoliticaSincronizacion politica = PoliticaSincronizacion.POR_LOTES;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String valor = args[i + 1];
+                switch (args[i]) {
+                    case "--datos" -> datos = valor;
+                    case "--puerto" -> puerto = Integer.parseInt(valor);
+                    case "--hilos" -> hilos = Integer.parseInt(valor);
+                    case "--politica" -> politica = PoliticaSincronizacion.valueOf(valor.toUpperCase(Locale.ROOT));
+                    case "--metricas" -> volcado = Integer.parseInt(valor);
+                    case "--particiones" -> particiones = Integer.parseInt(valor);
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            uso();
+            return;
+        }
+
+        OperacionArchivo archivo = new OperacionArchivo(datos);
+        archivo.setPoliticaSincronizacion(politica);
+        OperacionCrud catalogo;
+        Runnable cerrar;
+        if (particiones > 0) {
+            ImplOperacionCrudParticionado particionado = new ImplOperacionCrudParticionado(archivo, particiones, true);
+            catalogo = particionado;
+            cerrar = particionado::cerrar;
+        } else {
+            ImplOperacionCrud unico = new ImplOperacionCrud(archivo, true);
+            catalogo = unico;
+            cerrar = unico::cerrar;
+        }
+        ServidorCatalogo servidor = new ServidorCatalogo(new MedicionOperacionCrud(catalogo, "servidor"));
+        if (hilos != null) servidor.setHilos(hilos);
+        try {
+            int escuchando = servidor.iniciar(puerto);
+            System.out.printf("Sirviendo %,d producciones en http://localhost:%d/producciones (%s)%n",
+                    catalogo.contar(), escuchando, servidor.isHilosVirtuales() ? "hilos virtuales" : hilos(servidor));
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+            cerrar.run();
+            return;
+        }
+        if (volcado > 0) Metricas.global().iniciarVolcado(volcado, TimeUnit.SECONDS, System.out::print);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.detener(2);
+            cerrar.run();
+        }, "detener-servidor"));
+    }
+
+    private static String hilos(ServidorCatalogo servidor) {
+        return servidor.hilos + " hilos";
+    }
+
+    private static void uso() {
+        System.out.println("Uso: ServidorCatalogo [--datos data.dat] [--puerto 8080] [--hilos N]"
+                + " [--politica SIEMPRE|POR_LOTES|SISTEMA] [--metricas SEGUNDOS] [--particiones N]");
+    }
+}
@@ -1,9 +1,13 @@
 module co.edu.poli.parcial {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
+    requires java.management;
+    requires jdk.jfr;
 
     opens co.edu.poli.parcial.controlador to javafx.fxml;
     opens co.edu.poli.parcial.model to javafx.base;
 
     exports co.edu.poli.parcial.vista;
+    exports co.edu.poli.parcial.metricas;
 }
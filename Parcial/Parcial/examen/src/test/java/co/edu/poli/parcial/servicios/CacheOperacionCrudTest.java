@@ -0,0 +1,208 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la escritura diferida de {@link CacheOperacionCrud} cuando el
+ * respaldo falla o rechaza cambios pendientes.
+ *
+ * @author Felipe Parra
+ */
+class CacheOperacionCrudTest {
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @Test
+    void fallaDelRespaldoConservaLosCambiosPendientes() {
+        Respaldo respaldo = new Respaldo();
+        try (CacheOperacionCrud cache = diferida(respaldo)) {
+            cache.crear(pelicula("A"));
+            cache.crear(pelicula("B"));
+            respaldo.fallar = true;
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, cache::vaciar);
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+            assertNotNull(cache.buscarPorCodigo("A"), "la caché no debe perder cambios sin guardar");
+            assertEquals(2, cache.getEstadisticas().getPendientes());
+
+            respaldo.fallar = false;
+            cache.vaciar();
+            assertEquals(2, respaldo.datos.size());
+            assertEquals(0, cache.getEstadisticas().getPendientes());
+        }
+    }
+
+    @Test
+    void cambioRechazadoSeDescartaSinPerderLosDemas() {
+        Respaldo respaldo = new Respaldo();
+        try (CacheOperacionCrud cache = diferida(respaldo)) {
+            // el respaldo ya tiene X, pero la caché no lo ve al validar
+            Pelicula directa = pelicula("X");
+            respaldo.crear(directa);
+            respaldo.ocultos.add("X");
+
+            cache.crear(pelicula("A"));
+            cache.crear(pelicula("X"));
+            respaldo.ocultos.clear();
+
+            IllegalStateException e = assertThrows(IllegalStateException.class, cache::vaciar);
+            assertTrue(e.getMessage().contains("X"), e.getMessage());
+            assertNotNull(respaldo.buscarPorCodigo("A"));
+            assertSame(directa, cache.buscarPorCodigo("X"), "la caché debe volver a leer el respaldo");
+
+            // el error se informa una sola vez
+            cache.vaciar();
+        }
+    }
+
+    @Test
+    void cambioDeCodigoRechazadoConservaElOrigen() {
+        Respaldo respaldo = new Respaldo();
+        respaldo.crear(pelicula("A"));
+        Pelicula directa = pelicula("Z");
+        respaldo.crear(directa);
+        respaldo.ocultos.add("Z");
+        try (CacheOperacionCrud cache = diferida(respaldo)) {
+            assertTrue(cache.modificar("A", pelicula("Y")));
+            assertTrue(cache.modificar("Y", pelicula("Z")));
+            respaldo.ocultos.clear();
+
+            assertThrows(IllegalStateException.class, cache::vaciar);
+            assertNotNull(respaldo.buscarPorCodigo("A"), "la producción renombrada no debe perderse");
+            assertNull(respaldo.buscarPorCodigo("Y"));
+            assertSame(directa, respaldo.buscarPorCodigo("Z"));
+            assertNotNull(cache.buscarPorCodigo("A"));
+        }
+    }
+
+    @Test
+    void elSiguienteEscritorRecibeElErrorDeUnaEscrituraEnSegundoPlano() throws InterruptedException {
+        Respaldo respaldo = new Respaldo();
+        respaldo.crear(pelicula("X"));
+        respaldo.ocultos.add("X");
+        try (CacheOperacionCrud cache = diferida(respaldo)) {
+            cache.crear(pelicula("X"));
+            respaldo.ocultos.clear();
+            while (cache.getEstadisticas().getPendientes() > 0) Thread.sleep(10);
+
+            assertThrows(IllegalStateException.class, () -> cache.crear(pelicula("B")));
+            cache.crear(pelicula("B"));
+        }
+    }
+
+    @Test
+    void lasEstadisticasInformanElErrorDeLaEscrituraEnSegundoPlano() throws InterruptedException {
+        Respaldo respaldo = new Respaldo();
+        respaldo.fallar = true;
+        try (CacheOperacionCrud cache = diferida(respaldo)) {
+            cache.crear(pelicula("A"));
+            while (cache.getEstadisticas().getErrorEscritura() == null) Thread.sleep(10);
+            assertTrue(cache.getEstadisticas().getErrorEscritura() instanceof UncheckedIOException);
+            assertEquals(1, cache.getEstadisticas().getPendientes());
+
+            respaldo.fallar = false;
+            cache.vaciar();
+            assertNull(cache.getEstadisticas().getErrorEscritura());
+        }
+    }
+
+    @Test
+    void unaCacheDiferidaSinCerrarNoQuedaRetenidaPorElEscritor() throws InterruptedException {
+        WeakReference<CacheOperacionCrud> cache = new WeakReference<>(diferida(new Respaldo()));
+        for (int i = 0; i < 100 && cache.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(cache.get());
+    }
+
+    // -----------------------------------------------------------
+    // AUXILIARES
+    // -----------------------------------------------------------
+
+    private static CacheOperacionCrud diferida(OperacionCrud respaldo) {
+        return new CacheOperacionCrud(respaldo, 100, CacheOperacionCrud.PESO_UNITARIO,
+                CacheOperacionCrud.Escritura.DIFERIDA, CacheOperacionCrud.Expulsion.LRU);
+    }
+
+    private static Pelicula pelicula(String codigo) {
+        return new Pelicula(codigo, "Película " + codigo, 2000, 90, DIRECTOR, "Drama");
+    }
+
+    /**
+     * Respaldo en memoria que puede fallar a pedido o esconder códigos en
+     * {@link #buscarPorCodigo}, como si otro proceso los hubiera creado
+     * después de que la caché validó sus cambios. Los lotes se validan
+     * completos antes de aplicarse, como en los servicios del proyecto.
+     */
+    private static final class Respaldo implements OperacionCrud {
+        final Map<String, ProduccionAudiovisual> datos = new LinkedHashMap<>();
+        final Set<String> ocultos = new HashSet<>();
+        volatile boolean fallar;
+
+        @Override
+        public synchronized void crear(ProduccionAudiovisual p) {
+            if (datos.putIfAbsent(ImplOperacionCrud.clave(p.getCodigo()), p) != null) {
+                throw new IllegalArgumentException("Código ya existe: " + p.getCodigo());
+            }
+        }
+
+        @Override
+        public synchronized ProduccionAudiovisual buscarPorCodigo(String codigo) {
+            if (ocultos.contains(codigo)) return null;
+            return datos.get(ImplOperacionCrud.clave(codigo));
+        }
+
+        @Override
+        public synchronized List<ProduccionAudiovisual> listarTodos() {
+            return new ArrayList<>(datos.values());
+        }
+
+        @Override
+        public synchronized boolean modificar(String codigo, ProduccionAudiovisual nuevo) {
+            if (datos.remove(ImplOperacionCrud.clave(codigo)) == null) return false;
+            crear(nuevo);
+            return true;
+        }
+
+        @Override
+        public synchronized boolean eliminar(String codigo) {
+            return datos.remove(ImplOperacionCrud.clave(codigo)) != null;
+        }
+
+        @Override
+        public synchronized int aplicar(Lote lote) {
+            if (fallar) throw new UncheckedIOException(new IOException("disco lleno"));
+            PlanLote plan = new PlanLote(lote, datos::containsKey);
+            for (Lote.Operacion op : plan.efectivas) {
+                switch (op.tipo) {
+                    case BitacoraCambios.CREAR -> crear(op.produccion);
+                    case BitacoraCambios.MODIFICAR -> modificar(op.codigo, op.produccion);
+                    default -> eliminar(op.codigo);
+                }
+            }
+            return plan.getAplicadas();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del modo bitácora de {@link ImplOperacionCrud}: una instantánea
+ * que no se puede leer completa, o una carga que no termina, nunca dejan un
+ * contenido incompleto que la siguiente compactación haría definitivo.
+ *
+ * @author Felipe Parra
+ */
+class ImplOperacionCrudBitacoraTest {
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void unaInstantaneaDanadaNoSeCargaNiSeTocaEnModoBitacora() throws IOException {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), true);
+        for (int i = 0; i < 20; i++) servicio.crear(pelicula("P" + i));
+        servicio.compactar().join();
+        servicio.cerrar();
+        byte[] danado = truncar(4);
+
+        assertThrows(UncheckedIOException.class, () -> new ImplOperacionCrud(archivo(), true));
+        assertArrayEquals(danado, Files.readAllBytes(ruta()));
+        assertFalse(Files.exists(directorio.resolve("data.dat.danado")));
+    }
+
+    @Test
+    void unaRecargaFallidaConservaElContenidoYLaBitacora() throws IOException {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), true);
+        servicio.crear(pelicula("A"));
+        servicio.compactar().join();
+        servicio.crear(pelicula("B"));
+        truncar(4);
+
+        assertThrows(UncheckedIOException.class, servicio::cargarDesdeArchivo);
+        assertEquals(2, servicio.listarTodos().size());
+        servicio.crear(pelicula("C"));
+        servicio.compactar().join();
+        servicio.cerrar();
+
+        ImplOperacionCrud recargado = new ImplOperacionCrud(archivo(), true);
+        assertEquals(3, recargado.listarTodos().size());
+        recargado.cerrar();
+    }
+
+    @Test
+    void unaCargaPorLotesFallidaRestauraElContenidoYLaBitacora() {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), true);
+        for (int i = 0; i < 20; i++) servicio.crear(pelicula("P" + i));
+        servicio.compactar().join();
+        servicio.crear(pelicula("X"));
+
+        CompletableFuture<?> carga = servicio.cargarDesdeArchivoPorLotes(5, ProgresoOperacion.NINGUNO,
+                Runnable::run, lote -> {
+                    throw new IllegalStateException("la vista falló");
+                });
+        assertThrows(CompletionException.class, carga::join);
+        assertEquals(21, servicio.listarTodos().size());
+        servicio.crear(pelicula("Y"));
+        servicio.compactar().join();
+        servicio.cerrar();
+
+        ImplOperacionCrud recargado = new ImplOperacionCrud(archivo(), true);
+        assertEquals(22, recargado.listarTodos().size());
+        recargado.cerrar();
+    }
+
+    @Test
+    void unaCopiaDanadaAnteriorNoSeReemplaza() throws IOException {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), false);
+        for (int i = 0; i < 20; i++) servicio.crear(pelicula("P" + i));
+        servicio.guardarArchivo();
+        byte[] original = Files.readAllBytes(ruta());
+        byte[] primero = truncar(4);
+
+        servicio.cargarDesdeArchivo();
+        servicio.cargarDesdeArchivo();
+        Path copia = directorio.resolve("data.dat.danado");
+        assertArrayEquals(primero, Files.readAllBytes(copia));
+        assertFalse(Files.exists(directorio.resolve("data.dat.danado.1")), "la misma copia no se repite");
+
+        Files.write(ruta(), original);
+        byte[] segundo = truncar(8);
+        servicio.cargarDesdeArchivo();
+        assertArrayEquals(primero, Files.readAllBytes(copia));
+        assertTrue(Files.exists(directorio.resolve("data.dat.danado.1")));
+        assertArrayEquals(segundo, Files.readAllBytes(directorio.resolve("data.dat.danado.1")));
+    }
+
+    @Test
+    void unaCargaRecuperadaSeInformaAlAviso() throws IOException {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), false);
+        for (int i = 0; i < 20; i++) servicio.crear(pelicula("P" + i));
+        servicio.guardarArchivo();
+        truncar(4);
+
+        List<LecturaIncompleta> avisos = new ArrayList<>();
+        OperacionArchivo archivo = archivo();
+        archivo.setAvisoLecturaIncompleta(avisos::add);
+        ImplOperacionCrud recargado = new ImplOperacionCrud(archivo, false);
+        recargado.cargarDesdeArchivo();
+
+        assertEquals(1, avisos.size());
+        LecturaIncompleta aviso = avisos.get(0);
+        assertEquals(20, aviso.getTotal());
+        assertEquals(recargado.contar(), aviso.getRecuperadas());
+        assertEquals(directorio.resolve("data.dat.danado"), aviso.getCopia());
+    }
+
+    @Test
+    void unaRecargaNoReemplazaLosDirectoresDelArchivoPorLosAnteriores() {
+        ImplOperacionCrud servicio = new ImplOperacionCrud(archivo(), false);
+        servicio.crear(pelicula("A"));
+        servicio.guardarArchivo();
+
+        ImplOperacionCrud otro = new ImplOperacionCrud(archivo(), false);
+        otro.cargarDesdeArchivo();
+        otro.eliminar("A");
+        otro.crear(new Pelicula("A", "Película A", 2000, 90, new Director("D2", "Directora", "Perú"), "Drama"));
+        otro.guardarArchivo();
+
+        servicio.cargarDesdeArchivo();
+        Director director = servicio.buscarPorCodigo("A").getDirector();
+        assertEquals("D2", director.getId());
+        assertEquals("Perú", director.getNacionalidad());
+    }
+
+    private Path ruta() {
+        return directorio.resolve("data.dat");
+    }
+
+    private OperacionArchivo archivo() {
+        OperacionArchivo archivo = new OperacionArchivo(ruta().toString());
+        archivo.setPoliticaSincronizacion(PoliticaSincronizacion.SISTEMA);
+        return archivo;
+    }
+
+    /** Quita los últimos bytes de la instantánea y devuelve el contenido resultante. */
+    private byte[] truncar(int bytes) throws IOException {
+        byte[] datos = Files.readAllBytes(ruta());
+        byte[] truncado = Arrays.copyOf(datos, datos.length - bytes);
+        Files.write(ruta(), truncado);
+        return truncado;
+    }
+
+    private static Pelicula pelicula(String codigo) {
+        return new Pelicula(codigo, "Película " + codigo, 2000, 90, DIRECTOR, "Drama");
+    }
+}
@@ -0,0 +1,221 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+import co.edu.poli.parcial.model.ProduccionAudiovisual;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de estrés de {@link ImplOperacionCrudConcurrente}: varios hilos
+ * crean, eliminan y cambian códigos sobre un mismo conjunto de claves mientras
+ * otros toman copias completas, y cada copia debe ser un estado posible.
+ *
+ * @author Felipe Parra
+ */
+class ImplOperacionCrudConcurrenteTest {
+
+    private static final int ESCRITORES = 4;
+    private static final int LECTORES = 2;
+    private static final int OPERACIONES = 20_000;
+
+    /** Cantidad de códigos distintos; pocos, para que los hilos choquen a menudo. */
+    private static final int CODIGOS = 64;
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @Test
+    void cambiosDeCodigoNuncaDuplicanNiPierdenProducciones() throws Exception {
+        ImplOperacionCrudConcurrente servicio = new ImplOperacionCrudConcurrente();
+        int n = CODIGOS / 2;
+        for (int i = 0; i < n; i++) servicio.crear(pelicula(i));
+
+        AtomicBoolean terminado = new AtomicBoolean();
+        List<Callable<Void>> tareas = new ArrayList<>();
+        for (int t = 0; t < ESCRITORES; t++) {
+            tareas.add(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERACIONES; i++) {
+                    String codigo = codigo(r.nextInt(CODIGOS));
+                    ProduccionAudiovisual actual = servicio.buscarPorCodigo(codigo);
+                    if (actual == null) continue;
+                    try {
+                        servicio.modificar(codigo, renombrada(actual, r.nextInt(CODIGOS)));
+                    } catch (IllegalArgumentException e) {
+                        // el código nuevo ya estaba ocupado
+                    }
+                }
+                return null;
+            });
+        }
+        for (int t = 0; t < LECTORES; t++) {
+            tareas.add(() -> {
+                while (!terminado.get()) {
+                    List<ProduccionAudiovisual> copia = servicio.listarTodos();
+                    assertEquals(n, copia.size(), "un cambio de código quedó a medias en la copia");
+                    assertSinDuplicados(copia);
+                    assertEquals(n, servicio.contar());
+                }
+                return null;
+            });
+        }
+
+        ejecutar(tareas, terminado);
+
+        List<ProduccionAudiovisual> fin = servicio.listarTodos();
+        assertEquals(n, fin.size());
+        assertSinDuplicados(fin);
+        assertIndiceCoherente(servicio, fin);
+    }
+
+    @Test
+    void crearEliminarYRenombrarConservanElConteo() throws Exception {
+        ImplOperacionCrudConcurrente servicio = new ImplOperacionCrudConcurrente();
+        AtomicInteger esperado = new AtomicInteger();
+
+        AtomicBoolean terminado = new AtomicBoolean();
+        List<Callable<Void>> tareas = new ArrayList<>();
+        for (int t = 0; t < ESCRITORES; t++) {
+            tareas.add(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERACIONES; i++) {
+                    int c = r.nextInt(CODIGOS);
+                    try {
+                        switch (r.nextInt(3)) {
+                            case 0:
+                                servicio.crear(pelicula(c));
+                                esperado.incrementAndGet();
+                                break;
+                            case 1:
+                                if (servicio.eliminar(codigo(c))) esperado.decrementAndGet();
+                                break;
+                            default:
+                                ProduccionAudiovisual actual = servicio.buscarPorCodigo(codigo(c));
+                                if (actual != null) {
+                                    servicio.modificar(codigo(c), renombrada(actual, r.nextInt(CODIGOS)));
+                                }
+                                break;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // el código ya estaba ocupado
+                    }
+                }
+                return null;
+            });
+        }
+        for (int t = 0; t < LECTORES; t++) {
+            tareas.add(() -> {
+                while (!terminado.get()) {
+                    List<ProduccionAudiovisual> copia = servicio.listarTodos();
+                    assertTrue(copia.size() <= CODIGOS, "más producciones que códigos posibles");
+                    assertSinDuplicados(copia);
+                }
+                return null;
+            });
+        }
+
+        ejecutar(tareas, terminado);
+
+        List<ProduccionAudiovisual> fin = servicio.listarTodos();
+        assertEquals(esperado.get(), fin.size());
+        assertEquals(esperado.get(), servicio.contar());
+        assertSinDuplicados(fin);
+        assertIndiceCoherente(servicio, fin);
+    }
+
+    @Test
+    void unObservadorSincronoPuedeVolverALlamarAlServicio() {
+        ImplOperacionCrudConcurrente servicio = new ImplOperacionCrudConcurrente();
+        List<Integer> vistos = new ArrayList<>();
+        servicio.suscribir(eventos -> vistos.add(servicio.listarTodos().size()), Runnable::run);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            servicio.crear(pelicula(0));
+            servicio.modificar(codigo(0), pelicula(1));
+            servicio.eliminar(codigo(1));
+        });
+        assertEquals(List.of(1, 1, 0), vistos);
+    }
+
+    // -----------------------------------------------------------
+    // AUXILIARES
+    // -----------------------------------------------------------
+
+    /**
+     * Lanza todas las tareas a la vez, espera a los escritores (las primeras
+     * {@link #ESCRITORES}) y luego detiene a los lectores. Relanza el primer
+     * error de cualquier hilo.
+     */
+    private static void ejecutar(List<Callable<Void>> tareas, AtomicBoolean terminado) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(tareas.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futuros = new ArrayList<>();
+            for (Callable<Void> t : tareas) {
+                futuros.add(hilos.submit(() -> {
+                    salida.await();
+                    return t.call();
+                }));
+            }
+            salida.countDown();
+            try {
+                for (int i = 0; i < ESCRITORES; i++) futuros.get(i).get(60, TimeUnit.SECONDS);
+            } finally {
+                terminado.set(true);
+            }
+            for (Future<Void> f : futuros) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private static void assertSinDuplicados(List<ProduccionAudiovisual> copia) {
+        Set<String> vistos = new HashSet<>();
+        for (ProduccionAudiovisual p : copia) {
+            assertTrue(vistos.add(ImplOperacionCrud.clave(p.getCodigo())), "código duplicado: " + p.getCodigo());
+        }
+    }
+
+    /** Cada producción listada se encuentra por su código, y ningún otro código está ocupado. */
+    private static void assertIndiceCoherente(OperacionCrud servicio, List<ProduccionAudiovisual> fin) {
+        for (ProduccionAudiovisual p : fin) assertSame(p, servicio.buscarPorCodigo(p.getCodigo()));
+        int ocupados = 0;
+        for (int i = 0; i < CODIGOS; i++) {
+            if (servicio.buscarPorCodigo(codigo(i)) != null) ocupados++;
+        }
+        assertEquals(fin.size(), ocupados);
+    }
+
+    private static String codigo(int i) {
+        return "P" + i;
+    }
+
+    private static Pelicula pelicula(int i) {
+        return new Pelicula(codigo(i), "Película " + i, 2000, 90, DIRECTOR, "Drama");
+    }
+
+    /** Copia de la producción con otro código, como haría el formulario. */
+    private static Pelicula renombrada(ProduccionAudiovisual p, int i) {
+        return new Pelicula(codigo(i), p.getTitulo(), p.getFechaEstreno(), p.getDuracionMin(), DIRECTOR, "Drama");
+    }
+}
@@ -0,0 +1,80 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Pruebas de los archivos de índice de {@link ImplOperacionCrudMapeado}: cada
+ * reconstrucción escribe una generación nueva en lugar de reemplazar un
+ * archivo mapeado, y un índice inválido se descarta sin mapearlo.
+ *
+ * @author Felipe Parra
+ */
+class ImplOperacionCrudMapeadoTest {
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void elIndiceCreceEnUnaGeneracionNuevaYLaAnteriorSeBorra() throws IOException {
+        ImplOperacionCrudMapeado almacen = new ImplOperacionCrudMapeado(base());
+        List<Path> alCrear = indices();
+        for (int i = 0; i < 2000; i++) almacen.crear(pelicula("P" + i));
+        almacen.close();
+
+        List<Path> alCerrar = indices();
+        assertEquals(1, alCerrar.size());
+        assertNotEquals(alCrear, alCerrar, "el índice ampliado debe estar en otra generación");
+
+        almacen = new ImplOperacionCrudMapeado(base());
+        for (int i = 0; i < 2000; i++) assertNotNull(almacen.buscarPorCodigo("P" + i));
+        assertEquals(alCerrar, indices());
+        almacen.close();
+    }
+
+    @Test
+    void unIndiceInvalidoSeReconstruye() throws IOException {
+        ImplOperacionCrudMapeado almacen = new ImplOperacionCrudMapeado(base());
+        for (int i = 0; i < 10; i++) almacen.crear(pelicula("P" + i));
+        almacen.close();
+        Files.write(indices().get(0), new byte[] {1, 2, 3});
+
+        almacen = new ImplOperacionCrudMapeado(base());
+        assertEquals(10, almacen.contar());
+        for (int i = 0; i < 10; i++) assertNotNull(almacen.buscarPorCodigo("P" + i));
+        assertEquals(1, indices().size());
+        almacen.close();
+    }
+
+    private String base() {
+        return directorio.resolve("catalogo").toString();
+    }
+
+    /** @return archivos de índice presentes en el directorio, en orden */
+    private List<Path> indices() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(p -> p.getFileName().toString().startsWith("catalogo.idx"))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Pelicula pelicula(String codigo) {
+        return new Pelicula(codigo, "Película " + codigo, 2000, 90, DIRECTOR, "Drama");
+    }
+}
@@ -0,0 +1,159 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Pruebas de {@link ImplOperacionCrudParticionado}: el canal único de
+ * eventos, los movimientos entre particiones y el guardado de todas las
+ * particiones como una sola operación.
+ *
+ * @author Felipe Parra
+ */
+class ImplOperacionCrudParticionadoTest {
+
+    private static final int PARTICIONES = 2;
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void publicaLosCambiosDeTodasLasParticionesEnUnSoloCanal() {
+        ImplOperacionCrudParticionado servicio = servicio(true);
+        List<EventoCambio> recibidos = new ArrayList<>();
+        servicio.suscribir(recibidos::addAll, Runnable::run);
+
+        String a = codigoEn(0, 0);
+        String b = codigoEn(1, 0);
+        String c = codigoEn(1, 1);
+        servicio.crear(pelicula(a));
+        servicio.modificar(a, pelicula(b));
+        servicio.aplicar(new Lote().eliminar(b).crear(pelicula(c)));
+        servicio.cargarDesdeArchivo();
+        servicio.cerrar();
+
+        List<EventoCambio.Tipo> tipos = new ArrayList<>();
+        for (EventoCambio e : recibidos) tipos.add(e.getTipo());
+        assertEquals(List.of(EventoCambio.Tipo.CREADA, EventoCambio.Tipo.MODIFICADA, EventoCambio.Tipo.ELIMINADA,
+                EventoCambio.Tipo.CREADA, EventoCambio.Tipo.RECARGADA), tipos);
+        assertEquals(a, recibidos.get(1).getAnterior().getCodigo());
+        assertEquals(b, recibidos.get(1).getNueva().getCodigo());
+        assertEquals(b, recibidos.get(2).getAnterior().getCodigo());
+    }
+
+    @Test
+    void unObservadorSincronoPuedeVolverALlamarAlServicio() {
+        ImplOperacionCrudParticionado servicio = servicio(false);
+        List<Integer> vistos = new ArrayList<>();
+        // la lectura corre en otro hilo, como las tareas por partición con varios núcleos
+        servicio.suscribir(eventos -> vistos.add(
+                CompletableFuture.supplyAsync(() -> servicio.listarTodos().size()).join()), Runnable::run);
+
+        String a = codigoEn(0, 0);
+        String b = codigoEn(1, 0);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            servicio.crear(pelicula(a));
+            servicio.modificar(a, pelicula(b));
+            servicio.aplicar(new Lote().crear(pelicula(a)));
+            servicio.eliminar(b);
+        });
+        assertEquals(List.of(1, 1, 2, 1), vistos);
+    }
+
+    @Test
+    void laCargaCompletaUnMovimientoInterrumpido() throws IOException {
+        String a = codigoEn(0, 0);
+        String b = codigoEn(1, 0);
+        ImplOperacionCrudParticionado servicio = servicio(true);
+        servicio.crear(pelicula(a));
+        // la creación en la partición de destino llegó a su bitácora; la eliminación, no
+        servicio.crear(pelicula(b));
+        servicio.cerrar();
+
+        Path ruta = directorio.resolve("data.dat.mov");
+        BitacoraCambios movimientos = new BitacoraCambios(ruta, PoliticaSincronizacion.SISTEMA);
+        movimientos.abrir();
+        Pelicula renombrada = new Pelicula(b, "Renombrada", 2001, 95, DIRECTOR, "Drama");
+        movimientos.registrarLote(List.of(new Lote.Operacion(BitacoraCambios.MODIFICAR, a, renombrada)));
+        movimientos.close();
+
+        for (int vez = 0; vez < 2; vez++) {
+            servicio = servicio(true);
+            assertEquals(1, servicio.contar());
+            assertNull(servicio.buscarPorCodigo(a));
+            assertEquals("Renombrada", servicio.buscarPorCodigo(b).getTitulo());
+            servicio.cerrar();
+            assertEquals(0, Files.size(ruta), "la bitácora de movimientos debe quedar vacía");
+        }
+    }
+
+    @Test
+    void unGuardadoSinConfirmarSeDescartaYUnoConfirmadoSeTermina() throws IOException {
+        String a = codigoEn(0, 0);
+        String b = codigoEn(1, 0);
+        String x = codigoEn(0, 1);
+        ImplOperacionCrudParticionado servicio = servicio(false);
+        servicio.crear(pelicula(a));
+        servicio.crear(pelicula(b));
+        servicio.guardarArchivo();
+
+        Path nuevo = Path.of(ImplOperacionCrudParticionado.rutaParticion(archivo().getArchivo(), 0) + ".nuevo");
+        new OperacionArchivo(nuevo.toString()).guardarInstantanea(List.of(pelicula(x)));
+        servicio = servicio(false);
+        servicio.cargarDesdeArchivo();
+        assertNotNull(servicio.buscarPorCodigo(a));
+        assertNull(servicio.buscarPorCodigo(x));
+        assertFalse(Files.exists(nuevo));
+
+        new OperacionArchivo(nuevo.toString()).guardarInstantanea(List.of(pelicula(x)));
+        Path marca = directorio.resolve("data.dat.confirmar");
+        Files.createFile(marca);
+        servicio = servicio(false);
+        servicio.cargarDesdeArchivo();
+        assertNull(servicio.buscarPorCodigo(a));
+        assertNotNull(servicio.buscarPorCodigo(x));
+        assertNotNull(servicio.buscarPorCodigo(b));
+        assertFalse(Files.exists(nuevo));
+        assertFalse(Files.exists(marca));
+    }
+
+    private OperacionArchivo archivo() {
+        return new OperacionArchivo(directorio.resolve("data.dat").toString());
+    }
+
+    private ImplOperacionCrudParticionado servicio(boolean conBitacora) {
+        return new ImplOperacionCrudParticionado(archivo(), PARTICIONES, conBitacora);
+    }
+
+    /** @return el código número {@code n} de los que caen en la partición dada, según la función del servicio */
+    private static String codigoEn(int particion, int n) {
+        for (int i = 0; ; i++) {
+            String codigo = "P" + i;
+            int h = ImplOperacionCrud.clave(codigo).hashCode();
+            if (Math.floorMod(h ^ (h >>> 16), PARTICIONES) == particion && n-- == 0) return codigo;
+        }
+    }
+
+    private static Pelicula pelicula(String codigo) {
+        return new Pelicula(codigo, "Película " + codigo, 2000, 90, DIRECTOR, "Drama");
+    }
+}
@@ -0,0 +1,86 @@
+package co.edu.poli.parcial.servicios;
+
+import co.edu.poli.parcial.model.Director;
+import co.edu.poli.parcial.model.Pelicula;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Pruebas de la publicación de {@link EventoCambio} en los servicios que no
+ * guardan el catálogo en objetos, y del manejo de observadores que fallan.
+ *
+ * @author Felipe Parra
+ */
+class PublicacionCambiosTest {
+
+    private static final Director DIRECTOR = new Director("D1", "Directora", "Colombia");
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void columnarPublicaSusCambios() {
+        verificarEventos(new ImplOperacionCrudColumnar());
+    }
+
+    @Test
+    void mapeadoPublicaSusCambios() throws IOException {
+        try (ImplOperacionCrudMapeado servicio = new ImplOperacionCrudMapeado(directorio.resolve("data").toString())) {
+            verificarEventos(servicio);
+        }
+    }
+
+    @Test
+    void observadorQueFallaNoAfectaAlServicioNiALosDemas() throws InterruptedException {
+        ImplOperacionCrudColumnar servicio = new ImplOperacionCrudColumnar();
+        List<EventoCambio> recibidos = new ArrayList<>();
+        servicio.suscribir(eventos -> {
+            throw new IllegalStateException("falla del observador");
+        }, Runnable::run);
+        servicio.suscribir(recibidos::addAll, Runnable::run);
+
+        List<Throwable> informados = new ArrayList<>();
+        Thread hilo = new Thread(() -> servicio.crear(pelicula("A")));
+        hilo.setUncaughtExceptionHandler((t, e) -> informados.add(e));
+        hilo.start();
+        hilo.join();
+
+        assertEquals(1, servicio.contar(), "la operación no debe fallar por el observador");
+        assertEquals(1, recibidos.size());
+        assertEquals(1, informados.size());
+        assertEquals("falla del observador", informados.get(0).getMessage());
+    }
+
+    private static void verificarEventos(OperacionCrud servicio) {
+        List<EventoCambio> recibidos = new ArrayList<>();
+        servicio.suscribir(recibidos::addAll, Runnable::run);
+
+        Pelicula a = pelicula("A");
+        servicio.crear(a);
+        servicio.modificar("A", pelicula("B"));
+        servicio.eliminar("B");
+
+        assertEquals(3, recibidos.size());
+        assertEquals(EventoCambio.Tipo.CREADA, recibidos.get(0).getTipo());
+        assertSame(a, recibidos.get(0).getNueva());
+        assertEquals(EventoCambio.Tipo.MODIFICADA, recibidos.get(1).getTipo());
+        assertEquals("A", recibidos.get(1).getCodigo());
+        assertEquals("A", recibidos.get(1).getAnterior().getCodigo());
+        assertEquals("B", recibidos.get(1).getNueva().getCodigo());
+        assertEquals(EventoCambio.Tipo.ELIMINADA, recibidos.get(2).getTipo());
+        assertEquals("B", recibidos.get(2).getAnterior().getCodigo());
+    }
+
+    private static Pelicula pelicula(String codigo) {
+        return new Pelicula(codigo, "Película " + codigo, 2000, 90, DIRECTOR, "Drama");
+    }
+}
@@ -0,0 +1,102 @@
+package co.edu.poli.parcial.servicios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de {@link PublicadorLotes}: con un ejecutor de varios hilos o con
+ * entrega en el mismo hilo, el consumidor nunca corre dos veces a la vez y
+ * recibe los lotes de cada productor en orden.
+ *
+ * @author Felipe Parra
+ */
+class PublicadorLotesTest {
+
+    private static final int PRODUCTORES = 4;
+    private static final int LOTES = 20_000;
+
+    @Test
+    void entregasNoSeSolapanConEjecutorDeVariosHilos() throws Exception {
+        ExecutorService destino = Executors.newFixedThreadPool(4);
+        ExecutorService productores = Executors.newFixedThreadPool(PRODUCTORES);
+        try {
+            AtomicInteger dentro = new AtomicInteger();
+            AtomicBoolean solapado = new AtomicBoolean();
+            int[] ultimo = new int[PRODUCTORES];
+            Arrays.fill(ultimo, -1);
+            AtomicBoolean desordenado = new AtomicBoolean();
+            AtomicInteger recibidos = new AtomicInteger();
+
+            // cada elemento es productor * LOTES + secuencia
+            PublicadorLotes<Integer> publicador = new PublicadorLotes<>(destino, lote -> {
+                if (dentro.incrementAndGet() != 1) solapado.set(true);
+                for (int v : lote) {
+                    int p = v / LOTES;
+                    if (v % LOTES <= ultimo[p]) desordenado.set(true);
+                    ultimo[p] = v % LOTES;
+                }
+                recibidos.addAndGet(lote.size());
+                Thread.yield();
+                dentro.decrementAndGet();
+            });
+
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int p = 0; p < PRODUCTORES; p++) {
+                int base = p * LOTES;
+                futuros.add(productores.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < LOTES; i++) publicador.publicar(List.of(base + i));
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> f : futuros) f.get(60, TimeUnit.SECONDS);
+            publicador.vaciar().get(60, TimeUnit.SECONDS);
+
+            assertFalse(solapado.get(), "el consumidor corrió en dos hilos a la vez");
+            assertFalse(desordenado.get(), "los lotes de un productor llegaron desordenados");
+            assertEquals(PRODUCTORES * LOTES, recibidos.get());
+        } finally {
+            productores.shutdownNow();
+            destino.shutdownNow();
+        }
+    }
+
+    @Test
+    void publicarDesdeElConsumidorEnElMismoHiloNoAnidaEntregas() {
+        List<Integer> recibidos = new ArrayList<>();
+        AtomicInteger dentro = new AtomicInteger();
+        AtomicBoolean anidado = new AtomicBoolean();
+        AtomicReference<PublicadorLotes<Integer>> ref = new AtomicReference<>();
+        ref.set(new PublicadorLotes<>(Runnable::run, lote -> {
+            if (dentro.incrementAndGet() != 1) anidado.set(true);
+            for (int v : lote) {
+                recibidos.add(v);
+                if (v < 5) ref.get().publicar(List.of(v + 1));
+            }
+            dentro.decrementAndGet();
+        }));
+
+        ref.get().publicar(List.of(0));
+
+        assertFalse(anidado.get(), "una entrega empezó dentro de otra");
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), recibidos);
+        assertTrue(ref.get().vaciar().isDone());
+    }
+}